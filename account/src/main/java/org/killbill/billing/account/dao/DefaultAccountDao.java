@@ -176,6 +176,11 @@ public class DefaultAccountDao extends EntityDaoBase<AccountModelDao, Account, A
                                                   public Iterator<AccountModelDao> build(final AccountSqlDao accountSqlDao, final Long offset, final Long limit, final Ordering ordering, final InternalTenantContext context) {
                                                       return accountSqlDao.search(searchKey, String.format("%%%s%%", searchKey), offset, limit, ordering.toString(), context);
                                                   }
+
+                                                  @Override
+                                                  public Iterator<AccountModelDao> buildFromRecordId(final AccountSqlDao accountSqlDao, final Long minRecordId, final Long maxRecordId, final Long limit, final Ordering ordering, final InternalTenantContext context) {
+                                                      return accountSqlDao.searchByRecordIdRange(searchKey, String.format("%%%s%%", searchKey), minRecordId, maxRecordId, limit, ordering.toString(), context);
+                                                  }
                                               },
                                               offset,
                                               limit,
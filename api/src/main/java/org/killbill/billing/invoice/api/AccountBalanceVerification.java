@@ -0,0 +1,38 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.api;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public interface AccountBalanceVerification {
+
+    public UUID getAccountId();
+
+    /**
+     * @return the balance as computed from the balance ledger, or null if the ledger isn't populated for that account
+     */
+    public BigDecimal getLedgerBalance();
+
+    /**
+     * @return the balance as computed by re-constructing all invoices of the account
+     */
+    public BigDecimal getComputedBalance();
+
+    public boolean isConsistent();
+}
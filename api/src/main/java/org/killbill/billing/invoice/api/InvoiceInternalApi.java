@@ -29,6 +29,7 @@ import org.joda.time.LocalDate;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.TenantContext;
 
 public interface InvoiceInternalApi {
@@ -37,8 +38,35 @@ public interface InvoiceInternalApi {
 
     public Collection<Invoice> getUnpaidInvoicesByAccountId(UUID accountId, LocalDate upToDate, InternalTenantContext context);
 
+    /**
+     * Same as getUnpaidInvoicesByAccountId, but only returns the aggregates: the invoices aren't re-constructed.
+     *
+     * @param accountId account id
+     * @param upToDate  only consider invoices with a target date up to that date
+     * @param context   the tenant context
+     * @return the summary of the unpaid invoices
+     */
+    public UnpaidInvoicesSummary getUnpaidInvoicesSummary(UUID accountId, LocalDate upToDate, InternalTenantContext context);
+
     public BigDecimal getAccountBalance(UUID accountId, InternalTenantContext context);
 
+    /**
+     * Compare the account balance maintained by the balance ledger with the one computed from all invoices
+     *
+     * @param accountId account id
+     * @param context   the tenant context
+     * @return the result of the verification
+     */
+    public AccountBalanceVerification verifyAccountBalance(UUID accountId, TenantContext context);
+
+    /**
+     * Re-compute all balance ledger entries of the account
+     *
+     * @param accountId account id
+     * @param context   the callcontext
+     */
+    public void rebuildAccountBalance(UUID accountId, CallContext context);
+
     public void recordPaymentAttemptInit(UUID invoiceId, BigDecimal amountOutstanding, Currency currency, Currency processedCurrency, UUID paymentId, UUID paymentAttemptId, String transactionExternalKey, DateTime paymentDate, InternalCallContext context) throws InvoiceApiException;
 
     public void recordPaymentAttemptCompletion(UUID invoiceId, BigDecimal amountOutstanding, Currency currency, Currency processedCurrency, UUID paymentId, UUID paymentAttemptId, String transactionExternalKey, DateTime paymentDate, boolean success, InternalCallContext context) throws InvoiceApiException;
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.api;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import org.joda.time.LocalDate;
+
+/**
+ * Aggregated view of the unpaid invoices of an account (see InvoiceInternalApi#getUnpaidInvoicesByAccountId),
+ * without the invoices themselves.
+ */
+public interface UnpaidInvoicesSummary {
+
+    public UUID getAccountId();
+
+    public int getNumberOfUnpaidInvoices();
+
+    public BigDecimal getUnpaidInvoiceBalance();
+
+    /**
+     * @return the invoice date of the earliest unpaid invoice, or null if there is no unpaid invoice
+     */
+    public LocalDate getDateOfEarliestUnpaidInvoice();
+
+    /**
+     * @return the id of the earliest unpaid invoice, or null if there is no unpaid invoice
+     */
+    public UUID getIdOfEarliestUnpaidInvoice();
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage;
+
+import java.util.List;
+import java.util.Map;
+
+import org.killbill.billing.usage.api.SubscriptionUsageRecord;
+import org.killbill.billing.usage.api.UsageApiException;
+import org.killbill.billing.util.callcontext.CallContext;
+
+/**
+ * Bulk variant of UsageUserApi#recordRolledUpUsage, for high-volume metering.
+ */
+public interface BulkUsageUserApi {
+
+    /**
+     * Record usage for multiple subscriptions (potentially across accounts) at once. Each record is validated
+     * independently (unknown subscription, usage after the effective end date of the subscription, tracking id
+     * already recorded or duplicated within the request): the rejected records are reported, all the others are recorded.
+     * <p/>
+     * The records are inserted in one transaction per account: if that transaction fails, all the records of that account
+     * are reported (none of them were recorded) while the records of the other accounts are still recorded. Only the
+     * reported records should be retried.
+     *
+     * @param records the usage records
+     * @param context the call context
+     * @return the errors for the rejected records, keyed by their index in records
+     */
+    public Map<Integer, UsageApiException> recordRolledUpUsage(final List<SubscriptionUsageRecord> records, final CallContext context);
+}
@@ -1263,5 +1263,35 @@ public class TestIntegrationBase extends BeatrixTestSuiteWithEmbeddedDB implemen
         public void setShouldParkAccountsWithUnknownUsage(final boolean shouldParkAccountsWithUnknownUsage) {
             this.shouldParkAccountsWithUnknownUsage = shouldParkAccountsWithUnknownUsage;
         }
+
+        @Override
+        public boolean isIncrementalInvoicingEnabled() {
+            return defaultInvoiceConfig.isIncrementalInvoicingEnabled();
+        }
+
+        @Override
+        public boolean isIncrementalInvoicingEnabled(final InternalTenantContext tenantContext) {
+            return defaultInvoiceConfig.isIncrementalInvoicingEnabled(tenantContext);
+        }
+
+        @Override
+        public int getParallelGenerationNbThreads() {
+            return defaultInvoiceConfig.getParallelGenerationNbThreads();
+        }
+
+        @Override
+        public int getParallelGenerationMinSubscriptions() {
+            return defaultInvoiceConfig.getParallelGenerationMinSubscriptions();
+        }
+
+        @Override
+        public int getParallelGenerationMinSubscriptions(final InternalTenantContext tenantContext) {
+            return defaultInvoiceConfig.getParallelGenerationMinSubscriptions(tenantContext);
+        }
+
+        @Override
+        public boolean isBillingEventsBinaryFormatEnabled() {
+            return defaultInvoiceConfig.isBillingEventsBinaryFormatEnabled();
+        }
     }
 }
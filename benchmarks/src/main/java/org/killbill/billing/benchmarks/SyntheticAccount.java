@@ -0,0 +1,176 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.killbill.billing.account.api.DefaultImmutableAccountData;
+import org.killbill.billing.account.api.ImmutableAccountData;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.catalog.MockPlan;
+import org.killbill.billing.catalog.api.BillingPeriod;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.catalog.api.Plan;
+import org.killbill.billing.catalog.api.PlanPhase;
+import org.killbill.billing.catalog.api.Usage;
+import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.invoice.api.InvoiceStatus;
+import org.killbill.billing.invoice.model.DefaultInvoice;
+import org.killbill.billing.invoice.model.RecurringInvoiceItem;
+import org.killbill.billing.junction.BillingEventSet;
+import org.killbill.billing.junction.plumbing.billing.DefaultBillingEvent;
+import org.killbill.billing.junction.plumbing.billing.DefaultBillingEventSet;
+import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
+import org.killbill.billing.util.callcontext.CallOrigin;
+import org.killbill.billing.util.callcontext.UserType;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Synthetic, fully in-memory account used as the fixture of the benchmarks: N monthly IN_ADVANCE subscriptions
+ * created over the past year and, for each of them, the recurring items which have already been invoiced.
+ * <p/>
+ * The generation is seeded (identifiers included) and, unless a date is specified, relative to {@link #REFERENCE_DATE_TIME},
+ * so that two runs (or two JVM forks) see exactly the same data.
+ */
+public class SyntheticAccount {
+
+    public static final Currency CURRENCY = Currency.USD;
+    // Fixed "now" of the benchmarks: the wall clock would change the billing periods (and the number of items) from one run to the next
+    public static final DateTime REFERENCE_DATE_TIME = new DateTime(2020, 6, 15, 12, 0, 0, DateTimeZone.UTC);
+
+    // Subscriptions are created over that many months before the target date
+    private static final int SUBSCRIPTION_SPREAD_IN_MONTHS = 12;
+    private static final long SEED = 42L;
+
+    private final UUID accountId;
+    private final ImmutableAccountData accountData;
+    private final InternalCallContext internalCallContext;
+    private final LocalDate targetDate;
+    private final List<UUID> subscriptionIds;
+    private final BillingEventSet billingEvents;
+    private final List<Invoice> existingInvoices;
+    private final List<InvoiceItem> existingItems;
+
+    public SyntheticAccount(final int nbSubscriptions) {
+        this(nbSubscriptions, REFERENCE_DATE_TIME);
+    }
+
+    public SyntheticAccount(final int nbSubscriptions, final DateTime now) {
+        final Random random = new Random(SEED);
+
+        this.accountId = newUUID(random);
+        this.targetDate = now.toLocalDate();
+        final DateTime referenceTime = now.minusMonths(SUBSCRIPTION_SPREAD_IN_MONTHS + 1);
+        this.accountData = new DefaultImmutableAccountData(accountId, accountId.toString(), CURRENCY, DateTimeZone.UTC, DateTimeZone.UTC, referenceTime);
+        this.internalCallContext = new InternalCallContext(1L, 1L, DateTimeZone.UTC, referenceTime, newUUID(random), "benchmark",
+                                                           CallOrigin.INTERNAL, UserType.TEST, null, null, now, now);
+
+        final Plan plan = MockPlan.createBicycleNoTrialEvergreen1USD();
+        final PlanPhase planPhase = plan.getFinalPhase();
+        final BigDecimal recurringPrice = BigDecimal.TEN;
+
+        this.subscriptionIds = new ArrayList<UUID>(nbSubscriptions);
+        this.billingEvents = new DefaultBillingEventSet(false, false, false);
+        this.existingItems = new ArrayList<InvoiceItem>();
+
+        final DefaultInvoice existingInvoice = new DefaultInvoice(newUUID(random), accountId, null, referenceTime.toLocalDate(), targetDate.minusMonths(1), CURRENCY, false, InvoiceStatus.COMMITTED);
+        long totalOrdering = 0;
+        for (int i = 0; i < nbSubscriptions; i++) {
+            final UUID subscriptionId = newUUID(random);
+            final UUID bundleId = newUUID(random);
+            subscriptionIds.add(subscriptionId);
+
+            final DateTime startDate = now.minusMonths(1 + random.nextInt(SUBSCRIPTION_SPREAD_IN_MONTHS)).minusDays(random.nextInt(28));
+            final int bcd = startDate.getDayOfMonth();
+            billingEvents.add(new DefaultBillingEvent(subscriptionId,
+                                                      bundleId,
+                                                      startDate,
+                                                      plan,
+                                                      planPhase,
+                                                      null,
+                                                      recurringPrice,
+                                                      ImmutableList.<Usage>of(),
+                                                      CURRENCY,
+                                                      BillingPeriod.MONTHLY,
+                                                      bcd,
+                                                      SubscriptionBaseTransitionType.CREATE.toString(),
+                                                      totalOrdering++,
+                                                      SubscriptionBaseTransitionType.CREATE,
+                                                      false));
+
+            // Everything has been invoiced, except for the current period: the generator has one new item to produce per subscription
+            LocalDate itemStartDate = startDate.toLocalDate();
+            while (!itemStartDate.plusMonths(1).isAfter(targetDate)) {
+                final LocalDate itemEndDate = itemStartDate.plusMonths(1);
+                final InvoiceItem item = new RecurringInvoiceItem(newUUID(random), null, existingInvoice.getId(), accountId, bundleId, subscriptionId, plan.getProduct().getName(),
+                                                                  plan.getName(), planPhase.getName(), null, itemStartDate, itemEndDate,
+                                                                  recurringPrice, recurringPrice, CURRENCY);
+                existingItems.add(item);
+                itemStartDate = itemEndDate;
+            }
+        }
+        existingInvoice.addInvoiceItems(existingItems);
+        this.existingInvoices = ImmutableList.<Invoice>of(existingInvoice);
+    }
+
+    // Derived from the seeded generator, unlike UUID.randomUUID()
+    public static UUID newUUID(final Random random) {
+        return new UUID(random.nextLong(), random.nextLong());
+    }
+
+    public UUID getAccountId() {
+        return accountId;
+    }
+
+    public ImmutableAccountData getAccountData() {
+        return accountData;
+    }
+
+    public InternalCallContext getInternalCallContext() {
+        return internalCallContext;
+    }
+
+    public LocalDate getTargetDate() {
+        return targetDate;
+    }
+
+    public List<UUID> getSubscriptionIds() {
+        return subscriptionIds;
+    }
+
+    public BillingEventSet getBillingEvents() {
+        return billingEvents;
+    }
+
+    public List<Invoice> getExistingInvoices() {
+        return existingInvoices;
+    }
+
+    public List<InvoiceItem> getExistingItems() {
+        return existingItems;
+    }
+}
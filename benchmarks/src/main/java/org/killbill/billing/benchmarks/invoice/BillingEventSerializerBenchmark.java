@@ -0,0 +1,113 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.benchmarks.invoice;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.benchmarks.SyntheticAccount;
+import org.killbill.billing.invoice.dao.serialization.BillingEventSerializer;
+import org.killbill.billing.invoice.dao.serialization.BillingEventSetJson;
+import org.killbill.billing.invoice.dao.serialization.BillingEventSetJson.SubscriptionBillingEventJson;
+import org.killbill.billing.junction.BillingEventSet;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Billing events snapshot persisted on each invoice run: legacy format (Snappy-compressed JSON) vs binary format.
+ * The sizes of both blobs are reported as secondary results of the serialization benchmarks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BillingEventSerializerBenchmark {
+
+    @Param({"10", "1000", "50000"})
+    public int nbSubscriptions;
+
+    private BillingEventSet billingEvents;
+    private byte[] asJson;
+    private byte[] asBinary;
+
+    @Setup
+    public void setUp() throws IOException {
+        billingEvents = new SyntheticAccount(nbSubscriptions).getBillingEvents();
+        asJson = BillingEventSerializer.serializeAsJson(billingEvents);
+        asBinary = BillingEventSerializer.serializeAsBinary(billingEvents);
+    }
+
+    @Benchmark
+    public byte[] serializeJson(final BlobSize blobSize) throws IOException {
+        final byte[] result = BillingEventSerializer.serializeAsJson(billingEvents);
+        blobSize.bytes = result.length;
+        return result;
+    }
+
+    @Benchmark
+    public byte[] serializeBinary(final BlobSize blobSize) throws IOException {
+        final byte[] result = BillingEventSerializer.serializeAsBinary(billingEvents);
+        blobSize.bytes = result.length;
+        return result;
+    }
+
+    // Decode everything, to compare with the JSON format on an equal footing (the binary format is decoded lazily)
+    @Benchmark
+    public int deserializeJson() throws IOException {
+        return countEvents(BillingEventSerializer.deserialize(asJson));
+    }
+
+    @Benchmark
+    public int deserializeBinary() throws IOException {
+        return countEvents(BillingEventSerializer.deserialize(asBinary));
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class BlobSize {
+
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    private static int countEvents(final BillingEventSetJson billingEventSetJson) {
+        int result = 0;
+        for (final SubscriptionBillingEventJson subscriptionBillingEventJson : billingEventSetJson.getSubscriptionEvents()) {
+            result += subscriptionBillingEventJson.getEvents().size();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks.invoice;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.killbill.billing.benchmarks.SyntheticAccount;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.catalog.DefaultInternationalPrice;
+import org.killbill.billing.catalog.DefaultPrice;
+import org.killbill.billing.catalog.DefaultTier;
+import org.killbill.billing.catalog.DefaultTieredBlock;
+import org.killbill.billing.catalog.DefaultUnit;
+import org.killbill.billing.catalog.DefaultUsage;
+import org.killbill.billing.catalog.MockPlan;
+import org.killbill.billing.catalog.api.BillingMode;
+import org.killbill.billing.catalog.api.BillingPeriod;
+import org.killbill.billing.catalog.api.CatalogApiException;
+import org.killbill.billing.catalog.api.Plan;
+import org.killbill.billing.catalog.api.TierBlockPolicy;
+import org.killbill.billing.catalog.api.Usage;
+import org.killbill.billing.catalog.api.UsageType;
+import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.invoice.generator.InvoiceWithMetadata.TrackingRecordId;
+import org.killbill.billing.invoice.usage.ContiguousIntervalConsumableUsageInArrear;
+import org.killbill.billing.invoice.usage.ContiguousIntervalUsageInArrear.UsageInArrearItemsAndNextNotificationDate;
+import org.killbill.billing.junction.BillingEvent;
+import org.killbill.billing.junction.plumbing.billing.DefaultBillingEvent;
+import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
+import org.killbill.billing.usage.api.RawUsageRecord;
+import org.killbill.billing.usage.api.svcs.DefaultRawUsage;
+import org.killbill.billing.util.config.definition.InvoiceConfig;
+import org.killbill.billing.util.config.definition.InvoiceConfig.UsageDetailMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.skife.config.ConfigurationObjectFactory;
+import org.skife.config.SimplePropertyConfigSource;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Rating of a consumable IN_ARREAR usage section (two tiers, two units, monthly) over a year of raw usage records.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ConsumableUsageRatingBenchmark {
+
+    private static final String[] UNITS = {"cpu", "storage"};
+
+    @Param({"10", "1000", "50000"})
+    public int nbRawUsageRecords;
+
+    @Param({"AGGREGATE", "DETAIL"})
+    public UsageDetailMode usageDetailMode;
+
+    private SyntheticAccount account;
+    private InvoiceConfig invoiceConfig;
+    private DefaultUsage usage;
+    private BillingEvent billingEvent;
+    private LocalDate rawUsageStartDate;
+    private List<RawUsageRecord> rawUsageRecords;
+
+    @Setup
+    public void setUp() throws CatalogApiException {
+        final DateTime now = SyntheticAccount.REFERENCE_DATE_TIME;
+        account = new SyntheticAccount(1, now);
+        invoiceConfig = new ConfigurationObjectFactory(new SimplePropertyConfigSource(new Properties())).build(InvoiceConfig.class);
+
+        final DefaultTier tier1 = new DefaultTier().setBlocks(new DefaultTieredBlock[]{createTieredBlock(UNITS[0], 100, "1.5"), createTieredBlock(UNITS[1], 100, "0.5")});
+        final DefaultTier tier2 = new DefaultTier().setBlocks(new DefaultTieredBlock[]{createTieredBlock(UNITS[0], -1, "1.0"), createTieredBlock(UNITS[1], -1, "0.25")});
+        usage = new DefaultUsage().setName("consumable")
+                                  .setBillingMode(BillingMode.IN_ARREAR)
+                                  .setUsageType(UsageType.CONSUMABLE)
+                                  .setTierBlockPolicy(TierBlockPolicy.ALL_TIERS)
+                                  .setBillingPeriod(BillingPeriod.MONTHLY)
+                                  .setTiers(new DefaultTier[]{tier1, tier2});
+
+        final DateTime startDate = now.minusYears(1).withDayOfMonth(1);
+        rawUsageStartDate = startDate.toLocalDate();
+        final Plan plan = MockPlan.createBicycleNoTrialEvergreen1USD();
+        final UUID subscriptionId = account.getSubscriptionIds().get(0);
+        final Random random = new Random(42L);
+        billingEvent = new DefaultBillingEvent(subscriptionId,
+                                               SyntheticAccount.newUUID(random),
+                                               startDate,
+                                               plan,
+                                               plan.getFinalPhase(),
+                                               null,
+                                               null,
+                                               ImmutableList.<Usage>of(usage),
+                                               SyntheticAccount.CURRENCY,
+                                               BillingPeriod.MONTHLY,
+                                               1,
+                                               SubscriptionBaseTransitionType.CREATE.toString(),
+                                               0L,
+                                               SubscriptionBaseTransitionType.CREATE,
+                                               false);
+
+        final int nbDays = Days.daysBetween(rawUsageStartDate, account.getTargetDate()).getDays();
+        rawUsageRecords = new ArrayList<RawUsageRecord>(nbRawUsageRecords);
+        for (int i = 0; i < nbRawUsageRecords; i++) {
+            final LocalDate recordDate = rawUsageStartDate.plusDays(random.nextInt(nbDays));
+            rawUsageRecords.add(new DefaultRawUsage(subscriptionId, recordDate, UNITS[i % UNITS.length], (long) random.nextInt(50), "tracking-" + i));
+        }
+        // Raw usage is returned sorted by date from the database
+        Collections.sort(rawUsageRecords, new Comparator<RawUsageRecord>() {
+            @Override
+            public int compare(final RawUsageRecord o1, final RawUsageRecord o2) {
+                return o1.getDate().compareTo(o2.getDate());
+            }
+        });
+    }
+
+    @Benchmark
+    public UsageInArrearItemsAndNextNotificationDate rateConsumableUsage() throws CatalogApiException, InvoiceApiException {
+        final InternalCallContext context = account.getInternalCallContext();
+        final ContiguousIntervalConsumableUsageInArrear interval = new ContiguousIntervalConsumableUsageInArrear(usage,
+                                                                                                                 account.getAccountId(),
+                                                                                                                 UUID.randomUUID(),
+                                                                                                                 rawUsageRecords,
+                                                                                                                 ImmutableSet.<TrackingRecordId>of(),
+                                                                                                                 account.getTargetDate(),
+                                                                                                                 rawUsageStartDate,
+                                                                                                                 usageDetailMode,
+                                                                                                                 invoiceConfig,
+                                                                                                                 context);
+        interval.addBillingEvent(billingEvent);
+        interval.addAllSeenUnitTypesForBillingEvent(billingEvent, interval.getUnitTypes());
+        interval.build(false);
+        return interval.computeMissingItemsAndNextNotificationDate(ImmutableList.<InvoiceItem>of());
+    }
+
+    private static DefaultTieredBlock createTieredBlock(final String unit, final int max, final String price) {
+        final DefaultPrice[] prices = {new DefaultPrice().setCurrency(SyntheticAccount.CURRENCY).setValue(new BigDecimal(price))};
+        final DefaultTieredBlock block = new DefaultTieredBlock();
+        block.setUnit(new DefaultUnit().setName(unit));
+        block.setSize(1.0);
+        block.setMax(max);
+        block.setPrice(new DefaultInternationalPrice().setPrices(prices));
+        return block;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks.invoice;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.benchmarks.SyntheticAccount;
+import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.killbill.billing.invoice.dao.InvoiceDao;
+import org.killbill.billing.invoice.generator.DefaultInvoiceGenerator;
+import org.killbill.billing.invoice.generator.FixedAndRecurringInvoiceItemGenerator;
+import org.killbill.billing.invoice.generator.InvoiceGeneratorExecutors;
+import org.killbill.billing.invoice.generator.InvoiceItemGenerator.InvoiceGeneratorResult;
+import org.killbill.billing.invoice.generator.InvoiceWithMetadata;
+import org.killbill.billing.invoice.generator.InvoiceWithMetadata.SubscriptionFutureNotificationDates;
+import org.killbill.billing.invoice.generator.UsageInvoiceItemGenerator;
+import org.killbill.billing.invoice.usage.RawUsageOptimizer;
+import org.killbill.billing.usage.InternalUserApi;
+import org.killbill.billing.util.config.definition.InvoiceConfig;
+import org.killbill.clock.ClockMock;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.skife.config.ConfigurationObjectFactory;
+import org.skife.config.SimplePropertyConfigSource;
+
+/**
+ * Full in-memory invoice generation for an account (no DAO, no plugin): this is what runs under the account lock
+ * in InvoiceDispatcher once the billing events and the existing invoices have been loaded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class InvoiceGenerationBenchmark {
+
+    @Param({"10", "1000", "50000"})
+    public int nbSubscriptions;
+
+    // 0 means sequential generation (default)
+    @Param({"0", "4"})
+    public int nbThreads;
+
+    private SyntheticAccount account;
+    private InvoiceGeneratorExecutors generatorExecutors;
+    private FixedAndRecurringInvoiceItemGenerator fixedAndRecurringInvoiceItemGenerator;
+    private DefaultInvoiceGenerator invoiceGenerator;
+
+    @Setup
+    public void setUp() {
+        final ClockMock clock = new ClockMock();
+        clock.setTime(SyntheticAccount.REFERENCE_DATE_TIME);
+        account = new SyntheticAccount(nbSubscriptions);
+
+        final Properties properties = new Properties();
+        // Synthetic subscriptions are spread out, but a 50k account easily goes over the default daily bound
+        properties.setProperty("org.killbill.invoice.sanitySafetyBoundEnabled", "false");
+        properties.setProperty("org.killbill.invoice.parallelGeneration.nbThreads", String.valueOf(nbThreads));
+        final InvoiceConfig invoiceConfig = new ConfigurationObjectFactory(new SimplePropertyConfigSource(properties)).build(InvoiceConfig.class);
+
+        generatorExecutors = new InvoiceGeneratorExecutors(invoiceConfig);
+        generatorExecutors.initialize();
+
+        fixedAndRecurringInvoiceItemGenerator = new FixedAndRecurringInvoiceItemGenerator(invoiceConfig, clock, generatorExecutors);
+        // No usage section in the synthetic catalog: the optimizer is never invoked
+        final RawUsageOptimizer rawUsageOptimizer = new RawUsageOptimizer(invoiceConfig, Mockito.mock(InvoiceDao.class), Mockito.mock(InternalUserApi.class));
+        final UsageInvoiceItemGenerator usageInvoiceItemGenerator = new UsageInvoiceItemGenerator(rawUsageOptimizer, invoiceConfig, generatorExecutors);
+        invoiceGenerator = new DefaultInvoiceGenerator(clock, invoiceConfig, fixedAndRecurringInvoiceItemGenerator, usageInvoiceItemGenerator);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        generatorExecutors.stop();
+    }
+
+    @Benchmark
+    public InvoiceWithMetadata generateInvoice() throws InvoiceApiException {
+        return invoiceGenerator.generateInvoice(account.getAccountData(),
+                                                account.getBillingEvents(),
+                                                account.getExistingInvoices(),
+                                                null,
+                                                account.getTargetDate(),
+                                                SyntheticAccount.CURRENCY,
+                                                account.getInternalCallContext());
+    }
+
+    @Benchmark
+    public InvoiceGeneratorResult generateFixedAndRecurringItems() throws InvoiceApiException {
+        return fixedAndRecurringInvoiceItemGenerator.generateItems(account.getAccountData(),
+                                                                   UUID.randomUUID(),
+                                                                   account.getBillingEvents(),
+                                                                   account.getExistingInvoices(),
+                                                                   account.getTargetDate(),
+                                                                   SyntheticAccount.CURRENCY,
+                                                                   new HashMap<UUID, SubscriptionFutureNotificationDates>(),
+                                                                   account.getInternalCallContext());
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks.invoice;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.benchmarks.SyntheticAccount;
+import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.invoice.model.ItemAdjInvoiceItem;
+import org.killbill.billing.invoice.model.RecurringInvoiceItem;
+import org.killbill.billing.invoice.tree.AccountItemTree;
+import org.killbill.billing.invoice.tree.SubscriptionItemTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Tree reconciliation of existing and proposed items:
+ * <ul>
+ * <li>at the account level, {@code size} subscriptions each getting one new period
+ * <li>at the subscription level, a single long-lived subscription with {@code size} existing items, half of which get repaired
+ * <li>at the subscription level, the same subscription where each existing item was partially adjusted
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ItemTreeBenchmark {
+
+    @Param({"10", "1000", "50000"})
+    public int size;
+
+    private UUID accountId;
+    private List<InvoiceItem> accountExistingItems;
+    private List<InvoiceItem> accountProposedItems;
+
+    private UUID subscriptionId;
+    private List<InvoiceItem> subscriptionExistingItems;
+    private List<InvoiceItem> subscriptionProposedItems;
+    private List<InvoiceItem> subscriptionItemAdjustments;
+
+    @Setup
+    public void setUp() {
+        final SyntheticAccount account = new SyntheticAccount(size);
+        final Random random = new Random(42L);
+        accountId = account.getAccountId();
+        accountExistingItems = account.getExistingItems();
+
+        // Proposed items are everything that was already billed plus the next period for each subscription
+        final UUID newInvoiceId = SyntheticAccount.newUUID(random);
+        final Map<UUID, InvoiceItem> lastItemPerSubscription = new LinkedHashMap<UUID, InvoiceItem>();
+        accountProposedItems = new ArrayList<InvoiceItem>(accountExistingItems.size() + size);
+        for (final InvoiceItem existingItem : accountExistingItems) {
+            accountProposedItems.add(copy(random, existingItem, newInvoiceId, existingItem.getStartDate(), existingItem.getEndDate(), existingItem.getAmount()));
+            lastItemPerSubscription.put(existingItem.getSubscriptionId(), existingItem);
+        }
+        for (final InvoiceItem lastItem : lastItemPerSubscription.values()) {
+            accountProposedItems.add(copy(random, lastItem, newInvoiceId, lastItem.getEndDate(), lastItem.getEndDate().plusMonths(1), lastItem.getAmount()));
+        }
+
+        // Single subscription with daily items; the second half is re-proposed at a different price, which triggers repairs
+        final InvoiceItem template = accountExistingItems.get(0);
+        subscriptionId = template.getSubscriptionId();
+        subscriptionExistingItems = new ArrayList<InvoiceItem>(size);
+        subscriptionProposedItems = new ArrayList<InvoiceItem>(size);
+        subscriptionItemAdjustments = new ArrayList<InvoiceItem>(size);
+        LocalDate startDate = new LocalDate(2000, 1, 1);
+        for (int i = 0; i < size; i++) {
+            final InvoiceItem existingItem = copy(random, template, template.getInvoiceId(), startDate, startDate.plusDays(1), BigDecimal.TEN);
+            subscriptionExistingItems.add(existingItem);
+            subscriptionItemAdjustments.add(new ItemAdjInvoiceItem(existingItem, startDate, BigDecimal.ONE.negate(), existingItem.getCurrency()));
+            subscriptionProposedItems.add(copy(random, template, newInvoiceId, startDate, startDate.plusDays(1), i < size / 2 ? BigDecimal.TEN : BigDecimal.ONE));
+            startDate = startDate.plusDays(1);
+        }
+    }
+
+    @Benchmark
+    public List<InvoiceItem> mergeAccountItemTree() {
+        final AccountItemTree tree = new AccountItemTree(accountId, UUID.randomUUID());
+        for (final InvoiceItem existingItem : accountExistingItems) {
+            tree.addExistingItem(existingItem);
+        }
+        tree.mergeWithProposedItems(accountProposedItems);
+        return tree.getResultingItemList();
+    }
+
+    @Benchmark
+    public List<InvoiceItem> mergeSubscriptionItemTree() {
+        final SubscriptionItemTree tree = new SubscriptionItemTree(subscriptionId, UUID.randomUUID());
+        for (final InvoiceItem existingItem : subscriptionExistingItems) {
+            tree.addItem(existingItem);
+        }
+        tree.build();
+        tree.flatten(true);
+        for (final InvoiceItem proposedItem : subscriptionProposedItems) {
+            tree.mergeProposedItem(proposedItem);
+        }
+        tree.buildForMerge();
+        return tree.getView();
+    }
+
+    @Benchmark
+    public List<InvoiceItem> buildSubscriptionItemTreeWithAdjustments() {
+        final SubscriptionItemTree tree = new SubscriptionItemTree(subscriptionId, UUID.randomUUID());
+        for (final InvoiceItem existingItem : subscriptionExistingItems) {
+            tree.addItem(existingItem);
+        }
+        for (final InvoiceItem itemAdjustment : subscriptionItemAdjustments) {
+            tree.addItem(itemAdjustment);
+        }
+        tree.build();
+        return tree.getView();
+    }
+
+    private static InvoiceItem copy(final Random random, final InvoiceItem item, final UUID invoiceId, final LocalDate startDate, final LocalDate endDate, final BigDecimal amount) {
+        return new RecurringInvoiceItem(SyntheticAccount.newUUID(random), null, invoiceId, item.getAccountId(), item.getBundleId(), item.getSubscriptionId(), item.getProductName(),
+                                        item.getPlanName(), item.getPhaseName(), item.getCatalogEffectiveDate(), startDate, endDate,
+                                        amount, amount, item.getCurrency());
+    }
+}
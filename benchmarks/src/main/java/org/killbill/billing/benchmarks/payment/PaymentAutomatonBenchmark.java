@@ -0,0 +1,150 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks.payment;
+
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.automaton.DefaultStateMachineConfig;
+import org.killbill.automaton.MissingEntryException;
+import org.killbill.automaton.Operation;
+import org.killbill.automaton.Operation.OperationCallback;
+import org.killbill.automaton.OperationException;
+import org.killbill.automaton.OperationResult;
+import org.killbill.automaton.State;
+import org.killbill.automaton.State.EnteringStateCallback;
+import org.killbill.automaton.State.LeavingStateCallback;
+import org.killbill.automaton.StateMachine;
+import org.killbill.automaton.StateMachineConfig;
+import org.killbill.billing.benchmarks.SyntheticAccount;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.payment.api.PaymentApiException;
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.caching.StateMachineConfigCache;
+import org.killbill.billing.payment.core.sm.PaymentStateMachineHelper;
+import org.killbill.billing.payment.glue.PaymentModule;
+import org.killbill.xmlloader.XMLLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.common.io.Resources;
+
+/**
+ * Overhead of the payment state machine itself, as driven by PaymentAutomatonRunner#runStateMachineOperation:
+ * state lookups, operation resolution and the leaving/operation/entering callback sequence. The callbacks
+ * are no-ops so that the numbers don't include the DAO and plugin calls done by the real ones.
+ */
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PaymentAutomatonBenchmark {
+
+    private static final String PLUGIN_NAME = "__benchmark_plugin__";
+
+    @Param({"AUTHORIZE", "CAPTURE", "PURCHASE", "REFUND"})
+    public TransactionType transactionType;
+
+    @Param({"SUCCESS", "FAILURE"})
+    public OperationResult operationResult;
+
+    private PaymentStateMachineHelper paymentSMHelper;
+    private InternalCallContext internalCallContext;
+    private String initialStateName;
+
+    @Setup
+    public void setUp() throws Exception {
+        final DefaultStateMachineConfig stateMachineConfig = XMLLoader.getObjectFromString(Resources.getResource(PaymentModule.DEFAULT_STATE_MACHINE_PAYMENT_XML).toExternalForm(), DefaultStateMachineConfig.class);
+        paymentSMHelper = new PaymentStateMachineHelper(new StaticStateMachineConfigCache(stateMachineConfig));
+        internalCallContext = new SyntheticAccount(1).getInternalCallContext();
+
+        switch (transactionType) {
+            case CAPTURE:
+                initialStateName = paymentSMHelper.getSuccessfulStateForTransaction(TransactionType.AUTHORIZE);
+                break;
+            case REFUND:
+                initialStateName = paymentSMHelper.getSuccessfulStateForTransaction(TransactionType.PURCHASE);
+                break;
+            default:
+                initialStateName = paymentSMHelper.getInitStateNameForTransaction();
+                break;
+        }
+    }
+
+    @Benchmark
+    public void runStateMachineOperation(final Blackhole blackhole) throws PaymentApiException, MissingEntryException, OperationException {
+        final StateMachineConfig stateMachineConfig = paymentSMHelper.getStateMachineConfig(PLUGIN_NAME, internalCallContext);
+        final StateMachine initialStateMachine = stateMachineConfig.getStateMachineForState(initialStateName);
+        final State initialState = initialStateMachine.getState(initialStateName);
+        final Operation operation = paymentSMHelper.getOperationForTransaction(stateMachineConfig, transactionType);
+
+        initialState.runOperation(operation,
+                                  new OperationCallback() {
+                                      @Override
+                                      public OperationResult doOperationCallback() {
+                                          return operationResult;
+                                      }
+                                  },
+                                  new EnteringStateCallback() {
+                                      @Override
+                                      public void enteringState(final State newState, final OperationCallback operationCallback, final OperationResult operationResult, final LeavingStateCallback leavingStateCallback) {
+                                          blackhole.consume(paymentSMHelper.isSuccessState(newState.getName()));
+                                      }
+                                  },
+                                  new LeavingStateCallback() {
+                                      @Override
+                                      public void leavingState(final State oldState) {
+                                          blackhole.consume(oldState);
+                                      }
+                                  });
+    }
+
+    // Per-tenant state machine configs are cached in production: the lookup should not show up in the numbers
+    private static final class StaticStateMachineConfigCache implements StateMachineConfigCache {
+
+        private final StateMachineConfig stateMachineConfig;
+
+        private StaticStateMachineConfigCache(final StateMachineConfig stateMachineConfig) {
+            this.stateMachineConfig = stateMachineConfig;
+        }
+
+        @Override
+        public void loadDefaultPaymentStateMachineConfig(final String url) {
+        }
+
+        @Override
+        public StateMachineConfig getPaymentStateMachineConfig(final String pluginName, final InternalTenantContext tenantContext) {
+            return stateMachineConfig;
+        }
+
+        @Override
+        public void clearPaymentStateMachineConfig(final String pluginName, final InternalTenantContext tenantContext) {
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.benchmarks.SyntheticAccount;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperInvocationHandler;
+import org.killbill.billing.util.tag.TagDefinition;
+import org.killbill.billing.util.tag.dao.TagDefinitionModelDao;
+import org.killbill.billing.util.tag.dao.TagDefinitionSqlDao;
+import org.killbill.clock.DefaultClock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Overhead of the EntitySqlDaoWrapperInvocationHandler around a read-only SqlDao call. The wrapped SqlDao is a stub
+ * (no database), so the numbers only include the wrapper itself: metadata lookup, profiling and the reflective call.
+ * A new wrapper is created for each SqlDao in each transaction (see EntitySqlDaoWrapperFactory#become), hence
+ * the newWrapper variant.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EntitySqlDaoWrapperBenchmark {
+
+    private static final String ID = "4e6b1a2c-3f5d-4b8e-9a7c-1d2e3f4a5b6c";
+
+    private DefaultClock clock;
+    private InternalCallContext internalCallContext;
+    private TagDefinitionSqlDao stubSqlDao;
+    private TagDefinitionSqlDao wrappedSqlDao;
+
+    @Setup
+    public void setUp() {
+        clock = new DefaultClock();
+        internalCallContext = new SyntheticAccount(1).getInternalCallContext();
+        stubSqlDao = (TagDefinitionSqlDao) Proxy.newProxyInstance(TagDefinitionSqlDao.class.getClassLoader(),
+                                                                  new Class[]{TagDefinitionSqlDao.class},
+                                                                  new InvocationHandler() {
+                                                                      @Override
+                                                                      public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                                                                          return Long.class.equals(method.getReturnType()) ? 1L : null;
+                                                                      }
+                                                                  });
+        wrappedSqlDao = wrap();
+    }
+
+    @Benchmark
+    public Long direct() {
+        return stubSqlDao.getRecordId(ID, internalCallContext);
+    }
+
+    @Benchmark
+    public Long wrapper() {
+        return wrappedSqlDao.getRecordId(ID, internalCallContext);
+    }
+
+    @Benchmark
+    public Long newWrapper() {
+        return wrap().getRecordId(ID, internalCallContext);
+    }
+
+    private TagDefinitionSqlDao wrap() {
+        final EntitySqlDaoWrapperInvocationHandler<TagDefinitionSqlDao, TagDefinitionModelDao, TagDefinition> handler =
+                new EntitySqlDaoWrapperInvocationHandler<TagDefinitionSqlDao, TagDefinitionModelDao, TagDefinition>(TagDefinitionSqlDao.class, stubSqlDao, null, clock, null, null);
+        return (TagDefinitionSqlDao) Proxy.newProxyInstance(TagDefinitionSqlDao.class.getClassLoader(), new Class[]{TagDefinitionSqlDao.class}, handler);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.entitlement.api;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.benchmarks.SyntheticAccount;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.junction.DefaultBlockingState;
+import org.killbill.billing.platform.api.KillbillService.KILLBILL_SERVICES;
+import org.killbill.billing.subscription.api.user.SubscriptionBaseTransition;
+import org.killbill.clock.DefaultClock;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Insertion of the blocking states into the subscription event stream of an account (what backs the bundle timelines).
+ * <p/>
+ * Lives in the entitlement package as BlockingStateOrdering is package private. The algorithm is quadratic in the number
+ * of entitlements, hence the single shot mode: a 50k entitlements account is measured in seconds, not microseconds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BlockingStateOrderingBenchmark {
+
+    // One entitlement out of PAUSED_RATIO is paused at some point
+    private static final int PAUSED_RATIO = 10;
+
+    @Param({"10", "1000", "50000"})
+    public int nbEntitlements;
+
+    private InternalCallContext internalCallContext;
+    private List<UUID> allEntitlementUUIDs;
+    private Collection<BlockingState> blockingStates;
+    private List<SubscriptionEvent> subscriptionEvents;
+
+    @Setup
+    public void setUp() {
+        final DateTime now = new DefaultClock().getUTCNow();
+        internalCallContext = new SyntheticAccount(1, now).getInternalCallContext();
+
+        final Random random = new Random(42L);
+        final List<DefaultBlockingState> unsortedBlockingStates = new ArrayList<DefaultBlockingState>();
+        final List<SubscriptionEvent> unsortedSubscriptionEvents = new ArrayList<SubscriptionEvent>();
+        allEntitlementUUIDs = new ArrayList<UUID>(nbEntitlements);
+        long totalOrdering = 0;
+        for (int i = 0; i < nbEntitlements; i++) {
+            final UUID entitlementId = new UUID(random.nextLong(), random.nextLong());
+            allEntitlementUUIDs.add(entitlementId);
+
+            final DateTime startDate = now.minusDays(random.nextInt(365));
+            unsortedBlockingStates.add(createBlockingState(entitlementId, DefaultEntitlementApi.ENT_STATE_START, KILLBILL_SERVICES.ENTITLEMENT_SERVICE.getServiceName(), false, false, startDate, totalOrdering++));
+            if (i % PAUSED_RATIO == 0) {
+                unsortedBlockingStates.add(createBlockingState(entitlementId, "PAUSED", "benchmark", true, true, startDate.plusDays(5), totalOrdering++));
+                unsortedBlockingStates.add(createBlockingState(entitlementId, "RESUMED", "benchmark", false, false, startDate.plusDays(10), totalOrdering++));
+            }
+
+            unsortedSubscriptionEvents.add(createEvent(entitlementId, SubscriptionEventType.START_BILLING, startDate));
+            unsortedSubscriptionEvents.add(createEvent(entitlementId, SubscriptionEventType.PHASE, startDate.plusDays(30)));
+        }
+
+        // Same ordering as ProxyBlockingStateDao#sortedCopy and SubscriptionEventOrdering
+        Collections.sort(unsortedBlockingStates, new Comparator<DefaultBlockingState>() {
+            @Override
+            public int compare(final DefaultBlockingState o1, final DefaultBlockingState o2) {
+                final int comparison = o1.getEffectiveDate().compareTo(o2.getEffectiveDate());
+                return comparison != 0 ? comparison : o1.getTotalOrdering().compareTo(o2.getTotalOrdering());
+            }
+        });
+        Collections.sort(unsortedSubscriptionEvents, new Comparator<SubscriptionEvent>() {
+            @Override
+            public int compare(final SubscriptionEvent o1, final SubscriptionEvent o2) {
+                return ((DefaultSubscriptionEvent) o1).getEffectiveDateTime().compareTo(((DefaultSubscriptionEvent) o2).getEffectiveDateTime());
+            }
+        });
+        blockingStates = new ArrayList<BlockingState>(unsortedBlockingStates);
+        subscriptionEvents = unsortedSubscriptionEvents;
+    }
+
+    @Benchmark
+    public LinkedList<SubscriptionEvent> insertBlockingStates() {
+        // The ordering mutates both its inputs
+        final LinkedList<SubscriptionEvent> inputAndOutputResult = new LinkedList<SubscriptionEvent>(subscriptionEvents);
+        BlockingStateOrdering.INSTANCE.computeEvents(new LinkedList<UUID>(allEntitlementUUIDs), blockingStates, internalCallContext, inputAndOutputResult);
+        return inputAndOutputResult;
+    }
+
+    private static DefaultBlockingState createBlockingState(final UUID blockedId,
+                                                            final String stateName,
+                                                            final String service,
+                                                            final boolean blockEntitlement,
+                                                            final boolean blockBilling,
+                                                            final DateTime effectiveDate,
+                                                            final long totalOrdering) {
+        return new DefaultBlockingState(UUID.randomUUID(),
+                                        blockedId,
+                                        BlockingStateType.SUBSCRIPTION,
+                                        stateName,
+                                        service,
+                                        false,
+                                        blockEntitlement,
+                                        blockBilling,
+                                        effectiveDate,
+                                        effectiveDate,
+                                        effectiveDate,
+                                        totalOrdering);
+    }
+
+    private SubscriptionEvent createEvent(final UUID subscriptionId, final SubscriptionEventType type, final DateTime effectiveDate) {
+        final SubscriptionBaseTransition subscriptionBaseTransition = Mockito.mock(SubscriptionBaseTransition.class);
+        Mockito.when(subscriptionBaseTransition.getId()).thenReturn(UUID.randomUUID());
+        Mockito.when(subscriptionBaseTransition.getSubscriptionId()).thenReturn(subscriptionId);
+        Mockito.when(subscriptionBaseTransition.getEffectiveTransitionTime()).thenReturn(effectiveDate);
+        return SubscriptionEventOrdering.toSubscriptionEvent(subscriptionBaseTransition, type, internalCallContext);
+    }
+}
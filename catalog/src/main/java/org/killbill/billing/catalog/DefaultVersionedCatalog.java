@@ -30,6 +30,8 @@ import java.util.Date;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
@@ -54,12 +56,17 @@ import com.google.common.base.Preconditions;
 public class DefaultVersionedCatalog extends ValidatingConfig<DefaultVersionedCatalog> implements VersionedCatalog, Externalizable {
 
     private static final long serialVersionUID = 3181874902672322725L;
+
+    private static final int MAX_MEMOIZED_DATES = 1000;
+
     @XmlElementWrapper(name = "versions", required = true)
     @XmlElement(name = "version", type = StandaloneCatalog.class, required = true)
     private final List<StaticCatalog> versions;
     @XmlElement(required = true)
     private String catalogName;
 
+    private volatile VersionIndex versionIndex;
+
     // Required for JAXB deserialization
     public DefaultVersionedCatalog() {
         this.versions = new ArrayList<StaticCatalog>();
@@ -91,21 +98,28 @@ public class DefaultVersionedCatalog extends ValidatingConfig<DefaultVersionedCa
     }
 
     private int indexOfVersionForDate(final Date date) {
-
-        for (int i = versions.size() - 1; i >= 0; i--) {
-            final StaticCatalog c = versions.get(i);
-            if (c.getEffectiveDate().getTime() <= date.getTime()) {
-                return i;
+        final VersionIndex index = getVersionIndex();
+        final Long time = date.getTime();
+        Integer result = index.memoizedIndexes.get(time);
+        if (result == null) {
+            result = index.indexOfVersionForTime(time);
+            if (index.memoizedIndexes.size() >= MAX_MEMOIZED_DATES) {
+                index.memoizedIndexes.clear();
             }
+            index.memoizedIndexes.put(time, result);
         }
-        // If the only version we have are after the input date, we return the first version
-        // This is not strictly correct from an api point of view, but there is no real good use case
-        // where the system would ask for the catalog for a date prior any catalog was uploaded and
-        // yet time manipulation could end of inn that state -- see https://github.com/killbill/killbill/issues/760
-        if (!versions.isEmpty()) {
-            return 0;
+        return result;
+    }
+
+    // The index lives as long as this catalog object, i.e. until the catalog cache entry is invalidated (see CatalogCacheInvalidationCallback)
+    private VersionIndex getVersionIndex() {
+        VersionIndex index = versionIndex;
+        // Also catch versions added through getVersions() (e.g. JAXB)
+        if (index == null || index.effectiveDates.length != versions.size()) {
+            index = new VersionIndex(versions);
+            versionIndex = index;
         }
-        throw new IllegalStateException(String.format("No existing versions in the VersionedCatalog catalog for input date %s", date));
+        return index;
     }
 
     public void add(final StandaloneCatalog e) {
@@ -119,6 +133,7 @@ public class DefaultVersionedCatalog extends ValidatingConfig<DefaultVersionedCa
                 return c1.getEffectiveDate().compareTo(c2.getEffectiveDate());
             }
         });
+        versionIndex = null;
     }
 
     @Override
@@ -197,6 +212,7 @@ public class DefaultVersionedCatalog extends ValidatingConfig<DefaultVersionedCa
     public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
         this.catalogName = in.readBoolean() ? in.readUTF() : null;
         this.versions.addAll((Collection<? extends StandaloneCatalog>) in.readObject());
+        this.versionIndex = null;
     }
 
     @Override
@@ -233,4 +249,60 @@ public class DefaultVersionedCatalog extends ValidatingConfig<DefaultVersionedCa
         return result;
     }
 
+    private static final class VersionIndex {
+
+        private final long[] effectiveDates;
+        private final boolean sorted;
+        private final ConcurrentMap<Long, Integer> memoizedIndexes = new ConcurrentHashMap<Long, Integer>();
+
+        private VersionIndex(final List<StaticCatalog> versions) {
+            this.effectiveDates = new long[versions.size()];
+            boolean isSorted = true;
+            for (int i = 0; i < effectiveDates.length; i++) {
+                effectiveDates[i] = versions.get(i).getEffectiveDate().getTime();
+                if (i > 0 && effectiveDates[i] < effectiveDates[i - 1]) {
+                    isSorted = false;
+                }
+            }
+            this.sorted = isSorted;
+        }
+
+        // Index of the last version effective at that time
+        private int indexOfVersionForTime(final long time) {
+            int result = -1;
+            if (sorted) {
+                int low = 0;
+                int high = effectiveDates.length - 1;
+                while (low <= high) {
+                    final int mid = (low + high) >>> 1;
+                    if (effectiveDates[mid] <= time) {
+                        result = mid;
+                        low = mid + 1;
+                    } else {
+                        high = mid - 1;
+                    }
+                }
+            } else {
+                // Versions are kept sorted by add(), but be safe for catalogs built otherwise
+                for (int i = effectiveDates.length - 1; i >= 0; i--) {
+                    if (effectiveDates[i] <= time) {
+                        result = i;
+                        break;
+                    }
+                }
+            }
+            if (result >= 0) {
+                return result;
+            }
+
+            // If the only version we have are after the input date, we return the first version
+            // This is not strictly correct from an api point of view, but there is no real good use case
+            // where the system would ask for the catalog for a date prior any catalog was uploaded and
+            // yet time manipulation could end of inn that state -- see https://github.com/killbill/killbill/issues/760
+            if (effectiveDates.length > 0) {
+                return 0;
+            }
+            throw new IllegalStateException(String.format("No existing versions in the VersionedCatalog catalog for input date %s", new Date(time)));
+        }
+    }
 }
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.catalog.rules;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.catalog.api.PriceList;
+import org.killbill.billing.catalog.api.Product;
+
+//
+// Decision index over an ordered list of cases: for each dimension (product, billing period, ...), we keep the set of cases
+// matching a given value (i.e. the cases with that exact value plus the wildcard cases). Intersecting those sets for all the
+// dimensions yields all the matching cases, and the lowest one is the one the first-match scan would have returned.
+//
+class CaseIndex {
+
+    private final int nbCases;
+    private final Dimension[] dimensions;
+
+    CaseIndex(final int nbCases, final int nbDimensions) {
+        this.nbCases = nbCases;
+        this.dimensions = new Dimension[nbDimensions];
+        for (int i = 0; i < nbDimensions; i++) {
+            dimensions[i] = new Dimension();
+        }
+    }
+
+    void add(final int caseIndex, final int dimension, @Nullable final Object value) {
+        dimensions[dimension].add(caseIndex, value);
+    }
+
+    BitSet allCases() {
+        final BitSet result = new BitSet(nbCases);
+        result.set(0, nbCases);
+        return result;
+    }
+
+    // Cases which specify a value for that dimension
+    BitSet getConstrainedCases(final int dimension) {
+        return dimensions[dimension].constrained;
+    }
+
+    // Only keep the candidates which match the actual value for that dimension
+    void restrict(final BitSet candidates, final int dimension, @Nullable final Object actualValue) {
+        candidates.and(dimensions[dimension].getMatchingCases(actualValue));
+    }
+
+    private static Object getKey(final Object value) {
+        // Catalog objects have expensive equals/hashCode methods: bucket them by name first
+        if (value instanceof Product) {
+            return ((Product) value).getName();
+        } else if (value instanceof PriceList) {
+            return ((PriceList) value).getName();
+        } else {
+            return value;
+        }
+    }
+
+    private static final class Dimension {
+
+        private final BitSet wildcards = new BitSet();
+        private final BitSet constrained = new BitSet();
+        private final Map<Object, List<ValueCases>> perKeyValueCases = new HashMap<Object, List<ValueCases>>();
+
+        private void add(final int caseIndex, @Nullable final Object value) {
+            if (value == null) {
+                wildcards.set(caseIndex);
+                return;
+            }
+
+            constrained.set(caseIndex);
+            final Object key = getKey(value);
+            List<ValueCases> valueCases = perKeyValueCases.get(key);
+            if (valueCases == null) {
+                valueCases = new LinkedList<ValueCases>();
+                perKeyValueCases.put(key, valueCases);
+            }
+            for (final ValueCases cur : valueCases) {
+                if (cur.value.equals(value)) {
+                    cur.cases.set(caseIndex);
+                    return;
+                }
+            }
+            final ValueCases newValueCases = new ValueCases(value);
+            newValueCases.cases.set(caseIndex);
+            valueCases.add(newValueCases);
+        }
+
+        private BitSet getMatchingCases(@Nullable final Object actualValue) {
+            final BitSet result = (BitSet) wildcards.clone();
+            if (actualValue == null) {
+                return result;
+            }
+
+            final List<ValueCases> valueCases = perKeyValueCases.get(getKey(actualValue));
+            if (valueCases != null) {
+                for (final ValueCases cur : valueCases) {
+                    // Same check as the cases themselves: expected.equals(actual)
+                    if (cur.value.equals(actualValue)) {
+                        result.or(cur.cases);
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    private static final class ValueCases {
+
+        private final Object value;
+        private final BitSet cases = new BitSet();
+
+        private ValueCases(final Object value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.catalog.rules;
+
+import java.util.BitSet;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.catalog.api.BillingPeriod;
+import org.killbill.billing.catalog.api.CatalogApiException;
+import org.killbill.billing.catalog.api.Plan;
+import org.killbill.billing.catalog.api.PlanPhaseSpecifier;
+import org.killbill.billing.catalog.api.PlanSpecifier;
+import org.killbill.billing.catalog.api.PriceList;
+import org.killbill.billing.catalog.api.Product;
+import org.killbill.billing.catalog.api.StaticCatalog;
+
+//
+// Indexed version of DefaultCaseChange#getResult: same result (and same exceptions) as the first-match scan,
+// but the from/to specifiers are resolved against the catalog only once and the matching case is found through the CaseIndex.
+//
+class ChangeCaseIndex<K> {
+
+    private static final int PHASE_TYPE = 0;
+    private static final int FROM_PRODUCT = 1;
+    private static final int FROM_PRODUCT_CATEGORY = 2;
+    private static final int FROM_BILLING_PERIOD = 3;
+    private static final int FROM_PRICE_LIST = 4;
+    private static final int TO_PRODUCT = 5;
+    private static final int TO_PRODUCT_CATEGORY = 6;
+    private static final int TO_BILLING_PERIOD = 7;
+    private static final int TO_PRICE_LIST = 8;
+
+    private final DefaultCaseChange<K>[] cases;
+    private final CaseIndex index;
+
+    ChangeCaseIndex(@Nullable final DefaultCaseChange<K>[] cases) {
+        this.cases = cases;
+        this.index = new CaseIndex(cases != null ? cases.length : 0, 9);
+        if (cases != null) {
+            for (int i = 0; i < cases.length; i++) {
+                final DefaultCaseChange<K> cur = cases[i];
+                index.add(i, PHASE_TYPE, cur.getPhaseType());
+                index.add(i, FROM_PRODUCT, cur.getFromProduct());
+                index.add(i, FROM_PRODUCT_CATEGORY, cur.getFromProductCategory());
+                index.add(i, FROM_BILLING_PERIOD, cur.getFromBillingPeriod());
+                index.add(i, FROM_PRICE_LIST, cur.getFromPriceList());
+                index.add(i, TO_PRODUCT, cur.getToProduct());
+                index.add(i, TO_PRODUCT_CATEGORY, cur.getToProductCategory());
+                index.add(i, TO_BILLING_PERIOD, cur.getToBillingPeriod());
+                index.add(i, TO_PRICE_LIST, cur.getToPriceList());
+            }
+        }
+    }
+
+    K getResult(final PlanPhaseSpecifier from, final PlanSpecifier to, final StaticCatalog catalog) throws CatalogApiException {
+        // The scan resolves both specifiers for the first case, whatever its phase type
+        if (cases == null || cases.length == 0) {
+            return null;
+        }
+
+        final BitSet candidates = index.allCases();
+        index.restrict(candidates, PHASE_TYPE, from.getPhaseType());
+        restrict(candidates, from, FROM_PRODUCT, FROM_PRODUCT_CATEGORY, FROM_BILLING_PERIOD, FROM_PRICE_LIST, catalog);
+        restrict(candidates, to, TO_PRODUCT, TO_PRODUCT_CATEGORY, TO_BILLING_PERIOD, TO_PRICE_LIST, catalog);
+
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            final K result = cases[i].getResult();
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    private void restrict(final BitSet candidates, final PlanSpecifier specifier,
+                          final int productDimension, final int productCategoryDimension, final int billingPeriodDimension, final int priceListDimension,
+                          final StaticCatalog catalog) throws CatalogApiException {
+        final Product product;
+        final BillingPeriod billingPeriod;
+        final PriceList priceList;
+        if (specifier.getPlanName() != null) {
+            final Plan plan = catalog.findPlan(specifier.getPlanName());
+            product = plan.getProduct();
+            billingPeriod = plan.getRecurringBillingPeriod();
+            priceList = plan.getPriceList();
+        } else {
+            product = catalog.findProduct(specifier.getProductName());
+            billingPeriod = specifier.getBillingPeriod();
+            priceList = specifier.getPriceListName() != null ? catalog.findPriceList(specifier.getPriceListName()) : null;
+        }
+        index.restrict(candidates, productDimension, product);
+        index.restrict(candidates, productCategoryDimension, product.getCategory());
+        index.restrict(candidates, billingPeriodDimension, billingPeriod);
+        index.restrict(candidates, priceListDimension, priceList);
+    }
+}
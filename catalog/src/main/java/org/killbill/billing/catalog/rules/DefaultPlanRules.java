@@ -83,6 +83,9 @@ public class DefaultPlanRules extends ValidatingConfig<StandaloneCatalog> implem
     @XmlElement(name = "priceListCase", required = false)
     private DefaultCasePriceList[] priceListCase;
 
+    // Decision indexes for the cases above, built at initialization time (or lazily, e.g. after deserialization)
+    private volatile CaseIndexes caseIndexes;
+
     // Required for deserialization
     public DefaultPlanRules() {
     }
@@ -125,19 +128,19 @@ public class DefaultPlanRules extends ValidatingConfig<StandaloneCatalog> implem
 
     @Override
     public PlanAlignmentCreate getPlanCreateAlignment(final PlanSpecifier specifier) throws CatalogApiException {
-        final PlanAlignmentCreate result = DefaultCase.getResult(createAlignmentCase, specifier, root);
+        final PlanAlignmentCreate result = getCaseIndexes().createAlignmentIndex.getResult(specifier, root);
         return (result != null) ? result : PlanAlignmentCreate.START_OF_BUNDLE;
     }
 
     @Override
     public BillingActionPolicy getPlanCancelPolicy(final PlanPhaseSpecifier planPhase) throws CatalogApiException {
-        final BillingActionPolicy result = DefaultCasePhase.getResult(cancelCase, planPhase, root);
+        final BillingActionPolicy result = getCaseIndexes().cancelIndex.getPhaseResult(planPhase, root);
         return (result != null) ? result : BillingActionPolicy.END_OF_TERM;
     }
 
     @Override
     public BillingAlignment getBillingAlignment(final PlanPhaseSpecifier planPhase) throws CatalogApiException {
-        final BillingAlignment result = DefaultCasePhase.getResult(billingAlignmentCase, planPhase, root);
+        final BillingAlignment result = getCaseIndexes().billingAlignmentIndex.getPhaseResult(planPhase, root);
         return (result != null) ? result : BillingAlignment.ACCOUNT;
     }
 
@@ -166,18 +169,18 @@ public class DefaultPlanRules extends ValidatingConfig<StandaloneCatalog> implem
 
     private PlanAlignmentChange getPlanChangeAlignment(final PlanPhaseSpecifier from,
                                                        final PlanSpecifier to) throws CatalogApiException {
-        final PlanAlignmentChange result = DefaultCaseChange.getResult(changeAlignmentCase, from, to, root);
+        final PlanAlignmentChange result = getCaseIndexes().changeAlignmentIndex.getResult(from, to, root);
         return (result != null) ? result : PlanAlignmentChange.START_OF_BUNDLE;
     }
 
     private BillingActionPolicy getPlanChangePolicy(final PlanPhaseSpecifier from,
                                                     final PlanSpecifier to) throws CatalogApiException {
-        final BillingActionPolicy result = DefaultCaseChange.getResult(changeCase, from, to, root);
+        final BillingActionPolicy result = getCaseIndexes().changeIndex.getResult(from, to, root);
         return (result != null) ? result : BillingActionPolicy.END_OF_TERM;
     }
 
     private DefaultPriceList findPriceList(final PlanSpecifier specifier) throws CatalogApiException {
-        DefaultPriceList result = DefaultCasePriceList.getResult(priceListCase, specifier, root);
+        DefaultPriceList result = getCaseIndexes().priceListIndex.getResult(specifier, root);
         if (result == null) {
             final String priceListName = specifier.getPlanName() != null ? root.findPlan(specifier.getPlanName()).getPriceList().getName() : specifier.getPriceListName();
             result = (DefaultPriceList) root.findPriceList(priceListName);
@@ -301,6 +304,17 @@ public class DefaultPlanRules extends ValidatingConfig<StandaloneCatalog> implem
         for (final DefaultCasePriceList cur : priceListCase) {
             cur.initialize(catalog);
         }
+
+        caseIndexes = new CaseIndexes(this);
+    }
+
+    private CaseIndexes getCaseIndexes() {
+        CaseIndexes result = caseIndexes;
+        if (result == null) {
+            result = new CaseIndexes(this);
+            caseIndexes = result;
+        }
+        return result;
     }
 
     /////////////////////////////////////////////////////////////////////////////////////
@@ -309,33 +323,39 @@ public class DefaultPlanRules extends ValidatingConfig<StandaloneCatalog> implem
 
     public DefaultPlanRules setChangeCase(final DefaultCaseChangePlanPolicy[] changeCase) {
         this.changeCase = changeCase;
+        this.caseIndexes = null;
         return this;
     }
 
     public DefaultPlanRules setChangeAlignmentCase(
             final DefaultCaseChangePlanAlignment[] changeAlignmentCase) {
         this.changeAlignmentCase = changeAlignmentCase;
+        this.caseIndexes = null;
         return this;
     }
 
     public DefaultPlanRules setCancelCase(final DefaultCaseCancelPolicy[] cancelCase) {
         this.cancelCase = cancelCase;
+        this.caseIndexes = null;
         return this;
     }
 
     public DefaultPlanRules setCreateAlignmentCase(final DefaultCaseCreateAlignment[] createAlignmentCase) {
         this.createAlignmentCase = createAlignmentCase;
+        this.caseIndexes = null;
         return this;
     }
 
     public DefaultPlanRules setBillingAlignmentCase(
             final DefaultCaseBillingAlignment[] billingAlignmentCase) {
         this.billingAlignmentCase = billingAlignmentCase;
+        this.caseIndexes = null;
         return this;
     }
 
     public DefaultPlanRules setPriceListCase(final DefaultCasePriceList[] priceListCase) {
         this.priceListCase = priceListCase;
+        this.caseIndexes = null;
         return this;
     }
 
@@ -401,5 +421,25 @@ public class DefaultPlanRules extends ValidatingConfig<StandaloneCatalog> implem
         this.createAlignmentCase = (DefaultCaseCreateAlignment[]) in.readObject();
         this.billingAlignmentCase = (DefaultCaseBillingAlignment[]) in.readObject();
         this.priceListCase = (DefaultCasePriceList[]) in.readObject();
+        this.caseIndexes = null;
+    }
+
+    private static final class CaseIndexes {
+
+        private final ChangeCaseIndex<BillingActionPolicy> changeIndex;
+        private final ChangeCaseIndex<PlanAlignmentChange> changeAlignmentIndex;
+        private final StandardCaseIndex<BillingActionPolicy> cancelIndex;
+        private final StandardCaseIndex<PlanAlignmentCreate> createAlignmentIndex;
+        private final StandardCaseIndex<BillingAlignment> billingAlignmentIndex;
+        private final StandardCaseIndex<DefaultPriceList> priceListIndex;
+
+        private CaseIndexes(final DefaultPlanRules planRules) {
+            this.changeIndex = new ChangeCaseIndex<BillingActionPolicy>(planRules.changeCase);
+            this.changeAlignmentIndex = new ChangeCaseIndex<PlanAlignmentChange>(planRules.changeAlignmentCase);
+            this.cancelIndex = new StandardCaseIndex<BillingActionPolicy>(planRules.cancelCase);
+            this.createAlignmentIndex = new StandardCaseIndex<PlanAlignmentCreate>(planRules.createAlignmentCase);
+            this.billingAlignmentIndex = new StandardCaseIndex<BillingAlignment>(planRules.billingAlignmentCase);
+            this.priceListIndex = new StandardCaseIndex<DefaultPriceList>(planRules.priceListCase);
+        }
     }
 }
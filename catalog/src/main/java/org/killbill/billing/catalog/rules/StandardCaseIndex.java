@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.catalog.rules;
+
+import java.util.BitSet;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.catalog.api.BillingPeriod;
+import org.killbill.billing.catalog.api.CatalogApiException;
+import org.killbill.billing.catalog.api.PhaseType;
+import org.killbill.billing.catalog.api.Plan;
+import org.killbill.billing.catalog.api.PlanPhaseSpecifier;
+import org.killbill.billing.catalog.api.PlanSpecifier;
+import org.killbill.billing.catalog.api.PriceList;
+import org.killbill.billing.catalog.api.Product;
+import org.killbill.billing.catalog.api.StaticCatalog;
+
+//
+// Indexed version of DefaultCase#getResult and DefaultCasePhase#getResult: same result (and same exceptions) as the first-match scan,
+// but the specifier is resolved against the catalog only once and the matching case is found through the CaseIndex.
+//
+class StandardCaseIndex<K> {
+
+    private static final int PHASE_TYPE = 0;
+    private static final int PRODUCT = 1;
+    private static final int PRODUCT_CATEGORY = 2;
+    private static final int BILLING_PERIOD = 3;
+    private static final int PRICE_LIST = 4;
+
+    private final DefaultCase<K>[] cases;
+    private final CaseIndex index;
+
+    StandardCaseIndex(@Nullable final DefaultCase<K>[] cases) {
+        this.cases = cases;
+        this.index = new CaseIndex(cases != null ? cases.length : 0, 5);
+        if (cases != null) {
+            for (int i = 0; i < cases.length; i++) {
+                final DefaultCase<K> cur = cases[i];
+                index.add(i, PHASE_TYPE, cur instanceof DefaultCasePhase ? ((DefaultCasePhase<K>) cur).phaseType : null);
+                index.add(i, PRODUCT, cur.getProduct());
+                index.add(i, PRODUCT_CATEGORY, cur.getProductCategory());
+                index.add(i, BILLING_PERIOD, cur.getBillingPeriod());
+                index.add(i, PRICE_LIST, cur.getPriceList());
+            }
+        }
+    }
+
+    K getResult(final PlanSpecifier planSpecifier, final StaticCatalog catalog) throws CatalogApiException {
+        return getResult(null, false, planSpecifier, catalog);
+    }
+
+    K getPhaseResult(final PlanPhaseSpecifier planPhaseSpecifier, final StaticCatalog catalog) throws CatalogApiException {
+        return getResult(planPhaseSpecifier.getPhaseType(), true, new PlanSpecifier(planPhaseSpecifier), catalog);
+    }
+
+    private K getResult(@Nullable final PhaseType phaseType, final boolean checkPhaseType, final PlanSpecifier planSpecifier, final StaticCatalog catalog) throws CatalogApiException {
+        final BitSet candidates = index.allCases();
+        if (checkPhaseType) {
+            index.restrict(candidates, PHASE_TYPE, phaseType);
+        }
+        // The scan only resolves the specifier for cases matching the phase type
+        if (candidates.isEmpty()) {
+            return null;
+        }
+
+        // Cases for which the scan would have looked up the price list (see DefaultCase#satisfiesCase)
+        final BitSet priceListCases = (BitSet) candidates.clone();
+        priceListCases.and(index.getConstrainedCases(PRICE_LIST));
+
+        final Product product;
+        final BillingPeriod billingPeriod;
+        final PriceList priceList;
+        if (planSpecifier.getPlanName() != null) {
+            final Plan plan = catalog.findPlan(planSpecifier.getPlanName());
+            product = plan.getProduct();
+            billingPeriod = plan.getRecurringBillingPeriod();
+            priceList = plan.getPriceList();
+        } else {
+            product = catalog.findProduct(planSpecifier.getProductName());
+            billingPeriod = planSpecifier.getBillingPeriod();
+            priceList = null;
+        }
+        index.restrict(candidates, PRODUCT, product);
+        index.restrict(candidates, PRODUCT_CATEGORY, product.getCategory());
+        index.restrict(candidates, BILLING_PERIOD, billingPeriod);
+
+        if (planSpecifier.getPlanName() != null) {
+            index.restrict(candidates, PRICE_LIST, priceList);
+            return getFirstResult(candidates, 0, cases.length);
+        }
+
+        // Without a plan, the scan only looks up the price list when reaching the first case specifying one (which may throw),
+        // so we do the same: all the cases before it are wildcards for the price list
+        final int firstPriceListCase = priceListCases.nextSetBit(0);
+        final K result = getFirstResult(candidates, 0, firstPriceListCase >= 0 ? firstPriceListCase : cases.length);
+        if (result != null || firstPriceListCase < 0) {
+            return result;
+        }
+
+        index.restrict(candidates, PRICE_LIST, catalog.findPriceList(planSpecifier.getPriceListName()));
+        return getFirstResult(candidates, firstPriceListCase, cases.length);
+    }
+
+    private K getFirstResult(final BitSet candidates, final int fromIndex, final int toIndex) {
+        for (int i = candidates.nextSetBit(fromIndex); i >= 0 && i < toIndex; i = candidates.nextSetBit(i + 1)) {
+            final K result = cases[i].getResult();
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.catalog;
+
+import java.util.Date;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.catalog.api.StaticCatalog;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestDefaultVersionedCatalog extends CatalogTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testGetVersion() {
+        final DateTime t0 = new DateTime(2020, 1, 1, 0, 0, DateTimeZone.UTC);
+
+        final DefaultVersionedCatalog versionedCatalog = new DefaultVersionedCatalog();
+        // Added out of order, with two versions sharing the same effective date
+        final StandaloneCatalog v2 = createVersion(t0.plusMonths(2));
+        final StandaloneCatalog v0 = createVersion(t0);
+        final StandaloneCatalog v1 = createVersion(t0.plusMonths(1));
+        final StandaloneCatalog v1bis = createVersion(t0.plusMonths(1));
+        versionedCatalog.add(v2);
+        versionedCatalog.add(v0);
+        versionedCatalog.add(v1);
+
+        // Prior to the first version: we return the first version (see #760)
+        Assert.assertSame(versionedCatalog.getVersion(t0.minusDays(1).toDate()), v0);
+        Assert.assertSame(versionedCatalog.getVersion(t0.toDate()), v0);
+        Assert.assertSame(versionedCatalog.getVersion(t0.plusMonths(1).minusMillis(1).toDate()), v0);
+        Assert.assertSame(versionedCatalog.getVersion(t0.plusMonths(1).toDate()), v1);
+        Assert.assertSame(versionedCatalog.getVersion(t0.plusMonths(2).toDate()), v2);
+        Assert.assertSame(versionedCatalog.getVersion(t0.plusYears(10).toDate()), v2);
+
+        // Memoized lookups are invalidated when a version is added
+        versionedCatalog.add(v1bis);
+        final StaticCatalog lastOfSameDate = versionedCatalog.getVersions().get(2);
+        Assert.assertSame(versionedCatalog.getVersion(t0.plusMonths(1).toDate()), lastOfSameDate);
+        Assert.assertSame(versionedCatalog.getVersion(t0.plusMonths(1).plusDays(3).toDate()), lastOfSameDate);
+        Assert.assertSame(versionedCatalog.getVersion(t0.plusMonths(2).toDate()), v2);
+    }
+
+    @Test(groups = "fast", expectedExceptions = IllegalStateException.class)
+    public void testGetVersionWithoutVersions() {
+        new DefaultVersionedCatalog().getVersion(new Date());
+    }
+
+    private StandaloneCatalog createVersion(final DateTime effectiveDate) {
+        return new StandaloneCatalog().setEffectiveDate(effectiveDate.toDate());
+    }
+}
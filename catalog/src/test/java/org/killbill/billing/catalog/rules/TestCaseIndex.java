@@ -0,0 +1,177 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.catalog.rules;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.killbill.billing.catalog.CatalogTestSuiteNoDB;
+import org.killbill.billing.catalog.DefaultPriceList;
+import org.killbill.billing.catalog.DefaultProduct;
+import org.killbill.billing.catalog.MockCatalog;
+import org.killbill.billing.catalog.api.BillingActionPolicy;
+import org.killbill.billing.catalog.api.BillingPeriod;
+import org.killbill.billing.catalog.api.CatalogApiException;
+import org.killbill.billing.catalog.api.PhaseType;
+import org.killbill.billing.catalog.api.Plan;
+import org.killbill.billing.catalog.api.PlanPhaseSpecifier;
+import org.killbill.billing.catalog.api.PriceList;
+import org.killbill.billing.catalog.api.Product;
+import org.killbill.billing.catalog.api.ProductCategory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestCaseIndex extends CatalogTestSuiteNoDB {
+
+    private static final int NB_CASES = 200;
+
+    private final Random random = new Random(1234L);
+
+    @Test(groups = "fast", description = "Verify the indexed lookups match the first-match scan over the cases")
+    public void testIndexMatchesScan() throws CatalogApiException {
+        final MockCatalog cat = new MockCatalog();
+        final List<Product> products = new ArrayList<Product>(cat.getProducts());
+        final List<PriceList> priceLists = new ArrayList<PriceList>(cat.getPriceLists().getAllPriceLists());
+
+        final DefaultCaseCancelPolicy[] cancelCases = new DefaultCaseCancelPolicy[NB_CASES];
+        final DefaultCaseChangePlanPolicy[] changeCases = new DefaultCaseChangePlanPolicy[NB_CASES];
+        for (int i = 0; i < NB_CASES; i++) {
+            final DefaultCaseCancelPolicy cancelCase = new DefaultCaseCancelPolicy();
+            cancelCase.setPolicy(pick(BillingActionPolicy.values()));
+            cancelCase.setPhaseType(pickOrNull(PhaseType.values()));
+            cancelCase.setProduct(pickOrNull(products));
+            cancelCase.setProductCategory(pickOrNull(ProductCategory.values()));
+            cancelCase.setBillingPeriod(pickOrNull(BillingPeriod.values()));
+            cancelCase.setPriceList((DefaultPriceList) pickOrNull(priceLists));
+            cancelCases[i] = cancelCase;
+
+            final DefaultCaseChangePlanPolicy changeCase = new DefaultCaseChangePlanPolicy();
+            changeCase.setPolicy(pick(BillingActionPolicy.values()));
+            changeCase.setPhaseType(pickOrNull(PhaseType.values()));
+            changeCase.setFromProduct(pickOrNull(products));
+            changeCase.setFromProductCategory(pickOrNull(ProductCategory.values()));
+            changeCase.setFromBillingPeriod(pickOrNull(BillingPeriod.values()));
+            changeCase.setFromPriceList((DefaultPriceList) pickOrNull(priceLists));
+            changeCase.setToProduct(pickOrNull(products));
+            changeCase.setToProductCategory(pickOrNull(ProductCategory.values()));
+            changeCase.setToBillingPeriod(pickOrNull(BillingPeriod.values()));
+            changeCase.setToPriceList((DefaultPriceList) pickOrNull(priceLists));
+            changeCases[i] = changeCase;
+        }
+
+        final List<PlanPhaseSpecifier> specifiers = new ArrayList<PlanPhaseSpecifier>();
+        for (final PhaseType phaseType : PhaseType.values()) {
+            for (final Plan plan : cat.getPlans()) {
+                specifiers.add(new PlanPhaseSpecifier(plan.getName(), phaseType));
+            }
+            for (final Product product : products) {
+                for (final BillingPeriod billingPeriod : BillingPeriod.values()) {
+                    for (final PriceList priceList : priceLists) {
+                        specifiers.add(new PlanPhaseSpecifier(product.getName(), billingPeriod, priceList.getName(), phaseType));
+                    }
+                    specifiers.add(new PlanPhaseSpecifier(product.getName(), billingPeriod, "dipsy", phaseType));
+                }
+            }
+        }
+
+        final StandardCaseIndex<BillingActionPolicy> cancelIndex = new StandardCaseIndex<BillingActionPolicy>(cancelCases);
+        final ChangeCaseIndex<BillingActionPolicy> changeIndex = new ChangeCaseIndex<BillingActionPolicy>(changeCases);
+        for (final PlanPhaseSpecifier from : specifiers) {
+            Assert.assertEquals(getCancelResult(cancelIndex, from, cat), getCancelResult(cancelCases, from, cat), from.toString());
+
+            // Keep the number of (from, to) pairs reasonable
+            final PlanPhaseSpecifier to = specifiers.get(random.nextInt(specifiers.size()));
+            Assert.assertEquals(getChangeResult(changeIndex, from, to, cat), getChangeResult(changeCases, from, to, cat), from + " -> " + to);
+        }
+    }
+
+    @Test(groups = "fast", description = "Verify the price list is only looked up when the scan would have")
+    public void testLazyPriceListLookup() throws CatalogApiException {
+        final MockCatalog cat = new MockCatalog();
+        final DefaultProduct product = cat.getCurrentProduct(0);
+        final DefaultPriceList priceList = cat.getPriceLists().getDefaultPricelist();
+
+        final DefaultCaseCancelPolicy wildcardCase = new DefaultCaseCancelPolicy();
+        wildcardCase.setPolicy(BillingActionPolicy.IMMEDIATE);
+        final DefaultCaseCancelPolicy priceListCase = new DefaultCaseCancelPolicy();
+        priceListCase.setPriceList(priceList);
+        priceListCase.setPolicy(BillingActionPolicy.END_OF_TERM);
+
+        final PlanPhaseSpecifier unknownPriceList = new PlanPhaseSpecifier(product.getName(), BillingPeriod.MONTHLY, "dipsy", PhaseType.EVERGREEN);
+
+        // The first case matches: the unknown price list is never looked up
+        final DefaultCaseCancelPolicy[] wildcardFirst = new DefaultCaseCancelPolicy[]{wildcardCase, priceListCase};
+        Assert.assertEquals(new StandardCaseIndex<BillingActionPolicy>(wildcardFirst).getPhaseResult(unknownPriceList, cat), BillingActionPolicy.IMMEDIATE);
+
+        // The price list is looked up when reaching the second case
+        final DefaultCaseCancelPolicy[] priceListFirst = new DefaultCaseCancelPolicy[]{priceListCase, wildcardCase};
+        try {
+            new StandardCaseIndex<BillingActionPolicy>(priceListFirst).getPhaseResult(unknownPriceList, cat);
+            Assert.fail();
+        } catch (final CatalogApiException e) {
+            Assert.assertEquals(e.getCode(), getCancelResult(priceListFirst, unknownPriceList, cat));
+        }
+    }
+
+    private Object getCancelResult(final StandardCaseIndex<BillingActionPolicy> index, final PlanPhaseSpecifier specifier, final MockCatalog cat) {
+        try {
+            return index.getPhaseResult(specifier, cat);
+        } catch (final CatalogApiException e) {
+            return e.getCode();
+        }
+    }
+
+    private Object getCancelResult(final DefaultCaseCancelPolicy[] cases, final PlanPhaseSpecifier specifier, final MockCatalog cat) {
+        try {
+            return DefaultCasePhase.getResult(cases, specifier, cat);
+        } catch (final CatalogApiException e) {
+            return e.getCode();
+        }
+    }
+
+    private Object getChangeResult(final ChangeCaseIndex<BillingActionPolicy> index, final PlanPhaseSpecifier from, final PlanPhaseSpecifier to, final MockCatalog cat) {
+        try {
+            return index.getResult(from, to, cat);
+        } catch (final CatalogApiException e) {
+            return e.getCode();
+        }
+    }
+
+    private Object getChangeResult(final DefaultCaseChangePlanPolicy[] cases, final PlanPhaseSpecifier from, final PlanPhaseSpecifier to, final MockCatalog cat) {
+        try {
+            return DefaultCaseChange.getResult(cases, from, to, cat);
+        } catch (final CatalogApiException e) {
+            return e.getCode();
+        }
+    }
+
+    private <T> T pick(final T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    // Wildcards are more frequent in real catalogs
+    private <T> T pickOrNull(final T[] values) {
+        return random.nextInt(3) == 0 ? pick(values) : null;
+    }
+
+    private <T> T pickOrNull(final List<T> values) {
+        return random.nextInt(3) == 0 ? values.get(random.nextInt(values.size())) : null;
+    }
+}
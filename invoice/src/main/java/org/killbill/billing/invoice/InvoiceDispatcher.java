@@ -18,6 +18,7 @@
 
 package org.killbill.billing.invoice;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -66,17 +67,22 @@ import org.killbill.billing.invoice.api.user.DefaultInvoiceNotificationInternalE
 import org.killbill.billing.invoice.api.user.DefaultNullInvoiceEvent;
 import org.killbill.billing.invoice.calculator.InvoiceCalculatorUtils;
 import org.killbill.billing.invoice.dao.ExistingInvoiceMetadata;
+import org.killbill.billing.invoice.dao.InvoiceBillingEventModelDao;
 import org.killbill.billing.invoice.dao.InvoiceDao;
 import org.killbill.billing.invoice.dao.InvoiceItemModelDao;
 import org.killbill.billing.invoice.dao.InvoiceModelDao;
 import org.killbill.billing.invoice.dao.InvoiceModelDaoHelper;
 import org.killbill.billing.invoice.dao.InvoiceParentChildModelDao;
 import org.killbill.billing.invoice.dao.InvoiceTrackingModelDao;
+import org.killbill.billing.invoice.dao.serialization.BillingEventSerializer;
+import org.killbill.billing.invoice.dao.serialization.BillingEventSetJson;
 import org.killbill.billing.invoice.generator.InvoiceGenerator;
 import org.killbill.billing.invoice.generator.InvoiceWithMetadata;
 import org.killbill.billing.invoice.generator.InvoiceWithMetadata.SubscriptionFutureNotificationDates;
 import org.killbill.billing.invoice.generator.InvoiceWithMetadata.SubscriptionFutureNotificationDates.UsageDef;
 import org.killbill.billing.invoice.generator.InvoiceWithMetadata.TrackingRecordId;
+import org.killbill.billing.invoice.generator.ScopedBillingEventSet;
+import org.killbill.billing.invoice.generator.UnchangedSubscriptionDetector;
 import org.killbill.billing.invoice.model.DefaultInvoice;
 import org.killbill.billing.invoice.model.InvoiceItemFactory;
 import org.killbill.billing.invoice.model.ItemAdjInvoiceItem;
@@ -579,7 +585,7 @@ public class InvoiceDispatcher {
             return null;
         }
 
-        final InvoiceWithMetadata invoiceWithMetadata = generateKillBillInvoice(account, originalTargetDate, billingEvents, existingInvoices, internalCallContext);
+        final InvoiceWithMetadata invoiceWithMetadata = generateKillBillInvoice(account, originalTargetDate, billingEvents, existingInvoices, isDryRun, internalCallContext);
         final DefaultInvoice invoice = invoiceWithMetadata.getInvoice();
 
         // Compute future notifications
@@ -680,7 +686,7 @@ public class InvoiceDispatcher {
         return new InvoiceWithFutureNotifications(invoice, futureAccountNotifications);
     }
 
-    private InvoiceWithMetadata generateKillBillInvoice(final ImmutableAccountData account, final LocalDate targetDate, final BillingEventSet billingEvents, final List<Invoice> existingInvoices, final InternalCallContext context) throws InvoiceApiException {
+    private InvoiceWithMetadata generateKillBillInvoice(final ImmutableAccountData account, final LocalDate targetDate, final BillingEventSet billingEvents, final List<Invoice> existingInvoices, final boolean isDryRun, final InternalCallContext context) throws InvoiceApiException {
         final UUID targetInvoiceId;
         // Filter out DRAFT invoices for computation  of existing items unless Account is in AUTO_INVOICING_REUSE_DRAFT
         if (billingEvents.isAccountAutoInvoiceReuseDraft()) {
@@ -695,7 +701,48 @@ public class InvoiceDispatcher {
             targetInvoiceId = null;
         }
 
-        return generator.generateInvoice(account, billingEvents, existingInvoices, targetInvoiceId, targetDate, account.getCurrency(), context);
+        // Note that the full set of billing events is still used for the future notifications and persisted alongside the invoice
+        final BillingEventSet billingEventsForGeneration = isDryRun ? billingEvents : getBillingEventsForIncrementalInvoicing(targetDate, billingEvents, existingInvoices, context);
+        return generator.generateInvoice(account, billingEventsForGeneration, existingInvoices, targetInvoiceId, targetDate, account.getCurrency(), context);
+    }
+
+    private BillingEventSet getBillingEventsForIncrementalInvoicing(final LocalDate targetDate, final BillingEventSet billingEvents, final List<Invoice> existingInvoices, final InternalCallContext context) {
+        if (!invoiceConfig.isIncrementalInvoicingEnabled(context) ||
+            billingEvents.isAccountAutoInvoiceOff() ||
+            billingEvents.isAccountAutoInvoiceReuseDraft()) {
+            return billingEvents;
+        }
+
+        final InvoiceBillingEventModelDao latestInvoiceBillingEvents = invoiceDao.getLatestInvoiceBillingEvents(context);
+        if (latestInvoiceBillingEvents == null) {
+            return billingEvents;
+        }
+
+        final Invoice latestInvoice = Iterables.tryFind(existingInvoices, new Predicate<Invoice>() {
+            @Override
+            public boolean apply(final Invoice input) {
+                return input.getId().equals(latestInvoiceBillingEvents.getInvoiceId());
+            }
+        }).orNull();
+        if (latestInvoice == null) {
+            return billingEvents;
+        }
+
+        final BillingEventSetJson snapshot;
+        try {
+            snapshot = BillingEventSerializer.deserialize(latestInvoiceBillingEvents.getBillingEvents());
+        } catch (final IOException e) {
+            log.warn("Unable to deserialize billing events for invoiceId='{}', reverting to full invoice generation", latestInvoice.getId(), e);
+            return billingEvents;
+        }
+
+        final Set<UUID> unchangedSubscriptionIds = UnchangedSubscriptionDetector.getUnchangedSubscriptionIds(billingEvents, snapshot, latestInvoiceBillingEvents.getCreatedDate(), latestInvoice, existingInvoices, targetDate, context);
+        if (unchangedSubscriptionIds.isEmpty()) {
+            return billingEvents;
+        }
+
+        log.info("Skipping {} unchanged subscription(s) since invoiceId='{}' for targetDate='{}'", unchangedSubscriptionIds.size(), latestInvoice.getId(), targetDate);
+        return new ScopedBillingEventSet(billingEvents, unchangedSubscriptionIds);
     }
 
     private FutureAccountNotifications createNextFutureNotificationDate(final DateTime rescheduleDate, final BillingEventSet billingEvents, final InternalCallContext context) {
@@ -22,6 +22,7 @@ import org.killbill.billing.invoice.notification.ParentInvoiceCommitmentNotifier
 import org.killbill.bus.api.PersistentBus;
 import org.killbill.billing.invoice.InvoiceListener;
 import org.killbill.billing.invoice.InvoiceTagHandler;
+import org.killbill.billing.invoice.generator.InvoiceGeneratorExecutors;
 import org.killbill.billing.invoice.notification.NextBillingDateNotifier;
 import org.killbill.billing.platform.api.LifecycleHandlerType;
 import org.killbill.billing.platform.api.LifecycleHandlerType.LifecycleLevel;
@@ -37,15 +38,18 @@ public class DefaultInvoiceService implements InvoiceService {
     private final InvoiceTagHandler tagHandler;
     private final PersistentBus eventBus;
     private final ParentInvoiceCommitmentNotifier parentInvoiceNotifier;
+    private final InvoiceGeneratorExecutors generatorExecutors;
 
     @Inject
     public DefaultInvoiceService(final InvoiceListener invoiceListener, final InvoiceTagHandler tagHandler, final PersistentBus eventBus,
-                                 final NextBillingDateNotifier dateNotifier, final ParentInvoiceCommitmentNotifier parentInvoiceNotifier) {
+                                 final NextBillingDateNotifier dateNotifier, final ParentInvoiceCommitmentNotifier parentInvoiceNotifier,
+                                 final InvoiceGeneratorExecutors generatorExecutors) {
         this.invoiceListener = invoiceListener;
         this.tagHandler = tagHandler;
         this.eventBus = eventBus;
         this.dateNotifier = dateNotifier;
         this.parentInvoiceNotifier = parentInvoiceNotifier;
+        this.generatorExecutors = generatorExecutors;
     }
 
     @Override
@@ -66,6 +70,7 @@ public class DefaultInvoiceService implements InvoiceService {
         } catch (PersistentBus.EventBusException e) {
             throw new RuntimeException("Failed to register bus handlers", e);
         }
+        generatorExecutors.initialize();
         dateNotifier.initialize();
         parentInvoiceNotifier.initialize();
     }
@@ -86,5 +91,10 @@ public class DefaultInvoiceService implements InvoiceService {
         }
         dateNotifier.stop();
         parentInvoiceNotifier.stop();
+        try {
+            generatorExecutors.stop();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 }
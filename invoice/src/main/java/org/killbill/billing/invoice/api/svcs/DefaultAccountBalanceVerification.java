@@ -0,0 +1,69 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.api.svcs;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.invoice.api.AccountBalanceVerification;
+
+public class DefaultAccountBalanceVerification implements AccountBalanceVerification {
+
+    private final UUID accountId;
+    private final BigDecimal ledgerBalance;
+    private final BigDecimal computedBalance;
+
+    public DefaultAccountBalanceVerification(final UUID accountId, @Nullable final BigDecimal ledgerBalance, final BigDecimal computedBalance) {
+        this.accountId = accountId;
+        this.ledgerBalance = ledgerBalance;
+        this.computedBalance = computedBalance;
+    }
+
+    @Override
+    public UUID getAccountId() {
+        return accountId;
+    }
+
+    @Override
+    public BigDecimal getLedgerBalance() {
+        return ledgerBalance;
+    }
+
+    @Override
+    public BigDecimal getComputedBalance() {
+        return computedBalance;
+    }
+
+    @Override
+    public boolean isConsistent() {
+        // A missing ledger isn't an inconsistency: it will be populated on the next balance computation
+        return ledgerBalance == null || ledgerBalance.compareTo(computedBalance) == 0;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("DefaultAccountBalanceVerification{");
+        sb.append("accountId=").append(accountId);
+        sb.append(", ledgerBalance=").append(ledgerBalance);
+        sb.append(", computedBalance=").append(computedBalance);
+        sb.append('}');
+        return sb.toString();
+    }
+}
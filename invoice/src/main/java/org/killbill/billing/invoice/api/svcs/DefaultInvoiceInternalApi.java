@@ -34,6 +34,7 @@ import org.killbill.billing.ObjectType;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.invoice.api.AccountBalanceVerification;
 import org.killbill.billing.invoice.api.Invoice;
 import org.killbill.billing.invoice.api.InvoiceApiException;
 import org.killbill.billing.invoice.api.InvoiceApiHelper;
@@ -41,10 +42,12 @@ import org.killbill.billing.invoice.api.InvoiceInternalApi;
 import org.killbill.billing.invoice.api.InvoicePayment;
 import org.killbill.billing.invoice.api.InvoicePaymentType;
 import org.killbill.billing.invoice.api.InvoiceStatus;
+import org.killbill.billing.invoice.api.UnpaidInvoicesSummary;
 import org.killbill.billing.invoice.api.WithAccountLock;
 import org.killbill.billing.invoice.dao.InvoiceDao;
 import org.killbill.billing.invoice.dao.InvoiceModelDao;
 import org.killbill.billing.invoice.dao.InvoicePaymentModelDao;
+import org.killbill.billing.invoice.dao.UnpaidInvoicesSummaryModelDao;
 import org.killbill.billing.invoice.model.DefaultInvoice;
 import org.killbill.billing.invoice.model.DefaultInvoicePayment;
 import org.killbill.billing.payment.api.PluginProperty;
@@ -96,11 +99,48 @@ public class DefaultInvoiceInternalApi implements InvoiceInternalApi {
         return invoices;
     }
 
+    @Override
+    public UnpaidInvoicesSummary getUnpaidInvoicesSummary(final UUID accountId, final LocalDate upToDate, final InternalTenantContext context) {
+        final UnpaidInvoicesSummaryModelDao summary = dao.getUnpaidInvoicesSummary(accountId, upToDate, context);
+        if (summary != null) {
+            return new DefaultUnpaidInvoicesSummary(accountId, summary.getNbUnpaidInvoices(), summary.getUnpaidBalance(), summary.getEarliestUnpaidInvoiceDate(), summary.getEarliestUnpaidInvoiceId());
+        }
+
+        // The ledger isn't populated for that account, fall back to re-constructing the unpaid invoices
+        BigDecimal unpaidInvoiceBalance = BigDecimal.ZERO;
+        Invoice earliestUnpaidInvoice = null;
+        final Collection<Invoice> unpaidInvoices = getUnpaidInvoicesByAccountId(accountId, upToDate, context);
+        for (final Invoice unpaidInvoice : unpaidInvoices) {
+            unpaidInvoiceBalance = unpaidInvoiceBalance.add(unpaidInvoice.getBalance());
+            if (earliestUnpaidInvoice == null || unpaidInvoice.getInvoiceDate().compareTo(earliestUnpaidInvoice.getInvoiceDate()) < 0) {
+                earliestUnpaidInvoice = unpaidInvoice;
+            }
+        }
+        return new DefaultUnpaidInvoicesSummary(accountId,
+                                                unpaidInvoices.size(),
+                                                unpaidInvoiceBalance,
+                                                earliestUnpaidInvoice == null ? null : earliestUnpaidInvoice.getInvoiceDate(),
+                                                earliestUnpaidInvoice == null ? null : earliestUnpaidInvoice.getId());
+    }
+
     @Override
     public BigDecimal getAccountBalance(final UUID accountId, final InternalTenantContext context) {
         return dao.getAccountBalance(accountId, context);
     }
 
+    @Override
+    public AccountBalanceVerification verifyAccountBalance(final UUID accountId, final TenantContext context) {
+        final InternalTenantContext internalTenantContext = internalCallContextFactory.createInternalTenantContext(accountId, context);
+        final BigDecimal ledgerBalance = dao.getAccountBalanceFromLedger(accountId, internalTenantContext);
+        final BigDecimal computedBalance = dao.computeAccountBalance(accountId, internalTenantContext);
+        return new DefaultAccountBalanceVerification(accountId, ledgerBalance, computedBalance);
+    }
+
+    @Override
+    public void rebuildAccountBalance(final UUID accountId, final CallContext context) {
+        dao.rebuildAccountBalance(accountId, internalCallContextFactory.createInternalCallContext(accountId, context));
+    }
+
     @Override
     public void recordPaymentAttemptInit(final UUID invoiceId, final BigDecimal amount, final Currency currency, final Currency processedCurrency, final UUID paymentId, final UUID paymentAttemptId, final String transactionExternalKey, final DateTime paymentDate, final InternalCallContext context) throws InvoiceApiException {
         final InvoicePayment invoicePayment = new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, paymentId, invoiceId, paymentDate, amount, currency, processedCurrency, transactionExternalKey, false);
@@ -202,6 +202,44 @@ public class MultiTenantInvoiceConfig extends MultiTenantConfigBase implements I
         return shouldParkAccountsWithUnknownUsage();
     }
 
+    @Override
+    public boolean isIncrementalInvoicingEnabled() {
+        return staticConfig.isIncrementalInvoicingEnabled();
+    }
+
+    @Override
+    public boolean isIncrementalInvoicingEnabled(final InternalTenantContext tenantContext) {
+        final String result = getStringTenantConfig("isIncrementalInvoicingEnabled", tenantContext);
+        if (result != null) {
+            return Boolean.parseBoolean(result);
+        }
+        return isIncrementalInvoicingEnabled();
+    }
+
+    @Override
+    public int getParallelGenerationNbThreads() {
+        return staticConfig.getParallelGenerationNbThreads();
+    }
+
+    @Override
+    public int getParallelGenerationMinSubscriptions() {
+        return staticConfig.getParallelGenerationMinSubscriptions();
+    }
+
+    @Override
+    public int getParallelGenerationMinSubscriptions(final InternalTenantContext tenantContext) {
+        final String result = getStringTenantConfig("getParallelGenerationMinSubscriptions", tenantContext);
+        if (result != null) {
+            return Integer.parseInt(result);
+        }
+        return getParallelGenerationMinSubscriptions();
+    }
+
+    @Override
+    public boolean isBillingEventsBinaryFormatEnabled() {
+        return staticConfig.isBillingEventsBinaryFormatEnabled();
+    }
+
     @Override
     protected Class<? extends KillbillConfig> getConfigClass() {
         return InvoiceConfig.class;
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.invoice.api.InvoiceStatus;
+import org.killbill.billing.util.currency.KillBillMoney;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
+import org.killbill.billing.util.tag.ControlTagType;
+import org.killbill.billing.util.tag.Tag;
+import org.killbill.clock.Clock;
+import org.killbill.commons.jdbi.mapper.LowerToCamelBeanMapperFactory;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.IDBI;
+
+import com.google.common.collect.ImmutableList;
+
+import static org.killbill.billing.util.glue.IDBISetup.MAIN_RO_IDBI_NAMED;
+
+/**
+ * Maintains the invoice_balances ledger, so that the account balance can be computed without re-hydrating all invoices
+ * (items, payments, parent invoices) of the account.
+ * <p/>
+ * All methods are expected to be called from within an existing transaction.
+ */
+public class AccountBalanceDao {
+
+    private final InvoiceDaoHelper invoiceDaoHelper;
+    private final Clock clock;
+
+    @Inject
+    public AccountBalanceDao(final IDBI dbi,
+                             @Named(MAIN_RO_IDBI_NAMED) final IDBI roDbi,
+                             final InvoiceDaoHelper invoiceDaoHelper,
+                             final Clock clock) {
+        this.invoiceDaoHelper = invoiceDaoHelper;
+        this.clock = clock;
+        // InvoiceBalanceSqlDao is not an EntitySqlDao, so its mapper isn't registered by the DBI provider (see DefaultCatalogOverrideDao)
+        ((DBI) dbi).registerMapper(new LowerToCamelBeanMapperFactory(InvoiceBalanceModelDao.class));
+        ((DBI) roDbi).registerMapper(new LowerToCamelBeanMapperFactory(InvoiceBalanceModelDao.class));
+        ((DBI) dbi).registerMapper(new LowerToCamelBeanMapperFactory(UnpaidInvoicesSummaryModelDao.class));
+        ((DBI) roDbi).registerMapper(new LowerToCamelBeanMapperFactory(UnpaidInvoicesSummaryModelDao.class));
+    }
+
+    /**
+     * Same computation as DefaultInvoiceDao#computeAccountBalance, based on the ledger.
+     *
+     * @return the account balance or null if some entries are missing (e.g. invoices created prior to the ledger)
+     */
+    @Nullable
+    public BigDecimal getAccountBalanceFromTransaction(final List<Tag> invoicesTags, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
+        final List<InvoiceBalanceModelDao> ledger = getSqlDao(entitySqlDaoWrapperFactory).getLedgerByAccountRecordId(context);
+        if (!getMissingEntries(ledger, true).isEmpty()) {
+            return null;
+        }
+
+        final Set<UUID> writtenOffInvoiceIds = getWrittenOffInvoiceIds(invoicesTags);
+
+        BigDecimal cba = BigDecimal.ZERO;
+        BigDecimal accountBalance = BigDecimal.ZERO;
+        for (final InvoiceBalanceModelDao cur : ledger) {
+            // Skip DRAFT OR VOID invoices
+            if (isIgnored(cur.getInvoiceStatus())) {
+                continue;
+            }
+
+            final boolean hasZeroParentBalance = cur.getParentInvoiceId() != null &&
+                                                 (writtenOffInvoiceIds.contains(cur.getParentInvoiceId()) ||
+                                                  isIgnored(cur.getParentInvoiceStatus()) ||
+                                                  cur.getParentBalance().compareTo(BigDecimal.ZERO) == 0);
+
+            // Amounts are stored with the database scale: round them as InvoiceCalculatorUtils does, to return the exact same value
+            accountBalance = writtenOffInvoiceIds.contains(cur.getInvoiceId()) || hasZeroParentBalance ? BigDecimal.ZERO : accountBalance.add(KillBillMoney.of(cur.getBalance(), cur.getCurrency()));
+            cba = cba.add(KillBillMoney.of(cur.getCba(), cur.getCurrency()));
+        }
+        return accountBalance.subtract(cba);
+    }
+
+    /**
+     * Same computation as InvoiceDaoHelper#getUnpaidInvoicesByAccountFromTransaction (and DefaultInvoice#getBalance for the unpaid balance),
+     * aggregated by the database based on the ledger.
+     *
+     * @return the summary or null if some entries are missing (e.g. invoices created prior to the ledger)
+     */
+    @Nullable
+    public UnpaidInvoicesSummaryModelDao getUnpaidInvoicesSummaryFromTransaction(final LocalDate upToDate, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
+        final InvoiceBalanceSqlDao invoiceBalanceSqlDao = getSqlDao(entitySqlDaoWrapperFactory);
+        if (invoiceBalanceSqlDao.getNbMissingEntriesByAccountRecordId(context) > 0) {
+            return null;
+        }
+
+        final String writtenOffTagDefinitionId = ControlTagType.WRITTEN_OFF.getId().toString();
+        final UnpaidInvoicesSummaryModelDao summary = invoiceBalanceSqlDao.getUnpaidSummaryByAccountRecordId(upToDate.toDate(), writtenOffTagDefinitionId, context);
+        if (summary.getNbUnpaidInvoices() == 0) {
+            summary.setUnpaidBalance(BigDecimal.ZERO);
+        } else {
+            // Amounts are stored with the database scale, see getAccountBalanceFromTransaction
+            summary.setUnpaidBalance(KillBillMoney.of(summary.getUnpaidBalance(), summary.getCurrency()));
+            summary.setEarliestUnpaidInvoiceId(invoiceBalanceSqlDao.getEarliestUnpaidInvoiceIdByAccountRecordId(upToDate.toDate(), writtenOffTagDefinitionId, context));
+        }
+        return summary;
+    }
+
+    /**
+     * Create the entries missing for the invoices of that account: to be called under the account lock. Missing entries of parent
+     * invoices are left to the parent account (created when its own ledger is backfilled or when these invoices change), as their
+     * account isn't locked.
+     *
+     * @return true if entries had to be created
+     */
+    public boolean populateMissingEntriesFromTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
+        final Set<UUID> missingInvoiceIds = getMissingEntries(getSqlDao(entitySqlDaoWrapperFactory).getLedgerByAccountRecordId(context), false);
+        refreshFromTransaction(missingInvoiceIds, entitySqlDaoWrapperFactory, context);
+        return !missingInvoiceIds.isEmpty();
+    }
+
+    /**
+     * Re-compute the entries of the specified invoices: to be called in the same transaction as any change to their items or payments.
+     */
+    public void refreshFromTransaction(final Iterable<UUID> invoiceIds, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
+        final InvoiceSqlDao invoiceSqlDao = entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class);
+        final InvoiceBalanceSqlDao invoiceBalanceSqlDao = getSqlDao(entitySqlDaoWrapperFactory);
+        final DateTime now = clock.getUTCNow();
+        for (final UUID invoiceId : invoiceIds) {
+            final InvoiceModelDao invoice = invoiceSqlDao.getById(invoiceId.toString(), context);
+            // Shell invoices (items referencing existing invoices)
+            if (invoice == null) {
+                continue;
+            }
+
+            // Tags are irrelevant here: WRITTEN_OFF is resolved when reading the ledger
+            invoiceDaoHelper.populateChildren(invoice, ImmutableList.<Tag>of(), entitySqlDaoWrapperFactory, context);
+            final InvoiceBalanceModelDao entry = new InvoiceBalanceModelDao(invoice, now);
+            if (invoiceBalanceSqlDao.updateBalance(entry) == 0) {
+                invoiceBalanceSqlDao.create(entry);
+            }
+        }
+    }
+
+    public void updateParentInvoiceIdFromTransaction(final UUID childInvoiceId, final UUID parentInvoiceId, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
+        getSqlDao(entitySqlDaoWrapperFactory).updateParentInvoiceId(childInvoiceId.toString(), parentInvoiceId.toString(), clock.getUTCNow().toDate(), context);
+    }
+
+    /**
+     * Drop and re-compute all the entries of the account.
+     */
+    public void rebuildFromTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalCallContext context) {
+        final InvoiceBalanceSqlDao invoiceBalanceSqlDao = getSqlDao(entitySqlDaoWrapperFactory);
+        invoiceBalanceSqlDao.deleteByAccountRecordId(context);
+
+        final Set<UUID> invoiceIds = new LinkedHashSet<UUID>();
+        for (final InvoiceBalanceModelDao cur : invoiceBalanceSqlDao.getLedgerByAccountRecordId(context)) {
+            invoiceIds.add(cur.getInvoiceId());
+        }
+        refreshFromTransaction(invoiceIds, entitySqlDaoWrapperFactory, context);
+    }
+
+    private InvoiceBalanceSqlDao getSqlDao(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) {
+        return entitySqlDaoWrapperFactory.getHandle().attach(InvoiceBalanceSqlDao.class);
+    }
+
+    private static Set<UUID> getMissingEntries(final Iterable<InvoiceBalanceModelDao> ledger, final boolean includeParentInvoices) {
+        final Set<UUID> missingInvoiceIds = new LinkedHashSet<UUID>();
+        for (final InvoiceBalanceModelDao cur : ledger) {
+            if (isIgnored(cur.getInvoiceStatus())) {
+                continue;
+            }
+
+            if (cur.getRecordId() == null) {
+                missingInvoiceIds.add(cur.getInvoiceId());
+            } else if (includeParentInvoices && cur.getParentInvoiceId() != null && !isIgnored(cur.getParentInvoiceStatus()) && cur.getParentBalance() == null) {
+                missingInvoiceIds.add(cur.getParentInvoiceId());
+            }
+        }
+        return missingInvoiceIds;
+    }
+
+    private static Set<UUID> getWrittenOffInvoiceIds(final Iterable<Tag> invoicesTags) {
+        final Set<UUID> writtenOffInvoiceIds = new HashSet<UUID>();
+        for (final Tag tag : invoicesTags) {
+            if (ControlTagType.WRITTEN_OFF.getId().equals(tag.getTagDefinitionId())) {
+                writtenOffInvoiceIds.add(tag.getObjectId());
+            }
+        }
+        return writtenOffInvoiceIds;
+    }
+
+    private static boolean isIgnored(@Nullable final InvoiceStatus status) {
+        return status == InvoiceStatus.DRAFT || status == InvoiceStatus.VOID;
+    }
+}
@@ -18,21 +18,24 @@
 package org.killbill.billing.invoice.dao;
 
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.invoice.api.Invoice;
 import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.util.entity.dao.EntitySqlDao;
+
+import com.google.common.collect.Iterables;
 
 public class ExistingInvoiceMetadata {
 
     private final Map<UUID, InvoiceModelDao> invoicesCache = new HashMap<UUID, InvoiceModelDao>();
     private final Map<UUID, InvoiceItemModelDao> invoiceItemsCache = new HashMap<UUID, InvoiceItemModelDao>();
 
-    private InvoiceSqlDao invoiceSqlDao;
-    private InvoiceItemSqlDao invoiceItemSqlDao;
-
     public ExistingInvoiceMetadata(final Iterable<Invoice> existingInvoices) {
         for (final Invoice invoice : existingInvoices) {
             invoicesCache.put(invoice.getId(), new InvoiceModelDao(invoice));
@@ -42,24 +45,38 @@ public class ExistingInvoiceMetadata {
         }
     }
 
-    public ExistingInvoiceMetadata(final InvoiceSqlDao invoiceSqlDao, final InvoiceItemSqlDao invoiceItemSqlDao) {
-        this.invoiceSqlDao = invoiceSqlDao;
-        this.invoiceItemSqlDao = invoiceItemSqlDao;
+    /**
+     * Look up which of the specified invoices and invoice items already exist on disk.
+     * <p/>
+     * PERF: the lookups are done in bulk, instead of one query per invoice and per invoice item.
+     */
+    public ExistingInvoiceMetadata(final InvoiceSqlDao invoiceSqlDao, final InvoiceItemSqlDao invoiceItemSqlDao, final Iterable<InvoiceModelDao> invoices, final InternalTenantContext context) {
+        final Set<String> invoiceIds = new HashSet<String>();
+        final Set<String> invoiceItemIds = new HashSet<String>();
+        for (final InvoiceModelDao invoice : invoices) {
+            invoiceIds.add(invoice.getId().toString());
+            for (final InvoiceItemModelDao invoiceItem : invoice.getInvoiceItems()) {
+                invoiceItemIds.add(invoiceItem.getId().toString());
+            }
+        }
+
+        for (final List<String> ids : Iterables.partition(invoiceIds, EntitySqlDao.MAX_IDS_PER_QUERY)) {
+            for (final InvoiceModelDao invoice : invoiceSqlDao.getByIds(ids, context)) {
+                invoicesCache.put(invoice.getId(), invoice);
+            }
+        }
+        for (final List<String> ids : Iterables.partition(invoiceItemIds, EntitySqlDao.MAX_IDS_PER_QUERY)) {
+            for (final InvoiceItemModelDao invoiceItem : invoiceItemSqlDao.getByIds(ids, context)) {
+                invoiceItemsCache.put(invoiceItem.getId(), invoiceItem);
+            }
+        }
     }
 
     public InvoiceModelDao getExistingInvoice(final UUID invoiceId, final InternalTenantContext context) {
-        if (invoiceSqlDao != null) {
-            return invoiceSqlDao.getById(invoiceId.toString(), context);
-        } else {
-            return invoicesCache.get(invoiceId);
-        }
+        return invoicesCache.get(invoiceId);
     }
 
     public InvoiceItemModelDao getExistingInvoiceItem(final UUID invoiceItemId, final InternalTenantContext context) {
-        if (invoiceItemSqlDao != null) {
-            return invoiceItemSqlDao.getById(invoiceItemId.toString(), context);
-        } else {
-            return invoiceItemsCache.get(invoiceItemId);
-        }
+        return invoiceItemsCache.get(invoiceItemId);
     }
 }
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.invoice.api.InvoiceStatus;
+
+/**
+ * Balance ledger entry for one invoice: the raw invoice balance and its CBA amount, as computed by InvoiceModelDaoHelper.
+ * <p/>
+ * Entries only depend on the invoice own items and payments. Everything else that goes into the account balance
+ * (invoice status, WRITTEN_OFF tags, parent invoice state) is resolved when reading the ledger, see AccountBalanceDao.
+ */
+public class InvoiceBalanceModelDao {
+
+    private Long recordId;
+    private UUID invoiceId;
+    private UUID parentInvoiceId;
+    private BigDecimal balance;
+    private BigDecimal cba;
+    private DateTime createdDate;
+    private DateTime updatedDate;
+    private Long accountRecordId;
+    private Long tenantRecordId;
+
+    // Only populated when reading the ledger for an account (joined from the invoices table)
+    private InvoiceStatus invoiceStatus;
+    private Currency currency;
+    private InvoiceStatus parentInvoiceStatus;
+    private BigDecimal parentBalance;
+
+    /* For the DAO mapper */
+    public InvoiceBalanceModelDao() {
+    }
+
+    public InvoiceBalanceModelDao(final InvoiceModelDao invoice, final DateTime createdDate) {
+        this.invoiceId = invoice.getId();
+        this.parentInvoiceId = invoice.getParentInvoice() == null ? null : invoice.getParentInvoice().getId();
+        this.balance = InvoiceModelDaoHelper.getRawBalanceForRegularInvoice(invoice);
+        this.cba = InvoiceModelDaoHelper.getCBAAmount(invoice);
+        this.createdDate = createdDate;
+        this.updatedDate = createdDate;
+        // The ledger entry always belongs to the account of the invoice (not necessarily the one of the call context, e.g. parent invoices)
+        this.accountRecordId = invoice.getAccountRecordId();
+        this.tenantRecordId = invoice.getTenantRecordId();
+    }
+
+    public Long getRecordId() {
+        return recordId;
+    }
+
+    public void setRecordId(final Long recordId) {
+        this.recordId = recordId;
+    }
+
+    public UUID getInvoiceId() {
+        return invoiceId;
+    }
+
+    public void setInvoiceId(final UUID invoiceId) {
+        this.invoiceId = invoiceId;
+    }
+
+    public UUID getParentInvoiceId() {
+        return parentInvoiceId;
+    }
+
+    public void setParentInvoiceId(final UUID parentInvoiceId) {
+        this.parentInvoiceId = parentInvoiceId;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(final BigDecimal balance) {
+        this.balance = balance;
+    }
+
+    public BigDecimal getCba() {
+        return cba;
+    }
+
+    public void setCba(final BigDecimal cba) {
+        this.cba = cba;
+    }
+
+    public DateTime getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setCreatedDate(final DateTime createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    public DateTime getUpdatedDate() {
+        return updatedDate;
+    }
+
+    public void setUpdatedDate(final DateTime updatedDate) {
+        this.updatedDate = updatedDate;
+    }
+
+    public Long getAccountRecordId() {
+        return accountRecordId;
+    }
+
+    public void setAccountRecordId(final Long accountRecordId) {
+        this.accountRecordId = accountRecordId;
+    }
+
+    public Long getTenantRecordId() {
+        return tenantRecordId;
+    }
+
+    public void setTenantRecordId(final Long tenantRecordId) {
+        this.tenantRecordId = tenantRecordId;
+    }
+
+    public InvoiceStatus getInvoiceStatus() {
+        return invoiceStatus;
+    }
+
+    public void setInvoiceStatus(final InvoiceStatus invoiceStatus) {
+        this.invoiceStatus = invoiceStatus;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(final Currency currency) {
+        this.currency = currency;
+    }
+
+    public InvoiceStatus getParentInvoiceStatus() {
+        return parentInvoiceStatus;
+    }
+
+    public void setParentInvoiceStatus(final InvoiceStatus parentInvoiceStatus) {
+        this.parentInvoiceStatus = parentInvoiceStatus;
+    }
+
+    public BigDecimal getParentBalance() {
+        return parentBalance;
+    }
+
+    public void setParentBalance(final BigDecimal parentBalance) {
+        this.parentBalance = parentBalance;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("InvoiceBalanceModelDao{");
+        sb.append("recordId=").append(recordId);
+        sb.append(", invoiceId=").append(invoiceId);
+        sb.append(", parentInvoiceId=").append(parentInvoiceId);
+        sb.append(", balance=").append(balance);
+        sb.append(", cba=").append(cba);
+        sb.append(", invoiceStatus=").append(invoiceStatus);
+        sb.append(", accountRecordId=").append(accountRecordId);
+        sb.append(", tenantRecordId=").append(tenantRecordId);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.commons.jdbi.binder.SmartBindBean;
+import org.killbill.commons.jdbi.template.KillBillSqlDaoStringTemplate;
+import org.skife.jdbi.v2.sqlobject.Bind;
+import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.sqlobject.mixins.CloseMe;
+import org.skife.jdbi.v2.sqlobject.mixins.Transactional;
+
+// Not an EntitySqlDao: the ledger is derived data, there is no point in auditing it (or keeping history)
+@KillBillSqlDaoStringTemplate
+public interface InvoiceBalanceSqlDao extends Transactional<InvoiceBalanceSqlDao>, CloseMe {
+
+    @SqlUpdate
+    public void create(@SmartBindBean final InvoiceBalanceModelDao entry);
+
+    @SqlUpdate
+    public int updateBalance(@SmartBindBean final InvoiceBalanceModelDao entry);
+
+    @SqlUpdate
+    public void updateParentInvoiceId(@Bind("invoiceId") final String invoiceId,
+                                      @Bind("parentInvoiceId") final String parentInvoiceId,
+                                      @Bind("updatedDate") final Date updatedDate,
+                                      @SmartBindBean final InternalTenantContext context);
+
+    @SqlUpdate
+    public void deleteByAccountRecordId(@SmartBindBean final InternalTenantContext context);
+
+    @SqlQuery
+    public List<InvoiceBalanceModelDao> getLedgerByAccountRecordId(@SmartBindBean final InternalTenantContext context);
+
+    @SqlQuery
+    public int getNbMissingEntriesByAccountRecordId(@SmartBindBean final InternalTenantContext context);
+
+    @SqlQuery
+    public UnpaidInvoicesSummaryModelDao getUnpaidSummaryByAccountRecordId(@Bind("upToDate") final Date upToDate,
+                                                                           @Bind("writtenOffTagDefinitionId") final String writtenOffTagDefinitionId,
+                                                                           @SmartBindBean final InternalTenantContext context);
+
+    @SqlQuery
+    public UUID getEarliestUnpaidInvoiceIdByAccountRecordId(@Bind("upToDate") final Date upToDate,
+                                                            @Bind("writtenOffTagDefinitionId") final String writtenOffTagDefinitionId,
+                                                            @SmartBindBean final InternalTenantContext context);
+}
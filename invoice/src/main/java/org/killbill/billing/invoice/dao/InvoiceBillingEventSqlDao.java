@@ -17,12 +17,17 @@
 
 package org.killbill.billing.invoice.dao;
 
+import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
+import org.killbill.commons.jdbi.binder.SmartBindBean;
 import org.killbill.commons.jdbi.template.KillBillSqlDaoStringTemplate;
+import org.skife.jdbi.v2.sqlobject.SqlQuery;
 
 @KillBillSqlDaoStringTemplate
 public interface InvoiceBillingEventSqlDao extends EntitySqlDao<InvoiceBillingEventModelDao, Entity> {
 
+    @SqlQuery
+    InvoiceBillingEventModelDao getLatestByAccountRecordId(@SmartBindBean final InternalTenantContext context);
 }
 
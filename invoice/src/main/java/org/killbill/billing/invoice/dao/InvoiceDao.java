@@ -68,6 +68,9 @@ public interface InvoiceDao extends EntityDao<InvoiceModelDao, Invoice, InvoiceA
 
     List<InvoiceModelDao> getInvoicesByAccount(final Boolean includeVoidedInvoices, LocalDate fromDate, LocalDate upToDate, InternalTenantContext context);
 
+    // Billing events persisted with the latest invoice of the account (null if there are none, or if some invoices have been voided)
+    InvoiceBillingEventModelDao getLatestInvoiceBillingEvents(InternalTenantContext context);
+
     List<InvoiceModelDao> getInvoicesBySubscription(UUID subscriptionId, InternalTenantContext context);
 
     Pagination<InvoiceModelDao> searchInvoices(String searchKey, Long offset, Long limit, InternalTenantContext context);
@@ -86,10 +89,21 @@ public interface InvoiceDao extends EntityDao<InvoiceModelDao, Invoice, InvoiceA
 
     BigDecimal getAccountBalance(UUID accountId, InternalTenantContext context);
 
+    // Account balance as computed from the invoice_balances ledger (null if some entries are missing)
+    BigDecimal getAccountBalanceFromLedger(UUID accountId, InternalTenantContext context);
+
+    // Account balance as computed by re-constructing all invoices of the account (bypasses the ledger)
+    BigDecimal computeAccountBalance(UUID accountId, InternalTenantContext context);
+
+    void rebuildAccountBalance(UUID accountId, InternalCallContext context);
+
     BigDecimal getAccountCBA(UUID accountId, InternalTenantContext context);
 
     List<InvoiceModelDao> getUnpaidInvoicesByAccountId(UUID accountId, @Nullable LocalDate startDate, @Nullable LocalDate upToDate, InternalTenantContext context);
 
+    // Aggregates of getUnpaidInvoicesByAccountId, as computed from the invoice_balances ledger (null if some entries are missing even after backfilling them)
+    UnpaidInvoicesSummaryModelDao getUnpaidInvoicesSummary(UUID accountId, LocalDate upToDate, InternalTenantContext context);
+
     // Include migrated invoices
     List<InvoiceModelDao> getAllInvoicesByAccount(final Boolean includeVoidedInvoices, InternalTenantContext context);
 
@@ -59,5 +59,9 @@ public interface InvoiceSqlDao extends EntitySqlDao<InvoiceModelDao, Invoice> {
     @SqlQuery
     InvoiceModelDao getParentDraftInvoice(@Bind("accountId") final String parentAccountId,
                                           @SmartBindBean final InternalTenantContext context);
+
+    @SqlQuery
+    Long getCountByStatus(@Bind("status") final String status,
+                          @SmartBindBean final InternalTenantContext context);
 }
 
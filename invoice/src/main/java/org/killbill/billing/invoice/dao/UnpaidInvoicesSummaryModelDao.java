@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.catalog.api.Currency;
+
+/**
+ * Unpaid invoices aggregates for one account, as computed from the invoice_balances ledger (see AccountBalanceDao).
+ */
+public class UnpaidInvoicesSummaryModelDao {
+
+    private Integer nbUnpaidInvoices;
+    private BigDecimal unpaidBalance;
+    private Currency currency;
+    private LocalDate earliestUnpaidInvoiceDate;
+
+    // Not part of the aggregate query
+    private UUID earliestUnpaidInvoiceId;
+
+    /* For the DAO mapper */
+    public UnpaidInvoicesSummaryModelDao() {
+    }
+
+    public Integer getNbUnpaidInvoices() {
+        return nbUnpaidInvoices;
+    }
+
+    public void setNbUnpaidInvoices(final Integer nbUnpaidInvoices) {
+        this.nbUnpaidInvoices = nbUnpaidInvoices;
+    }
+
+    public BigDecimal getUnpaidBalance() {
+        return unpaidBalance;
+    }
+
+    public void setUnpaidBalance(final BigDecimal unpaidBalance) {
+        this.unpaidBalance = unpaidBalance;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(final Currency currency) {
+        this.currency = currency;
+    }
+
+    public LocalDate getEarliestUnpaidInvoiceDate() {
+        return earliestUnpaidInvoiceDate;
+    }
+
+    public void setEarliestUnpaidInvoiceDate(final LocalDate earliestUnpaidInvoiceDate) {
+        this.earliestUnpaidInvoiceDate = earliestUnpaidInvoiceDate;
+    }
+
+    public UUID getEarliestUnpaidInvoiceId() {
+        return earliestUnpaidInvoiceId;
+    }
+
+    public void setEarliestUnpaidInvoiceId(final UUID earliestUnpaidInvoiceId) {
+        this.earliestUnpaidInvoiceId = earliestUnpaidInvoiceId;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("UnpaidInvoicesSummaryModelDao{");
+        sb.append("nbUnpaidInvoices=").append(nbUnpaidInvoices);
+        sb.append(", unpaidBalance=").append(unpaidBalance);
+        sb.append(", currency=").append(currency);
+        sb.append(", earliestUnpaidInvoiceDate=").append(earliestUnpaidInvoiceDate);
+        sb.append(", earliestUnpaidInvoiceId=").append(earliestUnpaidInvoiceId);
+        sb.append('}');
+        return sb.toString();
+    }
+}
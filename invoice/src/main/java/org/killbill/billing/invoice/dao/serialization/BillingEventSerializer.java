@@ -39,10 +39,26 @@ public class BillingEventSerializer {
         mapper.enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
     }
 
-    public static byte[] serialize(final BillingEventSet eventSet) throws IOException {
+    // The binary format can only be written once all nodes are able to read it (rolling upgrades): see InvoiceConfig#isBillingEventsBinaryFormatEnabled
+    public static byte[] serialize(final BillingEventSet eventSet, final boolean useBinaryFormat) throws IOException {
+        return useBinaryFormat ? serializeAsBinary(eventSet) : serializeAsJson(eventSet);
+    }
+
+    public static byte[] serializeAsBinary(final BillingEventSet eventSet) throws IOException {
+        return BillingEventSetBinaryCodec.encode(eventSet);
+    }
 
+    // Legacy format (Snappy-compressed JSON), still used by existing rows and by default
+    public static byte[] serializeAsJson(final BillingEventSet eventSet) throws IOException {
         final BillingEventSetJson json = new BillingEventSetJson(eventSet);
         final byte[] data = mapper.writeValueAsBytes(json);
         return Snappy.compress(data);
     }
+
+    public static BillingEventSetJson deserialize(final byte[] data) throws IOException {
+        if (BillingEventSetBinaryCodec.isBinary(data)) {
+            return BillingEventSetBinaryCodec.decode(data);
+        }
+        return mapper.readValue(Snappy.uncompress(data), BillingEventSetJson.class);
+    }
 }
@@ -0,0 +1,380 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.invoice.dao.serialization;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.catalog.api.BillingAlignment;
+import org.killbill.billing.catalog.api.BillingPeriod;
+import org.killbill.billing.invoice.dao.serialization.BillingEventSetJson.BillingEventJson;
+import org.killbill.billing.invoice.dao.serialization.BillingEventSetJson.SubscriptionBillingEventJson;
+import org.killbill.billing.junction.BillingEvent;
+import org.killbill.billing.junction.BillingEventSet;
+import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+
+//
+// Binary encoding of the billing events snapshot (same content as BillingEventSetJson):
+//
+// header:       magic (4 bytes) | version (1 byte) | flags (1 byte: autoInvoiceOff, autoInvoiceDraft, autoInvoiceReuseDraft)
+// dictionary:   varint size | strings (varint length + UTF-8 bytes). Plan and phase names as well as enum names are written
+//               as varint indexes into the dictionary (0 meaning null), so that each distinct value is only written once
+// subscriptions: varint size | for each: id (16 bytes) | autoInvoiceOff (1 byte) | varint length of the events | events
+// event:        bcdLocal | alignment | planName | phaseName | billingPeriod | effDate | fixedPrice | recurringPrice | transitionType | catalogEffDt
+//
+// Dates are written as zig-zag varint deltas (in millis) from the previous value within the subscription, amounts as
+// zig-zag varint scale and unscaled value.
+//
+// The events of a subscription are only decoded when first accessed (see SubscriptionBillingEventJson#getEvents), since
+// callers typically look at a handful of subscriptions only.
+//
+public class BillingEventSetBinaryCodec {
+
+    // A Snappy block (legacy JSON format) cannot start with these bytes: the first element would be a copy (with nothing to copy from)
+    private static final byte[] MAGIC = {'K', 'B', 'B', 'E'};
+    private static final byte VERSION_1 = 1;
+
+    private static final int FLAG_AUTO_INVOICE_OFF = 1;
+    private static final int FLAG_AUTO_INVOICE_DRAFT = 1 << 1;
+    private static final int FLAG_AUTO_INVOICE_REUSE_DRAFT = 1 << 2;
+
+    // Amounts
+    private static final int AMOUNT_NULL = 0;
+    private static final int AMOUNT_BIG = 1;
+    private static final int AMOUNT_SCALE_OFFSET = 2;
+
+    private BillingEventSetBinaryCodec() {
+    }
+
+    public static boolean isBinary(final byte[] data) {
+        if (data.length < MAGIC.length + 1) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static byte[] encode(final BillingEventSet eventSet) throws IOException {
+        final Dictionary dictionary = new Dictionary();
+        final Output subscriptions = new Output();
+
+        int nbSubscriptions = 0;
+        final Iterator<BillingEvent> it = eventSet.iterator();
+        UUID activeSubscriptionId = null;
+        Output activeSubscriptionEvents = null;
+        DateTime previousEffDate = null;
+        DateTime previousCatalogEffDt = null;
+        while (it.hasNext()) {
+            final BillingEvent cur = it.next();
+            if (activeSubscriptionId == null || !activeSubscriptionId.equals(cur.getSubscriptionId())) {
+                if (activeSubscriptionId != null) {
+                    writeSubscription(subscriptions, activeSubscriptionId, eventSet, activeSubscriptionEvents);
+                }
+                nbSubscriptions++;
+                activeSubscriptionId = cur.getSubscriptionId();
+                activeSubscriptionEvents = new Output();
+                previousEffDate = null;
+                previousCatalogEffDt = null;
+            }
+
+            activeSubscriptionEvents.writeVarLong(cur.getBillCycleDayLocal());
+            activeSubscriptionEvents.writeVarLong(dictionary.indexOf(cur.getBillingAlignment()));
+            activeSubscriptionEvents.writeVarLong(dictionary.indexOf(cur.getPlan() != null ? cur.getPlan().getName() : null));
+            activeSubscriptionEvents.writeVarLong(dictionary.indexOf(cur.getPlanPhase() != null ? cur.getPlanPhase().getName() : null));
+            activeSubscriptionEvents.writeVarLong(dictionary.indexOf(cur.getBillingPeriod()));
+            activeSubscriptionEvents.writeDateTime(cur.getEffectiveDate(), previousEffDate);
+            activeSubscriptionEvents.writeAmount(cur.getFixedPrice());
+            activeSubscriptionEvents.writeAmount(cur.getRecurringPrice());
+            activeSubscriptionEvents.writeVarLong(dictionary.indexOf(cur.getTransitionType()));
+            activeSubscriptionEvents.writeDateTime(cur.getCatalogEffectiveDate(), previousCatalogEffDt);
+
+            previousEffDate = cur.getEffectiveDate() != null ? cur.getEffectiveDate() : previousEffDate;
+            previousCatalogEffDt = cur.getCatalogEffectiveDate() != null ? cur.getCatalogEffectiveDate() : previousCatalogEffDt;
+        }
+        if (activeSubscriptionId != null) {
+            writeSubscription(subscriptions, activeSubscriptionId, eventSet, activeSubscriptionEvents);
+        }
+
+        final Output output = new Output();
+        output.write(MAGIC);
+        output.write(VERSION_1);
+        output.write((eventSet.isAccountAutoInvoiceOff() ? FLAG_AUTO_INVOICE_OFF : 0) |
+                     (eventSet.isAccountAutoInvoiceDraft() ? FLAG_AUTO_INVOICE_DRAFT : 0) |
+                     (eventSet.isAccountAutoInvoiceReuseDraft() ? FLAG_AUTO_INVOICE_REUSE_DRAFT : 0));
+        output.writeVarLong(dictionary.values.size());
+        for (final String value : dictionary.values) {
+            output.writeString(value);
+        }
+        output.writeVarLong(nbSubscriptions);
+        subscriptions.writeTo(output);
+        return output.toByteArray();
+    }
+
+    public static BillingEventSetJson decode(final byte[] data) throws IOException {
+        if (!isBinary(data)) {
+            throw new IOException("Invalid billing events snapshot: unexpected header");
+        }
+
+        final Input input = new Input(ByteBuffer.wrap(data, MAGIC.length, data.length - MAGIC.length));
+        final byte version = input.buffer.get();
+        if (version != VERSION_1) {
+            throw new IOException(String.format("Invalid billing events snapshot: unsupported version %s", version));
+        }
+
+        final int flags = input.buffer.get();
+
+        final int dictionarySize = (int) input.readVarLong();
+        final List<String> dictionary = new ArrayList<String>(dictionarySize);
+        for (int i = 0; i < dictionarySize; i++) {
+            dictionary.add(input.readString());
+        }
+
+        final int nbSubscriptions = (int) input.readVarLong();
+        final List<SubscriptionBillingEventJson> subs = new ArrayList<SubscriptionBillingEventJson>(nbSubscriptions);
+        for (int i = 0; i < nbSubscriptions; i++) {
+            final UUID subscriptionId = new UUID(input.buffer.getLong(), input.buffer.getLong());
+            final boolean autoInvoiceOff = input.buffer.get() != 0;
+            final int eventsLength = (int) input.readVarLong();
+            final ByteBuffer events = input.buffer.slice();
+            events.limit(eventsLength);
+            input.buffer.position(input.buffer.position() + eventsLength);
+
+            subs.add(new SubscriptionBillingEventJson(subscriptionId,
+                                                      autoInvoiceOff,
+                                                      Suppliers.memoize(new Supplier<List<BillingEventJson>>() {
+                                                          @Override
+                                                          public List<BillingEventJson> get() {
+                                                              return decodeEvents(new Input(events.duplicate()), dictionary);
+                                                          }
+                                                      })));
+        }
+
+        return new BillingEventSetJson((flags & FLAG_AUTO_INVOICE_OFF) != 0,
+                                       (flags & FLAG_AUTO_INVOICE_DRAFT) != 0,
+                                       (flags & FLAG_AUTO_INVOICE_REUSE_DRAFT) != 0,
+                                       subs);
+    }
+
+    private static void writeSubscription(final Output output, final UUID subscriptionId, final BillingEventSet eventSet, final Output events) throws IOException {
+        output.writeLong(subscriptionId.getMostSignificantBits());
+        output.writeLong(subscriptionId.getLeastSignificantBits());
+        output.write(eventSet.getSubscriptionIdsWithAutoInvoiceOff().contains(subscriptionId) ? 1 : 0);
+        output.writeVarLong(events.size());
+        events.writeTo(output);
+    }
+
+    private static List<BillingEventJson> decodeEvents(final Input input, final List<String> dictionary) {
+        final List<BillingEventJson> result = new ArrayList<BillingEventJson>();
+        DateTime previousEffDate = null;
+        DateTime previousCatalogEffDt = null;
+        while (input.buffer.hasRemaining()) {
+            final int bcdLocal = (int) input.readVarLong();
+            final String alignment = lookup(dictionary, input.readVarLong());
+            final String planName = lookup(dictionary, input.readVarLong());
+            final String phaseName = lookup(dictionary, input.readVarLong());
+            final String billingPeriod = lookup(dictionary, input.readVarLong());
+            final DateTime effDate = input.readDateTime(previousEffDate);
+            final BigDecimal fixedPrice = input.readAmount();
+            final BigDecimal recurringPrice = input.readAmount();
+            final String transitionType = lookup(dictionary, input.readVarLong());
+            final DateTime catalogEffDt = input.readDateTime(previousCatalogEffDt);
+
+            result.add(new BillingEventJson(bcdLocal,
+                                            alignment != null ? BillingAlignment.valueOf(alignment) : null,
+                                            planName,
+                                            phaseName,
+                                            billingPeriod != null ? BillingPeriod.valueOf(billingPeriod) : null,
+                                            effDate,
+                                            fixedPrice,
+                                            recurringPrice,
+                                            transitionType != null ? SubscriptionBaseTransitionType.valueOf(transitionType) : null,
+                                            catalogEffDt));
+
+            previousEffDate = effDate != null ? effDate : previousEffDate;
+            previousCatalogEffDt = catalogEffDt != null ? catalogEffDt : previousCatalogEffDt;
+        }
+        return result;
+    }
+
+    private static String lookup(final List<String> dictionary, final long index) {
+        return index == 0 ? null : dictionary.get((int) index - 1);
+    }
+
+    // Small negative values (e.g. dates before the previous one) remain small
+    private static long zigZag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Dictionary {
+
+        private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+        private final List<String> values = new ArrayList<String>();
+
+        private int indexOf(@Nullable final Enum<?> value) {
+            return indexOf(value == null ? null : value.name());
+        }
+
+        // 0 is reserved for null
+        private int indexOf(@Nullable final String value) {
+            if (value == null) {
+                return 0;
+            }
+
+            Integer index = indexes.get(value);
+            if (index == null) {
+                values.add(value);
+                index = values.size();
+                indexes.put(value, index);
+            }
+            return index;
+        }
+    }
+
+    private static final class Output extends ByteArrayOutputStream {
+
+        private void writeLong(final long value) {
+            for (int i = 7; i >= 0; i--) {
+                write((int) (value >>> (8 * i)));
+            }
+        }
+
+        private void writeVarLong(final long value) {
+            long remaining = value;
+            while ((remaining & ~0x7FL) != 0) {
+                write((int) ((remaining & 0x7F) | 0x80));
+                remaining >>>= 7;
+            }
+            write((int) remaining);
+        }
+
+        private void writeZigZag(final long value) {
+            writeVarLong(zigZag(value));
+        }
+
+        private void writeString(final String value) throws IOException {
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            write(bytes);
+        }
+
+        // 0 for null, delta + 1 otherwise (zig-zag encoded, so that 0 remains available)
+        private void writeDateTime(@Nullable final DateTime value, @Nullable final DateTime previous) {
+            if (value == null) {
+                writeVarLong(0);
+            } else {
+                writeVarLong(zigZag(value.getMillis() - (previous == null ? 0 : previous.getMillis())) + 1);
+            }
+        }
+
+        private void writeAmount(@Nullable final BigDecimal value) throws IOException {
+            if (value == null) {
+                writeVarLong(AMOUNT_NULL);
+            } else if (value.unscaledValue().bitLength() < 63) {
+                writeVarLong(zigZag(value.scale()) + AMOUNT_SCALE_OFFSET);
+                writeZigZag(value.unscaledValue().longValue());
+            } else {
+                writeVarLong(AMOUNT_BIG);
+                writeZigZag(value.scale());
+                final byte[] unscaledValue = value.unscaledValue().toByteArray();
+                writeVarLong(unscaledValue.length);
+                write(unscaledValue);
+            }
+        }
+    }
+
+    private static final class Input {
+
+        private final ByteBuffer buffer;
+
+        private Input(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private long readVarLong() {
+            long result = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get();
+                result |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return result;
+        }
+
+        private long readZigZag() {
+            return unZigZag(readVarLong());
+        }
+
+        private String readString() {
+            final byte[] bytes = new byte[(int) readVarLong()];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        // Deserialized dates are in UTC (same as with Jackson)
+        private DateTime readDateTime(@Nullable final DateTime previous) {
+            final long value = readVarLong();
+            if (value == 0) {
+                return null;
+            }
+            return new DateTime((previous == null ? 0 : previous.getMillis()) + unZigZag(value - 1), DateTimeZone.UTC);
+        }
+
+        private BigDecimal readAmount() {
+            final long header = readVarLong();
+            if (header == AMOUNT_NULL) {
+                return null;
+            } else if (header == AMOUNT_BIG) {
+                final int scale = (int) readZigZag();
+                final byte[] unscaledValue = new byte[(int) readVarLong()];
+                buffer.get(unscaledValue);
+                return new BigDecimal(new BigInteger(unscaledValue), scale);
+            } else {
+                final int scale = (int) unZigZag(header - AMOUNT_SCALE_OFFSET);
+                return BigDecimal.valueOf(readZigZag(), scale);
+            }
+        }
+    }
+}
@@ -32,6 +32,7 @@ import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Supplier;
 
 public class BillingEventSetJson {
 
@@ -94,7 +95,9 @@ public class BillingEventSetJson {
 
         private final boolean autoInvoiceOff;
         private final UUID subscriptionId;
+        // Either evts or lazyEvts is set (see BillingEventSetBinaryCodec)
         private final List<BillingEventJson> evts;
+        private final Supplier<List<BillingEventJson>> lazyEvts;
 
         @JsonCreator
         public SubscriptionBillingEventJson(@JsonProperty("autoInvoiceOff") final boolean autoInvoiceOff,
@@ -103,12 +106,21 @@ public class BillingEventSetJson {
             this.autoInvoiceOff = autoInvoiceOff;
             this.subscriptionId = subscriptionId;
             this.evts = evts;
+            this.lazyEvts = null;
         }
 
         public SubscriptionBillingEventJson(final UUID subscriptionId, final boolean autoInvoiceOff) {
             this.subscriptionId = subscriptionId;
             this.autoInvoiceOff = autoInvoiceOff;
             this.evts = new ArrayList<>();
+            this.lazyEvts = null;
+        }
+
+        public SubscriptionBillingEventJson(final UUID subscriptionId, final boolean autoInvoiceOff, final Supplier<List<BillingEventJson>> lazyEvts) {
+            this.subscriptionId = subscriptionId;
+            this.autoInvoiceOff = autoInvoiceOff;
+            this.evts = null;
+            this.lazyEvts = lazyEvts;
         }
 
         @JsonProperty("autoInvoiceOff")
@@ -122,7 +134,7 @@ public class BillingEventSetJson {
 
         @JsonProperty("evts")
         public List<BillingEventJson> getEvents() {
-            return evts;
+            return evts != null ? evts : lazyEvts.get();
         }
 
         public void addBillingEvent(final BillingEventJson be) {
@@ -26,6 +26,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 import javax.annotation.Nullable;
 
@@ -81,10 +83,13 @@ public class FixedAndRecurringInvoiceItemGenerator extends InvoiceItemGenerator
 
     private final Clock clock;
 
+    private final InvoiceGeneratorExecutors generatorExecutors;
+
     @Inject
-    public FixedAndRecurringInvoiceItemGenerator(final InvoiceConfig config, final Clock clock) {
+    public FixedAndRecurringInvoiceItemGenerator(final InvoiceConfig config, final Clock clock, final InvoiceGeneratorExecutors generatorExecutors) {
         this.config = config;
         this.clock = clock;
+        this.generatorExecutors = generatorExecutors;
     }
 
     public InvoiceGeneratorResult generateItems(final ImmutableAccountData account, final UUID invoiceId, final BillingEventSet eventSet,
@@ -115,13 +120,20 @@ public class FixedAndRecurringInvoiceItemGenerator extends InvoiceItemGenerator
             }
         }
 
+        final List<List<BillingEvent>> perSubscriptionBillingEvents = groupBillingEventsPerSubscription(eventSet);
+        final ExecutorService executorService = generatorExecutors.getGeneratorExecutorService(perSubscriptionBillingEvents.size(), internalCallContext);
+
         // Generate list of proposed invoice items based on billing events from junction-- proposed items are ALL items since beginning of time
         final List<InvoiceItem> proposedItems = new ArrayList<InvoiceItem>();
-        processRecurringBillingEvents(invoiceId, account.getId(), eventSet, targetDate, targetCurrency, proposedItems, perSubscriptionFutureNotificationDate, internalCallContext);
-        processFixedBillingEvents(invoiceId, account.getId(), eventSet, targetDate, targetCurrency, proposedItems, internalCallContext);
+        if (executorService == null) {
+            processRecurringBillingEvents(invoiceId, account.getId(), eventSet, targetDate, targetCurrency, proposedItems, perSubscriptionFutureNotificationDate, internalCallContext);
+            processFixedBillingEvents(invoiceId, account.getId(), eventSet, targetDate, targetCurrency, proposedItems, internalCallContext);
+        } else {
+            processBillingEventsInParallel(invoiceId, account.getId(), eventSet, perSubscriptionBillingEvents, targetDate, targetCurrency, proposedItems, perSubscriptionFutureNotificationDate, executorService, internalCallContext);
+        }
 
         try {
-            accountItemTree.mergeWithProposedItems(proposedItems);
+            accountItemTree.mergeWithProposedItems(proposedItems, executorService);
         } catch (final IllegalStateException e) {
             // Proposed items have already been logged
             throw new InvoiceApiException(e, ErrorCode.UNEXPECTED_ERROR, String.format("ILLEGAL INVOICING STATE accountItemTree=%s", accountItemTree.toString()));
@@ -133,6 +145,73 @@ public class FixedAndRecurringInvoiceItemGenerator extends InvoiceItemGenerator
         return new InvoiceGeneratorResult(resultingItems, ImmutableSet.of());
     }
 
+    // The BillingEventSet is ordered by subscription first, so the events of a given subscription are contiguous
+    private List<List<BillingEvent>> groupBillingEventsPerSubscription(final BillingEventSet eventSet) {
+        final List<List<BillingEvent>> result = new ArrayList<List<BillingEvent>>();
+        List<BillingEvent> curEvents = null;
+        UUID curSubscriptionId = null;
+        for (final BillingEvent event : eventSet) {
+            if (curEvents == null || !curSubscriptionId.equals(event.getSubscriptionId())) {
+                curEvents = new ArrayList<BillingEvent>();
+                curSubscriptionId = event.getSubscriptionId();
+                result.add(curEvents);
+            }
+            curEvents.add(event);
+        }
+        return result;
+    }
+
+    //
+    // Same result as processRecurringBillingEvents followed by processFixedBillingEvents, but each subscription is processed on the executor.
+    // The items of a given subscription are proposed in the same order as in the sequential version (recurring first, then fixed), which is all
+    // the subscription trees care about.
+    //
+    private void processBillingEventsInParallel(final UUID invoiceId, final UUID accountId, final BillingEventSet eventSet, final List<List<BillingEvent>> perSubscriptionBillingEvents,
+                                                final LocalDate targetDate, final Currency currency, final List<InvoiceItem> proposedItems,
+                                                final Map<UUID, SubscriptionFutureNotificationDates> perSubscriptionFutureNotificationDate,
+                                                final ExecutorService executorService, final InternalCallContext internalCallContext) throws InvoiceApiException {
+        final List<Callable<SubscriptionProposedItems>> tasks = new ArrayList<Callable<SubscriptionProposedItems>>(perSubscriptionBillingEvents.size());
+        for (int i = 0; i < perSubscriptionBillingEvents.size(); i++) {
+            final List<BillingEvent> subscriptionBillingEvents = perSubscriptionBillingEvents.get(i);
+            final UUID subscriptionId = subscriptionBillingEvents.get(0).getSubscriptionId();
+            // The sequential version always processes the very last event, even for subscriptions with AUTO_INVOICING_OFF
+            final boolean processRecurring = !eventSet.getSubscriptionIdsWithAutoInvoiceOff().contains(subscriptionId) ||
+                                             i == perSubscriptionBillingEvents.size() - 1;
+            final SubscriptionFutureNotificationDates existingFutureNotificationDates = perSubscriptionFutureNotificationDate.get(subscriptionId);
+            tasks.add(new Callable<SubscriptionProposedItems>() {
+                @Override
+                public SubscriptionProposedItems call() throws Exception {
+                    final BillingEventSet subscriptionEventSet = new ScopedBillingEventSet(eventSet, subscriptionBillingEvents);
+                    final SubscriptionProposedItems result = new SubscriptionProposedItems();
+                    if (existingFutureNotificationDates != null) {
+                        result.futureNotificationDates.put(subscriptionId, existingFutureNotificationDates);
+                    }
+                    if (processRecurring) {
+                        processRecurringBillingEvents(invoiceId, accountId, subscriptionEventSet, targetDate, currency, result.recurringItems, result.futureNotificationDates, internalCallContext);
+                    }
+                    processFixedBillingEvents(invoiceId, accountId, subscriptionEventSet, targetDate, currency, result.fixedItems, internalCallContext);
+                    return result;
+                }
+            });
+        }
+
+        final List<SubscriptionProposedItems> results = InvoiceGeneratorExecutors.invokeAll(executorService, tasks);
+        for (final SubscriptionProposedItems result : results) {
+            proposedItems.addAll(result.recurringItems);
+            perSubscriptionFutureNotificationDate.putAll(result.futureNotificationDates);
+        }
+        for (final SubscriptionProposedItems result : results) {
+            proposedItems.addAll(result.fixedItems);
+        }
+    }
+
+    private static final class SubscriptionProposedItems {
+
+        private final List<InvoiceItem> recurringItems = new ArrayList<InvoiceItem>();
+        private final List<InvoiceItem> fixedItems = new ArrayList<InvoiceItem>();
+        private final Map<UUID, SubscriptionFutureNotificationDates> futureNotificationDates = new HashMap<UUID, SubscriptionFutureNotificationDates>();
+    }
+
     private void processRecurringBillingEvents(final UUID invoiceId, final UUID accountId, final BillingEventSet events,
                                                final LocalDate targetDate, final Currency currency, final List<InvoiceItem> proposedItems,
                                                final Map<UUID, SubscriptionFutureNotificationDates> perSubscriptionFutureNotificationDate,
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.invoice.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+
+import org.killbill.billing.ErrorCode;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.catalog.api.CatalogApiException;
+import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.killbill.billing.util.config.definition.InvoiceConfig;
+import org.killbill.commons.concurrent.WithProfilingThreadPoolExecutor;
+
+//
+// Bounded pool used by the item generators to process the subscriptions of large accounts in parallel.
+// The pool is only created when org.killbill.invoice.parallelGeneration.nbThreads > 0, otherwise (and for
+// accounts with fewer than org.killbill.invoice.parallelGeneration.minSubscriptions subscriptions) all the work
+// happens on the caller thread, exactly as before.
+//
+public class InvoiceGeneratorExecutors {
+
+    private static final long TIMEOUT_EXECUTOR_SEC = 3L;
+
+    private static final String INVOICE_GENERATOR_THREAD_PREFIX = "invoice-generator-th-";
+    private static final String INVOICE_GENERATOR_TH_GROUP_NAME = "invoice-generator-grp";
+
+    private final InvoiceConfig invoiceConfig;
+
+    private volatile ExecutorService generatorExecutorService;
+
+    @Inject
+    public InvoiceGeneratorExecutors(final InvoiceConfig invoiceConfig) {
+        this.invoiceConfig = invoiceConfig;
+    }
+
+    public void initialize() {
+        final int nbThreads = invoiceConfig.getParallelGenerationNbThreads();
+        if (nbThreads > 0) {
+            this.generatorExecutorService = createGeneratorExecutorService(nbThreads);
+        }
+    }
+
+    public void stop() throws InterruptedException {
+        final ExecutorService executorService = generatorExecutorService;
+        generatorExecutorService = null;
+        if (executorService != null) {
+            executorService.shutdownNow();
+            executorService.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * @param nbSubscriptions number of subscriptions the caller is about to process
+     * @param context         the tenant context
+     * @return the executor to use, or null if the work should stay on the caller thread
+     */
+    @Nullable
+    public ExecutorService getGeneratorExecutorService(final int nbSubscriptions, final InternalTenantContext context) {
+        final ExecutorService executorService = generatorExecutorService;
+        if (executorService == null ||
+            nbSubscriptions < 2 ||
+            nbSubscriptions < invoiceConfig.getParallelGenerationMinSubscriptions(context)) {
+            return null;
+        }
+        return executorService;
+    }
+
+    /**
+     * Run the tasks, on the executor if one is specified, and return their results in the order of the tasks.
+     */
+    public static <T> List<T> invokeAll(@Nullable final ExecutorService executorService, final List<Callable<T>> tasks) throws InvoiceApiException {
+        final List<T> results = new ArrayList<T>(tasks.size());
+        if (executorService == null) {
+            for (final Callable<T> task : tasks) {
+                try {
+                    results.add(task.call());
+                } catch (final Exception e) {
+                    throw toInvoiceApiException(e);
+                }
+            }
+            return results;
+        }
+
+        final List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+        try {
+            for (final Callable<T> task : tasks) {
+                futures.add(executorService.submit(task));
+            }
+            for (final Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InvoiceApiException(e, ErrorCode.UNEXPECTED_ERROR, "Interrupted while generating invoice items");
+        } catch (final ExecutionException e) {
+            throw toInvoiceApiException(e.getCause());
+        } finally {
+            for (final Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private static InvoiceApiException toInvoiceApiException(final Throwable e) {
+        if (e instanceof InvoiceApiException) {
+            return (InvoiceApiException) e;
+        } else if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        } else if (e instanceof Error) {
+            throw (Error) e;
+        } else if (e instanceof CatalogApiException) {
+            return new InvoiceApiException((CatalogApiException) e);
+        } else {
+            return new InvoiceApiException(e, ErrorCode.UNEXPECTED_ERROR, "Failed to generate invoice items");
+        }
+    }
+
+    private ExecutorService createGeneratorExecutorService(final int nbThreads) {
+        return new WithProfilingThreadPoolExecutor(nbThreads,
+                                                   nbThreads,
+                                                   0L,
+                                                   TimeUnit.MILLISECONDS,
+                                                   new LinkedBlockingQueue<Runnable>(),
+                                                   new ThreadFactory() {
+
+                                                       @Override
+                                                       public Thread newThread(final Runnable r) {
+                                                           final Thread th = new Thread(new ThreadGroup(INVOICE_GENERATOR_TH_GROUP_NAME), r);
+                                                           th.setName(INVOICE_GENERATOR_THREAD_PREFIX + th.getId());
+                                                           return th;
+                                                       }
+                                                   });
+    }
+}
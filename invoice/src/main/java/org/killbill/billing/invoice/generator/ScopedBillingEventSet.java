@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.generator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import org.killbill.billing.catalog.api.CatalogApiException;
+import org.killbill.billing.catalog.api.Usage;
+import org.killbill.billing.junction.BillingEvent;
+import org.killbill.billing.junction.BillingEventSet;
+
+//
+// View of a BillingEventSet restricted to a subset of its subscriptions: the other subscriptions are handled
+// by the generators the same way as subscriptions with AUTO_INVOICING_OFF (i.e. neither their billing events nor their
+// existing items are considered).
+//
+public class ScopedBillingEventSet extends TreeSet<BillingEvent> implements BillingEventSet {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean accountAutoInvoiceOff;
+    private final boolean accountAutoInvoiceDraft;
+    private final boolean accountAutoInvoiceReuseDraft;
+    private final List<UUID> subscriptionIdsWithAutoInvoiceOff;
+
+    public ScopedBillingEventSet(final BillingEventSet billingEvents, final Set<UUID> excludedSubscriptionIds) {
+        this.accountAutoInvoiceOff = billingEvents.isAccountAutoInvoiceOff();
+        this.accountAutoInvoiceDraft = billingEvents.isAccountAutoInvoiceDraft();
+        this.accountAutoInvoiceReuseDraft = billingEvents.isAccountAutoInvoiceReuseDraft();
+        this.subscriptionIdsWithAutoInvoiceOff = new ArrayList<UUID>(billingEvents.getSubscriptionIdsWithAutoInvoiceOff());
+        for (final UUID subscriptionId : excludedSubscriptionIds) {
+            if (!subscriptionIdsWithAutoInvoiceOff.contains(subscriptionId)) {
+                subscriptionIdsWithAutoInvoiceOff.add(subscriptionId);
+            }
+        }
+
+        for (final BillingEvent billingEvent : billingEvents) {
+            if (!excludedSubscriptionIds.contains(billingEvent.getSubscriptionId())) {
+                add(billingEvent);
+            }
+        }
+    }
+
+    //
+    // View restricted to the specified billing events (typically those of a single subscription): unlike the constructor above,
+    // the other subscriptions are not added to the AUTO_INVOICING_OFF list, which keeps the cost linear in the number of events.
+    //
+    public ScopedBillingEventSet(final BillingEventSet billingEvents, final Collection<BillingEvent> scopedBillingEvents) {
+        this.accountAutoInvoiceOff = billingEvents.isAccountAutoInvoiceOff();
+        this.accountAutoInvoiceDraft = billingEvents.isAccountAutoInvoiceDraft();
+        this.accountAutoInvoiceReuseDraft = billingEvents.isAccountAutoInvoiceReuseDraft();
+        this.subscriptionIdsWithAutoInvoiceOff = billingEvents.getSubscriptionIdsWithAutoInvoiceOff();
+        addAll(scopedBillingEvents);
+    }
+
+    @Override
+    public boolean isAccountAutoInvoiceOff() {
+        return accountAutoInvoiceOff;
+    }
+
+    @Override
+    public boolean isAccountAutoInvoiceDraft() {
+        return accountAutoInvoiceDraft;
+    }
+
+    @Override
+    public boolean isAccountAutoInvoiceReuseDraft() {
+        return accountAutoInvoiceReuseDraft;
+    }
+
+    @Override
+    public List<UUID> getSubscriptionIdsWithAutoInvoiceOff() {
+        return subscriptionIdsWithAutoInvoiceOff;
+    }
+
+    @Override
+    public Map<String, Usage> getUsages() {
+        final Map<String, Usage> result = new HashMap<String, Usage>();
+        for (final BillingEvent billingEvent : this) {
+            try {
+                for (final Usage usage : billingEvent.getUsages()) {
+                    result.put(usage.getName(), usage);
+                }
+            } catch (final CatalogApiException e) {
+                throw new IllegalStateException(String.format("Failed to retrieve usage section for billing event %s", billingEvent), e);
+            }
+        }
+        return result.isEmpty() ? Collections.<String, Usage>emptyMap() : result;
+    }
+
+    @Override
+    public String toString() {
+        return "ScopedBillingEventSet [accountAutoInvoiceOff=" + accountAutoInvoiceOff
+               + ", subscriptionIdsWithAutoInvoiceOff=" + subscriptionIdsWithAutoInvoiceOff + ", Events="
+               + super.toString() + "]";
+    }
+}
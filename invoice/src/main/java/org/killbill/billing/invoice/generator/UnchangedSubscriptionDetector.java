@@ -0,0 +1,233 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.generator;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.catalog.api.BillingMode;
+import org.killbill.billing.catalog.api.BillingPeriod;
+import org.killbill.billing.catalog.api.CatalogApiException;
+import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.invoice.api.InvoiceItemType;
+import org.killbill.billing.invoice.api.InvoiceStatus;
+import org.killbill.billing.invoice.dao.serialization.BillingEventSetJson;
+import org.killbill.billing.invoice.dao.serialization.BillingEventSetJson.BillingEventJson;
+import org.killbill.billing.invoice.dao.serialization.BillingEventSetJson.SubscriptionBillingEventJson;
+import org.killbill.billing.junction.BillingEvent;
+import org.killbill.billing.junction.BillingEventSet;
+
+import com.google.common.base.Objects;
+
+//
+// Used for incremental invoicing: find the subscriptions for which the generators would not propose anything new
+// compared to the previous invoice run, based on the billing events snapshot persisted alongside the latest invoice.
+//
+// A subscription is considered unchanged if all of the following hold (anything else makes it a candidate for invoicing):
+// - its billing events are the same as in the snapshot (and it wasn't AUTO_INVOICING_OFF at the time)
+// - none of its billing events became effective between the previous and the new target date
+// - it doesn't have any usage section, and its recurring charges (if any) are billed in advance and already invoiced past the new target date
+// - none of its items (or items linked to them) have been created since the snapshot, nor live on a non COMMITTED invoice
+//
+public class UnchangedSubscriptionDetector {
+
+    private UnchangedSubscriptionDetector() {
+    }
+
+    public static Set<UUID> getUnchangedSubscriptionIds(final BillingEventSet billingEvents,
+                                                        final BillingEventSetJson snapshot,
+                                                        final DateTime snapshotCreatedDate,
+                                                        final Invoice snapshotInvoice,
+                                                        final Iterable<Invoice> existingInvoices,
+                                                        final LocalDate targetDate,
+                                                        final InternalTenantContext context) {
+        final Set<UUID> result = new HashSet<UUID>();
+        if (snapshotInvoice.getStatus() != InvoiceStatus.COMMITTED ||
+            snapshot.isAutoInvoiceOff() ||
+            snapshot.isAutoInvoiceDraft() ||
+            snapshot.isAutoInvoiceReuseDraft()) {
+            return result;
+        }
+
+        // See DefaultInvoiceGenerator#adjustTargetDate
+        LocalDate adjustedTargetDate = targetDate;
+        for (final Invoice invoice : existingInvoices) {
+            if (invoice.getTargetDate() != null && invoice.getTargetDate().isAfter(adjustedTargetDate)) {
+                adjustedTargetDate = invoice.getTargetDate();
+            }
+        }
+
+        final Map<UUID, SubscriptionBillingEventJson> snapshotPerSubscription = new HashMap<UUID, SubscriptionBillingEventJson>();
+        for (final SubscriptionBillingEventJson cur : snapshot.getSubscriptionEvents()) {
+            snapshotPerSubscription.put(cur.getSubscriptionId(), cur);
+        }
+
+        final Map<UUID, List<BillingEvent>> billingEventsPerSubscription = new LinkedHashMap<UUID, List<BillingEvent>>();
+        for (final BillingEvent billingEvent : billingEvents) {
+            List<BillingEvent> subscriptionBillingEvents = billingEventsPerSubscription.get(billingEvent.getSubscriptionId());
+            if (subscriptionBillingEvents == null) {
+                subscriptionBillingEvents = new LinkedList<BillingEvent>();
+                billingEventsPerSubscription.put(billingEvent.getSubscriptionId(), subscriptionBillingEvents);
+            }
+            subscriptionBillingEvents.add(billingEvent);
+        }
+
+        final Set<UUID> subscriptionIdsWithNewItems = new HashSet<UUID>();
+        final Map<UUID, LocalDate> invoicedThroughDates = new HashMap<UUID, LocalDate>();
+        populateExistingItemsMetadata(existingInvoices, snapshotCreatedDate, subscriptionIdsWithNewItems, invoicedThroughDates);
+
+        for (final UUID subscriptionId : billingEventsPerSubscription.keySet()) {
+            if (billingEvents.getSubscriptionIdsWithAutoInvoiceOff().contains(subscriptionId) ||
+                subscriptionIdsWithNewItems.contains(subscriptionId)) {
+                continue;
+            }
+
+            final SubscriptionBillingEventJson subscriptionSnapshot = snapshotPerSubscription.get(subscriptionId);
+            if (subscriptionSnapshot == null ||
+                subscriptionSnapshot.isAutoInvoiceOff() ||
+                !isSameBillingEvents(billingEventsPerSubscription.get(subscriptionId), subscriptionSnapshot.getEvents())) {
+                continue;
+            }
+
+            if (isFullyInvoiced(billingEventsPerSubscription.get(subscriptionId), snapshotInvoice.getTargetDate(), adjustedTargetDate, invoicedThroughDates.get(subscriptionId), context)) {
+                result.add(subscriptionId);
+            }
+        }
+        return result;
+    }
+
+    private static void populateExistingItemsMetadata(final Iterable<Invoice> existingInvoices,
+                                                      final DateTime snapshotCreatedDate,
+                                                      final Set<UUID> subscriptionIdsWithNewItems,
+                                                      final Map<UUID, LocalDate> invoicedThroughDates) {
+        final Map<UUID, UUID> subscriptionIdPerItemId = new HashMap<UUID, UUID>();
+        for (final Invoice invoice : existingInvoices) {
+            for (final InvoiceItem item : invoice.getInvoiceItems()) {
+                if (item.getSubscriptionId() != null) {
+                    subscriptionIdPerItemId.put(item.getId(), item.getSubscriptionId());
+                }
+            }
+        }
+
+        for (final Invoice invoice : existingInvoices) {
+            for (final InvoiceItem item : invoice.getInvoiceItems()) {
+                final UUID subscriptionId = item.getSubscriptionId() != null ? item.getSubscriptionId() : subscriptionIdPerItemId.get(item.getLinkedItemId());
+                if (subscriptionId == null) {
+                    continue;
+                }
+
+                if (invoice.getStatus() != InvoiceStatus.COMMITTED ||
+                    item.getCreatedDate() == null ||
+                    item.getCreatedDate().isAfter(snapshotCreatedDate)) {
+                    subscriptionIdsWithNewItems.add(subscriptionId);
+                } else if (item.getInvoiceItemType() == InvoiceItemType.RECURRING && item.getEndDate() != null) {
+                    final LocalDate invoicedThroughDate = invoicedThroughDates.get(subscriptionId);
+                    if (invoicedThroughDate == null || item.getEndDate().isAfter(invoicedThroughDate)) {
+                        invoicedThroughDates.put(subscriptionId, item.getEndDate());
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isFullyInvoiced(final List<BillingEvent> subscriptionBillingEvents,
+                                           final LocalDate previousTargetDate,
+                                           final LocalDate targetDate,
+                                           @Nullable final LocalDate invoicedThroughDate,
+                                           final InternalTenantContext context) {
+        BillingEvent lastEffectiveBillingEvent = null;
+        for (final BillingEvent billingEvent : subscriptionBillingEvents) {
+            try {
+                if (!billingEvent.getUsages().isEmpty()) {
+                    return false;
+                }
+            } catch (final CatalogApiException e) {
+                return false;
+            }
+
+            if (hasRecurringCharge(billingEvent) &&
+                (billingEvent.getPlan() == null || billingEvent.getPlan().getRecurringBillingMode() != BillingMode.IN_ADVANCE)) {
+                return false;
+            }
+
+            final LocalDate effectiveDate = context.toLocalDate(billingEvent.getEffectiveDate());
+            if (effectiveDate.isAfter(targetDate)) {
+                continue;
+            } else if (effectiveDate.isAfter(previousTargetDate)) {
+                return false;
+            }
+            lastEffectiveBillingEvent = billingEvent;
+        }
+
+        // The next recurring period would start on or before the new target date
+        return lastEffectiveBillingEvent == null ||
+               !hasRecurringCharge(lastEffectiveBillingEvent) ||
+               (invoicedThroughDate != null && invoicedThroughDate.isAfter(targetDate));
+    }
+
+    private static boolean hasRecurringCharge(final BillingEvent billingEvent) {
+        return billingEvent.getRecurringPrice() != null && billingEvent.getBillingPeriod() != BillingPeriod.NO_BILLING_PERIOD;
+    }
+
+    private static boolean isSameBillingEvents(final List<BillingEvent> billingEvents, final List<BillingEventJson> snapshotBillingEvents) {
+        if (snapshotBillingEvents == null || billingEvents.size() != snapshotBillingEvents.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < billingEvents.size(); i++) {
+            final BillingEvent cur = billingEvents.get(i);
+            final BillingEventJson snapshotEvent = snapshotBillingEvents.get(i);
+            if (cur.getBillCycleDayLocal() != snapshotEvent.getBcdLocal() ||
+                cur.getBillingAlignment() != snapshotEvent.getAlignment() ||
+                !Objects.equal(cur.getPlan() != null ? cur.getPlan().getName() : null, snapshotEvent.getPlanName()) ||
+                !Objects.equal(cur.getPlanPhase() != null ? cur.getPlanPhase().getName() : null, snapshotEvent.getPhaseName()) ||
+                cur.getBillingPeriod() != snapshotEvent.getBillingPeriod() ||
+                !isSameInstant(cur.getEffectiveDate(), snapshotEvent.getEffDate()) ||
+                !isSameAmount(cur.getFixedPrice(), snapshotEvent.getFixedPrice()) ||
+                !isSameAmount(cur.getRecurringPrice(), snapshotEvent.getRecurringPrice()) ||
+                cur.getTransitionType() != snapshotEvent.getTransitionType() ||
+                !isSameInstant(cur.getCatalogEffectiveDate(), snapshotEvent.getCatalogEffDt())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Deserialized dates are in UTC
+    private static boolean isSameInstant(@Nullable final DateTime first, @Nullable final DateTime second) {
+        return first == null ? second == null : second != null && first.isEqual(second);
+    }
+
+    // Deserialized amounts don't necessarily have the same scale
+    private static boolean isSameAmount(@Nullable final BigDecimal first, @Nullable final BigDecimal second) {
+        return first == null ? second == null : second != null && first.compareTo(second) == 0;
+    }
+}
@@ -17,6 +17,7 @@
 
 package org.killbill.billing.invoice.generator;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -26,6 +27,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 import javax.annotation.Nullable;
 
@@ -68,11 +71,13 @@ public class UsageInvoiceItemGenerator extends InvoiceItemGenerator {
 
     private final RawUsageOptimizer rawUsageOptimizer;
     private final InvoiceConfig invoiceConfig;
+    private final InvoiceGeneratorExecutors generatorExecutors;
 
     @Inject
-    public UsageInvoiceItemGenerator(final RawUsageOptimizer rawUsageOptimizer, final InvoiceConfig invoiceConfig) {
+    public UsageInvoiceItemGenerator(final RawUsageOptimizer rawUsageOptimizer, final InvoiceConfig invoiceConfig, final InvoiceGeneratorExecutors generatorExecutors) {
         this.rawUsageOptimizer = rawUsageOptimizer;
         this.invoiceConfig = invoiceConfig;
+        this.generatorExecutors = generatorExecutors;
     }
 
 
@@ -97,6 +102,7 @@ public class UsageInvoiceItemGenerator extends InvoiceItemGenerator {
             final Iterator<BillingEvent> events = eventSet.iterator();
 
             RawUsageOptimizerResult rawUsgRes = null;
+            final List<List<BillingEvent>> perSubscriptionEvents = new ArrayList<List<BillingEvent>>();
             List<BillingEvent> curEvents = Lists.newArrayList();
             UUID curSubscriptionId = null;
             while (events.hasNext()) {
@@ -125,29 +131,42 @@ public class UsageInvoiceItemGenerator extends InvoiceItemGenerator {
 
                 final UUID subscriptionId = event.getSubscriptionId();
                 if (curSubscriptionId != null && !curSubscriptionId.equals(subscriptionId)) {
-                    final SubscriptionUsageInArrear subscriptionUsageInArrear = new SubscriptionUsageInArrear(account.getId(), invoiceId, curEvents, rawUsgRes.getRawUsage(), rawUsgRes.getExistingTrackingIds(), targetDate, rawUsgRes.getRawUsageStartDate(), usageDetailMode, invoiceConfig, internalCallContext);
-                    final List<InvoiceItem> usageInArrearItems = perSubscriptionInArrearUsageItems.get(curSubscriptionId);
-
-                    final SubscriptionUsageInArrearItemsAndNextNotificationDate subscriptionResult = subscriptionUsageInArrear.computeMissingUsageInvoiceItems(usageInArrearItems != null ? usageInArrearItems : ImmutableList.<InvoiceItem>of(), invoiceItemGeneratorLogger);
-                    final List<InvoiceItem> newInArrearUsageItems = subscriptionResult.getInvoiceItems();
-                    items.addAll(newInArrearUsageItems);
-                    trackingIds.addAll(subscriptionResult.getTrackingIds());
-
-                    updatePerSubscriptionNextNotificationUsageDate(curSubscriptionId, subscriptionResult.getPerUsageNotificationDates(), BillingMode.IN_ARREAR, perSubscriptionFutureNotificationDates);
+                    perSubscriptionEvents.add(curEvents);
                     curEvents = Lists.newArrayList();
                 }
                 curSubscriptionId = subscriptionId;
                 curEvents.add(event);
             }
             if (curSubscriptionId != null) {
-                final SubscriptionUsageInArrear subscriptionUsageInArrear = new SubscriptionUsageInArrear(account.getId(), invoiceId, curEvents, rawUsgRes.getRawUsage(), rawUsgRes.getExistingTrackingIds(), targetDate, rawUsgRes.getRawUsageStartDate(), usageDetailMode, invoiceConfig, internalCallContext);
-                final List<InvoiceItem> usageInArrearItems = perSubscriptionInArrearUsageItems.get(curSubscriptionId);
-
-                final SubscriptionUsageInArrearItemsAndNextNotificationDate subscriptionResult = subscriptionUsageInArrear.computeMissingUsageInvoiceItems(usageInArrearItems != null ? usageInArrearItems : ImmutableList.<InvoiceItem>of(), invoiceItemGeneratorLogger);
-                final List<InvoiceItem> newInArrearUsageItems = subscriptionResult.getInvoiceItems();
-                items.addAll(newInArrearUsageItems);
-                trackingIds.addAll(subscriptionResult.getTrackingIds());
-                updatePerSubscriptionNextNotificationUsageDate(curSubscriptionId, subscriptionResult.getPerUsageNotificationDates(), BillingMode.IN_ARREAR, perSubscriptionFutureNotificationDates);
+                perSubscriptionEvents.add(curEvents);
+            }
+
+            // Each subscription is computed independently (on the executor for large accounts), the results are then merged in the original order
+            final ExecutorService executorService = generatorExecutors.getGeneratorExecutorService(perSubscriptionEvents.size(), internalCallContext);
+            final List<Callable<SubscriptionUsageInArrearResult>> tasks = new ArrayList<Callable<SubscriptionUsageInArrearResult>>(perSubscriptionEvents.size());
+            for (final List<BillingEvent> subscriptionEvents : perSubscriptionEvents) {
+                final RawUsageOptimizerResult subscriptionRawUsgRes = rawUsgRes;
+                final InvoiceItemGeneratorLogger subscriptionLogger = executorService == null ? invoiceItemGeneratorLogger : new InvoiceItemGeneratorLogger(invoiceId, account.getId(), "usage", log);
+                tasks.add(new Callable<SubscriptionUsageInArrearResult>() {
+                    @Override
+                    public SubscriptionUsageInArrearResult call() throws Exception {
+                        final UUID subscriptionId = subscriptionEvents.get(0).getSubscriptionId();
+                        final SubscriptionUsageInArrear subscriptionUsageInArrear = new SubscriptionUsageInArrear(account.getId(), invoiceId, subscriptionEvents, subscriptionRawUsgRes.getRawUsage(), subscriptionRawUsgRes.getExistingTrackingIds(), targetDate, subscriptionRawUsgRes.getRawUsageStartDate(), usageDetailMode, invoiceConfig, internalCallContext);
+                        final List<InvoiceItem> usageInArrearItems = perSubscriptionInArrearUsageItems.get(subscriptionId);
+
+                        final SubscriptionUsageInArrearItemsAndNextNotificationDate subscriptionResult = subscriptionUsageInArrear.computeMissingUsageInvoiceItems(usageInArrearItems != null ? usageInArrearItems : ImmutableList.<InvoiceItem>of(), subscriptionLogger);
+                        return new SubscriptionUsageInArrearResult(subscriptionId, subscriptionResult, subscriptionLogger);
+                    }
+                });
+            }
+
+            for (final SubscriptionUsageInArrearResult result : InvoiceGeneratorExecutors.invokeAll(executorService, tasks)) {
+                items.addAll(result.subscriptionResult.getInvoiceItems());
+                trackingIds.addAll(result.subscriptionResult.getTrackingIds());
+                updatePerSubscriptionNextNotificationUsageDate(result.subscriptionId, result.subscriptionResult.getPerUsageNotificationDates(), BillingMode.IN_ARREAR, perSubscriptionFutureNotificationDates);
+                if (result.logger != invoiceItemGeneratorLogger) {
+                    result.logger.logItems();
+                }
             }
             invoiceItemGeneratorLogger.logItems();
 
@@ -157,6 +176,19 @@ public class UsageInvoiceItemGenerator extends InvoiceItemGenerator {
         }
     }
 
+    private static final class SubscriptionUsageInArrearResult {
+
+        private final UUID subscriptionId;
+        private final SubscriptionUsageInArrearItemsAndNextNotificationDate subscriptionResult;
+        private final InvoiceItemGeneratorLogger logger;
+
+        private SubscriptionUsageInArrearResult(final UUID subscriptionId, final SubscriptionUsageInArrearItemsAndNextNotificationDate subscriptionResult, final InvoiceItemGeneratorLogger logger) {
+            this.subscriptionId = subscriptionId;
+            this.subscriptionResult = subscriptionResult;
+            this.logger = logger;
+        }
+    }
+
     private LocalDate getMinBillingEventDate(final BillingEventSet eventSet, final InternalCallContext internalCallContext) {
         DateTime minDate = null;
         for (final BillingEvent cur : eventSet) {
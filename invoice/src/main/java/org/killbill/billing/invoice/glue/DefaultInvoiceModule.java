@@ -34,6 +34,7 @@ import org.killbill.billing.invoice.api.formatters.ResourceBundleFactory;
 import org.killbill.billing.invoice.api.svcs.DefaultInvoiceInternalApi;
 import org.killbill.billing.invoice.api.user.DefaultInvoiceUserApi;
 import org.killbill.billing.invoice.config.MultiTenantInvoiceConfig;
+import org.killbill.billing.invoice.dao.AccountBalanceDao;
 import org.killbill.billing.invoice.dao.CBADao;
 import org.killbill.billing.invoice.dao.DefaultInvoiceDao;
 import org.killbill.billing.invoice.dao.InvoiceDao;
@@ -41,6 +42,7 @@ import org.killbill.billing.invoice.dao.InvoiceDaoHelper;
 import org.killbill.billing.invoice.generator.DefaultInvoiceGenerator;
 import org.killbill.billing.invoice.generator.FixedAndRecurringInvoiceItemGenerator;
 import org.killbill.billing.invoice.generator.InvoiceGenerator;
+import org.killbill.billing.invoice.generator.InvoiceGeneratorExecutors;
 import org.killbill.billing.invoice.generator.UsageInvoiceItemGenerator;
 import org.killbill.billing.invoice.notification.DefaultNextBillingDateNotifier;
 import org.killbill.billing.invoice.notification.DefaultNextBillingDatePoster;
@@ -69,6 +71,7 @@ public class DefaultInvoiceModule extends KillBillModule implements InvoiceModul
         bind(InvoiceDao.class).to(DefaultInvoiceDao.class).asEagerSingleton();
         bind(InvoiceDaoHelper.class).asEagerSingleton();
         bind(CBADao.class).asEagerSingleton();
+        bind(AccountBalanceDao.class).asEagerSingleton();
     }
 
     @Override
@@ -124,6 +127,7 @@ public class DefaultInvoiceModule extends KillBillModule implements InvoiceModul
         bind(InvoiceGenerator.class).to(DefaultInvoiceGenerator.class).asEagerSingleton();
         bind(FixedAndRecurringInvoiceItemGenerator.class).asEagerSingleton();
         bind(UsageInvoiceItemGenerator.class).asEagerSingleton();
+        bind(InvoiceGeneratorExecutors.class).asEagerSingleton();
     }
 
     protected void installInvoicePluginApi() {
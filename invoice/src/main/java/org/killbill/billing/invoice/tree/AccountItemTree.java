@@ -20,17 +20,25 @@ package org.killbill.billing.invoice.tree;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nullable;
 
 import org.killbill.billing.invoice.api.InvoiceItem;
 import org.killbill.billing.invoice.api.InvoiceItemType;
 
 import com.google.common.base.Preconditions;
-import com.google.common.base.Predicate;
-import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
 
 /**
  * Tree of invoice items for a given account.
@@ -39,7 +47,8 @@ import com.google.common.collect.Iterables;
  * associated to a given subscription. That also means that invoice item adjustment which cross subscriptions
  * can't be correctly handled when they compete with other forms of adjustments.
  * <p/>
- * <p>The class is not thread safe, there is no such use case today, and there is a lifecyle to respect:
+ * <p>The class is not thread safe (the subscription trees are independent though, so they can be merged concurrently,
+ * see {@link #mergeWithProposedItems(List, ExecutorService)}), and there is a lifecyle to respect:
  * <ul>
  * <li>Add existing invoice items
  * <li>Build the tree,
@@ -52,7 +61,8 @@ public class AccountItemTree {
     private final UUID accountId;
     private final UUID targetInvoiceId;
     private final Map<UUID, SubscriptionItemTree> subscriptionItemTree;
-    private final List<InvoiceItem> allExistingItems;
+    // Existing items by id, only used to retrieve the original item for linked items
+    private final Map<UUID, InvoiceItem> allExistingItems;
     private List<InvoiceItem> pendingItemAdj;
 
     private boolean isBuilt;
@@ -62,7 +72,7 @@ public class AccountItemTree {
         this.targetInvoiceId = targetInvoiceId;
         this.subscriptionItemTree = new HashMap<UUID, SubscriptionItemTree>();
         this.isBuilt = false;
-        this.allExistingItems = new LinkedList<InvoiceItem>();
+        this.allExistingItems = new HashMap<UUID, InvoiceItem>();
         this.pendingItemAdj = new LinkedList<InvoiceItem>();
     }
 
@@ -97,7 +107,9 @@ public class AccountItemTree {
         Preconditions.checkState(!isBuilt);
 
         // Only used to retrieve the original item for linked items
-        allExistingItems.add(existingItem);
+        if (!allExistingItems.containsKey(existingItem.getId())) {
+            allExistingItems.put(existingItem.getId(), existingItem);
+        }
 
         if (existingItem.getInvoiceItemType() == InvoiceItemType.ITEM_ADJ) {
             final InvoiceItem linkedInvoiceItem = getLinkedInvoiceItem(existingItem, allExistingItems);
@@ -152,6 +164,87 @@ public class AccountItemTree {
         }
     }
 
+    /**
+     * Same as {@link #mergeWithProposedItems(List)}, but the subscription trees are built and merged on the specified executor.
+     * <p/>
+     * Each tree sees its proposed items in the same order as in the sequential version, so the resulting items are identical.
+     *
+     * @param proposedItems   list of proposed item that should be merged with current existing view
+     * @param executorService the executor to use, or null to merge on the caller thread
+     */
+    public void mergeWithProposedItems(final List<InvoiceItem> proposedItems, @Nullable final ExecutorService executorService) {
+        if (executorService == null) {
+            mergeWithProposedItems(proposedItems);
+            return;
+        }
+
+        Preconditions.checkState(!isBuilt);
+        if (pendingItemAdj.size() > 0) {
+            for (InvoiceItem item : pendingItemAdj) {
+                addExistingItem(item, true);
+            }
+            pendingItemAdj.clear();
+        }
+        isBuilt = true;
+
+        final Set<SubscriptionItemTree> existingTrees = Sets.newIdentityHashSet();
+        existingTrees.addAll(subscriptionItemTree.values());
+
+        final Map<UUID, List<InvoiceItem>> perSubscriptionProposedItems = new LinkedHashMap<UUID, List<InvoiceItem>>();
+        for (InvoiceItem item : proposedItems) {
+            final UUID subscriptionId = getSubscriptionId(item, null);
+            List<InvoiceItem> subscriptionProposedItems = perSubscriptionProposedItems.get(subscriptionId);
+            if (subscriptionProposedItems == null) {
+                subscriptionProposedItems = new LinkedList<InvoiceItem>();
+                perSubscriptionProposedItems.put(subscriptionId, subscriptionProposedItems);
+            }
+            subscriptionProposedItems.add(item);
+            if (!subscriptionItemTree.containsKey(subscriptionId)) {
+                subscriptionItemTree.put(subscriptionId, new SubscriptionItemTree(subscriptionId, targetInvoiceId));
+            }
+        }
+
+        final List<Future<Void>> futures = new ArrayList<Future<Void>>(subscriptionItemTree.size());
+        try {
+            for (final Entry<UUID, SubscriptionItemTree> entry : subscriptionItemTree.entrySet()) {
+                final SubscriptionItemTree tree = entry.getValue();
+                final boolean isExistingTree = existingTrees.contains(tree);
+                final List<InvoiceItem> subscriptionProposedItems = perSubscriptionProposedItems.get(entry.getKey());
+                futures.add(executorService.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        if (isExistingTree) {
+                            tree.build();
+                            tree.flatten(true);
+                        }
+                        if (subscriptionProposedItems != null) {
+                            for (InvoiceItem item : subscriptionProposedItems) {
+                                tree.mergeProposedItem(item);
+                            }
+                        }
+                        tree.buildForMerge();
+                        return null;
+                    }
+                }));
+            }
+            for (final Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while merging proposed items", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            for (final Future<Void> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
     /**
      * @return the resulting list of items that should be written to disk
      */
@@ -170,7 +263,7 @@ public class AccountItemTree {
         return accountId;
     }
 
-    private UUID getSubscriptionId(final InvoiceItem item, final List<InvoiceItem> allItems) {
+    private UUID getSubscriptionId(final InvoiceItem item, final Map<UUID, InvoiceItem> allItems) {
         if (item.getInvoiceItemType() == InvoiceItemType.RECURRING ||
             item.getInvoiceItemType() == InvoiceItemType.FIXED) {
             return item.getSubscriptionId();
@@ -180,13 +273,8 @@ public class AccountItemTree {
         }
     }
 
-    private InvoiceItem getLinkedInvoiceItem(final InvoiceItem item, final Iterable<InvoiceItem> allItems) {
-        return Iterables.tryFind(allItems, new Predicate<InvoiceItem>() {
-            @Override
-            public boolean apply(final InvoiceItem input) {
-                return input.getId().equals(item.getLinkedItemId());
-            }
-        }).orNull();
+    private InvoiceItem getLinkedInvoiceItem(final InvoiceItem item, final Map<UUID, InvoiceItem> allItems) {
+        return item.getLinkedItemId() != null ? allItems.get(item.getLinkedItemId()) : null;
     }
 
     @Override
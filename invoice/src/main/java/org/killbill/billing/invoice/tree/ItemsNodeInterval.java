@@ -40,6 +40,9 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multiset;
 
 /**
  * Node in the SubscriptionItemTree
@@ -267,23 +270,42 @@ public class ItemsNodeInterval extends NodeInterval {
      * @return linked item if fully adjusted, null otherwise
      */
     public Item addAdjustment(final InvoiceItem item) {
-        final UUID targetId = item.getLinkedItemId();
+        addAdjustments(ImmutableList.<InvoiceItem>of(item));
+        return null;
+    }
 
-        final NodeInterval node = findNode(new SearchCallback() {
+    /**
+     * Add the adjustment amounts on the items specified by the targetIds.
+     * <p/>
+     * The nodes are indexed by item id once (adjustments don't modify the tree structure), instead of searching the tree for each adjustment.
+     */
+    public void addAdjustments(final Iterable<InvoiceItem> adjustments) {
+        final Map<UUID, ItemsNodeInterval> nodesByItemId = new HashMap<UUID, ItemsNodeInterval>();
+        walkTree(new WalkCallback() {
             @Override
-            public boolean isMatch(final NodeInterval curNode) {
-                return ((ItemsNodeInterval) curNode).getItemsInterval().findItem(targetId) != null;
+            public void onCurrentNode(final int depth, final NodeInterval curNode, final NodeInterval parent) {
+                for (final Item curItem : ((ItemsNodeInterval) curNode).getItems()) {
+                    // Same node as a depth first search would return (items may have been split across nodes)
+                    if (!nodesByItemId.containsKey(curItem.getId())) {
+                        nodesByItemId.put(curItem.getId(), (ItemsNodeInterval) curNode);
+                    }
+                }
             }
         });
-        Preconditions.checkNotNull(node, "Unable to find item interval for id='%s', tree=%s", targetId, this);
 
-        final ItemsInterval targetItemsInterval = ((ItemsNodeInterval) node).getItemsInterval();
-        final Item targetItem = targetItemsInterval.findItem(targetId);
-        Preconditions.checkNotNull(targetItem, "Unable to find item with id='%s', itemsInterval=%s", targetId, targetItemsInterval);
+        for (final InvoiceItem item : adjustments) {
+            final UUID targetId = item.getLinkedItemId();
 
-        final BigDecimal adjustmentAmount = item.getAmount().negate();
-        targetItem.incrementAdjustedAmount(adjustmentAmount);
-        return null;
+            final ItemsNodeInterval node = nodesByItemId.get(targetId);
+            Preconditions.checkNotNull(node, "Unable to find item interval for id='%s', tree=%s", targetId, this);
+
+            final ItemsInterval targetItemsInterval = node.getItemsInterval();
+            final Item targetItem = targetItemsInterval.findItem(targetId);
+            Preconditions.checkNotNull(targetItem, "Unable to find item with id='%s', itemsInterval=%s", targetId, targetItemsInterval);
+
+            final BigDecimal adjustmentAmount = item.getAmount().negate();
+            targetItem.incrementAdjustedAmount(adjustmentAmount);
+        }
     }
 
     private void build(final Collection<Item> output, final UUID targetInvoiceId, final boolean mergeMode) {
@@ -348,7 +370,17 @@ public class ItemsNodeInterval extends NodeInterval {
     // This is not strictly necessary -- just there to add a layer of sanity on what our tree contains
     //
     private void validateTree() {
-        final NodeInterval root = this;
+        // Ids of the ADD items in the tree, to look up the item cancelled by each CANCEL item without searching the tree
+        final Multiset<UUID> addItemIds = HashMultiset.<UUID>create();
+        walkTree(new WalkCallback() {
+            @Override
+            public void onCurrentNode(final int depth, final NodeInterval curNode, final NodeInterval parent) {
+                for (final Item curAddItem : ((ItemsNodeInterval) curNode).getItemsInterval().get_ADD_items()) {
+                    addItemIds.add(curAddItem.getId());
+                }
+            }
+        });
+
         walkTree(new WalkCallback() {
             @Override
             public void onCurrentNode(final int depth, final NodeInterval curNode, final NodeInterval parent) {
@@ -373,15 +405,7 @@ public class ItemsNodeInterval extends NodeInterval {
                     }
 
                     // Sanity: make sure the CANCEL item points to an ADD item
-                    final NodeInterval nodeIntervalForCancelledItem = root.findNode(new SearchCallback() {
-                        @Override
-                        public boolean isMatch(final NodeInterval curNode) {
-                            final ItemsInterval curChildItems = ((ItemsNodeInterval) curNode).getItemsInterval();
-                            final Item cancelledItem = curChildItems.getCancelledItemIfExists(curCancelItem.getLinkedId());
-                            return cancelledItem != null;
-                        }
-                    });
-                    Preconditions.checkState(nodeIntervalForCancelledItem != null, "Missing cancelledItem for cancelItem=%s", curCancelItem);
+                    Preconditions.checkState(addItemIds.contains(curCancelItem.getLinkedId()), "Missing cancelledItem for cancelItem=%s", curCancelItem);
                 }
 
                 for (final Item curAddItem : curNodeItems.get_ADD_items()) {
@@ -411,6 +435,7 @@ public class ItemsNodeInterval extends NodeInterval {
                             final ItemsInterval leftChildItems = ((ItemsNodeInterval) leftChild).getItemsInterval();
                             if (leftChildItems.getItems().size() == 1 && leftChildItems.getItems().get(0).getAction() == ItemAction.ADD) {
                                 curNodeItems.remove(curAddItem);
+                                addItemIds.remove(curAddItem.getId());
                             }
                         }
                     }
@@ -33,6 +33,13 @@ public class NodeInterval {
     protected LocalDate start;
     protected LocalDate end;
 
+    // Last child (and its previous sibling) walked past by addNode, to resume from there for the next insertion:
+    // items are mostly added in chronological order, which would otherwise make each insertion linear in the number of children
+    private NodeInterval lastVisitedChildPrev;
+    private NodeInterval lastVisitedChild;
+    // Max end date of the children up to (and including) lastVisitedChild
+    private LocalDate lastVisitedChildrenMaxEnd;
+
     public NodeInterval() {
         this(null, null, null);
     }
@@ -110,6 +117,14 @@ public class NodeInterval {
 
         NodeInterval prevChild = null;
         NodeInterval curChild = leftChild;
+        LocalDate visitedChildrenMaxEnd = null;
+        if (canResumeFromLastVisitedChild(newNode)) {
+            prevChild = lastVisitedChildPrev;
+            curChild = lastVisitedChild;
+            visitedChildrenMaxEnd = lastVisitedChildrenMaxEnd;
+        } else {
+            resetLastVisitedChild();
+        }
         while (curChild != null) {
 
             // newNode is contained, we go deeper in the tree
@@ -157,6 +172,12 @@ public class NodeInterval {
                 curChild.getParent().addNode(newNodes[1], callback);
                 return true;
             }
+            if (visitedChildrenMaxEnd == null || visitedChildrenMaxEnd.compareTo(curChild.getEnd()) < 0) {
+                visitedChildrenMaxEnd = curChild.getEnd();
+            }
+            lastVisitedChildPrev = prevChild;
+            lastVisitedChild = curChild;
+            lastVisitedChildrenMaxEnd = visitedChildrenMaxEnd;
             prevChild = curChild;
             curChild = curChild.rightSibling;
         }
@@ -180,7 +201,30 @@ public class NodeInterval {
 
     }
 
+    //
+    // If all the children up to the last visited one end before newNode, the loop in addNode would skip them (they can't contain, overlap or be after newNode).
+    // Insertions from addNode always happen after the last visited child, and the other modifications of the children reset it, but we also check
+    // the last visited child (and its previous sibling) are still children of this node, at the same position.
+    //
+    private boolean canResumeFromLastVisitedChild(final NodeInterval newNode) {
+        if (lastVisitedChild == null || lastVisitedChildrenMaxEnd.compareTo(newNode.getStart()) >= 0 || lastVisitedChild.parent != this) {
+            return false;
+        }
+        if (lastVisitedChildPrev == null) {
+            return leftChild == lastVisitedChild;
+        } else {
+            return lastVisitedChildPrev.parent == this && lastVisitedChildPrev.rightSibling == lastVisitedChild;
+        }
+    }
+
+    private void resetLastVisitedChild() {
+        lastVisitedChildPrev = null;
+        lastVisitedChild = null;
+        lastVisitedChildrenMaxEnd = null;
+    }
+
     public void removeChild(final NodeInterval toBeRemoved) {
+        resetLastVisitedChild();
         NodeInterval prevChild = null;
         NodeInterval curChild = leftChild;
         while (curChild != null) {
@@ -427,6 +471,8 @@ public class NodeInterval {
             return false;
         }
 
+        resetLastVisitedChild();
+
         newNode.parent = this;
         final NodeInterval lastNodeToRebalance = toBeRebalanced.get(toBeRebalanced.size() - 1);
         newNode.rightSibling = lastNodeToRebalance.rightSibling;
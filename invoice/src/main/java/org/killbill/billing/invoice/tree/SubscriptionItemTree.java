@@ -20,8 +20,10 @@ package org.killbill.billing.invoice.tree;
 
 import java.math.BigDecimal;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import org.joda.time.LocalDate;
@@ -31,7 +33,9 @@ import org.killbill.billing.invoice.tree.Item.ItemAction;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Ordering;
 
 /**
@@ -41,6 +45,9 @@ public class SubscriptionItemTree {
 
     private final List<Item> items = new LinkedList<Item>();
     private final List<InvoiceItem> existingIgnoredItems = new LinkedList<InvoiceItem>();
+    // Indexes on existingIgnoredItems, to avoid scanning that list for each adjustment or proposed item
+    private final Set<UUID> existingIgnoredItemIds = new HashSet<UUID>();
+    private final ListMultimap<LocalDate, InvoiceItem> existingIgnoredItemsByStartDate = ArrayListMultimap.<LocalDate, InvoiceItem>create();
     private final List<InvoiceItem> remainingIgnoredItems = new LinkedList<InvoiceItem>();
     private final List<InvoiceItem> pendingItemAdj = new LinkedList<InvoiceItem>();
 
@@ -89,7 +96,7 @@ public class SubscriptionItemTree {
             case RECURRING:
                 if (invoiceItem.getAmount().compareTo(BigDecimal.ZERO) == 0) {
                     // Nothing to repair -- https://github.com/killbill/killbill/issues/783
-                    existingIgnoredItems.add(invoiceItem);
+                    addExistingIgnoredItem(invoiceItem);
                 } else {
                     root.addExistingItem(new ItemsNodeInterval(root, new Item(invoiceItem, targetInvoiceId, ItemAction.ADD)));
                 }
@@ -100,7 +107,7 @@ public class SubscriptionItemTree {
                 break;
 
             case FIXED:
-                existingIgnoredItems.add(invoiceItem);
+                addExistingIgnoredItem(invoiceItem);
                 break;
 
             case ITEM_ADJ:
@@ -118,18 +125,14 @@ public class SubscriptionItemTree {
     public void build() {
         Preconditions.checkState(!isBuilt);
 
+        final List<InvoiceItem> itemAdjustments = new LinkedList<InvoiceItem>();
         for (final InvoiceItem item : pendingItemAdj) {
             // If the linked item was ignored, ignore this adjustment too
-            final InvoiceItem ignoredLinkedItem = Iterables.tryFind(existingIgnoredItems, new Predicate<InvoiceItem>() {
-                @Override
-                public boolean apply(final InvoiceItem input) {
-                    return input.getId().equals(item.getLinkedItemId());
-                }
-            }).orNull();
-            if (ignoredLinkedItem == null) {
-                root.addAdjustment(item);
+            if (!existingIgnoredItemIds.contains(item.getLinkedItemId())) {
+                itemAdjustments.add(item);
             }
         }
+        root.addAdjustments(itemAdjustments);
         pendingItemAdj.clear();
 
         root.buildForExistingItems(items, targetInvoiceId);
@@ -168,7 +171,8 @@ public class SubscriptionItemTree {
         Preconditions.checkState(!isBuilt, "Tree already built, unable to add new invoiceItem=%s", invoiceItem);
 
         // Check if it was an existing item ignored for tree purposes (e.g. FIXED or $0 RECURRING, both of which aren't repaired)
-        final InvoiceItem existingItem = Iterables.tryFind(existingIgnoredItems, new Predicate<InvoiceItem>() {
+        // Matching items have the same start date
+        final InvoiceItem existingItem = Iterables.tryFind(existingIgnoredItemsByStartDate.get(invoiceItem.getStartDate()), new Predicate<InvoiceItem>() {
             @Override
             public boolean apply(final InvoiceItem input) {
                 return input.matches(invoiceItem);
@@ -196,6 +200,12 @@ public class SubscriptionItemTree {
         }
     }
 
+    private void addExistingIgnoredItem(final InvoiceItem invoiceItem) {
+        existingIgnoredItems.add(invoiceItem);
+        existingIgnoredItemIds.add(invoiceItem.getId());
+        existingIgnoredItemsByStartDate.put(invoiceItem.getStartDate(), invoiceItem);
+    }
+
     // Build tree post merge
     public void buildForMerge() {
         Preconditions.checkState(!isBuilt, "Tree already built");
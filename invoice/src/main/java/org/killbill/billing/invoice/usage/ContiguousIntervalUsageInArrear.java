@@ -50,6 +50,7 @@ import org.killbill.billing.invoice.generator.InvoiceWithMetadata.TrackingRecord
 import org.killbill.billing.invoice.model.UsageInvoiceItem;
 import org.killbill.billing.invoice.usage.details.UsageInArrearAggregate;
 import org.killbill.billing.junction.BillingEvent;
+import org.killbill.billing.usage.AggregatedRawUsageRecord;
 import org.killbill.billing.usage.api.RawUsageRecord;
 import org.killbill.billing.usage.api.RolledUpUnit;
 import org.killbill.billing.util.config.definition.InvoiceConfig;
@@ -397,7 +398,7 @@ public abstract class ContiguousIntervalUsageInArrear {
                 if (prevRawUsage != null) {
                     if (prevRawUsage.getDate().compareTo(prevDate) >= 0 && prevRawUsage.getDate().compareTo(curDate) < 0) {
                         final Long currentAmount = perRangeUnitToAmount.get(prevRawUsage.getUnitType());
-                        final Long updatedAmount = computeUpdatedAmount(currentAmount, prevRawUsage.getAmount());
+                        final Long updatedAmount = computeUpdatedAmount(currentAmount, prevRawUsage);
                         perRangeUnitToAmount.put(prevRawUsage.getUnitType(), updatedAmount);
                         trackingIds.add(new TrackingRecordId(prevRawUsage.getTrackingId(), invoiceId, prevRawUsage.getSubscriptionId(), prevRawUsage.getUnitType(), prevRawUsage.getDate()));
                         prevRawUsage = null;
@@ -419,7 +420,7 @@ public abstract class ContiguousIntervalUsageInArrear {
                         }
 
                         final Long currentAmount = perRangeUnitToAmount.get(curRawUsage.getUnitType());
-                        final Long updatedAmount = computeUpdatedAmount(currentAmount, curRawUsage.getAmount());
+                        final Long updatedAmount = computeUpdatedAmount(currentAmount, curRawUsage);
                         perRangeUnitToAmount.put(curRawUsage.getUnitType(), updatedAmount);
                         trackingIds.add(new TrackingRecordId(curRawUsage.getTrackingId(), invoiceId, curRawUsage.getSubscriptionId(), curRawUsage.getUnitType(), curRawUsage.getDate()));
                     }
@@ -486,15 +487,17 @@ public abstract class ContiguousIntervalUsageInArrear {
      * @param newAmount
      * @return
      */
-    private Long computeUpdatedAmount(@Nullable Long currentAmount, @Nullable Long newAmount) {
+    private Long computeUpdatedAmount(@Nullable Long currentAmount, final RawUsageRecord rawUsage) {
 
         currentAmount = currentAmount == null ? (Long) 0L : currentAmount;
-        newAmount = newAmount == null ? (Long) 0L : newAmount;
 
         if (usage.getUsageType() == UsageType.CAPACITY) {
-            return Math.max(currentAmount, newAmount);
+            // Records pre-aggregated by the usage module carry the sum of the amounts, we need the max here
+            final Long newAmount = rawUsage instanceof AggregatedRawUsageRecord ? ((AggregatedRawUsageRecord) rawUsage).getMaxAmount() : rawUsage.getAmount();
+            return Math.max(currentAmount, newAmount == null ? (Long) 0L : newAmount);
         } else /* UsageType.CONSUMABLE */ {
-            return currentAmount + newAmount;
+            final Long newAmount = rawUsage.getAmount();
+            return currentAmount + (newAmount == null ? (Long) 0L : newAmount);
         }
     }
 
@@ -27,7 +27,9 @@ import org.joda.time.LocalDate;
 import org.killbill.billing.ErrorCode;
 import org.killbill.billing.account.api.Account;
 import org.killbill.billing.account.api.AccountApiException;
+import org.killbill.billing.account.api.ImmutableAccountData;
 import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.catalog.MockPlan;
 import org.killbill.billing.catalog.MockPlanPhase;
 import org.killbill.billing.catalog.api.BillingMode;
@@ -45,13 +47,17 @@ import org.killbill.billing.invoice.api.InvoiceItem;
 import org.killbill.billing.invoice.api.InvoiceItemType;
 import org.killbill.billing.invoice.dao.InvoiceItemModelDao;
 import org.killbill.billing.invoice.dao.InvoiceModelDao;
+import org.killbill.billing.invoice.generator.InvoiceGenerator;
+import org.killbill.billing.junction.BillingEvent;
 import org.killbill.billing.junction.BillingEventSet;
 import org.killbill.billing.subscription.api.SubscriptionBase;
 import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
 import org.killbill.billing.subscription.api.user.SubscriptionBaseApiException;
 import org.killbill.billing.util.api.TagDefinitionApiException;
+import org.killbill.billing.util.config.definition.InvoiceConfig;
 import org.killbill.billing.util.tag.Tag;
 import org.killbill.billing.util.tag.dao.SystemTags;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.tweak.HandleCallback;
@@ -341,4 +347,64 @@ public class TestInvoiceDispatcher extends InvoiceTestSuiteWithEmbeddedDB {
             Assert.assertEquals(item.getSubscriptionId(), subscription.getId());
         }
     }
+    @Test(groups = "slow")
+    public void testIncrementalInvoicing() throws Exception {
+        final InvoiceConfig incrementalInvoiceConfig = Mockito.spy(invoiceConfig);
+        Mockito.doReturn(true).when(incrementalInvoiceConfig).isIncrementalInvoicingEnabled(Mockito.<InternalTenantContext>any());
+        final InvoiceGenerator generatorSpy = Mockito.spy(generator);
+        final InvoiceDispatcher dispatcher = new InvoiceDispatcher(generatorSpy, accountApi, billingApi, subscriptionApi, invoiceDao,
+                                                                   internalCallContextFactory, invoicePluginDispatcher, locker, busService.getBus(),
+                                                                   notificationQueueService, incrementalInvoiceConfig, clock, parkedAccountsManager);
+
+        final SubscriptionBase unchangedSubscription = subscription;
+        final SubscriptionBase changedSubscription = invoiceUtil.createSubscription();
+
+        final BillingEventSet events = new MockBillingEventSet();
+        final Plan plan = MockPlan.createBicycleNoTrialEvergreen1USD();
+        final PlanPhase planPhase = MockPlanPhase.create1USDMonthlyEvergreen();
+        final DateTime effectiveDate = clock.getUTCNow().minusDays(1);
+        final int billCycleDayLocal = context.toLocalDate(effectiveDate).getDayOfMonth();
+        events.add(invoiceUtil.createMockBillingEvent(account, unchangedSubscription, effectiveDate, plan, planPhase,
+                                                      null, BigDecimal.ONE, account.getCurrency(), BillingPeriod.MONTHLY, billCycleDayLocal,
+                                                      BillingMode.IN_ADVANCE, "", 1L, SubscriptionBaseTransitionType.CREATE));
+        events.add(invoiceUtil.createMockBillingEvent(account, changedSubscription, effectiveDate, plan, planPhase,
+                                                      null, BigDecimal.ONE, account.getCurrency(), BillingPeriod.MONTHLY, billCycleDayLocal,
+                                                      BillingMode.IN_ADVANCE, "", 1L, SubscriptionBaseTransitionType.CREATE));
+        Mockito.when(billingApi.getBillingEventsForAccountAndUpdateAccountBCD(Mockito.<UUID>any(), Mockito.<DryRunArguments>any(), Mockito.<InternalCallContext>any())).thenReturn(events);
+
+        // Initial invoice (and billing events snapshot): both subscriptions are invoiced for a full month
+        final Invoice firstInvoice = dispatcher.processAccountFromNotificationOrBusEvent(account.getId(), context.toLocalDate(clock.getUTCNow()), null, false, context);
+        Assert.assertNotNull(firstInvoice);
+        Assert.assertEquals(firstInvoice.getInvoiceItems().size(), 2);
+
+        // A few days later, only one of the subscriptions changes
+        clock.addDays(3);
+        final InternalCallContext laterContext = internalCallContextFactory.createInternalCallContext(account.getId(), callContext);
+        events.add(invoiceUtil.createMockBillingEvent(account, changedSubscription, clock.getUTCNow(), plan, planPhase,
+                                                      null, BigDecimal.TEN, account.getCurrency(), BillingPeriod.MONTHLY, billCycleDayLocal,
+                                                      BillingMode.IN_ADVANCE, "", 2L, SubscriptionBaseTransitionType.CHANGE));
+
+        final Invoice secondInvoice = dispatcher.processAccountFromNotificationOrBusEvent(account.getId(), laterContext.toLocalDate(clock.getUTCNow()), null, false, laterContext);
+        Assert.assertNotNull(secondInvoice);
+        for (final InvoiceItem invoiceItem : secondInvoice.getInvoiceItems()) {
+            Assert.assertEquals(invoiceItem.getSubscriptionId(), changedSubscription.getId());
+        }
+
+        // The unchanged subscription was left out of the generation, the changed one went through it
+        final ArgumentCaptor<BillingEventSet> billingEventsCaptor = ArgumentCaptor.forClass(BillingEventSet.class);
+        Mockito.verify(generatorSpy, Mockito.atLeast(2)).generateInvoice(Mockito.<ImmutableAccountData>any(),
+                                                                         billingEventsCaptor.capture(),
+                                                                         Mockito.<Iterable<Invoice>>any(),
+                                                                         Mockito.<UUID>any(),
+                                                                         Mockito.<LocalDate>any(),
+                                                                         Mockito.<Currency>any(),
+                                                                         Mockito.<InternalCallContext>any());
+        final BillingEventSet billingEventsForGeneration = billingEventsCaptor.getValue();
+        Assert.assertTrue(billingEventsForGeneration.getSubscriptionIdsWithAutoInvoiceOff().contains(unchangedSubscription.getId()));
+        Assert.assertFalse(billingEventsForGeneration.getSubscriptionIdsWithAutoInvoiceOff().contains(changedSubscription.getId()));
+        Assert.assertEquals(billingEventsForGeneration.size(), 2);
+        for (final BillingEvent billingEvent : billingEventsForGeneration) {
+            Assert.assertEquals(billingEvent.getSubscriptionId(), changedSubscription.getId());
+        }
+    }
 }
@@ -59,6 +59,7 @@ import org.killbill.billing.invoice.api.Invoice;
 import org.killbill.billing.invoice.api.InvoiceApiException;
 import org.killbill.billing.invoice.api.InvoiceItem;
 import org.killbill.billing.invoice.api.InvoicePayment;
+import org.killbill.billing.invoice.dao.InvoiceBalanceSqlDao;
 import org.killbill.billing.invoice.dao.InvoiceDao;
 import org.killbill.billing.invoice.dao.InvoiceItemModelDao;
 import org.killbill.billing.invoice.dao.InvoiceItemSqlDao;
@@ -168,6 +169,7 @@ public class TestInvoiceHelper {
     private final InvoicePaymentSqlDao invoicePaymentSqlDao;
     private final InvoiceItemSqlDao invoiceItemSqlDao;
     private final InvoiceSqlDao invoiceSqlDao;
+    private final InvoiceBalanceSqlDao invoiceBalanceSqlDao;
 
 
     @Inject
@@ -194,6 +196,7 @@ public class TestInvoiceHelper {
         this.invoiceSqlDao = dbi.onDemand(InvoiceSqlDao.class);
         this.invoiceItemSqlDao = dbi.onDemand(InvoiceItemSqlDao.class);
         this.invoicePaymentSqlDao = dbi.onDemand(InvoicePaymentSqlDao.class);
+        this.invoiceBalanceSqlDao = dbi.onDemand(InvoiceBalanceSqlDao.class);
         this.invoiceConfig = invoiceConfig;
     }
 
@@ -283,6 +286,7 @@ public class TestInvoiceHelper {
 
     public void createInvoiceItem(final InvoiceItem invoiceItem, final InternalCallContext internalCallContext) throws EntityPersistenceException {
         invoiceItemSqlDao.create(new InvoiceItemModelDao(invoiceItem), internalCallContext);
+        invalidateBalanceLedger(internalCallContext);
     }
 
     public InvoiceItemModelDao getInvoiceItemById(final UUID invoiceItemId, final InternalCallContext internalCallContext) {
@@ -319,6 +323,12 @@ public class TestInvoiceHelper {
 
     public void createPayment(final InvoicePayment invoicePayment, final InternalCallContext internalCallContext) {
         invoicePaymentSqlDao.create(new InvoicePaymentModelDao(invoicePayment), internalCallContext);
+        invalidateBalanceLedger(internalCallContext);
+    }
+
+    // The rows above are inserted behind the back of the InvoiceDao: drop the balance ledger entries, they will be re-computed on the next balance computation
+    private void invalidateBalanceLedger(final InternalCallContext internalCallContext) {
+        invoiceBalanceSqlDao.deleteByAccountRecordId(internalCallContext);
     }
 
     public void verifyInvoice(final UUID invoiceId, final double balance, final double cbaAmount, final InternalTenantContext context) throws InvoiceApiException {
@@ -181,6 +181,12 @@ public class MockInvoiceDao extends MockEntityDaoBase<InvoiceModelDao, Invoice,
         return invoicesForAccount;
     }
 
+    @Override
+    public InvoiceBillingEventModelDao getLatestInvoiceBillingEvents(final InternalTenantContext context) {
+        // Billing events aren't recorded
+        return null;
+    }
+
     @Override
     public List<InvoiceModelDao> getInvoicesBySubscription(final UUID subscriptionId, final InternalTenantContext context) {
         final List<InvoiceModelDao> result = new ArrayList<InvoiceModelDao>();
@@ -308,6 +314,26 @@ public class MockInvoiceDao extends MockEntityDaoBase<InvoiceModelDao, Invoice,
         return balance;
     }
 
+    @Override
+    public BigDecimal getAccountBalanceFromLedger(final UUID accountId, final InternalTenantContext context) {
+        return getAccountBalance(accountId, context);
+    }
+
+    @Override
+    public UnpaidInvoicesSummaryModelDao getUnpaidInvoicesSummary(final UUID accountId, final LocalDate upToDate, final InternalTenantContext context) {
+        // No ledger
+        return null;
+    }
+
+    @Override
+    public BigDecimal computeAccountBalance(final UUID accountId, final InternalTenantContext context) {
+        return getAccountBalance(accountId, context);
+    }
+
+    @Override
+    public void rebuildAccountBalance(final UUID accountId, final InternalCallContext context) {
+    }
+
     @Override
     public List<InvoiceModelDao> getUnpaidInvoicesByAccountId(final UUID accountId, final LocalDate startDate, final LocalDate upToDate, final InternalTenantContext context) {
         final List<InvoiceModelDao> unpaidInvoices = new ArrayList<InvoiceModelDao>();
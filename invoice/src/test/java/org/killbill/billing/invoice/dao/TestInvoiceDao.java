@@ -25,12 +25,19 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 
 import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 import org.killbill.billing.ErrorCode;
+import org.killbill.billing.ObjectType;
 import org.killbill.billing.account.api.Account;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.catalog.DefaultPrice;
@@ -72,7 +79,13 @@ import org.killbill.billing.junction.BillingEventSet;
 import org.killbill.billing.subscription.api.SubscriptionBase;
 import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
 import org.killbill.billing.util.currency.KillBillMoney;
+import org.killbill.billing.util.tag.ControlTagType;
+import org.killbill.billing.util.globallocker.LockerType;
 import org.killbill.clock.ClockMock;
+import org.killbill.commons.locker.GlobalLock;
+import org.killbill.commons.profiling.Profiling;
+import org.killbill.commons.profiling.ProfilingData.LogLineType;
+import org.killbill.commons.profiling.ProfilingData.ProfilingDataItem;
 import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
@@ -686,6 +699,195 @@ public class TestInvoiceDao extends InvoiceTestSuiteWithEmbeddedDB {
         }
     }
 
+    @Test(groups = "slow")
+    public void testAccountBalanceLedger() throws InvoiceApiException, EntityPersistenceException {
+        final UUID accountId = account.getId();
+        final LocalDate startDate = new LocalDate(2011, 3, 1);
+        final LocalDate endDate = startDate.plusMonths(1);
+
+        final Invoice invoice1 = new DefaultInvoice(accountId, clock.getUTCToday(), new LocalDate(2011, 10, 6), Currency.USD);
+        invoiceUtil.createInvoice(invoice1, context);
+        final RecurringInvoiceItem item1 = new RecurringInvoiceItem(invoice1.getId(), accountId, UUID.randomUUID(), UUID.randomUUID(), "test product", "test plan", "test phase B", null, startDate,
+                                                                    endDate, new BigDecimal("20.0"), new BigDecimal("20.0"), Currency.USD);
+        invoiceUtil.createInvoiceItem(item1, context);
+
+        // Rows inserted by the test helper bypass the ledger
+        assertNull(invoiceDao.getAccountBalanceFromLedger(accountId, context));
+
+        // Lazily populated
+        assertEquals(invoiceDao.getAccountBalance(accountId, context).compareTo(new BigDecimal("20.00")), 0);
+        assertEquals(invoiceDao.getAccountBalanceFromLedger(accountId, context).compareTo(new BigDecimal("20.00")), 0);
+
+        // Maintained by the DAO from then on
+        final UUID paymentId = UUID.randomUUID();
+        final InvoicePaymentModelDao payment = new InvoicePaymentModelDao(new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, paymentId, invoice1.getId(), clock.getUTCNow(), new BigDecimal("20.0"), Currency.USD, Currency.USD, UUID.randomUUID().toString(), true));
+        invoiceDao.notifyOfPaymentCompletion(payment, UUID.randomUUID(), context);
+        assertEquals(invoiceDao.getAccountBalanceFromLedger(accountId, context).compareTo(BigDecimal.ZERO), 0);
+
+        invoiceDao.createRefund(paymentId, UUID.randomUUID(), new BigDecimal("7.00"), false, ImmutableMap.<UUID, BigDecimal>of(), UUID.randomUUID().toString(), context);
+        assertEquals(invoiceDao.getAccountBalanceFromLedger(accountId, context).compareTo(new BigDecimal("7.00")), 0);
+        assertEquals(invoiceDao.getAccountBalance(accountId, context), invoiceDao.computeAccountBalance(accountId, context));
+
+        invoiceDao.rebuildAccountBalance(accountId, context);
+        assertEquals(invoiceDao.getAccountBalanceFromLedger(accountId, context), invoiceDao.computeAccountBalance(accountId, context));
+    }
+
+    @Test(groups = "slow")
+    public void testUnpaidInvoicesSummary() throws InvoiceApiException, EntityPersistenceException {
+        final UUID accountId = account.getId();
+        final LocalDate startDate = new LocalDate(2011, 3, 1);
+        final LocalDate endDate = startDate.plusMonths(1);
+        final LocalDate upToDate = new LocalDate(2011, 12, 1);
+
+        final Invoice invoice1 = new DefaultInvoice(accountId, new LocalDate(2011, 3, 1), new LocalDate(2011, 3, 1), Currency.USD);
+        invoiceUtil.createInvoice(invoice1, context);
+        invoiceUtil.createInvoiceItem(new RecurringInvoiceItem(invoice1.getId(), accountId, UUID.randomUUID(), UUID.randomUUID(), "test product", "test plan", "test phase B", null, startDate,
+                                                               endDate, new BigDecimal("20.0"), new BigDecimal("20.0"), Currency.USD), context);
+        final Invoice invoice2 = new DefaultInvoice(accountId, new LocalDate(2011, 4, 1), new LocalDate(2011, 4, 1), Currency.USD);
+        invoiceUtil.createInvoice(invoice2, context);
+        invoiceUtil.createInvoiceItem(new RecurringInvoiceItem(invoice2.getId(), accountId, UUID.randomUUID(), UUID.randomUUID(), "test product", "test plan", "test phase B", null, endDate,
+                                                               endDate.plusMonths(1), new BigDecimal("30.0"), new BigDecimal("30.0"), Currency.USD), context);
+
+        // Lazily populated
+        final UnpaidInvoicesSummaryModelDao summary = invoiceDao.getUnpaidInvoicesSummary(accountId, upToDate, context);
+        assertEquals(summary.getNbUnpaidInvoices(), (Integer) 2);
+        assertEquals(summary.getUnpaidBalance().compareTo(new BigDecimal("50.00")), 0);
+        assertEquals(summary.getEarliestUnpaidInvoiceDate(), new LocalDate(2011, 3, 1));
+        assertEquals(summary.getEarliestUnpaidInvoiceId(), invoice1.getId());
+
+        // Invoices with a target date after upToDate are ignored
+        final UnpaidInvoicesSummaryModelDao summaryUpToInvoice1 = invoiceDao.getUnpaidInvoicesSummary(accountId, new LocalDate(2011, 3, 15), context);
+        assertEquals(summaryUpToInvoice1.getNbUnpaidInvoices(), (Integer) 1);
+        assertEquals(summaryUpToInvoice1.getUnpaidBalance().compareTo(new BigDecimal("20.00")), 0);
+
+        final InvoicePaymentModelDao payment = new InvoicePaymentModelDao(new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, UUID.randomUUID(), invoice1.getId(), clock.getUTCNow(), new BigDecimal("20.0"), Currency.USD, Currency.USD, UUID.randomUUID().toString(), true));
+        invoiceDao.notifyOfPaymentCompletion(payment, UUID.randomUUID(), context);
+
+        final UnpaidInvoicesSummaryModelDao summaryAfterPayment = invoiceDao.getUnpaidInvoicesSummary(accountId, upToDate, context);
+        assertEquals(summaryAfterPayment.getNbUnpaidInvoices(), (Integer) 1);
+        assertEquals(summaryAfterPayment.getUnpaidBalance().compareTo(new BigDecimal("30.00")), 0);
+        assertEquals(summaryAfterPayment.getEarliestUnpaidInvoiceDate(), new LocalDate(2011, 4, 1));
+        assertEquals(summaryAfterPayment.getEarliestUnpaidInvoiceId(), invoice2.getId());
+        assertEquals(invoiceDao.getUnpaidInvoicesByAccountId(accountId, null, upToDate, context).size(), 1);
+
+        // WRITTEN_OFF invoices are ignored (the tag isn't part of the ledger, it is looked up when reading it)
+        tagUserApi.addTag(invoice2.getId(), ObjectType.INVOICE, ControlTagType.WRITTEN_OFF.getId(), callContext);
+        final UnpaidInvoicesSummaryModelDao summaryAfterWriteOff = invoiceDao.getUnpaidInvoicesSummary(accountId, upToDate, context);
+        assertEquals(summaryAfterWriteOff.getNbUnpaidInvoices(), (Integer) 0);
+        assertEquals(summaryAfterWriteOff.getUnpaidBalance().compareTo(BigDecimal.ZERO), 0);
+        assertNull(summaryAfterWriteOff.getEarliestUnpaidInvoiceDate());
+        assertNull(summaryAfterWriteOff.getEarliestUnpaidInvoiceId());
+        assertEquals(invoiceDao.getUnpaidInvoicesByAccountId(accountId, null, upToDate, context).size(), 0);
+
+        tagUserApi.removeTag(invoice2.getId(), ObjectType.INVOICE, ControlTagType.WRITTEN_OFF.getId(), callContext);
+        final UnpaidInvoicesSummaryModelDao summaryAfterWriteOffRemoval = invoiceDao.getUnpaidInvoicesSummary(accountId, upToDate, context);
+        assertEquals(summaryAfterWriteOffRemoval.getNbUnpaidInvoices(), (Integer) 1);
+        assertEquals(summaryAfterWriteOffRemoval.getUnpaidBalance().compareTo(new BigDecimal("30.00")), 0);
+        assertEquals(summaryAfterWriteOffRemoval.getEarliestUnpaidInvoiceId(), invoice2.getId());
+    }
+
+    @Test(groups = "slow")
+    public void testUnpaidInvoicesSummaryWithParentInvoice() throws Exception {
+        final Account parentAccount = invoiceUtil.createAccount(callContext);
+        final UUID parentAccountId = parentAccount.getId();
+        final InternalCallContext parentContext = internalCallContextFactory.createInternalCallContext(parentAccountId, callContext);
+        final UUID childAccountId = account.getId();
+        final LocalDate today = clock.getUTCToday();
+
+        final InvoiceModelDao parentInvoice = new InvoiceModelDao(parentAccountId, today, Currency.USD, InvoiceStatus.COMMITTED, true);
+        final InvoiceItem parentInvoiceItem = new ParentInvoiceItem(UUID.randomUUID(), clock.getUTCNow(), parentInvoice.getId(), parentAccountId, childAccountId, BigDecimal.TEN, Currency.USD, "");
+        parentInvoice.addInvoiceItem(new InvoiceItemModelDao(parentInvoiceItem));
+        invoiceUtil.createInvoice(new DefaultInvoice(parentInvoice), parentContext);
+
+        final Invoice childInvoice = new DefaultInvoice(childAccountId, today, today, Currency.USD);
+        childInvoice.addInvoiceItem(new RecurringInvoiceItem(childInvoice.getId(), childAccountId, UUID.randomUUID(), UUID.randomUUID(), "test product", "test plan", "test phase B", null, today,
+                                                             today.plusMonths(1), BigDecimal.TEN, BigDecimal.TEN, Currency.USD));
+        invoiceUtil.createInvoice(childInvoice, context);
+        invoiceDao.createParentChildInvoiceRelation(new InvoiceParentChildModelDao(parentInvoice.getId(), childInvoice.getId(), childAccountId), context);
+
+        // The child account doesn't backfill the entries of the parent invoices (see AccountBalanceDao#populateMissingEntriesFromTransaction)
+        assertNull(invoiceDao.getUnpaidInvoicesSummary(childAccountId, today, context));
+        invoiceDao.getAccountBalance(parentAccountId, parentContext);
+
+        // The balance of the parent invoice drives whether the child invoice is unpaid
+        final UnpaidInvoicesSummaryModelDao summary = invoiceDao.getUnpaidInvoicesSummary(childAccountId, today, context);
+        assertEquals(summary.getNbUnpaidInvoices(), (Integer) 1);
+        assertEquals(summary.getUnpaidBalance().compareTo(BigDecimal.TEN), 0);
+        assertEquals(summary.getEarliestUnpaidInvoiceId(), childInvoice.getId());
+        assertEquals(invoiceDao.getUnpaidInvoicesByAccountId(childAccountId, null, today, context).size(), 1);
+
+        // Paying the parent invoice settles the child invoice, although the child invoice itself doesn't have any payment
+        final InvoicePaymentModelDao payment = new InvoicePaymentModelDao(new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, UUID.randomUUID(), parentInvoice.getId(), clock.getUTCNow(), BigDecimal.TEN, Currency.USD, Currency.USD, UUID.randomUUID().toString(), true));
+        invoiceDao.notifyOfPaymentCompletion(payment, UUID.randomUUID(), parentContext);
+
+        final UnpaidInvoicesSummaryModelDao summaryAfterPayment = invoiceDao.getUnpaidInvoicesSummary(childAccountId, today, context);
+        assertEquals(summaryAfterPayment.getNbUnpaidInvoices(), (Integer) 0);
+        assertEquals(summaryAfterPayment.getUnpaidBalance().compareTo(BigDecimal.ZERO), 0);
+        assertNull(summaryAfterPayment.getEarliestUnpaidInvoiceId());
+        assertEquals(invoiceDao.getUnpaidInvoicesByAccountId(childAccountId, null, today, context).size(), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testAccountBalanceLedgerBackfillUnderAccountLock() throws Exception {
+        final UUID accountId = account.getId();
+        final LocalDate startDate = new LocalDate(2011, 3, 1);
+
+        final Invoice invoice1 = new DefaultInvoice(accountId, clock.getUTCToday(), new LocalDate(2011, 10, 6), Currency.USD);
+        invoiceUtil.createInvoice(invoice1, context);
+        final RecurringInvoiceItem item1 = new RecurringInvoiceItem(invoice1.getId(), accountId, UUID.randomUUID(), UUID.randomUUID(), "test product", "test plan", "test phase B", null, startDate,
+                                                                    startDate.plusMonths(1), new BigDecimal("20.0"), new BigDecimal("20.0"), Currency.USD);
+        invoiceUtil.createInvoiceItem(item1, context);
+        assertNull(invoiceDao.getAccountBalanceFromLedger(accountId, context));
+
+        // Account lock held by another thread (e.g. invoice generation in progress)
+        final CountDownLatch lockAcquired = new CountDownLatch(1);
+        final CountDownLatch releaseLock = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final Future<?> lockHolder = executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    final GlobalLock lock = locker.lockWithNumberOfTries(LockerType.ACCNT_INV_PAY.toString(), accountId.toString(), 1);
+                    try {
+                        lockAcquired.countDown();
+                        releaseLock.await(10, TimeUnit.SECONDS);
+                    } finally {
+                        lock.release();
+                    }
+                    return null;
+                }
+            });
+            assertTrue(lockAcquired.await(10, TimeUnit.SECONDS));
+
+            // The read doesn't wait for the lock: the ledger isn't backfilled and the balance is computed the old way
+            assertEquals(invoiceDao.getAccountBalance(accountId, context).compareTo(new BigDecimal("20.00")), 0);
+            assertNull(invoiceDao.getAccountBalanceFromLedger(accountId, context));
+
+            releaseLock.countDown();
+            lockHolder.get(10, TimeUnit.SECONDS);
+
+            // Concurrent readers: the backfills are serialized by the lock (the losers computing the balance the old way)
+            final List<Future<BigDecimal>> balances = new ArrayList<Future<BigDecimal>>();
+            for (int i = 0; i < 4; i++) {
+                balances.add(executor.submit(new Callable<BigDecimal>() {
+                    @Override
+                    public BigDecimal call() throws Exception {
+                        return invoiceDao.getAccountBalance(accountId, context);
+                    }
+                }));
+            }
+            for (final Future<BigDecimal> balance : balances) {
+                assertEquals(balance.get(10, TimeUnit.SECONDS).compareTo(new BigDecimal("20.00")), 0);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Backfilled by one of them (or by this final read, had they all lost the race)
+        assertEquals(invoiceDao.getAccountBalance(accountId, context).compareTo(new BigDecimal("20.00")), 0);
+        assertEquals(invoiceDao.getAccountBalanceFromLedger(accountId, context).compareTo(new BigDecimal("20.00")), 0);
+    }
+
     @Test(groups = "slow")
     public void testFullRefundWithRepairAndInvoiceItemAdjustment() throws InvoiceApiException, EntityPersistenceException {
         final BigDecimal refundAmount = new BigDecimal("20.00");
@@ -1803,6 +2005,42 @@ public class TestInvoiceDao extends InvoiceTestSuiteWithEmbeddedDB {
         assertEquals(retrievedInvoice2.getInvoicePayments().get(0).getSuccess(), Boolean.TRUE);
     }
 
+    @Test(groups = "slow")
+    public void testCreateInvoicesStatementCount() throws Exception {
+        // Warm-up, so that the measured calls don't include the one-time lookups for the account (e.g. ledger backfill)
+        createExternalChargesWithProfiling(1);
+
+        final int nbDaoCallsWith10Items = createExternalChargesWithProfiling(10);
+        final int nbDaoCallsWith1000Items = createExternalChargesWithProfiling(1000);
+        // The invoice items, their existence checks, history and audit entries are all written or read in bulk
+        assertEquals(nbDaoCallsWith1000Items, nbDaoCallsWith10Items);
+    }
+
+    // Returns the number of SqlDao calls (including the raw JDBI calls and the history and audit writes)
+    private int createExternalChargesWithProfiling(final int nbItems) {
+        final LocalDate today = clock.getUTCToday();
+        final InvoiceModelDao invoice = new InvoiceModelDao(account.getId(), today, today, Currency.USD, false);
+        for (int i = 0; i < nbItems; i++) {
+            invoice.addInvoiceItem(new InvoiceItemModelDao(new ExternalChargeInvoiceItem(invoice.getId(), account.getId(), null, "charge-" + i, today, today, BigDecimal.ONE, Currency.USD, null)));
+        }
+
+        Profiling.setPerThreadProfilingData("DAO,DAO_DETAILS");
+        try {
+            final List<InvoiceItemModelDao> createdItems = invoiceDao.createInvoices(ImmutableList.<InvoiceModelDao>of(invoice), null, ImmutableSet.of(), context);
+            assertEquals(createdItems.size(), nbItems);
+
+            int nbDaoCalls = 0;
+            for (final ProfilingDataItem item : Profiling.getPerThreadProfilingData().getRawData()) {
+                if (item.getLineType() == LogLineType.START) {
+                    nbDaoCalls++;
+                }
+            }
+            return nbDaoCalls;
+        } finally {
+            Profiling.resetPerThreadProfilingData();
+        }
+    }
+
     private InvoiceItemModelDao createCredit(final UUID accountId, final LocalDate effectiveDate, final BigDecimal creditAmount, final boolean draft) throws InvoiceApiException {
         return createCredit(accountId, null, effectiveDate, creditAmount, draft);
     }
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.invoice.dao.serialization;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.catalog.DefaultPrice;
+import org.killbill.billing.catalog.MockInternationalPrice;
+import org.killbill.billing.catalog.MockPlan;
+import org.killbill.billing.catalog.MockPlanPhase;
+import org.killbill.billing.catalog.api.BillingMode;
+import org.killbill.billing.catalog.api.BillingPeriod;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.catalog.api.PhaseType;
+import org.killbill.billing.catalog.api.Plan;
+import org.killbill.billing.catalog.api.PlanPhase;
+import org.killbill.billing.invoice.InvoiceTestSuiteNoDB;
+import org.killbill.billing.invoice.MockBillingEventSet;
+import org.killbill.billing.invoice.dao.serialization.BillingEventSetJson.BillingEventJson;
+import org.killbill.billing.invoice.dao.serialization.BillingEventSetJson.SubscriptionBillingEventJson;
+import org.killbill.billing.subscription.api.SubscriptionBase;
+import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestBillingEventSerializer extends InvoiceTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testBinaryAndJsonFormats() throws Exception {
+        final MockBillingEventSet billingEventSet = createBillingEventSet();
+
+        final byte[] asJson = BillingEventSerializer.serializeAsJson(billingEventSet);
+        final byte[] asBinary = BillingEventSerializer.serializeAsBinary(billingEventSet);
+        Assert.assertFalse(BillingEventSetBinaryCodec.isBinary(asJson));
+        Assert.assertTrue(BillingEventSetBinaryCodec.isBinary(asBinary));
+        Assert.assertTrue(asBinary.length < asJson.length);
+
+        // Old rows are still readable
+        final BillingEventSetJson fromJson = BillingEventSerializer.deserialize(asJson);
+        final BillingEventSetJson fromBinary = BillingEventSerializer.deserialize(asBinary);
+
+        Assert.assertEquals(fromBinary.isAutoInvoiceOff(), fromJson.isAutoInvoiceOff());
+        Assert.assertEquals(fromBinary.isAutoInvoiceDraft(), fromJson.isAutoInvoiceDraft());
+        Assert.assertTrue(fromBinary.isAutoInvoiceDraft());
+        Assert.assertEquals(fromBinary.isAutoInvoiceReuseDraft(), fromJson.isAutoInvoiceReuseDraft());
+        Assert.assertEquals(fromBinary.getSubscriptionEvents().size(), 2);
+        Assert.assertEquals(fromJson.getSubscriptionEvents().size(), 2);
+
+        int nbSubscriptionsWithAutoInvoiceOff = 0;
+        for (int i = 0; i < fromJson.getSubscriptionEvents().size(); i++) {
+            final SubscriptionBillingEventJson expected = fromJson.getSubscriptionEvents().get(i);
+            final SubscriptionBillingEventJson actual = fromBinary.getSubscriptionEvents().get(i);
+            Assert.assertEquals(actual.getSubscriptionId(), expected.getSubscriptionId());
+            Assert.assertEquals(actual.isAutoInvoiceOff(), expected.isAutoInvoiceOff());
+            checkEvents(actual.getEvents(), expected.getEvents());
+            nbSubscriptionsWithAutoInvoiceOff += actual.isAutoInvoiceOff() ? 1 : 0;
+        }
+        Assert.assertEquals(nbSubscriptionsWithAutoInvoiceOff, 1);
+    }
+
+    @Test(groups = "fast")
+    public void testFormatSelection() throws Exception {
+        final MockBillingEventSet billingEventSet = createBillingEventSet();
+
+        // JSON until all nodes are able to read the binary format
+        final byte[] defaultFormat = BillingEventSerializer.serialize(billingEventSet, false);
+        Assert.assertFalse(BillingEventSetBinaryCodec.isBinary(defaultFormat));
+        Assert.assertEquals(BillingEventSerializer.deserialize(defaultFormat).getSubscriptionEvents().size(), 2);
+
+        final byte[] binaryFormat = BillingEventSerializer.serialize(billingEventSet, true);
+        Assert.assertTrue(BillingEventSetBinaryCodec.isBinary(binaryFormat));
+        Assert.assertEquals(BillingEventSerializer.deserialize(binaryFormat).getSubscriptionEvents().size(), 2);
+    }
+
+    private void checkEvents(final List<BillingEventJson> actual, final List<BillingEventJson> expected) {
+        Assert.assertEquals(actual.size(), expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(actual.get(i).getBcdLocal(), expected.get(i).getBcdLocal());
+            Assert.assertEquals(actual.get(i).getAlignment(), expected.get(i).getAlignment());
+            Assert.assertEquals(actual.get(i).getPlanName(), expected.get(i).getPlanName());
+            Assert.assertEquals(actual.get(i).getPhaseName(), expected.get(i).getPhaseName());
+            Assert.assertEquals(actual.get(i).getBillingPeriod(), expected.get(i).getBillingPeriod());
+            Assert.assertEquals(actual.get(i).getEffDate(), expected.get(i).getEffDate());
+            Assert.assertEquals(actual.get(i).getTransitionType(), expected.get(i).getTransitionType());
+            Assert.assertEquals(actual.get(i).getCatalogEffDt(), expected.get(i).getCatalogEffDt());
+            // Jackson doesn't preserve the scale
+            Assert.assertEquals(actual.get(i).getFixedPrice() == null ? null : actual.get(i).getFixedPrice().compareTo(expected.get(i).getFixedPrice()), expected.get(i).getFixedPrice() == null ? null : 0);
+            Assert.assertEquals(actual.get(i).getRecurringPrice() == null ? null : actual.get(i).getRecurringPrice().compareTo(expected.get(i).getRecurringPrice()), expected.get(i).getRecurringPrice() == null ? null : 0);
+        }
+    }
+
+    private MockBillingEventSet createBillingEventSet() {
+        final MockBillingEventSet billingEventSet = new MockBillingEventSet();
+        billingEventSet.setAccountAutoInvoiceDraft(true);
+
+        final Plan plan = new MockPlan("Test");
+        final PlanPhase planPhase = new MockPlanPhase(new MockInternationalPrice(new DefaultPrice(new BigDecimal("13.1234"), Currency.USD)), null, BillingPeriod.MONTHLY, PhaseType.EVERGREEN);
+        final DateTime startDate = new DateTime(2019, 9, 26, 10, 12, 13, DateTimeZone.UTC);
+
+        long totalOrdering = 0;
+        for (int i = 0; i < 2; i++) {
+            final SubscriptionBase subscription = Mockito.mock(SubscriptionBase.class);
+            Mockito.when(subscription.getId()).thenReturn(UUID.randomUUID());
+            Mockito.when(subscription.getBundleId()).thenReturn(UUID.randomUUID());
+            if (i == 1) {
+                billingEventSet.addSubscriptionWithAutoInvoiceOff(subscription.getId());
+            }
+
+            billingEventSet.add(invoiceUtil.createMockBillingEvent(null, subscription, startDate, plan, planPhase,
+                                                                   BigDecimal.ONE, new BigDecimal("13.1234"), Currency.USD, BillingPeriod.MONTHLY,
+                                                                   26, BillingMode.IN_ADVANCE, "Test", totalOrdering++, SubscriptionBaseTransitionType.CREATE));
+            // Amount which doesn't fit in a long
+            billingEventSet.add(invoiceUtil.createMockBillingEvent(null, subscription, startDate.plusDays(10), plan, planPhase,
+                                                                   null, new BigDecimal("123456789012345678901234567890.12"), Currency.USD, BillingPeriod.NO_BILLING_PERIOD,
+                                                                   1, BillingMode.IN_ADVANCE, "Test", totalOrdering++, SubscriptionBaseTransitionType.CHANGE));
+            billingEventSet.add(invoiceUtil.createMockBillingEvent(null, subscription, startDate.plusDays(20), plan, planPhase,
+                                                                   null, null, Currency.USD, BillingPeriod.MONTHLY,
+                                                                   1, BillingMode.IN_ADVANCE, "Test", totalOrdering++, SubscriptionBaseTransitionType.CANCEL));
+        }
+        return billingEventSet;
+    }
+}
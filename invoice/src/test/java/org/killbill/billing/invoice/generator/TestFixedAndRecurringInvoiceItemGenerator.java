@@ -24,6 +24,7 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.UUID;
 
 import org.joda.time.DateTime;
@@ -59,6 +60,9 @@ import org.killbill.billing.junction.plumbing.billing.DefaultBillingEvent;
 import org.killbill.billing.subscription.api.SubscriptionBase;
 import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
 import org.killbill.billing.subscription.api.user.SubscriptionBaseTransition;
+import org.killbill.billing.util.config.definition.InvoiceConfig;
+import org.skife.config.ConfigurationObjectFactory;
+import org.skife.config.SimplePropertyConfigSource;
 import org.slf4j.LoggerFactory;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
@@ -1984,6 +1988,99 @@ public class TestFixedAndRecurringInvoiceItemGenerator extends InvoiceTestSuiteN
     }
 
 
+    @Test(groups = "fast")
+    public void testParallelGenerationMatchesSequentialGeneration() throws Exception {
+        final LocalDate startDate = new LocalDate("2016-01-01");
+        final LocalDate targetDate = startDate.plusMonths(3);
+
+        final BillingEventSet events = new MockBillingEventSet();
+        final List<Invoice> existingInvoices = new LinkedList<Invoice>();
+        final BigDecimal amount = BigDecimal.TEN;
+        final MockInternationalPrice price = new MockInternationalPrice(new DefaultPrice(amount, account.getCurrency()));
+        final Plan plan = new MockPlan("my-plan");
+        final PlanPhase planPhase = new MockPlanPhase(price, price, BillingPeriod.MONTHLY, PhaseType.EVERGREEN);
+        for (int i = 0; i < 20; i++) {
+            final SubscriptionBase curSubscription = invoiceUtil.createSubscription();
+            final BillingEvent event = invoiceUtil.createMockBillingEvent(account,
+                                                                          curSubscription,
+                                                                          startDate.toDateTimeAtStartOfDay(),
+                                                                          plan,
+                                                                          planPhase,
+                                                                          amount,
+                                                                          amount,
+                                                                          account.getCurrency(),
+                                                                          BillingPeriod.MONTHLY,
+                                                                          1,
+                                                                          BillingMode.IN_ADVANCE,
+                                                                          "Billing Event Desc",
+                                                                          1L,
+                                                                          SubscriptionBaseTransitionType.CREATE);
+            events.add(event);
+
+            // Half of the subscriptions have already been invoiced for the first period
+            if (i % 2 == 0) {
+                final Invoice invoice = new DefaultInvoice(account.getId(), clock.getUTCToday(), startDate, account.getCurrency());
+                invoice.addInvoiceItem(new RecurringInvoiceItem(UUID.randomUUID(),
+                                                                startDate.toDateTimeAtStartOfDay(),
+                                                                invoice.getId(),
+                                                                account.getId(),
+                                                                curSubscription.getBundleId(),
+                                                                curSubscription.getId(),
+                                                                null,
+                                                                event.getPlan().getName(),
+                                                                event.getPlanPhase().getName(),
+                                                                null,
+                                                                startDate,
+                                                                startDate.plusMonths(1),
+                                                                amount,
+                                                                amount,
+                                                                account.getCurrency()));
+                existingInvoices.add(invoice);
+            }
+        }
+
+        final Map<UUID, SubscriptionFutureNotificationDates> sequentialNotificationDates = new HashMap<UUID, SubscriptionFutureNotificationDates>();
+        final List<InvoiceItem> sequentialItems = fixedAndRecurringInvoiceItemGenerator.generateItems(account,
+                                                                                                      UUID.randomUUID(),
+                                                                                                      events,
+                                                                                                      existingInvoices,
+                                                                                                      targetDate,
+                                                                                                      account.getCurrency(),
+                                                                                                      sequentialNotificationDates,
+                                                                                                      internalCallContext).getItems();
+
+        final Properties properties = new Properties();
+        properties.setProperty("org.killbill.invoice.parallelGeneration.nbThreads", "4");
+        properties.setProperty("org.killbill.invoice.parallelGeneration.minSubscriptions", "2");
+        final InvoiceGeneratorExecutors generatorExecutors = new InvoiceGeneratorExecutors(new ConfigurationObjectFactory(new SimplePropertyConfigSource(properties)).build(InvoiceConfig.class));
+        generatorExecutors.initialize();
+        try {
+            final FixedAndRecurringInvoiceItemGenerator parallelGenerator = new FixedAndRecurringInvoiceItemGenerator(invoiceConfig, clock, generatorExecutors);
+            final Map<UUID, SubscriptionFutureNotificationDates> parallelNotificationDates = new HashMap<UUID, SubscriptionFutureNotificationDates>();
+            final List<InvoiceItem> parallelItems = parallelGenerator.generateItems(account,
+                                                                                    UUID.randomUUID(),
+                                                                                    events,
+                                                                                    existingInvoices,
+                                                                                    targetDate,
+                                                                                    account.getCurrency(),
+                                                                                    parallelNotificationDates,
+                                                                                    internalCallContext).getItems();
+
+            assertFalse(sequentialItems.isEmpty());
+            assertEquals(parallelItems.size(), sequentialItems.size());
+            for (int i = 0; i < sequentialItems.size(); i++) {
+                assertTrue(parallelItems.get(i).matches(sequentialItems.get(i)));
+            }
+
+            assertEquals(parallelNotificationDates.keySet(), sequentialNotificationDates.keySet());
+            for (final UUID subscriptionId : sequentialNotificationDates.keySet()) {
+                assertEquals(parallelNotificationDates.get(subscriptionId).getNextRecurringDate(), sequentialNotificationDates.get(subscriptionId).getNextRecurringDate());
+            }
+        } finally {
+            generatorExecutors.stop();
+        }
+    }
+
     private BillingEvent createDefaultBillingEvent(final LocalDate eventDate, final BigDecimal fixedAmount, final BigDecimal recurringPrice, final SubscriptionBaseTransitionType eventType, final int billCycleDay, final long ordering, final BillingMode billingMode) {
 
 
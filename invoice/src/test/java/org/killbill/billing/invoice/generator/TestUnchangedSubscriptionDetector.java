@@ -0,0 +1,178 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.generator;
+
+import java.math.BigDecimal;
+import java.util.Set;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.catalog.DefaultPrice;
+import org.killbill.billing.catalog.MockInternationalPrice;
+import org.killbill.billing.catalog.MockPlan;
+import org.killbill.billing.catalog.MockPlanPhase;
+import org.killbill.billing.catalog.api.BillingMode;
+import org.killbill.billing.catalog.api.BillingPeriod;
+import org.killbill.billing.catalog.api.PhaseType;
+import org.killbill.billing.catalog.api.Plan;
+import org.killbill.billing.catalog.api.PlanPhase;
+import org.killbill.billing.invoice.InvoiceTestSuiteNoDB;
+import org.killbill.billing.invoice.MockBillingEventSet;
+import org.killbill.billing.invoice.api.InvoiceStatus;
+import org.killbill.billing.invoice.dao.serialization.BillingEventSerializer;
+import org.killbill.billing.invoice.dao.serialization.BillingEventSetJson;
+import org.killbill.billing.invoice.model.DefaultInvoice;
+import org.killbill.billing.invoice.model.RecurringInvoiceItem;
+import org.killbill.billing.junction.BillingEvent;
+import org.killbill.billing.junction.BillingEventSet;
+import org.killbill.billing.subscription.api.SubscriptionBase;
+import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+public class TestUnchangedSubscriptionDetector extends InvoiceTestSuiteNoDB {
+
+    private final LocalDate startDate = new LocalDate(2020, 1, 1);
+    private final LocalDate previousTargetDate = new LocalDate(2020, 2, 1);
+    private final DateTime snapshotCreatedDate = new DateTime(2020, 2, 1, 12, 0, 0);
+
+    private Account account;
+    private SubscriptionBase subscription1;
+    private SubscriptionBase subscription2;
+    private Plan plan;
+    private PlanPhase planPhase;
+
+    @Override
+    @BeforeMethod(groups = "fast")
+    public void beforeMethod() {
+        if (hasFailed()) {
+            return;
+        }
+
+        super.beforeMethod();
+
+        try {
+            account = invoiceUtil.createAccount(callContext);
+            subscription1 = invoiceUtil.createSubscription();
+            subscription2 = invoiceUtil.createSubscription();
+        } catch (final Exception e) {
+            Assert.fail(e.getMessage());
+        }
+
+        plan = new MockPlan("my-plan");
+        planPhase = new MockPlanPhase(new MockInternationalPrice(new DefaultPrice(BigDecimal.TEN, account.getCurrency())), null, BillingPeriod.MONTHLY, PhaseType.EVERGREEN);
+    }
+
+    @Test(groups = "fast")
+    public void testUnchangedSubscriptions() throws Exception {
+        final BillingEventSet billingEvents = createBillingEvents();
+        final BillingEventSetJson snapshot = snapshot(billingEvents);
+        final DefaultInvoice invoice = createInvoiceWithRecurringItems();
+
+        // Both subscriptions are invoiced through 2020-03-01
+        Assert.assertEquals(getUnchangedSubscriptionIds(billingEvents, snapshot, invoice, new LocalDate(2020, 2, 15)), ImmutableSet.<UUID>of(subscription1.getId(), subscription2.getId()));
+        // A new period starts on the target date
+        Assert.assertEquals(getUnchangedSubscriptionIds(billingEvents, snapshot, invoice, new LocalDate(2020, 3, 1)), ImmutableSet.<UUID>of());
+    }
+
+    @Test(groups = "fast")
+    public void testSubscriptionWithNewBillingEvent() throws Exception {
+        final BillingEventSet billingEvents = createBillingEvents();
+        final BillingEventSetJson snapshot = snapshot(billingEvents);
+        final DefaultInvoice invoice = createInvoiceWithRecurringItems();
+
+        billingEvents.add(invoiceUtil.createMockBillingEvent(account, subscription2, new LocalDate(2020, 2, 10).toDateTimeAtStartOfDay(), plan, planPhase,
+                                                             null, BigDecimal.ONE, account.getCurrency(), BillingPeriod.MONTHLY, 1,
+                                                             BillingMode.IN_ADVANCE, "Billing Event Desc", 2L, SubscriptionBaseTransitionType.CHANGE));
+
+        Assert.assertEquals(getUnchangedSubscriptionIds(billingEvents, snapshot, invoice, new LocalDate(2020, 2, 15)), ImmutableSet.<UUID>of(subscription1.getId()));
+    }
+
+    @Test(groups = "fast")
+    public void testSubscriptionWithNewItem() throws Exception {
+        final BillingEventSet billingEvents = createBillingEvents();
+        final BillingEventSetJson snapshot = snapshot(billingEvents);
+        final DefaultInvoice invoice = createInvoiceWithRecurringItems();
+
+        // e.g. an item adjustment would have to be repaired
+        invoice.addInvoiceItem(createRecurringItem(invoice, subscription2, snapshotCreatedDate.plusDays(1)));
+
+        Assert.assertEquals(getUnchangedSubscriptionIds(billingEvents, snapshot, invoice, new LocalDate(2020, 2, 15)), ImmutableSet.<UUID>of(subscription1.getId()));
+    }
+
+    @Test(groups = "fast")
+    public void testDraftInvoice() throws Exception {
+        final BillingEventSet billingEvents = createBillingEvents();
+        final BillingEventSetJson snapshot = snapshot(billingEvents);
+        final DefaultInvoice invoice = new DefaultInvoice(account.getId(), previousTargetDate, previousTargetDate, account.getCurrency(), InvoiceStatus.DRAFT);
+        invoice.addInvoiceItem(createRecurringItem(invoice, subscription1, snapshotCreatedDate));
+        invoice.addInvoiceItem(createRecurringItem(invoice, subscription2, snapshotCreatedDate));
+
+        Assert.assertEquals(getUnchangedSubscriptionIds(billingEvents, snapshot, invoice, new LocalDate(2020, 2, 15)), ImmutableSet.<UUID>of());
+    }
+
+    private Set<UUID> getUnchangedSubscriptionIds(final BillingEventSet billingEvents, final BillingEventSetJson snapshot, final DefaultInvoice invoice, final LocalDate targetDate) {
+        return UnchangedSubscriptionDetector.getUnchangedSubscriptionIds(billingEvents, snapshot, snapshotCreatedDate, invoice, ImmutableList.of(invoice), targetDate, internalCallContext);
+    }
+
+    private BillingEventSet createBillingEvents() {
+        final BillingEventSet billingEvents = new MockBillingEventSet();
+        for (final SubscriptionBase subscription : ImmutableList.<SubscriptionBase>of(subscription1, subscription2)) {
+            billingEvents.add(invoiceUtil.createMockBillingEvent(account, subscription, startDate.toDateTimeAtStartOfDay(), plan, planPhase,
+                                                                 null, BigDecimal.TEN, account.getCurrency(), BillingPeriod.MONTHLY, 1,
+                                                                 BillingMode.IN_ADVANCE, "Billing Event Desc", 1L, SubscriptionBaseTransitionType.CREATE));
+        }
+        return billingEvents;
+    }
+
+    // Go through the serializer, as the snapshot is read from disk
+    private BillingEventSetJson snapshot(final BillingEventSet billingEvents) throws Exception {
+        return BillingEventSerializer.deserialize(BillingEventSerializer.serializeAsBinary(billingEvents));
+    }
+
+    private DefaultInvoice createInvoiceWithRecurringItems() {
+        final DefaultInvoice invoice = new DefaultInvoice(account.getId(), previousTargetDate, previousTargetDate, account.getCurrency(), InvoiceStatus.COMMITTED);
+        invoice.addInvoiceItem(createRecurringItem(invoice, subscription1, snapshotCreatedDate));
+        invoice.addInvoiceItem(createRecurringItem(invoice, subscription2, snapshotCreatedDate));
+        return invoice;
+    }
+
+    private RecurringInvoiceItem createRecurringItem(final DefaultInvoice invoice, final SubscriptionBase subscription, final DateTime createdDate) {
+        return new RecurringInvoiceItem(UUID.randomUUID(),
+                                        createdDate,
+                                        invoice.getId(),
+                                        account.getId(),
+                                        subscription.getBundleId(),
+                                        subscription.getId(),
+                                        null,
+                                        plan.getName(),
+                                        planPhase.getName(),
+                                        null,
+                                        previousTargetDate,
+                                        previousTargetDate.plusMonths(1),
+                                        BigDecimal.TEN,
+                                        BigDecimal.TEN,
+                                        account.getCurrency());
+    }
+}
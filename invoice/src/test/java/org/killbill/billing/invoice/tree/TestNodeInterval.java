@@ -506,6 +506,80 @@ public class TestNodeInterval /* extends InvoiceTestSuiteNoDB  */ {
 
     }
 
+    @Test(groups = "fast")
+    public void testAddOutOfOrderAfterRemoveChild() {
+        final DummyNodeInterval root = new DummyNodeInterval();
+
+        final DummyNodeInterval firstChild = createNodeInterval("2014-01-02", "2014-01-04");
+        final DummyNodeInterval secondChild = createNodeInterval("2014-01-05", "2014-01-08");
+        final DummyNodeInterval thirdChild = createNodeInterval("2014-01-09", "2014-01-12");
+        root.addNode(firstChild, CALLBACK);
+        root.addNode(secondChild, CALLBACK);
+        root.addNode(thirdChild, CALLBACK);
+
+        // Removing the last visited child must not let the next insertions resume from it
+        root.removeChild(secondChild);
+        checkNode(firstChild, 0, root, null, thirdChild);
+
+        final DummyNodeInterval replacedChild = createNodeInterval("2014-01-05", "2014-01-08");
+        root.addNode(replacedChild, CALLBACK);
+
+        final DummyNodeInterval lastChild = createNodeInterval("2014-01-13", "2014-01-14");
+        root.addNode(lastChild, CALLBACK);
+
+        // Out of order, prior all the visited children
+        final DummyNodeInterval newFirstChild = createNodeInterval("2014-01-01", "2014-01-02");
+        root.addNode(newFirstChild, CALLBACK);
+
+        checkNode(root, 5, null, newFirstChild, null);
+        checkNode(newFirstChild, 0, root, null, firstChild);
+        checkNode(firstChild, 0, root, null, replacedChild);
+        checkNode(replacedChild, 0, root, null, thirdChild);
+        checkNode(thirdChild, 0, root, null, lastChild);
+        checkNode(lastChild, 0, root, null, null);
+    }
+
+    @Test(groups = "fast")
+    public void testAddOutOfOrderAfterRebalance() {
+        final DummyNodeInterval root = new DummyNodeInterval();
+
+        final DummyNodeInterval firstChild = createNodeInterval("2014-01-02", "2014-01-04");
+        final DummyNodeInterval secondChild = createNodeInterval("2014-01-05", "2014-01-08");
+        final DummyNodeInterval thirdChild = createNodeInterval("2014-01-09", "2014-01-12");
+        root.addNode(firstChild, CALLBACK);
+        root.addNode(secondChild, CALLBACK);
+        root.addNode(thirdChild, CALLBACK);
+
+        // Resumes from the last visited child and then overlaps the third child, which triggers a rebalance
+        final DummyNodeInterval rebalancedChild = createNodeInterval("2014-01-09", "2014-01-13");
+        root.addNode(rebalancedChild, CALLBACK);
+
+        checkNode(root, 3, null, firstChild, null);
+        checkNode(secondChild, 0, root, null, rebalancedChild);
+        checkNode(rebalancedChild, 1, root, thirdChild, null);
+        checkNode(thirdChild, 0, rebalancedChild, null, null);
+
+        // Contained in one of the children visited prior the rebalance
+        final DummyNodeInterval secondChildLevel2 = createNodeInterval("2014-01-06", "2014-01-07");
+        root.addNode(secondChildLevel2, CALLBACK);
+
+        // Out of order, prior all the visited children
+        final DummyNodeInterval newFirstChild = createNodeInterval("2014-01-01", "2014-01-02");
+        root.addNode(newFirstChild, CALLBACK);
+
+        final DummyNodeInterval lastChild = createNodeInterval("2014-01-14", "2014-01-15");
+        root.addNode(lastChild, CALLBACK);
+
+        checkNode(root, 5, null, newFirstChild, null);
+        checkNode(newFirstChild, 0, root, null, firstChild);
+        checkNode(firstChild, 0, root, null, secondChild);
+        checkNode(secondChild, 1, root, secondChildLevel2, rebalancedChild);
+        checkNode(secondChildLevel2, 0, secondChild, null, null);
+        checkNode(rebalancedChild, 1, root, thirdChild, lastChild);
+        checkNode(thirdChild, 0, rebalancedChild, null, null);
+        checkNode(lastChild, 0, root, null, null);
+    }
+
     private void checkInterval(final NodeInterval real, final NodeInterval expected) {
         assertEquals(real.getStart(), expected.getStart());
         assertEquals(real.getEnd(), expected.getEnd());
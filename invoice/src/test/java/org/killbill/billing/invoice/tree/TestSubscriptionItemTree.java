@@ -33,6 +33,7 @@ import org.killbill.billing.invoice.model.FixedPriceInvoiceItem;
 import org.killbill.billing.invoice.model.ItemAdjInvoiceItem;
 import org.killbill.billing.invoice.model.RecurringInvoiceItem;
 import org.killbill.billing.invoice.model.RepairAdjInvoiceItem;
+import org.killbill.billing.invoice.tree.Item.ItemAction;
 import org.killbill.billing.util.jackson.ObjectMapper;
 import org.testng.annotations.Test;
 
@@ -598,6 +599,56 @@ public class TestSubscriptionItemTree extends InvoiceTestSuiteNoDB {
         }
     }
 
+    @Test(groups = "fast")
+    public void testRepairLinkedToUnknownItem() {
+        final LocalDate startDate = new LocalDate(2014, 1, 1);
+        final LocalDate repairDate = new LocalDate(2014, 1, 15);
+        final LocalDate endDate = new LocalDate(2014, 2, 1);
+
+        final BigDecimal rate = new BigDecimal("12.00");
+
+        final InvoiceItem initial = new RecurringInvoiceItem(invoiceId, accountId, bundleId, subscriptionId, productName, planName, phaseName, null, startDate, endDate, rate, rate, currency);
+        final InvoiceItem repair = new RepairAdjInvoiceItem(invoiceId, accountId, repairDate, endDate, new BigDecimal("-6.97"), currency, UUID.randomUUID());
+
+        final SubscriptionItemTree tree = new SubscriptionItemTree(subscriptionId, invoiceId);
+        tree.addItem(initial);
+        tree.addItem(repair);
+        try {
+            tree.build();
+            fail();
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage().startsWith("Missing cancelledItem"));
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testRepairLinkedToDiscardedFullyAdjustedItem() {
+        final LocalDate startDate = new LocalDate(2014, 1, 1);
+        final LocalDate newItemDate = new LocalDate(2014, 1, 15);
+        final LocalDate endDate = new LocalDate(2014, 2, 1);
+        final LocalDate repairEndDate = new LocalDate(2014, 2, 15);
+
+        final BigDecimal rate = new BigDecimal("12.00");
+
+        final InvoiceItem initial = new RecurringInvoiceItem(invoiceId, accountId, bundleId, subscriptionId, productName, planName, phaseName, null, startDate, endDate, rate, rate, currency);
+        final InvoiceItem itemAdj = new ItemAdjInvoiceItem(initial, startDate, rate.negate(), currency);
+        final InvoiceItem newItem = new RecurringInvoiceItem(invoiceId, accountId, bundleId, subscriptionId, productName, planName, phaseName, null, newItemDate, endDate, new BigDecimal("6.97"), rate, currency);
+        // Outside of the initial item interval, so it is visited after the fully adjusted initial item is discarded
+        final InvoiceItem repair = new RepairAdjInvoiceItem(invoiceId, accountId, endDate, repairEndDate, new BigDecimal("-5.42"), currency, initial.getId());
+
+        final SubscriptionItemTree tree = new SubscriptionItemTree(subscriptionId, invoiceId);
+        tree.addItem(initial);
+        tree.addItem(itemAdj);
+        tree.addItem(newItem);
+        tree.addItem(repair);
+        try {
+            tree.build();
+            fail();
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage().startsWith("Missing cancelledItem"));
+        }
+    }
+
     @Test(groups = "fast")
     public void testInvalidRepairCausingOverlappingRecurring() {
         final LocalDate startDate = new LocalDate(2014, 1, 1);
@@ -1000,6 +1051,71 @@ public class TestSubscriptionItemTree extends InvoiceTestSuiteNoDB {
         verifyResult(tree.getView(), expectedResult);
     }
 
+    @Test(groups = "fast")
+    public void testRepairWithMultipleItemAdjustments() {
+
+        final LocalDate startDate = new LocalDate(2014, 1, 1);
+        final LocalDate itemAdjDate = new LocalDate(2014, 1, 2);
+        final LocalDate endDate = new LocalDate(2014, 2, 1);
+
+        final LocalDate cancelDate = new LocalDate(2014, 1, 23);
+
+        final BigDecimal rate1 = new BigDecimal("12.00");
+        final BigDecimal amount1 = rate1;
+
+        // Same as testRepairWithLargeItemAdjustment, with the adjustment split across two items targeting the same item
+        final SubscriptionItemTree tree = new SubscriptionItemTree(subscriptionId, invoiceId);
+        final InvoiceItem initial = new RecurringInvoiceItem(invoiceId, accountId, bundleId, subscriptionId, productName, planName, phaseName, null, startDate, endDate, amount1, rate1, currency);
+        final InvoiceItem itemAdj1 = new ItemAdjInvoiceItem(initial, itemAdjDate, new BigDecimal("-4.00"), currency);
+        final InvoiceItem itemAdj2 = new ItemAdjInvoiceItem(initial, itemAdjDate, new BigDecimal("-6.00"), currency);
+        tree.addItem(initial);
+        tree.addItem(itemAdj1);
+        tree.addItem(itemAdj2);
+        tree.flatten(true);
+
+        final InvoiceItem proposed1 = new RecurringInvoiceItem(invoiceId, accountId, bundleId, subscriptionId, productName, planName, phaseName, null, startDate, cancelDate, amount1, rate1, currency);
+        tree.mergeProposedItem(proposed1);
+        tree.buildForMerge();
+
+        final List<InvoiceItem> expectedResult = Lists.newLinkedList();
+        final InvoiceItem repair1 = new RepairAdjInvoiceItem(invoiceId, accountId, cancelDate, endDate, new BigDecimal("-2.00"), currency, initial.getId());
+        expectedResult.add(repair1);
+
+        verifyResult(tree.getView(), expectedResult);
+    }
+
+    @Test(groups = "fast")
+    public void testItemAdjustmentOnSplitItem() {
+        final LocalDate startDate1 = new LocalDate(2014, 1, 1);
+        final LocalDate startDate2 = new LocalDate(2014, 1, 15);
+        final LocalDate endDate1 = new LocalDate(2014, 2, 1);
+        final LocalDate endDate2 = new LocalDate(2014, 3, 1);
+
+        final InvoiceItem item1 = new RecurringInvoiceItem(invoiceId, accountId, bundleId, subscriptionId, productName, planName, phaseName, null, startDate1, endDate1, new BigDecimal("31.00"), new BigDecimal("31.00"), currency);
+        final InvoiceItem item2 = new RecurringInvoiceItem(invoiceId, accountId, bundleId, subscriptionId, productName, planName, phaseName, null, startDate2, endDate2, new BigDecimal("45.00"), new BigDecimal("30.00"), currency);
+
+        // item2 overlaps the end of item1, so it is split across two nodes sharing the same item id
+        final ItemsNodeInterval root = new ItemsNodeInterval();
+        root.addExistingItem(new ItemsNodeInterval(root, new Item(item1, invoiceId, ItemAction.ADD)));
+        root.addExistingItem(new ItemsNodeInterval(root, new Item(item2, invoiceId, ItemAction.ADD)));
+
+        final ItemsNodeInterval item1Node = (ItemsNodeInterval) root.getLeftChild();
+        final ItemsNodeInterval item2FirstNode = (ItemsNodeInterval) item1Node.getLeftChild();
+        final ItemsNodeInterval item2SecondNode = (ItemsNodeInterval) item1Node.getRightSibling();
+        assertEquals(item2FirstNode.getItems().get(0).getId(), item2.getId());
+        assertEquals(item2SecondNode.getItems().get(0).getId(), item2.getId());
+
+        root.addAdjustments(ImmutableList.<InvoiceItem>of(new ItemAdjInvoiceItem(item2, startDate2, new BigDecimal("-2.00"), currency),
+                                                          new ItemAdjInvoiceItem(item2, startDate2, new BigDecimal("-1.00"), currency)));
+
+        // Both adjustments are applied on the first node in depth first order
+        final Item item2First = item2FirstNode.getItems().get(0);
+        final Item item2Second = item2SecondNode.getItems().get(0);
+        assertEquals(item2First.getNetAmount().compareTo(item2First.getAmount().subtract(new BigDecimal("3.00"))), 0);
+        assertEquals(item2Second.getNetAmount().compareTo(item2Second.getAmount()), 0);
+        assertEquals(item1Node.getItems().get(0).getNetAmount().compareTo(new BigDecimal("31.00")), 0);
+    }
+
     @Test(groups = "fast")
     public void testRepairWithLargeItemAdjustment() {
 
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.jaxrs.json;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import org.killbill.billing.invoice.api.AccountBalanceVerification;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.annotations.ApiModel;
+
+@ApiModel(value="AccountBalanceVerification")
+public class AccountBalanceVerificationJson {
+
+    private final UUID accountId;
+    private final BigDecimal ledgerBalance;
+    private final BigDecimal computedBalance;
+    private final Boolean isConsistent;
+
+    @JsonCreator
+    public AccountBalanceVerificationJson(@JsonProperty("accountId") final UUID accountId,
+                                          @JsonProperty("ledgerBalance") final BigDecimal ledgerBalance,
+                                          @JsonProperty("computedBalance") final BigDecimal computedBalance,
+                                          @JsonProperty("isConsistent") final Boolean isConsistent) {
+        this.accountId = accountId;
+        this.ledgerBalance = ledgerBalance;
+        this.computedBalance = computedBalance;
+        this.isConsistent = isConsistent;
+    }
+
+    public AccountBalanceVerificationJson(final AccountBalanceVerification verification) {
+        this(verification.getAccountId(), verification.getLedgerBalance(), verification.getComputedBalance(), verification.isConsistent());
+    }
+
+    public UUID getAccountId() {
+        return accountId;
+    }
+
+    public BigDecimal getLedgerBalance() {
+        return ledgerBalance;
+    }
+
+    public BigDecimal getComputedBalance() {
+        return computedBalance;
+    }
+
+    @JsonProperty("isConsistent")
+    public Boolean isConsistent() {
+        return isConsistent;
+    }
+
+    @Override
+    public String toString() {
+        return "AccountBalanceVerificationJson{" +
+               "accountId=" + accountId +
+               ", ledgerBalance=" + ledgerBalance +
+               ", computedBalance=" + computedBalance +
+               ", isConsistent=" + isConsistent +
+               '}';
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.jaxrs.json;
+
+import java.util.UUID;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.annotations.ApiModel;
+
+// Rejected record of a bulk usage request
+@ApiModel(value="UsageRecordError")
+public class UsageRecordErrorJson {
+
+    private final Integer index;
+    private final UUID subscriptionId;
+    private final String trackingId;
+    private final BillingExceptionJson error;
+
+    @JsonCreator
+    public UsageRecordErrorJson(@JsonProperty("index") final Integer index,
+                                @JsonProperty("subscriptionId") final UUID subscriptionId,
+                                @JsonProperty("trackingId") final String trackingId,
+                                @JsonProperty("error") final BillingExceptionJson error) {
+        this.index = index;
+        this.subscriptionId = subscriptionId;
+        this.trackingId = trackingId;
+        this.error = error;
+    }
+
+    public Integer getIndex() {
+        return index;
+    }
+
+    public UUID getSubscriptionId() {
+        return subscriptionId;
+    }
+
+    public String getTrackingId() {
+        return trackingId;
+    }
+
+    public BillingExceptionJson getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("UsageRecordErrorJson{");
+        sb.append("index=").append(index);
+        sb.append(", subscriptionId=").append(subscriptionId);
+        sb.append(", trackingId='").append(trackingId).append('\'');
+        sb.append(", error=").append(error);
+        sb.append('}');
+        return sb.toString();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        final UsageRecordErrorJson that = (UsageRecordErrorJson) o;
+
+        if (index != null ? !index.equals(that.index) : that.index != null) {
+            return false;
+        }
+        if (subscriptionId != null ? !subscriptionId.equals(that.subscriptionId) : that.subscriptionId != null) {
+            return false;
+        }
+        if (trackingId != null ? !trackingId.equals(that.trackingId) : that.trackingId != null) {
+            return false;
+        }
+        if (error != null ? !error.equals(that.error) : that.error != null) {
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = index != null ? index.hashCode() : 0;
+        result = 31 * result + (subscriptionId != null ? subscriptionId.hashCode() : 0);
+        result = 31 * result + (trackingId != null ? trackingId.hashCode() : 0);
+        result = 31 * result + (error != null ? error.hashCode() : 0);
+        return result;
+    }
+}
@@ -128,6 +128,7 @@ import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.config.definition.JaxrsConfig;
 import org.killbill.billing.util.customfield.CustomField;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.dao.KeysetPagination;
 import org.killbill.billing.util.tag.ControlTagType;
 import org.killbill.billing.util.tag.Tag;
 import org.killbill.clock.Clock;
@@ -224,12 +225,20 @@ public class AccountResource extends JaxRsResourceBase {
     @ApiResponses(value = {})
     public Response getAccounts(@QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                 @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                                @QueryParam(QUERY_KEYSET_PAGINATION) @DefaultValue("false") final Boolean keysetPaginationEnabled,
+                                @QueryParam(QUERY_PAGE_TOKEN) final String pageToken,
                                 @QueryParam(QUERY_ACCOUNT_WITH_BALANCE) @DefaultValue("false") final Boolean accountWithBalance,
                                 @QueryParam(QUERY_ACCOUNT_WITH_BALANCE_AND_CBA) @DefaultValue("false") final Boolean accountWithBalanceAndCBA,
                                 @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                 @javax.ws.rs.core.Context final HttpServletRequest request) throws AccountApiException {
         final TenantContext tenantContext = context.createTenantContextNoAccountId(request);
-        final Pagination<Account> accounts = accountUserApi.getAccounts(offset, limit, tenantContext);
+        final Pagination<Account> accounts;
+        final KeysetPagination keysetPagination = startKeysetPagination(keysetPaginationEnabled, pageToken);
+        try {
+            accounts = accountUserApi.getAccounts(offset, limit, tenantContext);
+        } finally {
+            KeysetPagination.stop();
+        }
         final URI nextPageUri = uriBuilder.nextPage(AccountResource.class, "getAccounts", accounts.getNextOffset(), limit, ImmutableMap.<String, String>of(QUERY_ACCOUNT_WITH_BALANCE, accountWithBalance.toString(),
                                                                                                                                                            QUERY_ACCOUNT_WITH_BALANCE_AND_CBA, accountWithBalanceAndCBA.toString(),
                                                                                                                                                            QUERY_AUDIT, auditMode.getLevel().toString()));
@@ -241,7 +250,8 @@ public class AccountResource extends JaxRsResourceBase {
                                                         return getAccount(account, accountWithBalance, accountWithBalanceAndCBA, accountAuditLogs, tenantContext);
                                                     }
                                                 },
-                                                nextPageUri
+                                                nextPageUri,
+                                                keysetPagination
                                                );
     }
 
@@ -254,12 +264,20 @@ public class AccountResource extends JaxRsResourceBase {
     public Response searchAccounts(@PathParam("searchKey") final String searchKey,
                                    @QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                    @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                                   @QueryParam(QUERY_KEYSET_PAGINATION) @DefaultValue("false") final Boolean keysetPaginationEnabled,
+                                   @QueryParam(QUERY_PAGE_TOKEN) final String pageToken,
                                    @QueryParam(QUERY_ACCOUNT_WITH_BALANCE) @DefaultValue("false") final Boolean accountWithBalance,
                                    @QueryParam(QUERY_ACCOUNT_WITH_BALANCE_AND_CBA) @DefaultValue("false") final Boolean accountWithBalanceAndCBA,
                                    @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                    @javax.ws.rs.core.Context final HttpServletRequest request) throws AccountApiException {
         final TenantContext tenantContext = context.createTenantContextNoAccountId(request);
-        final Pagination<Account> accounts = accountUserApi.searchAccounts(searchKey, offset, limit, tenantContext);
+        final Pagination<Account> accounts;
+        final KeysetPagination keysetPagination = startKeysetPagination(keysetPaginationEnabled, pageToken);
+        try {
+            accounts = accountUserApi.searchAccounts(searchKey, offset, limit, tenantContext);
+        } finally {
+            KeysetPagination.stop();
+        }
         final URI nextPageUri = uriBuilder.nextPage(AccountResource.class, "searchAccounts", accounts.getNextOffset(), limit, ImmutableMap.<String, String>of("searchKey", searchKey,
                                                                                                                                                               QUERY_ACCOUNT_WITH_BALANCE, accountWithBalance.toString(),
                                                                                                                                                               QUERY_ACCOUNT_WITH_BALANCE_AND_CBA, accountWithBalanceAndCBA.toString(),
@@ -272,7 +290,8 @@ public class AccountResource extends JaxRsResourceBase {
                                                         return getAccount(account, accountWithBalance, accountWithBalanceAndCBA, accountAuditLogs, tenantContext);
                                                     }
                                                 },
-                                                nextPageUri
+                                                nextPageUri,
+                                                keysetPagination
                                                );
     }
 
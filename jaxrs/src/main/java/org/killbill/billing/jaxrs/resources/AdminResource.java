@@ -51,8 +51,11 @@ import org.killbill.billing.account.api.AccountUserApi;
 import org.killbill.billing.account.api.ImmutableAccountData;
 import org.killbill.billing.catalog.api.StaticCatalog;
 import org.killbill.billing.catalog.api.VersionedCatalog;
+import org.killbill.billing.invoice.api.AccountBalanceVerification;
 import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.killbill.billing.invoice.api.InvoiceInternalApi;
 import org.killbill.billing.invoice.api.InvoiceUserApi;
+import org.killbill.billing.jaxrs.json.AccountBalanceVerificationJson;
 import org.killbill.billing.jaxrs.json.AdminPaymentJson;
 import org.killbill.billing.jaxrs.util.Context;
 import org.killbill.billing.jaxrs.util.JaxrsUriBuilder;
@@ -115,6 +118,7 @@ public class AdminResource extends JaxRsResourceBase {
 
     private final AdminPaymentApi adminPaymentApi;
     private final InvoiceUserApi invoiceUserApi;
+    private final InvoiceInternalApi invoiceInternalApi;
     private final TenantUserApi tenantApi;
     private final CacheControllerDispatcher cacheControllerDispatcher;
     private final RecordIdApi recordIdApi;
@@ -132,6 +136,7 @@ public class AdminResource extends JaxRsResourceBase {
                          final InvoicePaymentApi invoicePaymentApi,
                          final AdminPaymentApi adminPaymentApi,
                          final InvoiceUserApi invoiceUserApi,
+                         final InvoiceInternalApi invoiceInternalApi,
                          final CacheControllerDispatcher cacheControllerDispatcher,
                          final TenantUserApi tenantApi,
                          final RecordIdApi recordIdApi,
@@ -143,6 +148,7 @@ public class AdminResource extends JaxRsResourceBase {
         super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, invoicePaymentApi, null, clock, context);
         this.adminPaymentApi = adminPaymentApi;
         this.invoiceUserApi = invoiceUserApi;
+        this.invoiceInternalApi = invoiceInternalApi;
         this.tenantApi = tenantApi;
         this.recordIdApi = recordIdApi;
         this.cacheControllerDispatcher = cacheControllerDispatcher;
@@ -376,6 +382,35 @@ public class AdminResource extends JaxRsResourceBase {
         return Response.status(Status.NO_CONTENT).build();
     }
 
+    @GET
+    @Path("/" + ACCOUNTS + "/{accountId:" + UUID_PATTERN + "}/" + BALANCE)
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Verify the account balance maintained by the balance ledger", response = AccountBalanceVerificationJson.class)
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation"),
+                           @ApiResponse(code = 400, message = "Invalid account id supplied")})
+    public Response verifyAccountBalance(@PathParam("accountId") final UUID accountId,
+                                         @javax.ws.rs.core.Context final HttpServletRequest request) {
+        final TenantContext tenantContext = context.createTenantContextWithAccountId(accountId, request);
+        final AccountBalanceVerification verification = invoiceInternalApi.verifyAccountBalance(accountId, tenantContext);
+        return Response.status(Status.OK).entity(new AccountBalanceVerificationJson(verification)).build();
+    }
+
+    @PUT
+    @Path("/" + ACCOUNTS + "/{accountId:" + UUID_PATTERN + "}/" + BALANCE)
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Rebuild the balance ledger of the account")
+    @ApiResponses(value = {@ApiResponse(code = 204, message = "Successful operation"),
+                           @ApiResponse(code = 400, message = "Invalid account id supplied")})
+    public Response rebuildAccountBalance(@PathParam("accountId") final UUID accountId,
+                                          @HeaderParam(HDR_CREATED_BY) final String createdBy,
+                                          @HeaderParam(HDR_REASON) final String reason,
+                                          @HeaderParam(HDR_COMMENT) final String comment,
+                                          @javax.ws.rs.core.Context final HttpServletRequest request) {
+        final CallContext callContext = context.createCallContextWithAccountId(accountId, createdBy, reason, comment, request);
+        invoiceInternalApi.rebuildAccountBalance(accountId, callContext);
+        return Response.status(Status.NO_CONTENT).build();
+    }
+
     @DELETE
     @Path("/" + CACHE + "/" + TENANTS)
     @Produces(APPLICATION_JSON)
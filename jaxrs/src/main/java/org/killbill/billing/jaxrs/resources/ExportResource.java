@@ -18,17 +18,21 @@
 
 package org.killbill.billing.jaxrs.resources;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
@@ -43,6 +47,7 @@ import org.killbill.billing.util.api.CustomFieldUserApi;
 import org.killbill.billing.util.api.ExportUserApi;
 import org.killbill.billing.util.api.TagUserApi;
 import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.export.dao.NDJSONExportOutputStream;
 import org.killbill.clock.Clock;
 import org.killbill.commons.metrics.TimedResource;
 
@@ -76,6 +81,14 @@ public class ExportResource extends JaxRsResourceBase {
         this.exportUserApi = exportUserApi;
     }
 
+    // CSV is the historical format (i.e. what ExportUserApi#exportDataAsCSVForAccount returns)
+    public enum ExportFormat {
+        CSV,
+        NDJSON
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     @TimedResource
     @GET
     @Path("/{accountId:" + UUID_PATTERN + "}")
@@ -85,6 +98,8 @@ public class ExportResource extends JaxRsResourceBase {
                            @ApiResponse(code = 400, message = "Invalid account id supplied"),
                            @ApiResponse(code = 404, message = "Account not found")})
     public StreamingOutput exportDataForAccount(@PathParam("accountId") final UUID accountId,
+                                                @QueryParam(QUERY_EXPORT_FORMAT) @DefaultValue("CSV") final ExportFormat format,
+                                                @QueryParam(QUERY_EXPORT_GZIP) @DefaultValue("false") final Boolean gzip,
                                                 @HeaderParam(HDR_CREATED_BY) final String createdBy,
                                                 @HeaderParam(HDR_REASON) final String reason,
                                                 @HeaderParam(HDR_COMMENT) final String comment,
@@ -93,8 +108,20 @@ public class ExportResource extends JaxRsResourceBase {
         return new StreamingOutput() {
             @Override
             public void write(final OutputStream output) throws IOException, WebApplicationException {
-                // CSV by default for now
-                exportUserApi.exportDataAsCSVForAccount(accountId, output, callContext);
+                // Rows are streamed from the database: buffer the writes to the servlet output stream, but don't keep the export in memory
+                final GZIPOutputStream gzipOutput = gzip ? new GZIPOutputStream(output, BUFFER_SIZE) : null;
+                final OutputStream bufferedOutput = new BufferedOutputStream(gzipOutput != null ? gzipOutput : output, BUFFER_SIZE);
+
+                if (format == ExportFormat.NDJSON) {
+                    exportUserApi.exportDataForAccount(accountId, new NDJSONExportOutputStream(bufferedOutput), callContext);
+                } else {
+                    exportUserApi.exportDataAsCSVForAccount(accountId, bufferedOutput, callContext);
+                }
+
+                bufferedOutput.flush();
+                if (gzipOutput != null) {
+                    gzipOutput.finish();
+                }
             }
         };
     }
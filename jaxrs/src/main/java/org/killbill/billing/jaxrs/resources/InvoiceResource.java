@@ -103,6 +103,7 @@ import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.customfield.CustomField;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.dao.KeysetPagination;
 import org.killbill.clock.Clock;
 import org.killbill.commons.metrics.TimedResource;
 import org.slf4j.Logger;
@@ -263,10 +264,18 @@ public class InvoiceResource extends JaxRsResourceBase {
     @ApiResponses(value = {})
     public Response getInvoices(@QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                 @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                                @QueryParam(QUERY_KEYSET_PAGINATION) @DefaultValue("false") final Boolean keysetPaginationEnabled,
+                                @QueryParam(QUERY_PAGE_TOKEN) final String pageToken,
                                 @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                 @javax.ws.rs.core.Context final HttpServletRequest request) throws InvoiceApiException {
         final TenantContext tenantContext = context.createTenantContextNoAccountId(request);
-        final Pagination<Invoice> invoices = invoiceApi.getInvoices(offset, limit, tenantContext);
+        final Pagination<Invoice> invoices;
+        final KeysetPagination keysetPagination = startKeysetPagination(keysetPaginationEnabled, pageToken);
+        try {
+            invoices = invoiceApi.getInvoices(offset, limit, tenantContext);
+        } finally {
+            KeysetPagination.stop();
+        }
         final URI nextPageUri = uriBuilder.nextPage(InvoiceResource.class, "getInvoices", invoices.getNextOffset(), limit, ImmutableMap.<String, String>of(QUERY_AUDIT, auditMode.getLevel().toString()));
 
 
@@ -282,7 +291,8 @@ public class InvoiceResource extends JaxRsResourceBase {
                                                         return new InvoiceJson(invoice, null, accountsAuditLogs.get().get(invoice.getAccountId()));
                                                     }
                                                 },
-                                                nextPageUri
+                                                nextPageUri,
+                                                keysetPagination
                                                );
     }
 
@@ -295,10 +305,18 @@ public class InvoiceResource extends JaxRsResourceBase {
     public Response searchInvoices(@PathParam("searchKey") final String searchKey,
                                    @QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                    @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                                   @QueryParam(QUERY_KEYSET_PAGINATION) @DefaultValue("false") final Boolean keysetPaginationEnabled,
+                                   @QueryParam(QUERY_PAGE_TOKEN) final String pageToken,
                                    @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                    @javax.ws.rs.core.Context final HttpServletRequest request) throws SubscriptionApiException {
         final TenantContext tenantContext = context.createTenantContextNoAccountId(request);
-        final Pagination<Invoice> invoices = invoiceApi.searchInvoices(searchKey, offset, limit, tenantContext);
+        final Pagination<Invoice> invoices;
+        final KeysetPagination keysetPagination = startKeysetPagination(keysetPaginationEnabled, pageToken);
+        try {
+            invoices = invoiceApi.searchInvoices(searchKey, offset, limit, tenantContext);
+        } finally {
+            KeysetPagination.stop();
+        }
         final URI nextPageUri = uriBuilder.nextPage(InvoiceResource.class, "searchInvoices", invoices.getNextOffset(), limit, ImmutableMap.<String, String>of("searchKey", searchKey,
                                                                                                                                                               QUERY_AUDIT, auditMode.getLevel().toString()));
         final AtomicReference<Map<UUID, AccountAuditLogs>> accountsAuditLogs = new AtomicReference<Map<UUID, AccountAuditLogs>>(new HashMap<UUID, AccountAuditLogs>());
@@ -313,7 +331,8 @@ public class InvoiceResource extends JaxRsResourceBase {
                                                         return new InvoiceJson(invoice, null, accountsAuditLogs.get().get(invoice.getAccountId()));
                                                     }
                                                 },
-                                                nextPageUri
+                                                nextPageUri,
+                                                keysetPagination
                                                );
     }
 
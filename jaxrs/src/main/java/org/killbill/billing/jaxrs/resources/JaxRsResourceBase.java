@@ -40,6 +40,7 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 
 import org.joda.time.LocalDate;
@@ -100,6 +101,7 @@ import org.killbill.billing.util.customfield.CustomField;
 import org.killbill.billing.util.customfield.StringCustomField;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.dao.KeysetPagination;
 import org.killbill.billing.util.jackson.ObjectMapper;
 import org.killbill.billing.util.tag.Tag;
 import org.killbill.billing.util.tag.TagDefinition;
@@ -329,6 +331,34 @@ public abstract class JaxRsResourceBase implements JaxrsResource {
         return Response.status(Status.NO_CONTENT).build();
     }
 
+    // Returns null if keyset pagination wasn't requested. Must be followed by KeysetPagination.stop() once the API call returns.
+    protected KeysetPagination startKeysetPagination(final Boolean keysetPagination, @Nullable final String pageToken) {
+        if (!keysetPagination && pageToken == null) {
+            return null;
+        }
+        return KeysetPagination.start(pageToken);
+    }
+
+    protected <E extends Entity, J extends JsonBase> Response buildStreamingPaginationResponse(final Pagination<E> entities,
+                                                                                               final Function<E, J> toJson,
+                                                                                               final URI nextPageUri,
+                                                                                               @Nullable final KeysetPagination keysetPagination) {
+        if (keysetPagination == null || !keysetPagination.isApplied()) {
+            return buildStreamingPaginationResponse(entities, toJson, nextPageUri);
+        }
+
+        // The offset is irrelevant: the next page starts after the last record returned
+        final String nextPageToken = keysetPagination.getNextPageToken();
+        final URI keysetNextPageUri = nextPageToken == null || nextPageUri == null ? null : UriBuilder.fromUri(nextPageUri)
+                                                                                                     .replaceQueryParam(QUERY_SEARCH_OFFSET, 0)
+                                                                                                     .replaceQueryParam(QUERY_PAGE_TOKEN, nextPageToken)
+                                                                                                     .build();
+        final Response response = buildStreamingPaginationResponse(entities, toJson, keysetNextPageUri);
+        return Response.fromResponse(response)
+                       .header(HDR_PAGINATION_NEXT_PAGE_TOKEN, nextPageToken)
+                       .build();
+    }
+
     protected <E extends Entity, J extends JsonBase> Response buildStreamingPaginationResponse(final Pagination<E> entities,
                                                                                                final Function<E, J> toJson,
                                                                                                final URI nextPageUri) {
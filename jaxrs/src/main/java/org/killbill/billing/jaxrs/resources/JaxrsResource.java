@@ -51,6 +51,7 @@ public interface JaxrsResource {
     String HDR_PAGINATION_TOTAL_NB_RECORDS = "X-Killbill-Pagination-TotalNbRecords";
     String HDR_PAGINATION_MAX_NB_RECORDS = "X-Killbill-Pagination-MaxNbRecords";
     String HDR_PAGINATION_NEXT_PAGE_URI = "X-Killbill-Pagination-NextPageUri";
+    String HDR_PAGINATION_NEXT_PAGE_TOKEN = "X-Killbill-Pagination-NextPageToken";
 
     /*
      * Patterns
@@ -82,6 +83,8 @@ public interface JaxrsResource {
     String QUERY_ENTITLEMENT_POLICY = "entitlementPolicy";
     String QUERY_SEARCH_OFFSET = "offset";
     String QUERY_SEARCH_LIMIT = "limit";
+    String QUERY_KEYSET_PAGINATION = "keysetPagination";
+    String QUERY_PAGE_TOKEN = "pageToken";
     String QUERY_ENTITLEMENT_EFFECTIVE_FROM_DT = "effectiveFromDate";
     String QUERY_FORCE_NEW_BCD_WITH_PAST_EFFECTIVE_DATE = "forceNewBcdWithPastEffectiveDate";
 
@@ -122,6 +125,9 @@ public interface JaxrsResource {
     String QUERY_PAYMENT_METHOD_PLUGIN_NAME = "pluginName";
     String QUERY_WITH_PLUGIN_INFO = "withPluginInfo";
     String QUERY_WITH_ATTEMPTS = "withAttempts";
+    String QUERY_WITH_STACK_TRACE = "withStackTrace";
+    String QUERY_EXPORT_FORMAT = "format";
+    String QUERY_EXPORT_GZIP = "gzip";
     String QUERY_PAYMENT_METHOD_IS_DEFAULT = "isDefault";
 
     String QUERY_PAY_ALL_UNPAID_INVOICES = "payAllUnpaidInvoices";
@@ -240,6 +246,7 @@ public interface JaxrsResource {
 
     String USAGES = "usages";
     String USAGES_PATH = PREFIX + "/" + USAGES;
+    String BULK = "bulk";
 
     String EXPORT = "export";
     String EXPORT_PATH = PREFIX + "/" + EXPORT;
@@ -291,6 +298,7 @@ public interface JaxrsResource {
     String TRANSFER_CREDIT = "transferCredit";
 
     String CACHE = "cache";
+    String BALANCE = "balance";
     String HEALTHCHECK = "healthcheck";
 
     String QUERY_INCLUDED_DELETED = "includedDeleted";
@@ -75,6 +75,7 @@ import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.customfield.CustomField;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.dao.KeysetPagination;
 import org.killbill.clock.Clock;
 import org.killbill.commons.metrics.MetricTag;
 import org.killbill.commons.metrics.TimedResource;
@@ -160,6 +161,8 @@ public class PaymentResource extends ComboPaymentResource {
     @ApiResponses(value = {})
     public Response getPayments(@QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                 @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                                @QueryParam(QUERY_KEYSET_PAGINATION) @DefaultValue("false") final Boolean keysetPaginationEnabled,
+                                @QueryParam(QUERY_PAGE_TOKEN) final String pageToken,
                                 @QueryParam(QUERY_PAYMENT_PLUGIN_NAME) final String pluginName,
                                 @QueryParam(QUERY_WITH_PLUGIN_INFO) @DefaultValue("false") final Boolean withPluginInfo,
                                 @QueryParam(QUERY_WITH_ATTEMPTS) @DefaultValue("false") final Boolean withAttempts,
@@ -170,10 +173,15 @@ public class PaymentResource extends ComboPaymentResource {
         final TenantContext tenantContext = context.createTenantContextNoAccountId(request);
 
         final Pagination<Payment> payments;
-        if (Strings.isNullOrEmpty(pluginName)) {
-            payments = paymentApi.getPayments(offset, limit, withPluginInfo, withAttempts, pluginProperties, tenantContext);
-        } else {
-            payments = paymentApi.getPayments(offset, limit, pluginName, withPluginInfo, withAttempts, pluginProperties, tenantContext);
+        final KeysetPagination keysetPagination = startKeysetPagination(keysetPaginationEnabled, pageToken);
+        try {
+            if (Strings.isNullOrEmpty(pluginName)) {
+                payments = paymentApi.getPayments(offset, limit, withPluginInfo, withAttempts, pluginProperties, tenantContext);
+            } else {
+                payments = paymentApi.getPayments(offset, limit, pluginName, withPluginInfo, withAttempts, pluginProperties, tenantContext);
+            }
+        } finally {
+            KeysetPagination.stop();
         }
 
         final URI nextPageUri = uriBuilder.nextPage(PaymentResource.class, "getPayments", payments.getNextOffset(), limit, ImmutableMap.<String, String>of(QUERY_PAYMENT_METHOD_PLUGIN_NAME, Strings.nullToEmpty(pluginName),
@@ -192,7 +200,8 @@ public class PaymentResource extends ComboPaymentResource {
                                                         return new PaymentJson(payment, accountAuditLogs);
                                                     }
                                                 },
-                                                nextPageUri
+                                                nextPageUri,
+                                                keysetPagination
                                                );
     }
 
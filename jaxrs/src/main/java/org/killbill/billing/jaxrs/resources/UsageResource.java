@@ -17,12 +17,18 @@
 
 package org.killbill.billing.jaxrs.resources;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.UUID;
 
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
@@ -40,14 +46,17 @@ import org.killbill.billing.account.api.AccountUserApi;
 import org.killbill.billing.entitlement.api.Entitlement;
 import org.killbill.billing.entitlement.api.EntitlementApi;
 import org.killbill.billing.entitlement.api.EntitlementApiException;
+import org.killbill.billing.jaxrs.json.BillingExceptionJson;
 import org.killbill.billing.jaxrs.json.RolledUpUsageJson;
 import org.killbill.billing.jaxrs.json.SubscriptionUsageRecordJson;
 import org.killbill.billing.jaxrs.json.SubscriptionUsageRecordJson.UnitUsageRecordJson;
 import org.killbill.billing.jaxrs.json.SubscriptionUsageRecordJson.UsageRecordJson;
+import org.killbill.billing.jaxrs.json.UsageRecordErrorJson;
 import org.killbill.billing.jaxrs.util.Context;
 import org.killbill.billing.jaxrs.util.JaxrsUriBuilder;
 import org.killbill.billing.payment.api.InvoicePaymentApi;
 import org.killbill.billing.payment.api.PaymentApi;
+import org.killbill.billing.usage.BulkUsageUserApi;
 import org.killbill.billing.usage.api.RolledUpUsage;
 import org.killbill.billing.usage.api.SubscriptionUsageRecord;
 import org.killbill.billing.usage.api.UsageApiException;
@@ -80,6 +89,7 @@ import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 public class UsageResource extends JaxRsResourceBase {
 
     private final UsageUserApi usageUserApi;
+    private final BulkUsageUserApi bulkUsageUserApi;
     private final EntitlementApi entitlementApi;
 
     @Inject
@@ -89,6 +99,7 @@ public class UsageResource extends JaxRsResourceBase {
                          final AuditUserApi auditUserApi,
                          final AccountUserApi accountUserApi,
                          final UsageUserApi usageUserApi,
+                         final BulkUsageUserApi bulkUsageUserApi,
                          final PaymentApi paymentApi,
                          final InvoicePaymentApi invoicePaymentApi,
                          final EntitlementApi entitlementApi,
@@ -96,6 +107,7 @@ public class UsageResource extends JaxRsResourceBase {
                          final Context context) {
         super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, invoicePaymentApi, null, clock, context);
         this.usageUserApi = usageUserApi;
+        this.bulkUsageUserApi = bulkUsageUserApi;
         this.entitlementApi = entitlementApi;
     }
 
@@ -114,19 +126,7 @@ public class UsageResource extends JaxRsResourceBase {
                                 @javax.ws.rs.core.Context final UriInfo uriInfo) throws EntitlementApiException,
                                                                                         AccountApiException,
                                                                                         UsageApiException {
-        verifyNonNullOrEmpty(json, "SubscriptionUsageRecordJson body should be specified");
-        verifyNonNullOrEmpty(json.getSubscriptionId(), "SubscriptionUsageRecordJson subscriptionId needs to be set",
-                             json.getUnitUsageRecords(), "SubscriptionUsageRecordJson unitUsageRecords needs to be set");
-        Preconditions.checkArgument(!json.getUnitUsageRecords().isEmpty());
-        for (final UnitUsageRecordJson unitUsageRecordJson : json.getUnitUsageRecords()) {
-            verifyNonNullOrEmpty(unitUsageRecordJson.getUnitType(), "UnitUsageRecordJson unitType need to be set");
-            Preconditions.checkArgument(Iterables.size(unitUsageRecordJson.getUsageRecords()) > 0,
-                                        "UnitUsageRecordJson usageRecords must have at least one element.");
-            for (final UsageRecordJson usageRecordJson : unitUsageRecordJson.getUsageRecords()) {
-                verifyNonNull(usageRecordJson.getAmount(), "UsageRecordJson amount needs to be set");
-                verifyNonNull(usageRecordJson.getRecordDate(), "UsageRecordJson recordDate needs to be set");
-            }
-        }
+        verifySubscriptionUsageRecordJson(json);
         final CallContext callContext = context.createCallContextNoAccountId(createdBy, reason, comment, request);
         // Verify subscription exists..
         final Entitlement entitlement = entitlementApi.getEntitlementForId(json.getSubscriptionId(), callContext);
@@ -142,6 +142,70 @@ public class UsageResource extends JaxRsResourceBase {
         return Response.status(Status.CREATED).build();
     }
 
+    @TimedResource
+    @POST
+    @Path("/" + BULK)
+    @Consumes(APPLICATION_JSON)
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Record usage for multiple subscriptions", notes = "Records are validated as in recordUsage (existing subscription, no usage after its effective end date, unique tracking id), the invalid ones are returned",
+                  response = UsageRecordErrorJson.class, responseContainer = "List")
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Successfully recorded usage data change, except for the returned rejected records")})
+    public Response recordUsages(final List<SubscriptionUsageRecordJson> json,
+                                 @HeaderParam(HDR_CREATED_BY) final String createdBy,
+                                 @HeaderParam(HDR_REASON) final String reason,
+                                 @HeaderParam(HDR_COMMENT) final String comment,
+                                 @QueryParam(QUERY_WITH_STACK_TRACE) @DefaultValue("false") final Boolean withStackTrace,
+                                 @javax.ws.rs.core.Context final HttpServletRequest request) {
+        verifyNonNullOrEmpty(json, "SubscriptionUsageRecordJson body should be specified");
+
+        final List<UsageRecordErrorJson> errors = new LinkedList<UsageRecordErrorJson>();
+
+        // Indexes of the valid records in the request
+        final List<Integer> indexes = new ArrayList<Integer>(json.size());
+        final List<SubscriptionUsageRecord> records = new ArrayList<SubscriptionUsageRecord>(json.size());
+        for (int i = 0; i < json.size(); i++) {
+            final SubscriptionUsageRecordJson cur = json.get(i);
+            try {
+                verifySubscriptionUsageRecordJson(cur);
+            } catch (final IllegalArgumentException e) {
+                errors.add(new UsageRecordErrorJson(i, cur == null ? null : cur.getSubscriptionId(), cur == null ? null : cur.getTrackingId(), new BillingExceptionJson(e, withStackTrace)));
+                continue;
+            }
+            indexes.add(i);
+            records.add(cur.toSubscriptionUsageRecord());
+        }
+
+        final CallContext callContext = context.createCallContextNoAccountId(createdBy, reason, comment, request);
+        final Map<Integer, UsageApiException> rejectedRecords = bulkUsageUserApi.recordRolledUpUsage(records, callContext);
+        for (final Entry<Integer, UsageApiException> entry : rejectedRecords.entrySet()) {
+            final SubscriptionUsageRecord record = records.get(entry.getKey());
+            errors.add(new UsageRecordErrorJson(indexes.get(entry.getKey()), record.getSubscriptionId(), record.getTrackingId(), new BillingExceptionJson(entry.getValue(), withStackTrace)));
+        }
+
+        return Response.status(Status.OK).entity(Ordering.<UsageRecordErrorJson>from(new Comparator<UsageRecordErrorJson>() {
+            @Override
+            public int compare(final UsageRecordErrorJson o1, final UsageRecordErrorJson o2) {
+                return o1.getIndex().compareTo(o2.getIndex());
+            }
+        }).sortedCopy(errors)).build();
+    }
+
+    private void verifySubscriptionUsageRecordJson(final SubscriptionUsageRecordJson json) {
+        verifyNonNullOrEmpty(json, "SubscriptionUsageRecordJson body should be specified");
+        verifyNonNullOrEmpty(json.getSubscriptionId(), "SubscriptionUsageRecordJson subscriptionId needs to be set",
+                             json.getUnitUsageRecords(), "SubscriptionUsageRecordJson unitUsageRecords needs to be set");
+        Preconditions.checkArgument(!json.getUnitUsageRecords().isEmpty());
+        for (final UnitUsageRecordJson unitUsageRecordJson : json.getUnitUsageRecords()) {
+            verifyNonNullOrEmpty(unitUsageRecordJson.getUnitType(), "UnitUsageRecordJson unitType need to be set");
+            Preconditions.checkArgument(Iterables.size(unitUsageRecordJson.getUsageRecords()) > 0,
+                                        "UnitUsageRecordJson usageRecords must have at least one element.");
+            for (final UsageRecordJson usageRecordJson : unitUsageRecordJson.getUsageRecords()) {
+                verifyNonNull(usageRecordJson.getAmount(), "UsageRecordJson amount needs to be set");
+                verifyNonNull(usageRecordJson.getRecordDate(), "UsageRecordJson recordDate needs to be set");
+            }
+        }
+    }
+
     @VisibleForTesting
     LocalDate getHighestRecordDate(final List<UnitUsageRecordJson> records) {
         final Iterable<Iterable<LocalDate>> recordedDates = Iterables.transform(records, new Function<UnitUsageRecordJson, Iterable<LocalDate>>() {
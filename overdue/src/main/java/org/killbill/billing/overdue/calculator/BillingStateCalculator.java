@@ -18,22 +18,13 @@
 
 package org.killbill.billing.overdue.calculator;
 
-import java.math.BigDecimal;
-import java.util.Collection;
-import java.util.Comparator;
 import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.SortedSet;
-import java.util.TreeSet;
-import java.util.UUID;
 
-import org.joda.time.LocalDate;
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.account.api.ImmutableAccountData;
 import org.killbill.billing.callcontext.InternalCallContext;
-import org.killbill.billing.callcontext.InternalTenantContext;
-import org.killbill.billing.invoice.api.Invoice;
 import org.killbill.billing.invoice.api.InvoiceInternalApi;
+import org.killbill.billing.invoice.api.UnpaidInvoicesSummary;
 import org.killbill.billing.overdue.config.api.BillingState;
 import org.killbill.billing.overdue.config.api.OverdueException;
 import org.killbill.billing.payment.api.PaymentResponse;
@@ -49,19 +40,6 @@ public class BillingStateCalculator {
     private final TagInternalApi tagApi;
     private final Clock clock;
 
-    protected class InvoiceDateComparator implements Comparator<Invoice> {
-
-        @Override
-        public int compare(final Invoice i1, final Invoice i2) {
-            final LocalDate d1 = i1.getInvoiceDate();
-            final LocalDate d2 = i2.getInvoiceDate();
-            if (d1.compareTo(d2) == 0) {
-                return i1.hashCode() - i2.hashCode(); // consistent (arbitrary) resolution for tied dates
-            }
-            return d1.compareTo(d2);
-        }
-    }
-
     @Inject
     public BillingStateCalculator(final InvoiceInternalApi invoiceApi, final Clock clock, final TagInternalApi tagApi) {
         this.invoiceApi = invoiceApi;
@@ -70,45 +48,25 @@ public class BillingStateCalculator {
     }
 
     public BillingState calculateBillingState(final ImmutableAccountData account, final InternalCallContext context) throws OverdueException {
-        final SortedSet<Invoice> unpaidInvoices = unpaidInvoicesForAccount(account.getId(), context);
-
-        final int numberOfUnpaidInvoices = unpaidInvoices.size();
-        final BigDecimal unpaidInvoiceBalance = sumBalance(unpaidInvoices);
-        LocalDate dateOfEarliestUnpaidInvoice = null;
-        UUID idOfEarliestUnpaidInvoice = null;
-        final Invoice invoice = earliest(unpaidInvoices);
-        if (invoice != null) {
-            dateOfEarliestUnpaidInvoice = invoice.getInvoiceDate();
-            idOfEarliestUnpaidInvoice = invoice.getId();
-        }
-        final PaymentResponse responseForLastFailedPayment = PaymentResponse.INSUFFICIENT_FUNDS; //TODO MDW
-        final List<Tag> accountTags = tagApi.getTags(account.getId(), ObjectType.ACCOUNT, context);
-        final Tag[] tags = accountTags.toArray(new Tag[accountTags.size()]);
-
-        return new BillingState(account.getId(), numberOfUnpaidInvoices, unpaidInvoiceBalance, dateOfEarliestUnpaidInvoice, idOfEarliestUnpaidInvoice, responseForLastFailedPayment, tags);
+        return calculateBillingState(account, getUnpaidInvoicesSummary(account, context), context);
     }
 
-    // Package scope for testing
-    Invoice earliest(final SortedSet<Invoice> unpaidInvoices) {
-        try {
-            return unpaidInvoices.first();
-        } catch (NoSuchElementException e) {
-            return null;
-        }
+    public UnpaidInvoicesSummary getUnpaidInvoicesSummary(final ImmutableAccountData account, final InternalCallContext context) {
+        // PERF: only the aggregates are needed, no need to re-construct all unpaid invoices
+        return invoiceApi.getUnpaidInvoicesSummary(account.getId(), context.toLocalDate(context.getCreatedDate()), context);
     }
 
-    BigDecimal sumBalance(final SortedSet<Invoice> unpaidInvoices) {
-        BigDecimal sum = BigDecimal.ZERO;
-        for (final Invoice unpaidInvoice : unpaidInvoices) {
-            sum = sum.add(unpaidInvoice.getBalance());
-        }
-        return sum;
-    }
+    public BillingState calculateBillingState(final ImmutableAccountData account, final UnpaidInvoicesSummary unpaidInvoicesSummary, final InternalCallContext context) throws OverdueException {
+        final PaymentResponse responseForLastFailedPayment = PaymentResponse.INSUFFICIENT_FUNDS; //TODO MDW
+        final List<Tag> accountTags = tagApi.getTags(account.getId(), ObjectType.ACCOUNT, context);
+        final Tag[] tags = accountTags.toArray(new Tag[accountTags.size()]);
 
-    SortedSet<Invoice> unpaidInvoicesForAccount(final UUID accountId, final InternalCallContext context) {
-        final Collection<Invoice> invoices = invoiceApi.getUnpaidInvoicesByAccountId(accountId, context.toLocalDate(context.getCreatedDate()), context);
-        final SortedSet<Invoice> sortedInvoices = new TreeSet<Invoice>(new InvoiceDateComparator());
-        sortedInvoices.addAll(invoices);
-        return sortedInvoices;
+        return new BillingState(account.getId(),
+                                unpaidInvoicesSummary.getNumberOfUnpaidInvoices(),
+                                unpaidInvoicesSummary.getUnpaidInvoiceBalance(),
+                                unpaidInvoicesSummary.getDateOfEarliestUnpaidInvoice(),
+                                unpaidInvoicesSummary.getIdOfEarliestUnpaidInvoice(),
+                                responseForLastFailedPayment,
+                                tags);
     }
 }
@@ -24,6 +24,7 @@ import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.entitlement.api.BlockingState;
 import org.killbill.billing.entitlement.api.BlockingStateType;
+import org.killbill.billing.invoice.api.UnpaidInvoicesSummary;
 import org.killbill.billing.junction.BlockingInternalApi;
 import org.killbill.billing.overdue.OverdueService;
 import org.killbill.billing.overdue.api.OverdueApiException;
@@ -84,6 +85,12 @@ public class OverdueWrapper {
             return overdueStateSet.getClearState();
         }
 
+        // PERF: most refreshes (e.g. for each payment or invoice of an account in good standing) don't change anything,
+        // check it first without contending with invoicing and payments on the account lock
+        if (isClearWithoutLock(context)) {
+            return overdueStateSet.getClearState();
+        }
+
         GlobalLock lock = null;
         try {
             lock = locker.lockWithNumberOfTries(LockerType.ACCNT_INV_PAY.toString(), overdueable.getId().toString(), MAX_LOCK_RETRIES);
@@ -111,6 +118,30 @@ public class OverdueWrapper {
         return nextOverdueState;
     }
 
+    //
+    // Whether the account is in the clear state and stays there, without any unpaid invoice: refreshWithLock would then be a no-op,
+    // besides clearing future notifications (if any are left, they will simply re-evaluate the account).
+    // This is safe to check outside of the lock: any concurrent change (new invoice, failed payment, ...) triggers its own refresh.
+    // The billing state computed here can't be re-used under the lock (it may be stale by then), so the unpaid invoices summary (a single
+    // aggregate query) is looked at first: when there are unpaid invoices, the billing state is only computed by refreshWithLock.
+    //
+    private boolean isClearWithoutLock(final InternalCallContext context) throws OverdueException, OverdueApiException {
+        final BlockingState blockingStateForService = api.getBlockingStateForService(overdueable.getId(), BlockingStateType.ACCOUNT, OverdueService.OVERDUE_SERVICE_NAME, context);
+        final String previousOverdueStateName = blockingStateForService != null ? blockingStateForService.getStateName() : OverdueWrapper.CLEAR_STATE_NAME;
+        if (!overdueStateSet.findState(previousOverdueStateName).isClearState()) {
+            return false;
+        }
+
+        final InternalCallContext billingStateContext = getBillingStateContext(context);
+        final UnpaidInvoicesSummary unpaidInvoicesSummary = billingStateCalcuator.getUnpaidInvoicesSummary(overdueable, billingStateContext);
+        if (unpaidInvoicesSummary.getDateOfEarliestUnpaidInvoice() != null) {
+            return false;
+        }
+
+        final BillingState billingState = billingStateCalcuator.calculateBillingState(overdueable, unpaidInvoicesSummary, billingStateContext);
+        return overdueStateSet.calculateOverdueState(billingState, context.toLocalDate(context.getCreatedDate())).isClearState();
+    }
+
     public void clear(final DateTime effectiveDate, final InternalCallContext context) throws OverdueException, OverdueApiException {
         GlobalLock lock = null;
         try {
@@ -134,12 +165,15 @@ public class OverdueWrapper {
     }
 
     public BillingState billingState(final InternalCallContext context) throws OverdueException {
+        return billingStateCalcuator.calculateBillingState(overdueable, getBillingStateContext(context));
+    }
+
+    private InternalCallContext getBillingStateContext(final InternalCallContext context) {
         if ((overdueable.getParentAccountId() != null) && (overdueable.isPaymentDelegatedToParent())) {
             // calculate billing state from parent account
             final InternalTenantContext internalTenantContext = internalCallContextFactory.createInternalTenantContext(overdueable.getParentAccountId(), context);
-            final InternalCallContext parentAccountContext = internalCallContextFactory.createInternalCallContext(internalTenantContext.getAccountRecordId(), context);
-            return billingStateCalcuator.calculateBillingState(overdueable, parentAccountContext);
+            return internalCallContextFactory.createInternalCallContext(internalTenantContext.getAccountRecordId(), context);
         }
-        return billingStateCalcuator.calculateBillingState(overdueable, context);
+        return context;
     }
 }
@@ -35,6 +35,7 @@ import org.killbill.billing.invoice.api.Invoice;
 import org.killbill.billing.invoice.api.InvoiceInternalApi;
 import org.killbill.billing.invoice.api.InvoiceItem;
 import org.killbill.billing.invoice.api.InvoiceStatus;
+import org.killbill.billing.invoice.api.UnpaidInvoicesSummary;
 import org.killbill.billing.junction.BlockingInternalApi;
 import org.killbill.billing.overdue.api.OverdueState;
 import org.killbill.billing.overdue.glue.TestOverdueModule.ApplicatorBlockingApi;
@@ -134,7 +135,8 @@ public class TestOverdueHelper {
         Mockito.when(invoice.getInvoiceDate()).thenReturn(dateOfLastUnPaidInvoice);
         Mockito.when(invoice.getBalance()).thenReturn(BigDecimal.TEN);
         Mockito.when(invoice.getStatus()).thenReturn(InvoiceStatus.COMMITTED);
-        Mockito.when(invoice.getId()).thenReturn(UUID.randomUUID());
+        final UUID invoiceId = UUID.randomUUID();
+        Mockito.when(invoice.getId()).thenReturn(invoiceId);
 
         final InvoiceItem item = Mockito.mock(InvoiceItem.class);
         final List<InvoiceItem> items = new ArrayList<InvoiceItem>();
@@ -146,6 +148,13 @@ public class TestOverdueHelper {
         invoices.add(invoice);
         Mockito.when(invoiceInternalApi.getUnpaidInvoicesByAccountId(Mockito.<UUID>any(), Mockito.<LocalDate>any(), Mockito.<InternalTenantContext>any())).thenReturn(invoices);
 
+        final UnpaidInvoicesSummary unpaidInvoicesSummary = Mockito.mock(UnpaidInvoicesSummary.class);
+        Mockito.when(unpaidInvoicesSummary.getNumberOfUnpaidInvoices()).thenReturn(1);
+        Mockito.when(unpaidInvoicesSummary.getUnpaidInvoiceBalance()).thenReturn(BigDecimal.TEN);
+        Mockito.when(unpaidInvoicesSummary.getDateOfEarliestUnpaidInvoice()).thenReturn(dateOfLastUnPaidInvoice);
+        Mockito.when(unpaidInvoicesSummary.getIdOfEarliestUnpaidInvoice()).thenReturn(invoiceId);
+        Mockito.when(invoiceInternalApi.getUnpaidInvoicesSummary(Mockito.<UUID>any(), Mockito.<LocalDate>any(), Mockito.<InternalTenantContext>any())).thenReturn(unpaidInvoicesSummary);
+
         final Tag tag = Mockito.mock(Tag.class);
         Mockito.when(tag.getObjectId()).thenReturn(accountId);
         Mockito.when(tag.getObjectType()).thenReturn(ObjectType.ACCOUNT);
@@ -149,6 +149,26 @@ public class MultiTenantPaymentConfig extends MultiTenantConfigBase implements P
         return staticConfig.getIncompleteAttemptsTimeSpanDelay();
     }
 
+    @Override
+    public int getJanitorThreadNb() {
+        return staticConfig.getJanitorThreadNb();
+    }
+
+    @Override
+    public int getJanitorNbShards() {
+        return staticConfig.getJanitorNbShards();
+    }
+
+    @Override
+    public int getJanitorShardIndex() {
+        return staticConfig.getJanitorShardIndex();
+    }
+
+    @Override
+    public double getJanitorPluginRateLimit() {
+        return staticConfig.getJanitorPluginRateLimit();
+    }
+
     @Override
     public String getDefaultPaymentProvider() {
         return staticConfig.getDefaultPaymentProvider();
@@ -164,6 +184,31 @@ public class MultiTenantPaymentConfig extends MultiTenantConfigBase implements P
         return staticConfig.getPaymentPluginThreadNb();
     }
 
+    @Override
+    public boolean isPaymentPluginVirtualThreadsEnabled() {
+        return staticConfig.isPaymentPluginVirtualThreadsEnabled();
+    }
+
+    @Override
+    public int getPaymentPluginQueueSize() {
+        return staticConfig.getPaymentPluginQueueSize();
+    }
+
+    @Override
+    public int getPaymentPluginBulkheadMaxCalls() {
+        return staticConfig.getPaymentPluginBulkheadMaxCalls();
+    }
+
+    @Override
+    public int getPaymentPluginInfoConcurrency() {
+        return staticConfig.getPaymentPluginInfoConcurrency();
+    }
+
+    @Override
+    public TimeSpan getPaymentPluginInfoTimeout() {
+        return staticConfig.getPaymentPluginInfoTimeout();
+    }
+
     @Override
     public int getMaxGlobalLockRetries() {
         return staticConfig.getMaxGlobalLockRetries();
@@ -17,58 +17,92 @@
 
 package org.killbill.billing.payment.core;
 
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 import org.killbill.billing.util.config.definition.PaymentConfig;
 import org.killbill.commons.concurrent.Executors;
 import org.killbill.commons.concurrent.WithProfilingThreadPoolExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.MoreObjects;
 
 public class PaymentExecutors {
 
+    private static final Logger log = LoggerFactory.getLogger(PaymentExecutors.class);
+
     private static final long TIMEOUT_EXECUTOR_SEC = 3L;
 
     private static final int DEFAULT_MIN_PLUGIN_THREADS = 5;
 
     private static final String PLUGIN_THREAD_PREFIX = "Plugin-th-";
+    private static final String PLUGIN_VIRTUAL_THREAD_PREFIX = "Plugin-vth-";
     private static final String PAYMENT_PLUGIN_TH_GROUP_NAME = "pay-plugin-grp";
 
+    private static final String METRIC_PREFIX = "killbill.payment.plugin";
+    // Bulkhead used when the caller doesn't specify the plugin(s)
+    private static final String DEFAULT_BULKHEAD_NAME = "default";
+
     public static final String JANITOR_EXECUTOR_NAMED = "JanitorExecutor";
     public static final String PLUGIN_EXECUTOR_NAMED = "PluginExecutor";
 
     private final PaymentConfig paymentConfig;
+    private final MetricRegistry metricRegistry;
+    private final ConcurrentMap<String, Semaphore> pluginBulkheads = new ConcurrentHashMap<String, Semaphore>();
 
-    private volatile ThreadPoolExecutor pluginExecutorService;
+    private volatile ExecutorService pluginExecutorService;
     private volatile ScheduledExecutorService janitorExecutorService;
+    private volatile ExecutorService janitorWorkersExecutorService;
 
     @Inject
-    public PaymentExecutors(PaymentConfig paymentConfig) {
+    public PaymentExecutors(final PaymentConfig paymentConfig, final MetricRegistry metricRegistry) {
         this.paymentConfig = paymentConfig;
-
+        this.metricRegistry = metricRegistry;
     }
 
     public void initialize() {
         this.pluginExecutorService = createPluginExecutorService();
-        this.pluginExecutorService.prestartAllCoreThreads();
         this.janitorExecutorService = createJanitorExecutorService();
+        this.janitorWorkersExecutorService = createJanitorWorkersExecutorService();
     }
 
 
     public void stop() throws InterruptedException {
         pluginExecutorService.shutdownNow();
         janitorExecutorService.shutdownNow();
+        janitorWorkersExecutorService.shutdownNow();
 
         pluginExecutorService.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
         pluginExecutorService = null;
 
         janitorExecutorService.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
         janitorExecutorService = null;
+
+        janitorWorkersExecutorService.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
+        janitorWorkersExecutorService = null;
+
+        pluginBulkheads.clear();
     }
 
     public ExecutorService getPluginExecutorService() {
@@ -79,26 +113,171 @@ public class PaymentExecutors {
         return janitorExecutorService;
     }
 
-    private ThreadPoolExecutor createPluginExecutorService() {
+    public ExecutorService getJanitorWorkersExecutorService() {
+        return janitorWorkersExecutorService;
+    }
+
+    //
+    // Submit a plugin call to the plugin executor, through the bulkhead of the specified plugin(s): each plugin can only have a limited number of
+    // in-flight (queued or running) calls, so that a slow gateway cannot starve the other ones. Calls exceeding that limit (or the executor queue size)
+    // are rejected right away, without reaching the plugin.
+    //
+    public <T> Future<T> submitPluginCall(@Nullable final String pluginNames, final Callable<T> task) throws RejectedExecutionException {
+        final String bulkheadName = MoreObjects.firstNonNull(pluginNames, DEFAULT_BULKHEAD_NAME);
+
+        final Semaphore bulkhead = getPluginBulkhead(bulkheadName);
+        if (bulkhead != null && !bulkhead.tryAcquire()) {
+            metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, bulkheadName, "bulkheadRejections")).mark();
+            throw new RejectedExecutionException(String.format("Too many in-flight calls for plugin='%s'", bulkheadName));
+        }
+
+        final Timer queueWaitTimer = metricRegistry.timer(MetricRegistry.name(METRIC_PREFIX, bulkheadName, "queueWait"));
+        final Timer executionTimer = metricRegistry.timer(MetricRegistry.name(METRIC_PREFIX, bulkheadName, "execution"));
+        final long submittedNanos = System.nanoTime();
+        final PluginCallFutureTask<T> futureTask = new PluginCallFutureTask<T>(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                final long startNanos = System.nanoTime();
+                queueWaitTimer.update(startNanos - submittedNanos, TimeUnit.NANOSECONDS);
+                try {
+                    return task.call();
+                } finally {
+                    executionTimer.update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                }
+            }
+        }, bulkhead);
+        try {
+            pluginExecutorService.execute(futureTask);
+            return futureTask;
+        } catch (final RejectedExecutionException e) {
+            futureTask.releasePermit();
+            metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, bulkheadName, "queueRejections")).mark();
+            throw e;
+        }
+    }
+
+    @VisibleForTesting
+    int getAvailableBulkheadPermits(@Nullable final String pluginNames) {
+        final Semaphore bulkhead = getPluginBulkhead(MoreObjects.firstNonNull(pluginNames, DEFAULT_BULKHEAD_NAME));
+        return bulkhead == null ? -1 : bulkhead.availablePermits();
+    }
+
+    //
+    // The bulkhead permit is released exactly once, when the task completes or when it gets cancelled: a task cancelled while still queued never
+    // runs, so releasing it from the callable itself would leak the permit. On completion, it is released before the result is published, so that
+    // callers waiting on the future can right away submit a new call.
+    //
+    private static final class PluginCallFutureTask<T> extends FutureTask<T> {
+
+        private final Semaphore bulkhead;
+        private final AtomicBoolean permitReleased = new AtomicBoolean(false);
+
+        private PluginCallFutureTask(final Callable<T> callable, @Nullable final Semaphore bulkhead) {
+            super(callable);
+            this.bulkhead = bulkhead;
+        }
+
+        @Override
+        protected void set(final T result) {
+            releasePermit();
+            super.set(result);
+        }
+
+        @Override
+        protected void setException(final Throwable t) {
+            releasePermit();
+            super.setException(t);
+        }
+
+        @Override
+        protected void done() {
+            releasePermit();
+        }
+
+        private void releasePermit() {
+            if (bulkhead != null && permitReleased.compareAndSet(false, true)) {
+                bulkhead.release();
+            }
+        }
+    }
+
+    // Null if the bulkheads are disabled
+    private Semaphore getPluginBulkhead(final String bulkheadName) {
+        final int maxCalls = paymentConfig.getPaymentPluginBulkheadMaxCalls();
+        if (maxCalls <= 0) {
+            return null;
+        }
+
+        Semaphore bulkhead = pluginBulkheads.get(bulkheadName);
+        if (bulkhead == null) {
+            final Semaphore newBulkhead = new Semaphore(maxCalls);
+            bulkhead = pluginBulkheads.putIfAbsent(bulkheadName, newBulkhead);
+            if (bulkhead == null) {
+                bulkhead = newBulkhead;
+            }
+        }
+        return bulkhead;
+    }
+
+    private ExecutorService createPluginExecutorService() {
+        if (paymentConfig.isPaymentPluginVirtualThreadsEnabled()) {
+            if (paymentConfig.getPaymentPluginBulkheadMaxCalls() <= 0) {
+                log.warn("Virtual threads require the plugin bulkheads (org.killbill.payment.plugin.bulkhead.maxCalls > 0), defaulting to the plugin thread pool");
+            } else {
+                final ThreadFactory virtualThreadFactory = createVirtualThreadFactory();
+                if (virtualThreadFactory != null) {
+                    // No core thread and no queue: a new virtual thread is started for each call not picked-up by an idle one
+                    return new WithProfilingThreadPoolExecutor(0,
+                                                               Integer.MAX_VALUE,
+                                                               60,
+                                                               TimeUnit.SECONDS,
+                                                               new SynchronousQueue<Runnable>(),
+                                                               virtualThreadFactory);
+                }
+            }
+        }
+
         final int minThreadNb = DEFAULT_MIN_PLUGIN_THREADS < paymentConfig.getPaymentPluginThreadNb() ? DEFAULT_MIN_PLUGIN_THREADS : paymentConfig.getPaymentPluginThreadNb();
-        return new WithProfilingThreadPoolExecutor(minThreadNb,
-                                                   paymentConfig.getPaymentPluginThreadNb(),
-                                                   10,
-                                                   TimeUnit.MINUTES,
-                                                   new LinkedBlockingQueue<Runnable>(),
-                                                   new ThreadFactory() {
-
-                                                       @Override
-                                                       public Thread newThread(final Runnable r) {
-                                                           final Thread th = new Thread(new ThreadGroup(PAYMENT_PLUGIN_TH_GROUP_NAME), r);
-                                                           th.setName(PLUGIN_THREAD_PREFIX + th.getId());
-                                                           return th;
-                                                       }
-                                                   });
+        final BlockingQueue<Runnable> queue = paymentConfig.getPaymentPluginQueueSize() > 0 ?
+                                              new LinkedBlockingQueue<Runnable>(paymentConfig.getPaymentPluginQueueSize()) :
+                                              new LinkedBlockingQueue<Runnable>();
+        final ThreadPoolExecutor threadPoolExecutor = new WithProfilingThreadPoolExecutor(minThreadNb,
+                                                                                          paymentConfig.getPaymentPluginThreadNb(),
+                                                                                          10,
+                                                                                          TimeUnit.MINUTES,
+                                                                                          queue,
+                                                                                          new ThreadFactory() {
 
+                                                                                              @Override
+                                                                                              public Thread newThread(final Runnable r) {
+                                                                                                  final Thread th = new Thread(new ThreadGroup(PAYMENT_PLUGIN_TH_GROUP_NAME), r);
+                                                                                                  th.setName(PLUGIN_THREAD_PREFIX + th.getId());
+                                                                                                  return th;
+                                                                                              }
+                                                                                          });
+        threadPoolExecutor.prestartAllCoreThreads();
+        return threadPoolExecutor;
+    }
+
+    // The plugin calls are blocking (HTTP calls to the gateways), so one virtual thread per call is cheap: the bulkheads bound the concurrency instead.
+    // Looked-up reflectively (Thread.ofVirtual().name(prefix, 0).factory()), as virtual threads aren't available on all supported JVMs.
+    private ThreadFactory createVirtualThreadFactory() {
+        try {
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            final Object namedBuilder = builderClass.getMethod("name", String.class, long.class).invoke(builder, PLUGIN_VIRTUAL_THREAD_PREFIX, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(namedBuilder);
+        } catch (final Exception e) {
+            log.warn("Virtual threads aren't supported by this JVM, defaulting to the plugin thread pool", e);
+            return null;
+        }
     }
 
     private ScheduledExecutorService createJanitorExecutorService() {
         return Executors.newSingleThreadScheduledExecutor("PaymentJanitor");
     }
+
+    private ExecutorService createJanitorWorkersExecutorService() {
+        return Executors.newFixedThreadPool(Math.max(1, paymentConfig.getJanitorThreadNb()), "PaymentJanitorWorker");
+    }
 }
@@ -22,14 +22,24 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 
+import org.apache.shiro.util.ThreadContext;
 import org.killbill.billing.ErrorCode;
 import org.killbill.billing.account.api.AccountInternalApi;
 import org.killbill.billing.callcontext.InternalTenantContext;
@@ -49,42 +59,55 @@ import org.killbill.billing.payment.dao.PaymentModelDao;
 import org.killbill.billing.payment.dao.PaymentTransactionModelDao;
 import org.killbill.billing.payment.dao.PluginPropertySerializer;
 import org.killbill.billing.payment.dao.PluginPropertySerializer.PluginPropertySerializerException;
+import org.killbill.billing.payment.dispatcher.CallableWithRequestData;
 import org.killbill.billing.payment.plugin.api.PaymentPluginApi;
 import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
 import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+import org.killbill.billing.payment.provider.DefaultNoOpPaymentInfoPlugin;
 import org.killbill.billing.payment.retry.DefaultRetryService;
 import org.killbill.billing.payment.retry.PaymentRetryNotificationKey;
 import org.killbill.billing.platform.api.KillbillService.KILLBILL_SERVICES;
 import org.killbill.billing.tag.TagInternalApi;
+import org.killbill.billing.util.UUIDs;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.config.definition.PaymentConfig;
 import org.killbill.billing.util.entity.DefaultPagination;
 import org.killbill.billing.util.entity.Pagination;
 import org.killbill.billing.util.entity.dao.DefaultPaginationHelper.EntityPaginationBuilder;
 import org.killbill.billing.util.entity.dao.DefaultPaginationHelper.SourcePaginationBuilder;
 import org.killbill.clock.Clock;
 import org.killbill.commons.locker.GlobalLocker;
+import org.killbill.commons.request.Request;
 import org.killbill.notificationq.api.NotificationEvent;
 import org.killbill.notificationq.api.NotificationEventWithMetadata;
 import org.killbill.notificationq.api.NotificationQueue;
 import org.killbill.notificationq.api.NotificationQueueService;
 import org.killbill.notificationq.api.NotificationQueueService.NoSuchNotificationQueue;
+import org.skife.config.TimeSpan;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Ordering;
 
-import static org.killbill.billing.util.entity.dao.DefaultPaginationHelper.getEntityPagination;
+import static org.killbill.billing.util.entity.dao.DefaultPaginationHelper.getEntityPaginationInBatches;
 import static org.killbill.billing.util.entity.dao.DefaultPaginationHelper.getEntityPaginationFromPlugins;
 
 // Retrieve payment(s), making sure the Janitor is invoked (on-the-fly Janitor)
@@ -94,9 +117,18 @@ public class PaymentRefresher extends ProcessorBase {
 
     private static final String SCHEDULED = "SCHEDULED";
     private static final ImmutableList<PluginProperty> PLUGIN_PROPERTIES = ImmutableList.<PluginProperty>of();
+    // Number of payments whose transactions (and attempts) are looked-up together in bulk get APIs
+    private static final int BULK_LOOKUP_BATCH_SIZE = 500;
+
+    @VisibleForTesting
+    static final String PLUGIN_INFO_TIMEOUT_ERROR_CODE = "PLUGIN_INFO_TIMEOUT";
+    @VisibleForTesting
+    static final String PLUGIN_INFO_REJECTED_ERROR_CODE = "PLUGIN_INFO_REJECTED";
 
     private final NotificationQueueService notificationQueueService;
     private final IncompletePaymentTransactionTask incompletePaymentTransactionTask;
+    private final PaymentExecutors paymentExecutors;
+    private final PaymentConfig paymentConfig;
 
     @Inject
     public PaymentRefresher(final PaymentPluginServiceRegistration paymentPluginServiceRegistration,
@@ -108,10 +140,14 @@ public class PaymentRefresher extends ProcessorBase {
                             final InvoiceInternalApi invoiceApi,
                             final Clock clock,
                             final NotificationQueueService notificationQueueService,
-                            final IncompletePaymentTransactionTask incompletePaymentTransactionTask) {
+                            final IncompletePaymentTransactionTask incompletePaymentTransactionTask,
+                            final PaymentExecutors paymentExecutors,
+                            final PaymentConfig paymentConfig) {
         super(paymentPluginServiceRegistration, accountUserApi, paymentDao, tagUserApi, locker, internalCallContextFactory, invoiceApi, clock);
         this.notificationQueueService = notificationQueueService;
         this.incompletePaymentTransactionTask = incompletePaymentTransactionTask;
+        this.paymentExecutors = paymentExecutors;
+        this.paymentConfig = paymentConfig;
     }
 
     protected boolean invokeJanitor(final UUID accountId,
@@ -188,29 +224,14 @@ public class PaymentRefresher extends ProcessorBase {
         final List<PaymentModelDao> paymentsModelDao = paymentDao.getPaymentsForAccount(accountId, tenantContext);
         final List<PaymentTransactionModelDao> transactionsModelDao = paymentDao.getTransactionsForAccount(accountId, tenantContext);
 
-        final Map<UUID, PaymentPluginApi> paymentPluginByPaymentMethodId = new HashMap<UUID, PaymentPluginApi>();
-        final Collection<UUID> absentPlugins = new HashSet<UUID>();
+        final Map<UUID, List<PaymentTransactionInfoPlugin>> pluginInfoByPaymentId = withPluginInfo ?
+                                                                                   getPaymentTransactionInfoPlugins(paymentsModelDao, transactionsModelDao, context, tenantContext) :
+                                                                                   ImmutableMap.<UUID, List<PaymentTransactionInfoPlugin>>of();
         final List<Payment> transformedPayments = Lists.<PaymentModelDao, Payment>transform(paymentsModelDao,
                                                                                             new Function<PaymentModelDao, Payment>() {
                                                                                                 @Override
                                                                                                 public Payment apply(final PaymentModelDao paymentModelDao) {
-                                                                                                    List<PaymentTransactionInfoPlugin> pluginInfo = null;
-
-                                                                                                    if (withPluginInfo) {
-                                                                                                        PaymentPluginApi pluginApi = paymentPluginByPaymentMethodId.get(paymentModelDao.getPaymentMethodId());
-                                                                                                        if (pluginApi == null && !absentPlugins.contains(paymentModelDao.getPaymentMethodId())) {
-                                                                                                            try {
-                                                                                                                pluginApi = getPaymentProviderPlugin(paymentModelDao.getPaymentMethodId(), true, tenantContext);
-                                                                                                                paymentPluginByPaymentMethodId.put(paymentModelDao.getPaymentMethodId(), pluginApi);
-                                                                                                            } catch (final PaymentApiException e) {
-                                                                                                                log.warn("Unable to retrieve pluginApi for payment method " + paymentModelDao.getPaymentMethodId());
-                                                                                                                absentPlugins.add(paymentModelDao.getPaymentMethodId());
-                                                                                                            }
-                                                                                                        }
-
-                                                                                                        pluginInfo = getPaymentTransactionInfoPluginsIfNeeded(pluginApi, paymentModelDao, context);
-                                                                                                    }
-
+                                                                                                    final List<PaymentTransactionInfoPlugin> pluginInfo = pluginInfoByPaymentId.get(paymentModelDao.getId());
                                                                                                     return toPayment(paymentModelDao, transactionsModelDao, pluginInfo, withAttempts, isApiPayment, tenantContext);
                                                                                                 }
                                                                                             });
@@ -296,38 +317,42 @@ public class PaymentRefresher extends ProcessorBase {
         final Map<UUID, Optional<PaymentPluginApi>> paymentMethodIdToPaymentPluginApi = new HashMap<UUID, Optional<PaymentPluginApi>>();
 
         try {
-            return getEntityPagination(limit,
-                                       new SourcePaginationBuilder<PaymentModelDao, PaymentApiException>() {
-                                           @Override
-                                           public Pagination<PaymentModelDao> build() {
-                                               // Find all payments for all accounts
-                                               return paymentDao.get(offset, limit, internalTenantContext);
-                                           }
-                                       },
-                                       new Function<PaymentModelDao, Payment>() {
-                                           @Override
-                                           public Payment apply(final PaymentModelDao paymentModelDao) {
-                                               final PaymentPluginApi pluginApi;
-                                               if (!withPluginInfo) {
-                                                   pluginApi = null;
-                                               } else {
-                                                   if (paymentMethodIdToPaymentPluginApi.get(paymentModelDao.getPaymentMethodId()) == null) {
-                                                       try {
-                                                           final PaymentPluginApi paymentProviderPlugin = getPaymentProviderPlugin(paymentModelDao.getPaymentMethodId(), true, internalTenantContext);
-                                                           paymentMethodIdToPaymentPluginApi.put(paymentModelDao.getPaymentMethodId(), Optional.<PaymentPluginApi>of(paymentProviderPlugin));
-                                                       } catch (final PaymentApiException e) {
-                                                           log.warn("Unable to retrieve PaymentPluginApi for paymentMethodId='{}'", paymentModelDao.getPaymentMethodId(), e);
-                                                           // We use Optional to avoid printing the log line for each result
-                                                           paymentMethodIdToPaymentPluginApi.put(paymentModelDao.getPaymentMethodId(), Optional.<PaymentPluginApi>absent());
-                                                       }
-                                                   }
-                                                   pluginApi = paymentMethodIdToPaymentPluginApi.get(paymentModelDao.getPaymentMethodId()).orNull();
-                                               }
-                                               final List<PaymentTransactionInfoPlugin> pluginInfo = getPaymentTransactionInfoPluginsIfNeeded(pluginApi, paymentModelDao, tenantContext);
-                                               return toPayment(paymentModelDao.getId(), pluginInfo, withAttempts, isApiPayment, internalTenantContext);
-                                           }
-                                       }
-                                      );
+            return getEntityPaginationInBatches(limit,
+                                                BULK_LOOKUP_BATCH_SIZE,
+                                                new SourcePaginationBuilder<PaymentModelDao, PaymentApiException>() {
+                                                    @Override
+                                                    public Pagination<PaymentModelDao> build() {
+                                                        // Find all payments for all accounts
+                                                        return paymentDao.get(offset, limit, internalTenantContext);
+                                                    }
+                                                },
+                                                new Function<List<PaymentModelDao>, List<Payment>>() {
+                                                    @Override
+                                                    public List<Payment> apply(final List<PaymentModelDao> paymentModelDaos) {
+                                                        final Map<UUID, List<PaymentTransactionInfoPlugin>> pluginInfoByPaymentId = new HashMap<UUID, List<PaymentTransactionInfoPlugin>>();
+                                                        for (final PaymentModelDao paymentModelDao : paymentModelDaos) {
+                                                            final PaymentPluginApi pluginApi;
+                                                            if (!withPluginInfo) {
+                                                                pluginApi = null;
+                                                            } else {
+                                                                if (paymentMethodIdToPaymentPluginApi.get(paymentModelDao.getPaymentMethodId()) == null) {
+                                                                    try {
+                                                                        final PaymentPluginApi paymentProviderPlugin = getPaymentProviderPlugin(paymentModelDao.getPaymentMethodId(), true, internalTenantContext);
+                                                                        paymentMethodIdToPaymentPluginApi.put(paymentModelDao.getPaymentMethodId(), Optional.<PaymentPluginApi>of(paymentProviderPlugin));
+                                                                    } catch (final PaymentApiException e) {
+                                                                        log.warn("Unable to retrieve PaymentPluginApi for paymentMethodId='{}'", paymentModelDao.getPaymentMethodId(), e);
+                                                                        // We use Optional to avoid printing the log line for each result
+                                                                        paymentMethodIdToPaymentPluginApi.put(paymentModelDao.getPaymentMethodId(), Optional.<PaymentPluginApi>absent());
+                                                                    }
+                                                                }
+                                                                pluginApi = paymentMethodIdToPaymentPluginApi.get(paymentModelDao.getPaymentMethodId()).orNull();
+                                                            }
+                                                            pluginInfoByPaymentId.put(paymentModelDao.getId(), getPaymentTransactionInfoPluginsIfNeeded(pluginApi, paymentModelDao, tenantContext));
+                                                        }
+                                                        return toPayments(paymentModelDaos, pluginInfoByPaymentId, withAttempts, isApiPayment, internalTenantContext);
+                                                    }
+                                                }
+                                               );
         } catch (final PaymentApiException e) {
             log.warn("Unable to get payments", e);
             return new DefaultPagination<Payment>(offset, limit, null, null, ImmutableSet.<Payment>of().iterator());
@@ -345,22 +370,26 @@ public class PaymentRefresher extends ProcessorBase {
                                            final InternalTenantContext internalTenantContext) throws PaymentApiException {
         final PaymentPluginApi pluginApi = withPluginInfo ? getPaymentPluginApi(pluginName) : null;
 
-        return getEntityPagination(limit,
-                                   new SourcePaginationBuilder<PaymentModelDao, PaymentApiException>() {
-                                       @Override
-                                       public Pagination<PaymentModelDao> build() {
-                                           // Find all payments for all accounts
-                                           return paymentDao.getPayments(pluginName, offset, limit, internalTenantContext);
-                                       }
-                                   },
-                                   new Function<PaymentModelDao, Payment>() {
-                                       @Override
-                                       public Payment apply(final PaymentModelDao paymentModelDao) {
-                                           final List<PaymentTransactionInfoPlugin> pluginInfo = getPaymentTransactionInfoPluginsIfNeeded(pluginApi, paymentModelDao, tenantContext);
-                                           return toPayment(paymentModelDao.getId(), pluginInfo, withAttempts, isApiPayment, internalTenantContext);
-                                       }
-                                   }
-                                  );
+        return getEntityPaginationInBatches(limit,
+                                            BULK_LOOKUP_BATCH_SIZE,
+                                            new SourcePaginationBuilder<PaymentModelDao, PaymentApiException>() {
+                                                @Override
+                                                public Pagination<PaymentModelDao> build() {
+                                                    // Find all payments for all accounts
+                                                    return paymentDao.getPayments(pluginName, offset, limit, internalTenantContext);
+                                                }
+                                            },
+                                            new Function<List<PaymentModelDao>, List<Payment>>() {
+                                                @Override
+                                                public List<Payment> apply(final List<PaymentModelDao> paymentModelDaos) {
+                                                    final Map<UUID, List<PaymentTransactionInfoPlugin>> pluginInfoByPaymentId = new HashMap<UUID, List<PaymentTransactionInfoPlugin>>();
+                                                    for (final PaymentModelDao paymentModelDao : paymentModelDaos) {
+                                                        pluginInfoByPaymentId.put(paymentModelDao.getId(), getPaymentTransactionInfoPluginsIfNeeded(pluginApi, paymentModelDao, tenantContext));
+                                                    }
+                                                    return toPayments(paymentModelDaos, pluginInfoByPaymentId, withAttempts, isApiPayment, internalTenantContext);
+                                                }
+                                            }
+                                           );
     }
 
     public Pagination<Payment> searchPayments(final String searchKey,
@@ -386,20 +415,21 @@ public class PaymentRefresher extends ProcessorBase {
                                                  );
         } else {
             try {
-                return getEntityPagination(limit,
-                                           new SourcePaginationBuilder<PaymentModelDao, PaymentApiException>() {
-                                               @Override
-                                               public Pagination<PaymentModelDao> build() {
-                                                   return paymentDao.searchPayments(searchKey, offset, limit, internalTenantContext);
-                                               }
-                                           },
-                                           new Function<PaymentModelDao, Payment>() {
-                                               @Override
-                                               public Payment apply(final PaymentModelDao paymentModelDao) {
-                                                   return toPayment(paymentModelDao.getId(), null, withAttempts, isApiPayment, internalTenantContext);
-                                               }
-                                           }
-                                          );
+                return getEntityPaginationInBatches(limit,
+                                                    BULK_LOOKUP_BATCH_SIZE,
+                                                    new SourcePaginationBuilder<PaymentModelDao, PaymentApiException>() {
+                                                        @Override
+                                                        public Pagination<PaymentModelDao> build() {
+                                                            return paymentDao.searchPayments(searchKey, offset, limit, internalTenantContext);
+                                                        }
+                                                    },
+                                                    new Function<List<PaymentModelDao>, List<Payment>>() {
+                                                        @Override
+                                                        public List<Payment> apply(final List<PaymentModelDao> paymentModelDaos) {
+                                                            return toPayments(paymentModelDaos, ImmutableMap.<UUID, List<PaymentTransactionInfoPlugin>>of(), withAttempts, isApiPayment, internalTenantContext);
+                                                        }
+                                                    }
+                                                   );
             } catch (final PaymentApiException e) {
                 log.warn("Unable to search through payments", e);
                 return new DefaultPagination<Payment>(offset, limit, null, null, ImmutableSet.<Payment>of().iterator());
@@ -437,10 +467,25 @@ public class PaymentRefresher extends ProcessorBase {
             }
         }
 
+        final Map<UUID, Payment> paymentsById = new HashMap<UUID, Payment>();
+        for (final List<UUID> paymentIds : Iterables.<UUID>partition(payments.keySet(), BULK_LOOKUP_BATCH_SIZE)) {
+            final Map<UUID, Collection<PaymentTransactionInfoPlugin>> pluginInfoByPaymentId = new HashMap<UUID, Collection<PaymentTransactionInfoPlugin>>();
+            for (final UUID paymentId : paymentIds) {
+                pluginInfoByPaymentId.put(paymentId, withPluginInfo ? payments.get(paymentId) : ImmutableList.<PaymentTransactionInfoPlugin>of());
+            }
+
+            final List<PaymentModelDao> paymentModelDaos = paymentDao.getPaymentsByIds(paymentIds, internalTenantContext);
+            for (final Payment payment : toPayments(paymentModelDaos, pluginInfoByPaymentId, withAttempts, isApiPayment, internalTenantContext)) {
+                paymentsById.put(payment.getId(), payment);
+            }
+        }
+
         final Collection<Payment> results = new LinkedList<Payment>();
         for (final UUID paymentId : payments.keys()) {
-            final Payment result = toPayment(paymentId, withPluginInfo ? payments.get(paymentId) : ImmutableList.<PaymentTransactionInfoPlugin>of(), withAttempts, isApiPayment, internalTenantContext);
-            if (result != null) {
+            final Payment result = paymentsById.get(paymentId);
+            if (result == null) {
+                log.warn("Unable to find payment id " + paymentId);
+            } else {
                 results.add(result);
             }
         }
@@ -450,19 +495,63 @@ public class PaymentRefresher extends ProcessorBase {
                                               results.iterator());
     }
 
-    // Used in bulk get APIs (getPayments / searchPayments)
-    private Payment toPayment(final UUID paymentId,
-                              @Nullable final Iterable<PaymentTransactionInfoPlugin> pluginTransactions,
-                              final boolean withAttempts,
-                              final boolean isApiPayment,
-                              final InternalTenantContext tenantContext) {
-        final PaymentModelDao paymentModelDao = paymentDao.getPayment(paymentId, tenantContext);
-        if (paymentModelDao == null) {
-            log.warn("Unable to find payment id " + paymentId);
-            return null;
+    // Used in bulk get APIs (getPayments / searchPayments): the transactions (and attempts) of all payments are retrieved at once
+    private List<Payment> toPayments(final Collection<PaymentModelDao> paymentModelDaos,
+                                     final Map<UUID, ? extends Iterable<PaymentTransactionInfoPlugin>> pluginTransactionsByPaymentId,
+                                     final boolean withAttempts,
+                                     final boolean isApiPayment,
+                                     final InternalTenantContext tenantContext) {
+        final Collection<UUID> paymentIds = new HashSet<UUID>();
+        final Collection<String> paymentExternalKeys = new HashSet<String>();
+        for (final PaymentModelDao paymentModelDao : paymentModelDaos) {
+            paymentIds.add(paymentModelDao.getId());
+            paymentExternalKeys.add(paymentModelDao.getExternalKey());
         }
 
-        return toPayment(paymentModelDao, pluginTransactions, withAttempts, isApiPayment, tenantContext);
+        final ListMultimap<UUID, PaymentTransactionModelDao> transactionsByPaymentId = ArrayListMultimap.<UUID, PaymentTransactionModelDao>create();
+        for (final PaymentTransactionModelDao paymentTransactionModelDao : paymentDao.getTransactionsForPayments(paymentIds, tenantContext)) {
+            transactionsByPaymentId.put(paymentTransactionModelDao.getPaymentId(), paymentTransactionModelDao);
+        }
+
+        final ListMultimap<String, PaymentAttemptModelDao> attemptsByPaymentExternalKey = ArrayListMultimap.<String, PaymentAttemptModelDao>create();
+        if (withAttempts) {
+            for (final PaymentAttemptModelDao paymentAttemptModelDao : paymentDao.getPaymentAttemptsByPaymentExternalKeys(paymentExternalKeys, tenantContext)) {
+                attemptsByPaymentExternalKey.put(paymentAttemptModelDao.getPaymentExternalKey(), paymentAttemptModelDao);
+            }
+        }
+
+        // Payments of the same account share the same context and scheduled retries
+        final Map<UUID, InternalTenantContext> tenantContextByAccountId = new HashMap<UUID, InternalTenantContext>();
+        final Map<UUID, List<NotificationEventWithMetadata<NotificationEvent>>> futureRetryNotificationsByAccountId = new HashMap<UUID, List<NotificationEventWithMetadata<NotificationEvent>>>();
+
+        final List<Payment> result = new ArrayList<Payment>(paymentModelDaos.size());
+        for (final PaymentModelDao paymentModelDao : paymentModelDaos) {
+            InternalTenantContext tenantContextWithAccountRecordId = tenantContextByAccountId.get(paymentModelDao.getAccountId());
+            if (tenantContextWithAccountRecordId == null) {
+                tenantContextWithAccountRecordId = getInternalTenantContextWithAccountRecordId(paymentModelDao.getAccountId(), tenantContext);
+                tenantContextByAccountId.put(paymentModelDao.getAccountId(), tenantContextWithAccountRecordId);
+            }
+
+            final List<PaymentTransactionModelDao> transactionsForPayment = transactionsByPaymentId.get(paymentModelDao.getId());
+            List<NotificationEventWithMetadata<NotificationEvent>> futureRetryNotifications = null;
+            if (withAttempts && !transactionsForPayment.isEmpty()) {
+                futureRetryNotifications = futureRetryNotificationsByAccountId.get(paymentModelDao.getAccountId());
+                if (futureRetryNotifications == null) {
+                    futureRetryNotifications = getFutureRetryNotifications(tenantContextWithAccountRecordId);
+                    futureRetryNotificationsByAccountId.put(paymentModelDao.getAccountId(), futureRetryNotifications);
+                }
+            }
+
+            result.add(toPayment(paymentModelDao,
+                                 transactionsForPayment,
+                                 pluginTransactionsByPaymentId.get(paymentModelDao.getId()),
+                                 withAttempts,
+                                 attemptsByPaymentExternalKey.get(paymentModelDao.getExternalKey()),
+                                 futureRetryNotifications,
+                                 isApiPayment,
+                                 tenantContextWithAccountRecordId));
+        }
+        return result;
     }
 
     // Used in single get APIs (getPayment / getPaymentByExternalKey)
@@ -497,6 +586,18 @@ public class PaymentRefresher extends ProcessorBase {
                               final boolean withAttempts,
                               final boolean isApiPayment,
                               final InternalTenantContext internalTenantContext) {
+        return toPayment(curPaymentModelDao, allTransactionsModelDao, pluginTransactions, withAttempts, null, null, isApiPayment, internalTenantContext);
+    }
+
+    // The past attempts and scheduled retries are looked-up if not specified
+    private Payment toPayment(final PaymentModelDao curPaymentModelDao,
+                              final Collection<PaymentTransactionModelDao> allTransactionsModelDao,
+                              @Nullable final Iterable<PaymentTransactionInfoPlugin> pluginTransactions,
+                              final boolean withAttempts,
+                              @Nullable final List<PaymentAttemptModelDao> pastPaymentAttempts,
+                              @Nullable final Iterable<NotificationEventWithMetadata<NotificationEvent>> futureRetryNotifications,
+                              final boolean isApiPayment,
+                              final InternalTenantContext internalTenantContext) {
         // Need to filter for optimized codepaths looking up by account_record_id
         final Collection<PaymentTransactionModelDao> transactionsModelDao = new LinkedList<PaymentTransactionModelDao>(Collections2.filter(allTransactionsModelDao, new Predicate<PaymentTransactionModelDao>() {
             @Override
@@ -505,7 +606,8 @@ public class PaymentRefresher extends ProcessorBase {
             }
         }));
 
-        if (pluginTransactions != null) {
+        // Don't invoke the Janitor if we couldn't get an answer from the plugin
+        if (pluginTransactions != null && !Iterables.any(pluginTransactions, Predicates.instanceOf(UnavailablePaymentTransactionInfoPlugin.class))) {
             invokeJanitor(curPaymentModelDao, transactionsModelDao, pluginTransactions, isApiPayment, internalTenantContext);
         }
 
@@ -547,13 +649,13 @@ public class PaymentRefresher extends ProcessorBase {
                                   curPaymentModelDao.getExternalKey(),
                                   sortedTransactions,
                                   (withAttempts && !sortedTransactions.isEmpty()) ?
-                                  getPaymentAttempts(paymentDao.getPaymentAttempts(curPaymentModelDao.getExternalKey(), internalTenantContext),
-                                                     internalTenantContext) : null
+                                  getPaymentAttempts(pastPaymentAttempts != null ? pastPaymentAttempts : paymentDao.getPaymentAttempts(curPaymentModelDao.getExternalKey(), internalTenantContext),
+                                                     futureRetryNotifications != null ? futureRetryNotifications : getFutureRetryNotifications(internalTenantContext)) : null
         );
     }
 
     private List<PaymentAttempt> getPaymentAttempts(final List<PaymentAttemptModelDao> pastPaymentAttempts,
-                                                    final InternalTenantContext internalTenantContext) {
+                                                    final Iterable<NotificationEventWithMetadata<NotificationEvent>> futureRetryNotifications) {
 
         final List<PaymentAttempt> paymentAttempts = new ArrayList<PaymentAttempt>();
 
@@ -577,40 +679,42 @@ public class PaymentRefresher extends ProcessorBase {
             paymentAttempts.add(paymentAttempt);
         }
 
-        // Get Future Payment Attempts from Notification Queue and add them to the list
+        // Add the Future Payment Attempts from the Notification Queue to the list
+        for (final NotificationEventWithMetadata<NotificationEvent> notificationEvent : futureRetryNotifications) {
+            // Last Attempt
+            final PaymentAttemptModelDao lastPaymentAttempt = getLastPaymentAttempt(pastPaymentAttempts,
+                                                                                    ((PaymentRetryNotificationKey) notificationEvent.getEvent()).getAttemptId());
+
+            if (lastPaymentAttempt != null) {
+                final PaymentAttempt futurePaymentAttempt = new DefaultPaymentAttempt(lastPaymentAttempt.getAccountId(), // accountId
+                                                                                      lastPaymentAttempt.getPaymentMethodId(), // paymentMethodId
+                                                                                      ((PaymentRetryNotificationKey) notificationEvent.getEvent()).getAttemptId(), // id
+                                                                                      null, // createdDate
+                                                                                      null, // updatedDate
+                                                                                      notificationEvent.getEffectiveDate(), // effectiveDate
+                                                                                      lastPaymentAttempt.getPaymentExternalKey(), // paymentExternalKey
+                                                                                      null, // transactionId
+                                                                                      lastPaymentAttempt.getTransactionExternalKey(), // transactionExternalKey
+                                                                                      lastPaymentAttempt.getTransactionType(), // transactionType
+                                                                                      SCHEDULED, // stateName
+                                                                                      lastPaymentAttempt.getAmount(), // amount
+                                                                                      lastPaymentAttempt.getCurrency(), // currency
+                                                                                      ((PaymentRetryNotificationKey) notificationEvent.getEvent()).getPaymentControlPluginNames().get(0), // pluginName,
+                                                                                      buildPluginProperties(lastPaymentAttempt)); // pluginProperties
+                paymentAttempts.add(futurePaymentAttempt);
+            }
+        }
+        return paymentAttempts;
+    }
+
+    private List<NotificationEventWithMetadata<NotificationEvent>> getFutureRetryNotifications(final InternalTenantContext internalTenantContext) {
         try {
             final NotificationQueue retryQueue = notificationQueueService.getNotificationQueue(KILLBILL_SERVICES.PAYMENT_SERVICE.getServiceName(), DefaultRetryService.QUEUE_NAME);
-            final Iterable<NotificationEventWithMetadata<NotificationEvent>> notificationEventWithMetadatas =
-                    retryQueue.getFutureNotificationForSearchKeys(internalTenantContext.getAccountRecordId(), internalTenantContext.getTenantRecordId());
-
-            for (final NotificationEventWithMetadata<NotificationEvent> notificationEvent : notificationEventWithMetadatas) {
-                // Last Attempt
-                final PaymentAttemptModelDao lastPaymentAttempt = getLastPaymentAttempt(pastPaymentAttempts,
-                                                                                        ((PaymentRetryNotificationKey) notificationEvent.getEvent()).getAttemptId());
-
-                if (lastPaymentAttempt != null) {
-                    final PaymentAttempt futurePaymentAttempt = new DefaultPaymentAttempt(lastPaymentAttempt.getAccountId(), // accountId
-                                                                                          lastPaymentAttempt.getPaymentMethodId(), // paymentMethodId
-                                                                                          ((PaymentRetryNotificationKey) notificationEvent.getEvent()).getAttemptId(), // id
-                                                                                          null, // createdDate
-                                                                                          null, // updatedDate
-                                                                                          notificationEvent.getEffectiveDate(), // effectiveDate
-                                                                                          lastPaymentAttempt.getPaymentExternalKey(), // paymentExternalKey
-                                                                                          null, // transactionId
-                                                                                          lastPaymentAttempt.getTransactionExternalKey(), // transactionExternalKey
-                                                                                          lastPaymentAttempt.getTransactionType(), // transactionType
-                                                                                          SCHEDULED, // stateName
-                                                                                          lastPaymentAttempt.getAmount(), // amount
-                                                                                          lastPaymentAttempt.getCurrency(), // currency
-                                                                                          ((PaymentRetryNotificationKey) notificationEvent.getEvent()).getPaymentControlPluginNames().get(0), // pluginName,
-                                                                                          buildPluginProperties(lastPaymentAttempt)); // pluginProperties
-                    paymentAttempts.add(futurePaymentAttempt);
-                }
-            }
+            return ImmutableList.<NotificationEventWithMetadata<NotificationEvent>>copyOf(retryQueue.getFutureNotificationForSearchKeys(internalTenantContext.getAccountRecordId(), internalTenantContext.getTenantRecordId()));
         } catch (final NoSuchNotificationQueue noSuchNotificationQueue) {
             log.error("ERROR Loading Notification Queue - " + noSuchNotificationQueue.getMessage());
+            return ImmutableList.<NotificationEventWithMetadata<NotificationEvent>>of();
         }
-        return paymentAttempts;
     }
 
     private PaymentAttemptModelDao getLastPaymentAttempt(final List<PaymentAttemptModelDao> pastPaymentAttempts, final UUID attemptId) {
@@ -645,6 +749,130 @@ public class PaymentRefresher extends ProcessorBase {
         return tenantContextWithAccountRecordId;
     }
 
+    //
+    // Used in bulk get API (getAccountPayments): each plugin call is a gateway round-trip, so the calls are dispatched concurrently on the plugin executor,
+    // with at most getPaymentPluginInfoConcurrency() in-flight calls for this request and an overall deadline. Payments whose plugin info couldn't be
+    // retrieved in time are returned with an UnavailablePaymentTransactionInfoPlugin marker for each of their transactions.
+    //
+    private Map<UUID, List<PaymentTransactionInfoPlugin>> getPaymentTransactionInfoPlugins(final Collection<PaymentModelDao> paymentModelDaos,
+                                                                                           final Collection<PaymentTransactionModelDao> transactionsModelDao,
+                                                                                           final TenantContext context,
+                                                                                           final InternalTenantContext tenantContext) {
+        final Map<UUID, PaymentPluginApi> paymentPluginByPaymentMethodId = new HashMap<UUID, PaymentPluginApi>();
+        final Map<UUID, String> pluginNameByPaymentMethodId = new HashMap<UUID, String>();
+        final Collection<UUID> absentPlugins = new HashSet<UUID>();
+        for (final PaymentModelDao paymentModelDao : paymentModelDaos) {
+            final UUID paymentMethodId = paymentModelDao.getPaymentMethodId();
+            if (!paymentPluginByPaymentMethodId.containsKey(paymentMethodId) && !absentPlugins.contains(paymentMethodId)) {
+                try {
+                    final String pluginName = getPaymentMethodById(paymentMethodId, true, tenantContext).getPluginName();
+                    paymentPluginByPaymentMethodId.put(paymentMethodId, getPaymentPluginApi(pluginName));
+                    pluginNameByPaymentMethodId.put(paymentMethodId, pluginName);
+                } catch (final PaymentApiException e) {
+                    log.warn("Unable to retrieve pluginApi for payment method " + paymentMethodId);
+                    absentPlugins.add(paymentMethodId);
+                }
+            }
+        }
+
+        final Map<UUID, List<PaymentTransactionInfoPlugin>> result = new HashMap<UUID, List<PaymentTransactionInfoPlugin>>();
+        if (paymentConfig.getPaymentPluginInfoConcurrency() <= 1) {
+            for (final PaymentModelDao paymentModelDao : paymentModelDaos) {
+                result.put(paymentModelDao.getId(), getPaymentTransactionInfoPluginsIfNeeded(paymentPluginByPaymentMethodId.get(paymentModelDao.getPaymentMethodId()), paymentModelDao, context));
+            }
+            return result;
+        }
+
+        final TimeSpan timeout = paymentConfig.getPaymentPluginInfoTimeout();
+        final long deadlineNanos = System.nanoTime() + TimeUnit.NANOSECONDS.convert(timeout.getPeriod(), timeout.getUnit());
+        final Semaphore inFlightCalls = new Semaphore(paymentConfig.getPaymentPluginInfoConcurrency());
+        final Map<UUID, Future<List<PaymentTransactionInfoPlugin>>> futures = new LinkedHashMap<UUID, Future<List<PaymentTransactionInfoPlugin>>>();
+        try {
+            for (final PaymentModelDao paymentModelDao : paymentModelDaos) {
+                final PaymentPluginApi pluginApi = paymentPluginByPaymentMethodId.get(paymentModelDao.getPaymentMethodId());
+                if (pluginApi == null) {
+                    result.put(paymentModelDao.getId(), null);
+                    continue;
+                }
+
+                if (!inFlightCalls.tryAcquire(getRemainingNanos(deadlineNanos), TimeUnit.NANOSECONDS)) {
+                    // Deadline reached, the remaining payments are marked below
+                    break;
+                }
+
+                final Callable<List<PaymentTransactionInfoPlugin>> task = new Callable<List<PaymentTransactionInfoPlugin>>() {
+                    @Override
+                    public List<PaymentTransactionInfoPlugin> call() throws Exception {
+                        try {
+                            return getPaymentTransactionInfoPlugins(pluginApi, paymentModelDao, PLUGIN_PROPERTIES, context);
+                        } finally {
+                            inFlightCalls.release();
+                        }
+                    }
+                };
+                final String pluginName = pluginNameByPaymentMethodId.get(paymentModelDao.getPaymentMethodId());
+                try {
+                    futures.put(paymentModelDao.getId(), paymentExecutors.submitPluginCall(pluginName,
+                                                                                           new CallableWithRequestData<List<PaymentTransactionInfoPlugin>>(Request.getPerThreadRequestData(),
+                                                                                                                                                           UUIDs.getRandom(),
+                                                                                                                                                           ThreadContext.getSecurityManager(),
+                                                                                                                                                           ThreadContext.getSubject(),
+                                                                                                                                                           MDC.getCopyOfContextMap(),
+                                                                                                                                                           task)));
+                } catch (final RejectedExecutionException e) {
+                    inFlightCalls.release();
+                    log.warn("Call REJECTED for plugin='{}', unable to retrieve plugin info for payment {}: {}", pluginName, paymentModelDao.getId(), e.getMessage());
+                    result.put(paymentModelDao.getId(), getUnavailablePaymentTransactionInfoPlugins(paymentModelDao, transactionsModelDao, PLUGIN_INFO_REJECTED_ERROR_CODE));
+                }
+            }
+
+            for (final Entry<UUID, Future<List<PaymentTransactionInfoPlugin>>> entry : futures.entrySet()) {
+                try {
+                    result.put(entry.getKey(), entry.getValue().get(getRemainingNanos(deadlineNanos), TimeUnit.NANOSECONDS));
+                } catch (final TimeoutException e) {
+                    // Marked below (once the deadline is reached, only the calls which already completed are collected)
+                    log.debug("Deadline reached while retrieving plugin info for payment {}", entry.getKey());
+                } catch (final ExecutionException e) {
+                    log.warn("Unable to retrieve plugin info for payment " + entry.getKey());
+                    result.put(entry.getKey(), null);
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while retrieving plugin info for account {}", tenantContext.getAccountRecordId());
+        }
+
+        // Partial results: mark the payments which didn't get an answer in time
+        for (final PaymentModelDao paymentModelDao : paymentModelDaos) {
+            if (!result.containsKey(paymentModelDao.getId())) {
+                final Future<List<PaymentTransactionInfoPlugin>> future = futures.get(paymentModelDao.getId());
+                if (future != null) {
+                    // Gives the bulkhead permit back, whether the call is still queued or already running (see PaymentExecutors#submitPluginCall)
+                    future.cancel(true);
+                }
+                log.warn("Call TIMEOUT, unable to retrieve plugin info for payment {}", paymentModelDao.getId());
+                result.put(paymentModelDao.getId(), getUnavailablePaymentTransactionInfoPlugins(paymentModelDao, transactionsModelDao, PLUGIN_INFO_TIMEOUT_ERROR_CODE));
+            }
+        }
+        return result;
+    }
+
+    private long getRemainingNanos(final long deadlineNanos) {
+        return Math.max(0, deadlineNanos - System.nanoTime());
+    }
+
+    private List<PaymentTransactionInfoPlugin> getUnavailablePaymentTransactionInfoPlugins(final PaymentModelDao paymentModelDao,
+                                                                                           final Iterable<PaymentTransactionModelDao> transactionsModelDao,
+                                                                                           final String gatewayErrorCode) {
+        final List<PaymentTransactionInfoPlugin> result = new LinkedList<PaymentTransactionInfoPlugin>();
+        for (final PaymentTransactionModelDao paymentTransactionModelDao : transactionsModelDao) {
+            if (paymentTransactionModelDao.getPaymentId().equals(paymentModelDao.getId())) {
+                result.add(new UnavailablePaymentTransactionInfoPlugin(paymentTransactionModelDao, gatewayErrorCode));
+            }
+        }
+        return result;
+    }
+
     // Used in bulk get API (getAccountPayments / getPayments)
     private List<PaymentTransactionInfoPlugin> getPaymentTransactionInfoPluginsIfNeeded(@Nullable final PaymentPluginApi pluginApi, final PaymentModelDao paymentModelDao, final TenantContext context) {
         if (pluginApi == null) {
@@ -666,4 +894,22 @@ public class PaymentRefresher extends ProcessorBase {
             throw new PaymentApiException(e, ErrorCode.PAYMENT_PLUGIN_GET_PAYMENT_INFO, paymentModelDao.getId(), e.toString());
         }
     }
+
+    // Marker returned in place of the plugin info of a transaction, when the plugin couldn't be called in time
+    @VisibleForTesting
+    static final class UnavailablePaymentTransactionInfoPlugin extends DefaultNoOpPaymentInfoPlugin {
+
+        UnavailablePaymentTransactionInfoPlugin(final PaymentTransactionModelDao paymentTransactionModelDao, final String gatewayErrorCode) {
+            super(paymentTransactionModelDao.getPaymentId(),
+                  paymentTransactionModelDao.getId(),
+                  paymentTransactionModelDao.getTransactionType(),
+                  paymentTransactionModelDao.getAmount(),
+                  paymentTransactionModelDao.getCurrency(),
+                  paymentTransactionModelDao.getEffectiveDate(),
+                  paymentTransactionModelDao.getCreatedDate(),
+                  PaymentPluginStatus.UNDEFINED,
+                  gatewayErrorCode,
+                  "Unable to retrieve the payment info from the plugin");
+        }
+    }
 }
@@ -19,9 +19,14 @@ package org.killbill.billing.payment.core.janitor;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -35,6 +40,7 @@ import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.events.PaymentInternalEvent;
 import org.killbill.billing.payment.api.PaymentApiException;
 import org.killbill.billing.payment.api.TransactionStatus;
+import org.killbill.billing.payment.core.PaymentExecutors;
 import org.killbill.billing.payment.core.sm.PaymentControlStateMachineHelper;
 import org.killbill.billing.payment.core.sm.PluginControlPaymentAutomatonRunner;
 import org.killbill.billing.payment.core.sm.control.PaymentStateControlContext;
@@ -58,7 +64,11 @@ import org.skife.config.TimeSpan;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.MoreObjects;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
@@ -80,6 +90,8 @@ public class IncompletePaymentAttemptTask implements Runnable {
     //
     private static final long MAX_ATTEMPTS_PER_ITERATIONS = 1000L;
 
+    private static final String METRIC_PREFIX = "killbill.payment.janitor.attempts";
+
     private final PaymentConfig paymentConfig;
     private final Clock clock;
     private final PaymentDao paymentDao;
@@ -88,6 +100,11 @@ public class IncompletePaymentAttemptTask implements Runnable {
     private final AccountInternalApi accountInternalApi;
     private final PluginControlPaymentAutomatonRunner pluginControlledPaymentAutomatonRunner;
     private final IncompletePaymentTransactionTask incompletePaymentTransactionTask;
+    private final PaymentExecutors paymentExecutors;
+    private final Meter completedAttempts;
+    private final Meter unresolvedAttempts;
+    private final Meter failedAttempts;
+    private final Counter remainingAttempts;
 
     @VisibleForTesting
     NotificationQueue janitorQueue;
@@ -102,7 +119,9 @@ public class IncompletePaymentAttemptTask implements Runnable {
                                         final PaymentControlStateMachineHelper retrySMHelper,
                                         final AccountInternalApi accountInternalApi,
                                         final PluginControlPaymentAutomatonRunner pluginControlledPaymentAutomatonRunner,
-                                        final IncompletePaymentTransactionTask incompletePaymentTransactionTask) {
+                                        final IncompletePaymentTransactionTask incompletePaymentTransactionTask,
+                                        final PaymentExecutors paymentExecutors,
+                                        final MetricRegistry metricRegistry) {
         this.internalCallContextFactory = internalCallContextFactory;
         this.paymentConfig = paymentConfig;
         this.paymentDao = paymentDao;
@@ -111,6 +130,11 @@ public class IncompletePaymentAttemptTask implements Runnable {
         this.accountInternalApi = accountInternalApi;
         this.pluginControlledPaymentAutomatonRunner = pluginControlledPaymentAutomatonRunner;
         this.incompletePaymentTransactionTask = incompletePaymentTransactionTask;
+        this.paymentExecutors = paymentExecutors;
+        this.completedAttempts = metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, "completed"));
+        this.unresolvedAttempts = metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, "unresolved"));
+        this.failedAttempts = metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, "failed"));
+        this.remainingAttempts = metricRegistry.counter(MetricRegistry.name(METRIC_PREFIX, "remaining"));
         this.isStopped = false;
     }
 
@@ -168,22 +192,23 @@ public class IncompletePaymentAttemptTask implements Runnable {
             return;
         }
 
+        // Partition the attempts by account across the workers: the attempts of a given account are processed sequentially by the same worker
+        // (they would otherwise contend on the account lock), and each attempt is processed by a single worker.
+        // The shard filter already fixes accountRecordId % nbShards, so only the remaining part of the id is used to pick the worker.
+        final int nbShards = Math.max(1, paymentConfig.getJanitorNbShards());
+        final int nbWorkers = Math.max(1, paymentConfig.getJanitorThreadNb());
+        final List<List<PaymentAttemptModelDao>> attemptsPerWorker = new ArrayList<List<PaymentAttemptModelDao>>(nbWorkers);
+        for (int i = 0; i < nbWorkers; i++) {
+            attemptsPerWorker.add(new LinkedList<PaymentAttemptModelDao>());
+        }
+
         final Iterator<PaymentAttemptModelDao> iterator = getItemsForIteration().iterator();
         try {
             while (iterator.hasNext()) {
                 final PaymentAttemptModelDao item = iterator.next();
-                if (isStopped) {
-                    log.info("Janitor was requested to stop");
-                    return;
-                }
-                try {
-                    // isApiPayment=false might not always be correct here: a payment with control plugin
-                    // might have been triggered from the API and crashed in an INIT state, which the loop
-                    // would attempt to fix here. But this is really an edge case.
-                    doIteration(item, false);
-                } catch (final Exception e) {
-                    log.warn("Exception during Janitor loop", e);
-                }
+                final long accountRecordId = MoreObjects.firstNonNull(item.getAccountRecordId(), 0L);
+                attemptsPerWorker.get((int) ((accountRecordId / nbShards) % nbWorkers)).add(item);
+                remainingAttempts.inc();
             }
         } finally {
             // In case the loop stops early, make sure to close the underlying DB connection
@@ -191,11 +216,69 @@ public class IncompletePaymentAttemptTask implements Runnable {
                 iterator.next();
             }
         }
+
+        // Wait for all workers, so that the next run doesn't pick up attempts which are still being processed
+        final ExecutorService janitorWorkersExecutor = paymentExecutors.getJanitorWorkersExecutorService();
+        final List<Future<?>> futures = new LinkedList<Future<?>>();
+        for (final List<PaymentAttemptModelDao> attempts : attemptsPerWorker) {
+            if (attempts.isEmpty()) {
+                continue;
+            }
+            futures.add(janitorWorkersExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    doIterations(attempts);
+                }
+            }));
+        }
+
+        try {
+            for (final Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (final ExecutionException e) {
+                    log.warn("Exception during Janitor loop", e.getCause());
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.info("Janitor was interrupted");
+        }
+    }
+
+    @VisibleForTesting
+    void doIterations(final Iterable<PaymentAttemptModelDao> attempts) {
+        for (final PaymentAttemptModelDao item : attempts) {
+            try {
+                if (isStopped) {
+                    // Skip the remaining attempts (keeps the remaining counter accurate)
+                    continue;
+                }
+                // isApiPayment=false might not always be correct here: a payment with control plugin
+                // might have been triggered from the API and crashed in an INIT state, which the loop
+                // would attempt to fix here. But this is really an edge case.
+                if (doIteration(item, false)) {
+                    completedAttempts.mark();
+                } else {
+                    unresolvedAttempts.mark();
+                }
+            } catch (final Exception e) {
+                failedAttempts.mark();
+                log.warn("Exception during Janitor loop", e);
+            } finally {
+                remainingAttempts.dec();
+            }
+        }
     }
 
     @VisibleForTesting
     Iterable<PaymentAttemptModelDao> getItemsForIteration() {
-        final Pagination<PaymentAttemptModelDao> incompleteAttempts = paymentDao.getPaymentAttemptsByStateAcrossTenants(retrySMHelper.getInitialState().getName(), getCreatedDateBefore(), 0L, MAX_ATTEMPTS_PER_ITERATIONS);
+        final Pagination<PaymentAttemptModelDao> incompleteAttempts = paymentDao.getPaymentAttemptsByStateAcrossTenants(retrySMHelper.getInitialState().getName(),
+                                                                                                                         getCreatedDateBefore(),
+                                                                                                                         Math.max(1, paymentConfig.getJanitorNbShards()),
+                                                                                                                         paymentConfig.getJanitorShardIndex(),
+                                                                                                                         0L,
+                                                                                                                         MAX_ATTEMPTS_PER_ITERATIONS);
         if (incompleteAttempts.getTotalNbRecords() > 0) {
             log.info("Janitor AttemptCompletionTask start run: found {} incomplete attempts", incompleteAttempts.getTotalNbRecords());
         }
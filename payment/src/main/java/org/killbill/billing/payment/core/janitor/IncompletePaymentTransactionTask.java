@@ -19,6 +19,8 @@ package org.killbill.billing.payment.core.janitor;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -58,6 +60,7 @@ import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.RateLimiter;
 
 // Janitor implementation for payment transactions only (see IncompletePaymentAttemptTask for payments going through the control APIs).
 // Invoked on-the-fly or as part of the Janitor notification queue
@@ -76,6 +79,8 @@ public class IncompletePaymentTransactionTask {
     private final AccountInternalApi accountInternalApi;
     private final GlobalLocker locker;
     private final PaymentPluginServiceRegistration paymentPluginServiceRegistration;
+    // Per payment plugin, to avoid hammering the gateways when reconciling a large backlog (e.g. after an outage)
+    private final ConcurrentMap<String, RateLimiter> pluginRateLimiters = new ConcurrentHashMap<String, RateLimiter>();
 
     @Inject
     public IncompletePaymentTransactionTask(final InternalCallContextFactory internalCallContextFactory,
@@ -128,6 +133,11 @@ public class IncompletePaymentTransactionTask {
             return currentTransactionStatus;
         }
 
+        // Throttle the plugin calls before grabbing the account lock, so that waiting for a permit never holds the lock
+        if (paymentTransactionInfoPlugin == null) {
+            acquirePluginRateLimiterPermit(paymentTransactionId, internalTenantContext);
+        }
+
         return tryToDoJanitorOperationWithAccountLock(new JanitorIterationCallback() {
             @Override
             public TransactionStatus doIteration() {
@@ -252,7 +262,8 @@ public class IncompletePaymentTransactionTask {
                                                                                                           null);
         PaymentTransactionInfoPlugin paymentTransactionInfoPlugin;
         try {
-            final PaymentPluginApi paymentPluginApi = paymentPluginServiceRegistration.getPaymentPluginApi(payment.getPaymentMethodId(), false, internalTenantContext);
+            final String pluginName = paymentPluginServiceRegistration.getPaymentMethodById(payment.getPaymentMethodId(), false, internalTenantContext).getPluginName();
+            final PaymentPluginApi paymentPluginApi = paymentPluginServiceRegistration.getPaymentPluginApi(pluginName);
             final List<PaymentTransactionInfoPlugin> result = paymentPluginApi.getPaymentInfo(payment.getAccountId(), payment.getId(), ImmutableList.<PluginProperty>of(), tenantContext);
             paymentTransactionInfoPlugin = Iterables.tryFind(result, new Predicate<PaymentTransactionInfoPlugin>() {
                 @Override
@@ -271,6 +282,33 @@ public class IncompletePaymentTransactionTask {
         return paymentTransactionInfoPlugin;
     }
 
+    private void acquirePluginRateLimiterPermit(final UUID paymentTransactionId, final InternalTenantContext internalTenantContext) {
+        final double rateLimit = paymentConfig.getJanitorPluginRateLimit();
+        if (rateLimit <= 0) {
+            return;
+        }
+
+        final String pluginName;
+        try {
+            final PaymentTransactionModelDao paymentTransaction = paymentDao.getPaymentTransaction(paymentTransactionId, internalTenantContext);
+            final PaymentModelDao payment = paymentDao.getPayment(paymentTransaction.getPaymentId(), internalTenantContext);
+            pluginName = paymentPluginServiceRegistration.getPaymentMethodById(payment.getPaymentMethodId(), false, internalTenantContext).getPluginName();
+        } catch (final Exception e) {
+            // The plugin won't be resolved under the lock either (see getLatestPaymentTransactionInfoPlugin), so there is nothing to throttle
+            return;
+        }
+
+        RateLimiter rateLimiter = pluginRateLimiters.get(pluginName);
+        if (rateLimiter == null) {
+            final RateLimiter newRateLimiter = RateLimiter.create(rateLimit);
+            rateLimiter = pluginRateLimiters.putIfAbsent(pluginName, newRateLimiter);
+            if (rateLimiter == null) {
+                rateLimiter = newRateLimiter;
+            }
+        }
+        rateLimiter.acquire();
+    }
+
     private interface JanitorIterationCallback {
 
         TransactionStatus doIteration();
@@ -38,6 +38,8 @@ import org.killbill.notificationq.api.NotificationQueueService.NotificationQueue
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Preconditions;
+
 /**
  * Takes care of incomplete payment/transactions.
  */
@@ -71,6 +73,13 @@ public class Janitor {
     }
 
     public void initialize() throws NotificationQueueAlreadyExists {
+        // A misconfigured shard would silently never (or twice) process some of the incomplete attempts
+        final int nbShards = paymentConfig.getJanitorNbShards();
+        final int shardIndex = paymentConfig.getJanitorShardIndex();
+        Preconditions.checkArgument(nbShards >= 1, "org.killbill.payment.janitor.shards.nb should be at least 1, got %s", nbShards);
+        Preconditions.checkArgument(shardIndex >= 0 && shardIndex < nbShards,
+                                    "org.killbill.payment.janitor.shards.index should be between 0 and %s, got %s", nbShards - 1, shardIndex);
+
         janitorQueue = notificationQueueService.createNotificationQueue(KILLBILL_SERVICES.PAYMENT_SERVICE.getServiceName(),
                                                                         QUEUE_NAME,
                                                                         new NotificationQueueHandler() {
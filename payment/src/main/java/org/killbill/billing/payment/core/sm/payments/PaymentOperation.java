@@ -19,6 +19,7 @@ package org.killbill.billing.payment.core.sm.payments;
 
 import java.math.BigDecimal;
 import java.util.Iterator;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.killbill.automaton.Operation.OperationCallback;
 import org.killbill.automaton.OperationException;
@@ -96,8 +97,10 @@ public abstract class PaymentOperation extends OperationCallbackBase<PaymentTran
     // - Return an OperationResult.EXCEPTION to transition Payment State to Errored (see PaymentTransactionInfoPluginConverter#toOperationResult)
     // - Construct a PaymentTransactionInfoPlugin whose PaymentPluginStatus = UNDEFINED to end up with a paymentTransactionStatus = UNKNOWN and have a chance to
     //   be fixed by Janitor.
+    // The only exception is a call rejected by the plugin bulkhead: we know for sure the plugin wasn't called (PaymentPluginStatus = CANCELED, i.e. PLUGIN_FAILURE).
     //
     private OperationException convertToUnknownTransactionStatusAndErroredPaymentState(final Exception e) {
+        final PaymentPluginStatus paymentPluginStatus = e.getCause() instanceof RejectedExecutionException ? PaymentPluginStatus.CANCELED : PaymentPluginStatus.UNDEFINED;
 
         final PaymentTransactionInfoPlugin paymentInfoPlugin = new DefaultNoOpPaymentInfoPlugin(paymentStateContext.getPaymentId(),
                                                                                                 paymentStateContext.getTransactionId(),
@@ -106,7 +109,7 @@ public abstract class PaymentOperation extends OperationCallbackBase<PaymentTran
                                                                                                 paymentStateContext.getCurrency(),
                                                                                                 paymentStateContext.getCallContext().getCreatedDate(),
                                                                                                 paymentStateContext.getCallContext().getCreatedDate(),
-                                                                                                PaymentPluginStatus.UNDEFINED,
+                                                                                                paymentPluginStatus,
                                                                                                 null,
                                                                                                 null);
         paymentStateContext.setPaymentTransactionInfoPlugin(paymentInfoPlugin);
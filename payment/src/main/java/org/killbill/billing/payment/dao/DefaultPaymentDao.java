@@ -144,17 +144,22 @@ public class DefaultPaymentDao extends EntityDaoBase<PaymentModelDao, Payment, P
 
     @Override
     public Pagination<PaymentAttemptModelDao> getPaymentAttemptsByStateAcrossTenants(final String stateName, final DateTime createdBeforeDate, final Long offset, final Long limit) {
+        return getPaymentAttemptsByStateAcrossTenants(stateName, createdBeforeDate, 1, 0, offset, limit);
+    }
+
+    @Override
+    public Pagination<PaymentAttemptModelDao> getPaymentAttemptsByStateAcrossTenants(final String stateName, final DateTime createdBeforeDate, final int nbShards, final int shardIndex, final Long offset, final Long limit) {
 
         final Date createdBefore = createdBeforeDate.toDate();
         return paginationHelper.getPagination(PaymentAttemptSqlDao.class, new PaginationIteratorBuilder<PaymentAttemptModelDao, Entity, PaymentAttemptSqlDao>() {
                                                   @Override
                                                   public Long getCount(final PaymentAttemptSqlDao sqlDao, final InternalTenantContext context) {
-                                                      return sqlDao.getCountByStateNameAcrossTenants(stateName, createdBefore);
+                                                      return sqlDao.getCountByStateNameAcrossTenants(stateName, createdBefore, nbShards, shardIndex);
                                                   }
 
                                                   @Override
                                                   public Iterator<PaymentAttemptModelDao> build(final PaymentAttemptSqlDao sqlDao, final Long offset, final Long limit, final Ordering ordering, final InternalTenantContext context) {
-                                                      return sqlDao.getByStateNameAcrossTenants(stateName, createdBefore, offset, limit, ordering.toString());
+                                                      return sqlDao.getByStateNameAcrossTenants(stateName, createdBefore, nbShards, shardIndex, offset, limit, ordering.toString());
                                                   }
                                               },
                                               offset,
@@ -176,6 +181,20 @@ public class DefaultPaymentDao extends EntityDaoBase<PaymentModelDao, Payment, P
         });
     }
 
+    @Override
+    public List<PaymentAttemptModelDao> getPaymentAttemptsByPaymentExternalKeys(final Collection<String> paymentExternalKeys, final InternalTenantContext context) {
+        if (paymentExternalKeys.isEmpty()) {
+            return ImmutableList.<PaymentAttemptModelDao>of();
+        }
+
+        return transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<List<PaymentAttemptModelDao>>() {
+            @Override
+            public List<PaymentAttemptModelDao> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                return entitySqlDaoWrapperFactory.become(PaymentAttemptSqlDao.class).getByPaymentExternalKeys(paymentExternalKeys, context);
+            }
+        });
+    }
+
     @Override
     public List<PaymentAttemptModelDao> getPaymentAttemptByTransactionExternalKey(final String externalKey, final InternalTenantContext context) {
         return transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<List<PaymentAttemptModelDao>>() {
@@ -271,6 +290,11 @@ public class DefaultPaymentDao extends EntityDaoBase<PaymentModelDao, Payment, P
                                                   public Iterator<PaymentModelDao> build(final PaymentSqlDao paymentSqlDao, final Long offset, final Long limit, final Ordering ordering, final InternalTenantContext context) {
                                                       return !paymentStates.isEmpty() ? paymentSqlDao.searchByState(paymentStates, offset, limit, ordering.toString(), context) : paymentSqlDao.search(searchKey, likeSearchKey, offset, limit, ordering.toString(), context);
                                                   }
+
+                                                  @Override
+                                                  public Iterator<PaymentModelDao> buildFromRecordId(final PaymentSqlDao paymentSqlDao, final Long minRecordId, final Long maxRecordId, final Long limit, final Ordering ordering, final InternalTenantContext context) {
+                                                      return !paymentStates.isEmpty() ? null : paymentSqlDao.searchByRecordIdRange(searchKey, likeSearchKey, minRecordId, maxRecordId, limit, ordering.toString(), context);
+                                                  }
                                               },
                                               offset,
                                               limit,
@@ -457,6 +481,20 @@ public class DefaultPaymentDao extends EntityDaoBase<PaymentModelDao, Payment, P
         });
     }
 
+    @Override
+    public List<PaymentModelDao> getPaymentsByIds(final Collection<UUID> paymentIds, final InternalTenantContext context) {
+        if (paymentIds.isEmpty()) {
+            return ImmutableList.<PaymentModelDao>of();
+        }
+
+        return transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<List<PaymentModelDao>>() {
+            @Override
+            public List<PaymentModelDao> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                return entitySqlDaoWrapperFactory.become(PaymentSqlDao.class).getByIds(Collections2.transform(paymentIds, Functions.toStringFunction()), context);
+            }
+        });
+    }
+
     @Override
     public PaymentTransactionModelDao getPaymentTransaction(final UUID transactionId, final InternalTenantContext context) {
         return transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<PaymentTransactionModelDao>() {
@@ -509,6 +547,20 @@ public class DefaultPaymentDao extends EntityDaoBase<PaymentModelDao, Payment, P
         });
     }
 
+    @Override
+    public List<PaymentTransactionModelDao> getTransactionsForPayments(final Collection<UUID> paymentIds, final InternalTenantContext context) {
+        if (paymentIds.isEmpty()) {
+            return ImmutableList.<PaymentTransactionModelDao>of();
+        }
+
+        return transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<List<PaymentTransactionModelDao>>() {
+            @Override
+            public List<PaymentTransactionModelDao> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                return entitySqlDaoWrapperFactory.become(TransactionSqlDao.class).getByPaymentIds(Collections2.transform(paymentIds, Functions.toStringFunction()), context);
+            }
+        });
+    }
+
     @Override
     public PaymentMethodModelDao insertPaymentMethod(final PaymentMethodModelDao paymentMethod, final InternalCallContext context) {
         return transactionalSqlDao.execute(false, new EntitySqlDaoTransactionWrapper<PaymentMethodModelDao>() {
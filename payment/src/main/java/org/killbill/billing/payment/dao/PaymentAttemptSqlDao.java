@@ -19,6 +19,7 @@
 package org.killbill.billing.payment.dao;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
@@ -35,6 +36,7 @@ import org.killbill.commons.jdbi.binder.SmartBindBean;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
 import org.skife.jdbi.v2.sqlobject.customizers.Define;
+import org.skife.jdbi.v2.unstable.BindIn;
 
 @KillBillSqlDaoStringTemplate
 public interface PaymentAttemptSqlDao extends EntitySqlDao<PaymentAttemptModelDao, Entity> {
@@ -58,13 +60,21 @@ public interface PaymentAttemptSqlDao extends EntitySqlDao<PaymentAttemptModelDa
     List<PaymentAttemptModelDao> getByPaymentExternalKey(@Bind("paymentExternalKey") final String paymentExternalKey,
                                                          @SmartBindBean final InternalTenantContext context);
 
+    @SqlQuery
+    List<PaymentAttemptModelDao> getByPaymentExternalKeys(@BindIn("paymentExternalKeys") final Collection<String> paymentExternalKeys,
+                                                          @SmartBindBean final InternalTenantContext context);
+
     @SqlQuery
     Long getCountByStateNameAcrossTenants(@Bind("stateName") final String stateName,
-                                          @Bind("createdBeforeDate") final Date createdBeforeDate);
+                                          @Bind("createdBeforeDate") final Date createdBeforeDate,
+                                          @Bind("nbShards") final int nbShards,
+                                          @Bind("shardIndex") final int shardIndex);
 
     @SqlQuery
     Iterator<PaymentAttemptModelDao> getByStateNameAcrossTenants(@Bind("stateName") final String stateName,
                                                                  @Bind("createdBeforeDate") final Date createdBeforeDate,
+                                                                 @Bind("nbShards") final int nbShards,
+                                                                 @Bind("shardIndex") final int shardIndex,
                                                                  @Bind("offset") final Long offset,
                                                                  @Bind("rowCount") final Long rowCount,
                                                                  @Define("ordering") final String ordering);
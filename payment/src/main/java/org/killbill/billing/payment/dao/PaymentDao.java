@@ -19,6 +19,7 @@
 package org.killbill.billing.payment.dao;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -45,8 +46,13 @@ public interface PaymentDao extends EntityDao<PaymentModelDao, Payment, PaymentA
 
     public Pagination<PaymentAttemptModelDao> getPaymentAttemptsByStateAcrossTenants(String stateName, DateTime createdBeforeDate, final Long offset, final Long limit);
 
+    // Only returns the attempts of the accounts in the specified shard (account_record_id modulo nbShards)
+    public Pagination<PaymentAttemptModelDao> getPaymentAttemptsByStateAcrossTenants(String stateName, DateTime createdBeforeDate, int nbShards, int shardIndex, final Long offset, final Long limit);
+
     public List<PaymentAttemptModelDao> getPaymentAttempts(String paymentExternalKey, InternalTenantContext context);
 
+    public List<PaymentAttemptModelDao> getPaymentAttemptsByPaymentExternalKeys(Collection<String> paymentExternalKeys, InternalTenantContext context);
+
     public List<PaymentAttemptModelDao> getPaymentAttemptByTransactionExternalKey(String externalKey, InternalTenantContext context);
 
     public List<PaymentTransactionModelDao> getPaymentTransactionsByExternalKey(String transactionExternalKey, InternalTenantContext context);
@@ -91,6 +97,8 @@ public interface PaymentDao extends EntityDao<PaymentModelDao, Payment, PaymentA
 
     public PaymentModelDao getPayment(UUID paymentId, InternalTenantContext context);
 
+    public List<PaymentModelDao> getPaymentsByIds(Collection<UUID> paymentIds, InternalTenantContext context);
+
     public PaymentTransactionModelDao getPaymentTransaction(UUID transactionId, InternalTenantContext context);
 
     public List<PaymentModelDao> getPaymentsForAccount(UUID accountId, InternalTenantContext context);
@@ -101,6 +109,8 @@ public interface PaymentDao extends EntityDao<PaymentModelDao, Payment, PaymentA
 
     public List<PaymentTransactionModelDao> getTransactionsForPayment(UUID paymentId, InternalTenantContext context);
 
+    public List<PaymentTransactionModelDao> getTransactionsForPayments(Collection<UUID> paymentIds, InternalTenantContext context);
+
     public PaymentAttemptModelDao getPaymentAttempt(UUID attemptId, InternalTenantContext context);
 
     public PaymentMethodModelDao insertPaymentMethod(PaymentMethodModelDao paymentMethod, InternalCallContext context);
@@ -20,11 +20,12 @@ package org.killbill.billing.payment.dispatcher;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import javax.annotation.Nullable;
+
 import org.apache.shiro.util.ThreadContext;
 import org.killbill.billing.payment.core.PaymentExecutors;
 import org.killbill.billing.util.UUIDs;
@@ -49,14 +50,23 @@ public class PluginDispatcher<ReturnType> {
 
     // TODO Once we switch fully to automata, should this throw PaymentPluginApiException instead?
     public ReturnType dispatchWithTimeout(final Callable<PluginDispatcherReturnType<ReturnType>> task) throws TimeoutException, ExecutionException, InterruptedException {
-        return dispatchWithTimeout(task, timeoutSeconds, DEFAULT_PLUGIN_TIMEOUT_UNIT);
+        return dispatchWithTimeout(null, task);
+    }
+
+    // The plugin names determine the bulkhead (see PaymentExecutors#submitPluginCall)
+    public ReturnType dispatchWithTimeout(@Nullable final String pluginNames, final Callable<PluginDispatcherReturnType<ReturnType>> task) throws TimeoutException, ExecutionException, InterruptedException {
+        return dispatchWithTimeout(pluginNames, task, timeoutSeconds, DEFAULT_PLUGIN_TIMEOUT_UNIT);
     }
 
     @VisibleForTesting
     ReturnType dispatchWithTimeout(final Callable<PluginDispatcherReturnType<ReturnType>> task, final long timeout, final TimeUnit unit)
             throws TimeoutException, ExecutionException, InterruptedException {
+        return dispatchWithTimeout(null, task, timeout, unit);
+    }
 
-        final ExecutorService pluginExecutor = paymentExecutors.getPluginExecutorService();
+    @VisibleForTesting
+    ReturnType dispatchWithTimeout(@Nullable final String pluginNames, final Callable<PluginDispatcherReturnType<ReturnType>> task, final long timeout, final TimeUnit unit)
+            throws TimeoutException, ExecutionException, InterruptedException {
 
         // Wrap existing callable to keep the original requestId
         final Callable<PluginDispatcherReturnType<ReturnType>> callableWithRequestData = new CallableWithRequestData(Request.getPerThreadRequestData(),
@@ -66,7 +76,8 @@ public class PluginDispatcher<ReturnType> {
                                                                                                                      MDC.getCopyOfContextMap(),
                                                                                                                      task);
 
-        final Future<PluginDispatcherReturnType<ReturnType>> future = pluginExecutor.submit(callableWithRequestData);
+        // May throw RejectedExecutionException if the bulkhead is full
+        final Future<PluginDispatcherReturnType<ReturnType>> future = paymentExecutors.submitPluginCall(pluginNames, callableWithRequestData);
         final PluginDispatcherReturnType<ReturnType> pluginDispatcherResult = future.get(timeout, unit);
 
         if (pluginDispatcherResult instanceof WithProfilingPluginDispatcherReturnType) {
@@ -242,6 +242,25 @@ public class TestPaymentApi extends PaymentTestSuiteWithEmbeddedDB {
         assertNotNull(payment.getTransactions().get(0).getGatewayErrorCode());
     }
 
+    @Test(groups = "slow")
+    public void testGetAccountPaymentsWithPluginInfo() throws PaymentApiException {
+        final int nbPayments = 5;
+        for (int i = 0; i < nbPayments; i++) {
+            paymentApi.createPurchase(account, account.getPaymentMethodId(), null, BigDecimal.TEN, Currency.AED, null, UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                                      ImmutableList.<PluginProperty>of(), callContext);
+        }
+
+        // The plugin info is retrieved concurrently
+        final List<Payment> accountPayments = paymentApi.getAccountPayments(account.getId(), true, false, ImmutableList.<PluginProperty>of(), callContext);
+        assertEquals(accountPayments.size(), nbPayments);
+        for (final Payment payment : accountPayments) {
+            assertEquals(payment.getTransactions().size(), 1);
+            assertNotNull(payment.getTransactions().get(0).getPaymentInfoPlugin());
+            assertEquals(payment.getTransactions().get(0).getPaymentInfoPlugin().getKbPaymentId(), payment.getId());
+            assertEquals(payment.getTransactions().get(0).getPaymentInfoPlugin().getStatus(), PaymentPluginStatus.PROCESSED);
+        }
+    }
+
     @Test(groups = "slow")
     public void testCreateFailedPurchase() throws PaymentApiException {
 
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.payment.core;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.killbill.billing.payment.PaymentTestSuiteNoDB;
+import org.killbill.billing.util.config.definition.PaymentConfig;
+import org.killbill.commons.concurrent.WithProfilingThreadPoolExecutor;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+public class TestPaymentExecutors extends PaymentTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testPluginBulkheads() throws Exception {
+        final PaymentConfig config = Mockito.mock(PaymentConfig.class);
+        Mockito.when(config.getPaymentPluginThreadNb()).thenReturn(4);
+        Mockito.when(config.getPaymentPluginBulkheadMaxCalls()).thenReturn(1);
+
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final PaymentExecutors executors = new PaymentExecutors(config, metricRegistry);
+        executors.initialize();
+        try {
+            final CountDownLatch slowGatewayLatch = new CountDownLatch(1);
+            final Future<Boolean> slowCall = executors.submitPluginCall("slow-gateway", new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    return slowGatewayLatch.await(5, TimeUnit.SECONDS);
+                }
+            });
+
+            // The bulkhead of the slow gateway is full
+            try {
+                executors.submitPluginCall("slow-gateway", createCall());
+                Assert.fail("Call should have been rejected");
+            } catch (final RejectedExecutionException e) {
+                Assert.assertEquals(metricRegistry.meter("killbill.payment.plugin.slow-gateway.bulkheadRejections").getCount(), 1);
+            }
+
+            // Other gateways aren't impacted
+            Assert.assertTrue(executors.submitPluginCall("fast-gateway", createCall()).get(5, TimeUnit.SECONDS));
+
+            // Permits are released once the calls complete
+            slowGatewayLatch.countDown();
+            Assert.assertTrue(slowCall.get(5, TimeUnit.SECONDS));
+            Assert.assertTrue(executors.submitPluginCall("slow-gateway", createCall()).get(5, TimeUnit.SECONDS));
+
+            Assert.assertEquals(metricRegistry.timer("killbill.payment.plugin.slow-gateway.execution").getCount(), 2);
+            Assert.assertEquals(metricRegistry.timer("killbill.payment.plugin.fast-gateway.queueWait").getCount(), 1);
+        } finally {
+            executors.stop();
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testPluginBulkheadPermitReleasedOnCancellation() throws Exception {
+        final PaymentConfig config = Mockito.mock(PaymentConfig.class);
+        // Single plugin thread, so that the second call stays queued
+        Mockito.when(config.getPaymentPluginThreadNb()).thenReturn(1);
+        Mockito.when(config.getPaymentPluginBulkheadMaxCalls()).thenReturn(2);
+
+        final PaymentExecutors executors = new PaymentExecutors(config, new MetricRegistry());
+        executors.initialize();
+        try {
+            final CountDownLatch runningLatch = new CountDownLatch(1);
+            final CountDownLatch slowGatewayLatch = new CountDownLatch(1);
+            final Future<Boolean> runningCall = executors.submitPluginCall("slow-gateway", new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    runningLatch.countDown();
+                    return slowGatewayLatch.await(5, TimeUnit.SECONDS);
+                }
+            });
+            Assert.assertTrue(runningLatch.await(5, TimeUnit.SECONDS));
+
+            final AtomicBoolean queuedCallInvoked = new AtomicBoolean(false);
+            final Future<Boolean> queuedCall = executors.submitPluginCall("slow-gateway", new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    queuedCallInvoked.set(true);
+                    return true;
+                }
+            });
+            Assert.assertEquals(executors.getAvailableBulkheadPermits("slow-gateway"), 0);
+
+            // Cancelling the queued call gives its permit back, even though it never runs
+            Assert.assertTrue(queuedCall.cancel(true));
+            Assert.assertEquals(executors.getAvailableBulkheadPermits("slow-gateway"), 1);
+            // Cancelling it again doesn't release it twice
+            Assert.assertFalse(queuedCall.cancel(true));
+            Assert.assertEquals(executors.getAvailableBulkheadPermits("slow-gateway"), 1);
+
+            slowGatewayLatch.countDown();
+            Assert.assertTrue(runningCall.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals(executors.getAvailableBulkheadPermits("slow-gateway"), 2);
+
+            // The cancelled call is eventually dequeued, but never reaches the plugin
+            Assert.assertTrue(executors.submitPluginCall("slow-gateway", createCall()).get(5, TimeUnit.SECONDS));
+            Assert.assertFalse(queuedCallInvoked.get());
+            Assert.assertEquals(executors.getAvailableBulkheadPermits("slow-gateway"), 2);
+        } finally {
+            executors.stop();
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testVirtualThreadsRequireBulkheads() throws Exception {
+        final PaymentConfig config = Mockito.mock(PaymentConfig.class);
+        Mockito.when(config.getPaymentPluginThreadNb()).thenReturn(4);
+        Mockito.when(config.isPaymentPluginVirtualThreadsEnabled()).thenReturn(true);
+        Mockito.when(config.getPaymentPluginBulkheadMaxCalls()).thenReturn(0);
+
+        final PaymentExecutors executors = new PaymentExecutors(config, new MetricRegistry());
+        executors.initialize();
+        try {
+            // Without bulkheads, nothing would bound the number of virtual threads: the plugin thread pool is used instead
+            Assert.assertTrue(executors.getPluginExecutorService() instanceof WithProfilingThreadPoolExecutor);
+            Assert.assertEquals(((WithProfilingThreadPoolExecutor) executors.getPluginExecutorService()).getMaximumPoolSize(), 4);
+        } finally {
+            executors.stop();
+        }
+
+        Mockito.when(config.getPaymentPluginBulkheadMaxCalls()).thenReturn(1);
+        executors.initialize();
+        try {
+            // Whether or not the JVM supports virtual threads, the calls are still profiled
+            Assert.assertTrue(executors.getPluginExecutorService() instanceof WithProfilingThreadPoolExecutor);
+            Assert.assertTrue(executors.submitPluginCall("gateway", createCall()).get(5, TimeUnit.SECONDS));
+        } finally {
+            executors.stop();
+        }
+    }
+
+    private Callable<Boolean> createCall() {
+        return new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return true;
+            }
+        };
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.core;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.payment.PaymentTestSuiteWithEmbeddedDB;
+import org.killbill.billing.payment.api.Payment;
+import org.killbill.billing.payment.api.PaymentTransaction;
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.payment.core.PaymentRefresher.UnavailablePaymentTransactionInfoPlugin;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
+import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+import org.killbill.billing.payment.provider.MockPaymentProviderPlugin;
+import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class TestPaymentRefresher extends PaymentTestSuiteWithEmbeddedDB {
+
+    private MockPaymentProviderPlugin mockPaymentProviderPlugin;
+    private Account account;
+
+    @Override
+    protected KillbillConfigSource getConfigSource(final Map<String, String> extraProperties) {
+        final Map<String, String> allExtraProperties = new HashMap<String, String>(extraProperties);
+        allExtraProperties.put("org.killbill.payment.plugin.info.concurrency", "2");
+        allExtraProperties.put("org.killbill.payment.plugin.info.timeout", "1s");
+        // A single in-flight call per plugin: concurrent plugin info calls exceeding it are rejected
+        allExtraProperties.put("org.killbill.payment.plugin.bulkhead.maxCalls", "1");
+        return super.getConfigSource(allExtraProperties);
+    }
+
+    @BeforeMethod(groups = "slow")
+    public void beforeMethod() throws Exception {
+        if (hasFailed()) {
+            return;
+        }
+
+        super.beforeMethod();
+        mockPaymentProviderPlugin = (MockPaymentProviderPlugin) registry.getServiceForName(MockPaymentProviderPlugin.PLUGIN_NAME);
+        mockPaymentProviderPlugin.clear();
+        account = testHelper.createTestAccount(UUID.randomUUID().toString(), true);
+    }
+
+    @Test(groups = "slow")
+    public void testGetAccountPaymentsWithPluginInfoTimeout() throws Exception {
+        final Payment payment = createPurchase();
+
+        mockPaymentProviderPlugin.makeGetPaymentInfoWaitSomeMilliseconds(5000);
+
+        final List<Payment> accountPayments = paymentApi.getAccountPayments(account.getId(), true, false, ImmutableList.<PluginProperty>of(), callContext);
+        Assert.assertEquals(accountPayments.size(), 1);
+        Assert.assertEquals(accountPayments.get(0).getId(), payment.getId());
+        checkUnavailablePluginInfo(accountPayments.get(0), PaymentRefresher.PLUGIN_INFO_TIMEOUT_ERROR_CODE);
+
+        // The timed out call was cancelled and its bulkhead permit given back
+        Assert.assertEquals(paymentExecutors.getAvailableBulkheadPermits(MockPaymentProviderPlugin.PLUGIN_NAME), 1);
+
+        // Subsequent calls to the plugin aren't impacted
+        mockPaymentProviderPlugin.makeGetPaymentInfoWaitSomeMilliseconds(0);
+        final List<Payment> accountPaymentsAfterTimeout = paymentApi.getAccountPayments(account.getId(), true, false, ImmutableList.<PluginProperty>of(), callContext);
+        Assert.assertEquals(accountPaymentsAfterTimeout.get(0).getTransactions().get(0).getPaymentInfoPlugin().getStatus(), PaymentPluginStatus.PROCESSED);
+        Assert.assertEquals(paymentExecutors.getAvailableBulkheadPermits(MockPaymentProviderPlugin.PLUGIN_NAME), 1);
+    }
+
+    @Test(groups = "slow")
+    public void testGetAccountPaymentsWithPluginInfoRejected() throws Exception {
+        createPurchase();
+        createPurchase();
+
+        // The first call holds the single bulkhead permit until the deadline, so the second one is rejected
+        mockPaymentProviderPlugin.makeGetPaymentInfoWaitSomeMilliseconds(5000);
+
+        final List<Payment> accountPayments = paymentApi.getAccountPayments(account.getId(), true, false, ImmutableList.<PluginProperty>of(), callContext);
+        Assert.assertEquals(accountPayments.size(), 2);
+
+        int nbTimeouts = 0;
+        int nbRejections = 0;
+        for (final Payment payment : accountPayments) {
+            final String gatewayErrorCode = payment.getTransactions().get(0).getPaymentInfoPlugin().getGatewayErrorCode();
+            if (PaymentRefresher.PLUGIN_INFO_TIMEOUT_ERROR_CODE.equals(gatewayErrorCode)) {
+                checkUnavailablePluginInfo(payment, PaymentRefresher.PLUGIN_INFO_TIMEOUT_ERROR_CODE);
+                nbTimeouts++;
+            } else {
+                checkUnavailablePluginInfo(payment, PaymentRefresher.PLUGIN_INFO_REJECTED_ERROR_CODE);
+                nbRejections++;
+            }
+        }
+        Assert.assertEquals(nbTimeouts, 1);
+        Assert.assertEquals(nbRejections, 1);
+
+        Assert.assertEquals(paymentExecutors.getAvailableBulkheadPermits(MockPaymentProviderPlugin.PLUGIN_NAME), 1);
+    }
+
+    private Payment createPurchase() throws Exception {
+        return paymentApi.createPurchase(account, account.getPaymentMethodId(), null, BigDecimal.TEN, Currency.AED, null, UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                                         ImmutableList.<PluginProperty>of(), callContext);
+    }
+
+    private void checkUnavailablePluginInfo(final Payment payment, final String gatewayErrorCode) {
+        Assert.assertEquals(payment.getTransactions().size(), 1);
+        final PaymentTransaction transaction = payment.getTransactions().get(0);
+        final PaymentTransactionInfoPlugin paymentInfoPlugin = transaction.getPaymentInfoPlugin();
+        Assert.assertTrue(paymentInfoPlugin instanceof UnavailablePaymentTransactionInfoPlugin);
+        Assert.assertEquals(paymentInfoPlugin.getKbPaymentId(), payment.getId());
+        Assert.assertEquals(paymentInfoPlugin.getKbTransactionPaymentId(), transaction.getId());
+        Assert.assertEquals(paymentInfoPlugin.getStatus(), PaymentPluginStatus.UNDEFINED);
+        Assert.assertEquals(paymentInfoPlugin.getGatewayErrorCode(), gatewayErrorCode);
+    }
+}
@@ -17,12 +17,22 @@
 
 package org.killbill.billing.payment.core.janitor;
 
+import java.math.BigDecimal;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.joda.time.DateTime;
 import org.killbill.billing.account.api.AccountInternalApi;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.payment.PaymentTestSuiteWithEmbeddedDB;
 import org.killbill.billing.payment.api.PaymentApiException;
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.core.PaymentExecutors;
 import org.killbill.billing.payment.core.sm.PaymentControlStateMachineHelper;
 import org.killbill.billing.payment.core.sm.PluginControlPaymentAutomatonRunner;
 import org.killbill.billing.payment.dao.PaymentAttemptModelDao;
@@ -30,9 +40,12 @@ import org.killbill.billing.payment.dao.PaymentDao;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.config.definition.PaymentConfig;
 import org.killbill.clock.Clock;
+import org.mockito.Mockito;
+import org.skife.config.TimeSpan;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ImmutableList;
 
 public class TestIncompletePaymentAttemptTaskWithDB extends PaymentTestSuiteWithEmbeddedDB {
@@ -58,7 +71,9 @@ public class TestIncompletePaymentAttemptTaskWithDB extends PaymentTestSuiteWith
                                                                                                                  paymentControlStateMachineHelper,
                                                                                                                  accountApi,
                                                                                                                  pluginControlPaymentAutomatonRunner,
-                                                                                                                 incompletePaymentTransactionTask);
+                                                                                                                 incompletePaymentTransactionTask,
+                                                                                                                 paymentExecutors,
+                                                                                                                 new MetricRegistry());
 
         incompletePaymentAttemptTaskWithException.run();
 
@@ -66,6 +81,94 @@ public class TestIncompletePaymentAttemptTaskWithDB extends PaymentTestSuiteWith
         Assert.assertFalse(paymentAttemptModelDaoIterator.hasNext());
     }
 
+    @Test(groups = "slow")
+    public void testEachAttemptIsHandledByASingleWorkerAcrossShards() {
+        final DateTime createdDate = clock.getUTCNow().minusDays(1);
+        final String stateName = paymentControlStateMachineHelper.getInitialState().getName();
+
+        // Spread the attempts across several accounts (i.e. account_record_id), hence across both shards and both local workers
+        final List<UUID> attemptIds = new LinkedList<UUID>();
+        for (int i = 0; i < 8; i++) {
+            final InternalCallContext accountContext = new InternalCallContext(internalCallContext,
+                                                                               internalCallContext.getAccountRecordId() + i,
+                                                                               internalCallContext.getFixedOffsetTimeZone(),
+                                                                               createdDate,
+                                                                               createdDate);
+            final PaymentAttemptModelDao attempt = new PaymentAttemptModelDao(UUID.randomUUID(), UUID.randomUUID(), createdDate, createdDate, UUID.randomUUID().toString(),
+                                                                              UUID.randomUUID(), UUID.randomUUID().toString(), TransactionType.AUTHORIZE, stateName, BigDecimal.ONE, Currency.USD,
+                                                                              ImmutableList.<String>of("miraculous"), null);
+            paymentDao.insertPaymentAttemptWithProperties(attempt, accountContext);
+            attemptIds.add(attempt.getId());
+        }
+
+        final List<UUID> handledAttemptIds = Collections.synchronizedList(new LinkedList<UUID>());
+        for (int shardIndex = 0; shardIndex < 2; shardIndex++) {
+            final PaymentConfig shardPaymentConfig = Mockito.mock(PaymentConfig.class);
+            Mockito.when(shardPaymentConfig.getJanitorNbShards()).thenReturn(2);
+            Mockito.when(shardPaymentConfig.getJanitorShardIndex()).thenReturn(shardIndex);
+            Mockito.when(shardPaymentConfig.getJanitorThreadNb()).thenReturn(2);
+            Mockito.when(shardPaymentConfig.getIncompleteAttemptsTimeSpanDelay()).thenReturn(new TimeSpan("1h"));
+
+            final RecordingIncompletePaymentAttemptTask task = new RecordingIncompletePaymentAttemptTask(handledAttemptIds,
+                                                                                                         internalCallContextFactory,
+                                                                                                         shardPaymentConfig,
+                                                                                                         paymentDao,
+                                                                                                         clock,
+                                                                                                         paymentControlStateMachineHelper,
+                                                                                                         accountApi,
+                                                                                                         pluginControlPaymentAutomatonRunner,
+                                                                                                         incompletePaymentTransactionTask,
+                                                                                                         paymentExecutors,
+                                                                                                         new MetricRegistry());
+            task.run();
+
+            // All the attempts of the shard have the same account_record_id parity: both local workers should still get some
+            Assert.assertEquals(task.getNbWorkersWithAttempts(), 2);
+        }
+
+        for (final UUID attemptId : attemptIds) {
+            Assert.assertEquals(Collections.frequency(handledAttemptIds, attemptId), 1, "Attempt " + attemptId + " should be handled exactly once");
+        }
+    }
+
+    private final class RecordingIncompletePaymentAttemptTask extends IncompletePaymentAttemptTask {
+
+        private final List<UUID> handledAttemptIds;
+        private final AtomicInteger nbWorkersWithAttempts = new AtomicInteger();
+
+        public RecordingIncompletePaymentAttemptTask(final List<UUID> handledAttemptIds,
+                                                     final InternalCallContextFactory internalCallContextFactory,
+                                                     final PaymentConfig paymentConfig,
+                                                     final PaymentDao paymentDao,
+                                                     final Clock clock,
+                                                     final PaymentControlStateMachineHelper retrySMHelper,
+                                                     final AccountInternalApi accountInternalApi,
+                                                     final PluginControlPaymentAutomatonRunner pluginControlledPaymentAutomatonRunner,
+                                                     final IncompletePaymentTransactionTask incompletePaymentTransactionTask,
+                                                     final PaymentExecutors paymentExecutors,
+                                                     final MetricRegistry metricRegistry) {
+            super(internalCallContextFactory, paymentConfig, paymentDao, clock, retrySMHelper, accountInternalApi, pluginControlledPaymentAutomatonRunner, incompletePaymentTransactionTask, paymentExecutors, metricRegistry);
+            this.handledAttemptIds = handledAttemptIds;
+        }
+
+        @Override
+        void doIterations(final Iterable<PaymentAttemptModelDao> attempts) {
+            // Invoked once per worker with a non empty list of attempts
+            nbWorkersWithAttempts.incrementAndGet();
+            super.doIterations(attempts);
+        }
+
+        @Override
+        public boolean doIteration(final PaymentAttemptModelDao attempt, final boolean isApiPayment) {
+            handledAttemptIds.add(attempt.getId());
+            return true;
+        }
+
+        public int getNbWorkersWithAttempts() {
+            return nbWorkersWithAttempts.get();
+        }
+    }
+
     private final class IncompletePaymentAttemptTaskWithException extends IncompletePaymentAttemptTask {
 
         private final Iterable<PaymentAttemptModelDao> itemsForIteration;
@@ -78,8 +181,10 @@ public class TestIncompletePaymentAttemptTaskWithDB extends PaymentTestSuiteWith
                                                          final PaymentControlStateMachineHelper retrySMHelper,
                                                          final AccountInternalApi accountInternalApi,
                                                          final PluginControlPaymentAutomatonRunner pluginControlledPaymentAutomatonRunner,
-                                                         final IncompletePaymentTransactionTask incompletePaymentTransactionTask) {
-            super(internalCallContextFactory, paymentConfig, paymentDao, clock, retrySMHelper, accountInternalApi, pluginControlledPaymentAutomatonRunner, incompletePaymentTransactionTask);
+                                                         final IncompletePaymentTransactionTask incompletePaymentTransactionTask,
+                                                         final PaymentExecutors paymentExecutors,
+                                                         final MetricRegistry metricRegistry) {
+            super(internalCallContextFactory, paymentConfig, paymentDao, clock, retrySMHelper, accountInternalApi, pluginControlledPaymentAutomatonRunner, incompletePaymentTransactionTask, paymentExecutors, metricRegistry);
             this.itemsForIteration = itemsForIteration;
         }
 
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.core.janitor;
+
+import org.killbill.billing.payment.PaymentTestSuiteNoDB;
+import org.killbill.billing.util.config.definition.PaymentConfig;
+import org.killbill.commons.locker.GlobalLocker;
+import org.killbill.notificationq.api.NotificationQueueService;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestJanitorShardSettings extends PaymentTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testInvalidShardIndex() throws Exception {
+        verifyInvalidShardSettings(2, 2);
+        verifyInvalidShardSettings(2, -1);
+    }
+
+    @Test(groups = "fast")
+    public void testInvalidNbShards() throws Exception {
+        verifyInvalidShardSettings(0, 0);
+    }
+
+    private void verifyInvalidShardSettings(final int nbShards, final int shardIndex) throws Exception {
+        final PaymentConfig shardPaymentConfig = Mockito.mock(PaymentConfig.class);
+        Mockito.when(shardPaymentConfig.getJanitorNbShards()).thenReturn(nbShards);
+        Mockito.when(shardPaymentConfig.getJanitorShardIndex()).thenReturn(shardIndex);
+
+        final NotificationQueueService notificationQueueService = Mockito.mock(NotificationQueueService.class);
+        final Janitor janitor = new Janitor(Mockito.mock(IncompletePaymentAttemptTask.class),
+                                            Mockito.mock(GlobalLocker.class),
+                                            shardPaymentConfig,
+                                            notificationQueueService,
+                                            paymentExecutors);
+        try {
+            janitor.initialize();
+            Assert.fail("Janitor should not start with nbShards=" + nbShards + " and shardIndex=" + shardIndex);
+        } catch (final IllegalArgumentException e) {
+            Mockito.verifyZeroInteractions(notificationQueueService);
+        }
+    }
+}
@@ -20,6 +20,7 @@ package org.killbill.billing.payment.dao;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -132,6 +133,11 @@ public class MockPaymentDao extends MockEntityDaoBase<PaymentModelDao, Payment,
         return null;
     }
 
+    @Override
+    public Pagination<PaymentAttemptModelDao> getPaymentAttemptsByStateAcrossTenants(final String stateName, final DateTime createdBeforeDate, final int nbShards, final int shardIndex, final Long offset, final Long limit) {
+        return null;
+    }
+
     @Override
     public List<PaymentAttemptModelDao> getPaymentAttempts(final String paymentExternalKey, final InternalTenantContext context) {
         synchronized (this) {
@@ -145,6 +151,19 @@ public class MockPaymentDao extends MockEntityDaoBase<PaymentModelDao, Payment,
         }
     }
 
+    @Override
+    public List<PaymentAttemptModelDao> getPaymentAttemptsByPaymentExternalKeys(final Collection<String> paymentExternalKeys, final InternalTenantContext context) {
+        synchronized (this) {
+            final List<PaymentAttemptModelDao> result = new ArrayList<PaymentAttemptModelDao>();
+            for (PaymentAttemptModelDao cur : attempts.values()) {
+                if (paymentExternalKeys.contains(cur.getPaymentExternalKey())) {
+                    result.add(cur);
+                }
+            }
+            return result;
+        }
+    }
+
     @Override
     public List<PaymentAttemptModelDao> getPaymentAttemptByTransactionExternalKey(final String transactionExternalKey, final InternalTenantContext context) {
         synchronized (this) {
@@ -278,6 +297,19 @@ public class MockPaymentDao extends MockEntityDaoBase<PaymentModelDao, Payment,
         }
     }
 
+    @Override
+    public List<PaymentModelDao> getPaymentsByIds(final Collection<UUID> paymentIds, final InternalTenantContext context) {
+        synchronized (this) {
+            final List<PaymentModelDao> result = new ArrayList<PaymentModelDao>();
+            for (final UUID paymentId : paymentIds) {
+                if (payments.get(paymentId) != null) {
+                    result.add(payments.get(paymentId));
+                }
+            }
+            return result;
+        }
+    }
+
     @Override
     public PaymentTransactionModelDao getPaymentTransaction(final UUID transactionId, final InternalTenantContext context) {
         synchronized (this) {
@@ -331,6 +363,18 @@ public class MockPaymentDao extends MockEntityDaoBase<PaymentModelDao, Payment,
         }
     }
 
+    @Override
+    public List<PaymentTransactionModelDao> getTransactionsForPayments(final Collection<UUID> paymentIds, final InternalTenantContext context) {
+        synchronized (this) {
+            return ImmutableList.copyOf(Iterables.filter(transactions.values(), new Predicate<PaymentTransactionModelDao>() {
+                @Override
+                public boolean apply(final PaymentTransactionModelDao input) {
+                    return paymentIds.contains(input.getPaymentId());
+                }
+            }));
+        }
+    }
+
     @Override
     public PaymentAttemptModelDao getPaymentAttempt(final UUID attemptId, final InternalTenantContext context) {
         synchronized (this) {
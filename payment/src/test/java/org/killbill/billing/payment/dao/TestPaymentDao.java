@@ -542,6 +542,11 @@ public class TestPaymentDao extends PaymentTestSuiteWithEmbeddedDB {
 
         final Pagination<PaymentAttemptModelDao> result = paymentDao.getPaymentAttemptsByStateAcrossTenants(stateName, createdBeforeDate, 0L, 2L);
         Assert.assertEquals(result.getTotalNbRecords().longValue(), 2L);
+
+        // Both attempts belong to the same shard (same account_record_id in the context)
+        final int shardIndex = (int) (internalCallContext.getAccountRecordId() % 2);
+        Assert.assertEquals(paymentDao.getPaymentAttemptsByStateAcrossTenants(stateName, createdBeforeDate, 2, shardIndex, 0L, 2L).getTotalNbRecords().longValue(), 2L);
+        Assert.assertEquals(paymentDao.getPaymentAttemptsByStateAcrossTenants(stateName, createdBeforeDate, 2, 1 - shardIndex, 0L, 2L).getTotalNbRecords().longValue(), 0L);
     }
 
     @Test(groups = "slow")
@@ -604,6 +609,57 @@ public class TestPaymentDao extends PaymentTestSuiteWithEmbeddedDB {
         checkProperty(properties2, new PluginProperty("prop2", "value2", false));
     }
 
+    @Test(groups = "slow")
+    public void testBulkLookups() {
+        final UUID paymentMethodId = UUID.randomUUID();
+        final UUID accountId = UUID.randomUUID();
+        final DateTime utcNow = clock.getUTCNow();
+
+        final List<UUID> paymentIds = new ArrayList<UUID>();
+        final List<String> paymentExternalKeys = new ArrayList<String>();
+        for (int i = 0; i < 3; i++) {
+            final PaymentModelDao paymentModelDao = new PaymentModelDao(utcNow, utcNow, accountId, paymentMethodId, UUID.randomUUID().toString());
+            final PaymentTransactionModelDao transactionModelDao = new PaymentTransactionModelDao(utcNow, utcNow, null, UUID.randomUUID().toString(),
+                                                                                                  paymentModelDao.getId(), TransactionType.AUTHORIZE, utcNow,
+                                                                                                  TransactionStatus.SUCCESS, BigDecimal.TEN, Currency.AED,
+                                                                                                  "success", "");
+            paymentDao.insertPaymentWithFirstTransaction(paymentModelDao, transactionModelDao, internalCallContext);
+
+            final PaymentAttemptModelDao attempt = new PaymentAttemptModelDao(accountId, paymentMethodId, utcNow, utcNow, paymentModelDao.getExternalKey(),
+                                                                              transactionModelDao.getId(), transactionModelDao.getTransactionExternalKey(), TransactionType.AUTHORIZE, "SUCCESS",
+                                                                              BigDecimal.TEN, Currency.AED, ImmutableList.<String>of("superPlugin"), null);
+            paymentDao.insertPaymentAttemptWithProperties(attempt, internalCallContext);
+
+            paymentIds.add(paymentModelDao.getId());
+            paymentExternalKeys.add(paymentModelDao.getExternalKey());
+        }
+
+        final List<UUID> lookedUpPaymentIds = paymentIds.subList(0, 2);
+        final List<String> lookedUpPaymentExternalKeys = paymentExternalKeys.subList(0, 2);
+
+        final List<PaymentModelDao> payments = paymentDao.getPaymentsByIds(lookedUpPaymentIds, internalCallContext);
+        assertEquals(payments.size(), 2);
+        for (final PaymentModelDao payment : payments) {
+            Assert.assertTrue(lookedUpPaymentIds.contains(payment.getId()));
+        }
+
+        final List<PaymentTransactionModelDao> transactions = paymentDao.getTransactionsForPayments(lookedUpPaymentIds, internalCallContext);
+        assertEquals(transactions.size(), 2);
+        for (final PaymentTransactionModelDao transaction : transactions) {
+            Assert.assertTrue(lookedUpPaymentIds.contains(transaction.getPaymentId()));
+        }
+
+        final List<PaymentAttemptModelDao> attempts = paymentDao.getPaymentAttemptsByPaymentExternalKeys(lookedUpPaymentExternalKeys, internalCallContext);
+        assertEquals(attempts.size(), 2);
+        for (final PaymentAttemptModelDao attempt : attempts) {
+            Assert.assertTrue(lookedUpPaymentExternalKeys.contains(attempt.getPaymentExternalKey()));
+        }
+
+        Assert.assertTrue(paymentDao.getPaymentsByIds(ImmutableList.<UUID>of(), internalCallContext).isEmpty());
+        Assert.assertTrue(paymentDao.getTransactionsForPayments(ImmutableList.<UUID>of(), internalCallContext).isEmpty());
+        Assert.assertTrue(paymentDao.getPaymentAttemptsByPaymentExternalKeys(ImmutableList.<String>of(), internalCallContext).isEmpty());
+    }
+
     private void checkProperty(final Iterable<PluginProperty> properties, final PluginProperty expected) {
         final PluginProperty found = Iterables.tryFind(properties, new Predicate<PluginProperty>() {
             @Override
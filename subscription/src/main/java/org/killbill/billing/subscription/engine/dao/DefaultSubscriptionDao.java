@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -29,6 +30,7 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
 
@@ -67,6 +69,7 @@ import org.killbill.billing.subscription.catalog.SubscriptionCatalog;
 import org.killbill.billing.subscription.engine.addon.AddonUtils;
 import org.killbill.billing.subscription.engine.core.DefaultSubscriptionBaseService;
 import org.killbill.billing.subscription.engine.core.SubscriptionNotificationKey;
+import org.killbill.billing.subscription.engine.dao.SubscriptionTimelineCache.AccountTimelines;
 import org.killbill.billing.subscription.engine.dao.model.SubscriptionBundleModelDao;
 import org.killbill.billing.subscription.engine.dao.model.SubscriptionEventModelDao;
 import org.killbill.billing.subscription.engine.dao.model.SubscriptionModelDao;
@@ -88,6 +91,7 @@ import org.killbill.billing.util.audit.AuditLogWithHistory;
 import org.killbill.billing.util.audit.dao.AuditDao;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.config.definition.SubscriptionConfig;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.entity.Entity;
@@ -118,6 +122,8 @@ import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 
 import static org.killbill.billing.util.glue.IDBISetup.MAIN_RO_IDBI_NAMED;
@@ -126,24 +132,39 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
 
     private static final Logger log = LoggerFactory.getLogger(DefaultSubscriptionDao.class);
 
+    // Same ordering as getActiveEventsForSubscription (effective_date ASC, record_id ASC)
+    private static final Comparator<SubscriptionEventModelDao> EVENT_MODEL_DAO_COMPARATOR = new Comparator<SubscriptionEventModelDao>() {
+        @Override
+        public int compare(final SubscriptionEventModelDao o1, final SubscriptionEventModelDao o2) {
+            final int effectiveDateComparison = o1.getEffectiveDate().compareTo(o2.getEffectiveDate());
+            return effectiveDateComparison != 0 ? effectiveDateComparison : Long.compare(o1.getTotalOrdering(), o2.getTotalOrdering());
+        }
+    };
+
     private final Clock clock;
     private final NotificationQueueService notificationQueueService;
     private final AddonUtils addonUtils;
     private final PersistentBus eventBus;
     private final AuditDao auditDao;
+    private final SubscriptionTimelineCache timelineCache;
+    private final SubscriptionConfig subscriptionConfig;
 
     @Inject
     public DefaultSubscriptionDao(final IDBI dbi, @Named(MAIN_RO_IDBI_NAMED) final IDBI roDbi, final Clock clock, final AddonUtils addonUtils,
                                   final NotificationQueueService notificationQueueService, final PersistentBus eventBus,
                                   final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao,
                                   final AuditDao auditDao,
-                                  final InternalCallContextFactory internalCallContextFactory) {
+                                  final InternalCallContextFactory internalCallContextFactory,
+                                  final SubscriptionTimelineCache timelineCache,
+                                  final SubscriptionConfig subscriptionConfig) {
         super(nonEntityDao, cacheControllerDispatcher, new EntitySqlDaoTransactionalJdbiWrapper(dbi, roDbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory), BundleSqlDao.class);
         this.clock = clock;
         this.notificationQueueService = notificationQueueService;
         this.addonUtils = addonUtils;
         this.eventBus = eventBus;
         this.auditDao = auditDao;
+        this.timelineCache = timelineCache;
+        this.subscriptionConfig = subscriptionConfig;
     }
 
     @Override
@@ -267,7 +288,7 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
     @Override
     public SubscriptionBaseBundle createSubscriptionBundle(final DefaultSubscriptionBaseBundle bundle, final SubscriptionCatalog catalog, final boolean renameCancelledBundleIfExist, final InternalCallContext context) throws SubscriptionBaseApiException {
 
-        return transactionalSqlDao.execute(false, SubscriptionBaseApiException.class, new EntitySqlDaoTransactionWrapper<SubscriptionBaseBundle>() {
+        final SubscriptionBaseBundle result = transactionalSqlDao.execute(false, SubscriptionBaseApiException.class, new EntitySqlDaoTransactionWrapper<SubscriptionBaseBundle>() {
 
             //
             // Because the creation of the SubscriptionBundle is not atomic (with creation of Subscription/SubscriptionEvent), we verify if we were left
@@ -349,6 +370,8 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
                 return SubscriptionBundleModelDao.toSubscriptionBundle(result);
             }
         });
+        invalidateTimelineCache(context);
+        return result;
     }
 
     // Note that if bundle belongs to a different account, context is not the context for this target account,
@@ -448,63 +471,55 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
 
     @Override
     public Map<UUID, List<DefaultSubscriptionBase>> getSubscriptionsForAccount(final SubscriptionCatalog catalog, final InternalTenantContext context) throws CatalogApiException {
-        final Map<UUID, List<DefaultSubscriptionBase>> subscriptionsFromAccountId = getSubscriptionsFromAccountId(context);
-
-        final List<SubscriptionBaseEvent> eventsForAccount = getEventsForAccountId(context);
+        final AccountTimelines accountTimelines = getAccountTimelines(context);
 
         final Map<UUID, List<DefaultSubscriptionBase>> result = new HashMap<UUID, List<DefaultSubscriptionBase>>();
-        for (final UUID bundleId : subscriptionsFromAccountId.keySet()) {
-
-            final List<DefaultSubscriptionBase> subscriptionsForBundle = subscriptionsFromAccountId.get(bundleId);
+        for (final Entry<UUID, List<DefaultSubscriptionBase>> entry : accountTimelines.createSubscriptionsByBundleId().entrySet()) {
+            final List<DefaultSubscriptionBase> subscriptionsForBundle = entry.getValue();
+            // The events are copied, as buildBundleSubscriptions can add add-on cancellation events
             final Multimap<UUID, SubscriptionBaseEvent> eventsForSubscriptions = ArrayListMultimap.create();
-
             for (final SubscriptionBase cur : subscriptionsForBundle) {
-                final Collection<SubscriptionBaseEvent> events = Collections2.filter(eventsForAccount, new Predicate<SubscriptionBaseEvent>() {
-                    @Override
-                    public boolean apply(final SubscriptionBaseEvent input) {
-                        return input.getSubscriptionId().equals(cur.getId());
-
-                    }
-                });
-                eventsForSubscriptions.putAll(cur.getId(), ImmutableList.copyOf(events));
+                eventsForSubscriptions.putAll(cur.getId(), accountTimelines.getEvents(cur.getId()));
             }
 
-            result.put(bundleId, buildBundleSubscriptions(subscriptionsForBundle, eventsForSubscriptions, null, catalog, context));
+            result.put(entry.getKey(), buildBundleSubscriptions(subscriptionsForBundle, eventsForSubscriptions, null, catalog, context));
         }
         return result;
     }
 
-    private Map<UUID, List<DefaultSubscriptionBase>> getSubscriptionsFromAccountId(final InternalTenantContext context) {
-        final List<DefaultSubscriptionBase> allSubscriptions = transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<List<DefaultSubscriptionBase>>() {
+    private AccountTimelines getAccountTimelines(final InternalTenantContext context) {
+        return transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<AccountTimelines>() {
             @Override
-            public List<DefaultSubscriptionBase> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+            public AccountTimelines inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                // The version needs to be retrieved before the data: if a change happens in between, the cached entry will simply be outdated
+                final Long version;
+                if (timelineCache.isEnabled()) {
+                    version = entitySqlDaoWrapperFactory.become(SubscriptionSqlDao.class).getAccountTimelinesVersion(context);
+                    final AccountTimelines cachedAccountTimelines = timelineCache.getIfUpToDate(context.getAccountRecordId(), version);
+                    if (cachedAccountTimelines != null) {
+                        return cachedAccountTimelines;
+                    }
+                } else {
+                    version = null;
+                }
 
                 final List<SubscriptionBundleModelDao> bundleModels = entitySqlDaoWrapperFactory.become(BundleSqlDao.class).getByAccountRecordId(context);
-
                 final List<SubscriptionModelDao> subscriptionModels = entitySqlDaoWrapperFactory.become(SubscriptionSqlDao.class).getByAccountRecordId(context);
-                return new ArrayList<DefaultSubscriptionBase>(Collections2.transform(subscriptionModels, new Function<SubscriptionModelDao, DefaultSubscriptionBase>() {
-                    @Override
-                    public DefaultSubscriptionBase apply(final SubscriptionModelDao input) {
-                        final SubscriptionBundleModelDao bundleModel = Iterables.find(bundleModels, new Predicate<SubscriptionBundleModelDao>() {
-                            @Override
-                            public boolean apply(final SubscriptionBundleModelDao bundleInput) {
-                                return bundleInput.getId().equals(input.getBundleId());
-                            }
-                        });
-                        return SubscriptionModelDao.toSubscription(input, bundleModel.getExternalKey());
-                    }
-                }));
+                final List<SubscriptionEventModelDao> eventModels = entitySqlDaoWrapperFactory.become(SubscriptionEventSqlDao.class).getByAccountRecordId(context);
+                final AccountTimelines accountTimelines = new AccountTimelines(version, bundleModels, subscriptionModels, filterSubscriptionBaseEvents(eventModels));
+
+                if (version != null) {
+                    timelineCache.put(context.getAccountRecordId(), accountTimelines);
+                }
+                return accountTimelines;
             }
         });
+    }
 
-        final Map<UUID, List<DefaultSubscriptionBase>> result = new HashMap<UUID, List<DefaultSubscriptionBase>>();
-        for (final DefaultSubscriptionBase subscriptionBase : allSubscriptions) {
-            if (result.get(subscriptionBase.getBundleId()) == null) {
-                result.put(subscriptionBase.getBundleId(), new LinkedList<DefaultSubscriptionBase>());
-            }
-            result.get(subscriptionBase.getBundleId()).add(subscriptionBase);
+    private void invalidateTimelineCache(final InternalTenantContext context) {
+        if (context.getAccountRecordId() != null) {
+            timelineCache.invalidate(context.getAccountRecordId());
         }
-        return result;
     }
 
     @Override
@@ -525,6 +540,7 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
                 return null;
             }
         });
+        invalidateTimelineCache(context);
     }
 
     @Override
@@ -547,6 +563,7 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
                 return null;
             }
         });
+        invalidateTimelineCache(context);
     }
 
     @Override
@@ -585,36 +602,111 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
 
     @Override
     public List<SubscriptionBaseEvent> createSubscriptionsWithAddOns(final List<SubscriptionBaseWithAddOns> subscriptions, final Map<UUID, List<SubscriptionBaseEvent>> initialEventsMap, final SubscriptionCatalog catalog, final InternalCallContext context) {
-        return transactionalSqlDao.execute(false, new EntitySqlDaoTransactionWrapper<List<SubscriptionBaseEvent>>() {
-            @Override
-            public List<SubscriptionBaseEvent> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
-                final SubscriptionSqlDao transactional = entitySqlDaoWrapperFactory.become(SubscriptionSqlDao.class);
-                final SubscriptionEventSqlDao eventsDaoFromSameTransaction = entitySqlDaoWrapperFactory.become(SubscriptionEventSqlDao.class);
-
-                final List<SubscriptionEventModelDao> createdEvents = new LinkedList<SubscriptionEventModelDao>();
-                for (final SubscriptionBaseWithAddOns subscription : subscriptions) {
-                    for (final SubscriptionBase subscriptionBase : subscription.getSubscriptionBaseList()) {
-                        // Safe cast
-                        final DefaultSubscriptionBase defaultSubscriptionBase = (DefaultSubscriptionBase) subscriptionBase;
-                        createAndRefresh(transactional, new SubscriptionModelDao(defaultSubscriptionBase), context);
+        // By default, everything is created in a single transaction. For large imports, the creation can be committed in chunks of bundles instead.
+        // Note that the creation isn't atomic anymore in that case: if a chunk fails, the remaining ones are skipped but the previous ones stay committed
+        // (the caller has to look at what was created before retrying).
+        final int chunkSize = subscriptionConfig.getBulkCreationChunkSize() > 0 ? subscriptionConfig.getBulkCreationChunkSize() : Math.max(subscriptions.size(), 1);
 
-                        final List<SubscriptionBaseEvent> initialEvents = initialEventsMap.get(defaultSubscriptionBase.getId());
-                        for (final SubscriptionBaseEvent cur : initialEvents) {
-                            createdEvents.add(createAndRefresh(eventsDaoFromSameTransaction, new SubscriptionEventModelDao(cur), context));
+        final List<SubscriptionBaseEvent> result = new LinkedList<SubscriptionBaseEvent>();
+        int nbCommittedBundles = 0;
+        try {
+            for (final List<SubscriptionBaseWithAddOns> chunk : Lists.partition(subscriptions, chunkSize)) {
+                result.addAll(transactionalSqlDao.execute(false, new EntitySqlDaoTransactionWrapper<List<SubscriptionBaseEvent>>() {
+                    @Override
+                    public List<SubscriptionBaseEvent> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                        return createSubscriptionsWithAddOnsFromTransaction(chunk, initialEventsMap, catalog, entitySqlDaoWrapperFactory, context);
+                    }
+                }));
+                nbCommittedBundles += chunk.size();
+            }
+        } catch (final RuntimeException e) {
+            if (nbCommittedBundles > 0) {
+                log.warn("Bulk subscription creation failed for accountRecordId='{}': {} out of {} bundles were already committed", context.getAccountRecordId(), nbCommittedBundles, subscriptions.size());
+            }
+            throw e;
+        } finally {
+            invalidateTimelineCache(context);
+        }
+        return result;
+    }
 
-                            final boolean isBusEvent = cur.getEffectiveDate().compareTo(context.getCreatedDate()) <= 0 && (cur.getType() == EventType.API_USER);
-                            recordBusOrFutureNotificationFromTransaction(defaultSubscriptionBase, cur, entitySqlDaoWrapperFactory, isBusEvent, 0, catalog, context);
-                        }
+    private List<SubscriptionBaseEvent> createSubscriptionsWithAddOnsFromTransaction(final Iterable<SubscriptionBaseWithAddOns> subscriptions,
+                                                                                     final Map<UUID, List<SubscriptionBaseEvent>> initialEventsMap,
+                                                                                     final SubscriptionCatalog catalog,
+                                                                                     final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory,
+                                                                                     final InternalCallContext context) {
+        final SubscriptionSqlDao transactional = entitySqlDaoWrapperFactory.become(SubscriptionSqlDao.class);
+        final SubscriptionEventSqlDao eventsDaoFromSameTransaction = entitySqlDaoWrapperFactory.become(SubscriptionEventSqlDao.class);
+
+        // PERF: batch inserts (including the audit and history rows)
+        final List<DefaultSubscriptionBase> defaultSubscriptionBases = new LinkedList<DefaultSubscriptionBase>();
+        final List<SubscriptionModelDao> subscriptionModelDaos = new LinkedList<SubscriptionModelDao>();
+        final List<SubscriptionEventModelDao> eventModelDaos = new LinkedList<SubscriptionEventModelDao>();
+        for (final SubscriptionBaseWithAddOns subscription : subscriptions) {
+            for (final SubscriptionBase subscriptionBase : subscription.getSubscriptionBaseList()) {
+                // Safe cast
+                final DefaultSubscriptionBase defaultSubscriptionBase = (DefaultSubscriptionBase) subscriptionBase;
+                defaultSubscriptionBases.add(defaultSubscriptionBase);
+                subscriptionModelDaos.add(new SubscriptionModelDao(defaultSubscriptionBase));
+                for (final SubscriptionBaseEvent cur : initialEventsMap.get(defaultSubscriptionBase.getId())) {
+                    eventModelDaos.add(new SubscriptionEventModelDao(cur));
+                }
+            }
+        }
+        bulkCreate(transactional, subscriptionModelDaos, context);
+        final List<SubscriptionEventModelDao> createdEvents = bulkCreateAndRefresh(eventsDaoFromSameTransaction, eventModelDaos, context);
+
+        // Subscriptions are brand new: their active events are the ones we just created (and we need their total ordering to rebuild the transitions)
+        final ListMultimap<UUID, SubscriptionEventModelDao> createdEventsPerSubscription = ArrayListMultimap.<UUID, SubscriptionEventModelDao>create();
+        final List<SubscriptionEventModelDao> sortedCreatedEvents = new ArrayList<SubscriptionEventModelDao>(createdEvents);
+        Collections.sort(sortedCreatedEvents, EVENT_MODEL_DAO_COMPARATOR);
+        for (final SubscriptionEventModelDao createdEvent : sortedCreatedEvents) {
+            createdEventsPerSubscription.put(createdEvent.getSubscriptionId(), createdEvent);
+        }
 
-                        // Notify the Bus of the latest requested change, if needed
-                        if (!initialEvents.isEmpty()) {
-                            notifyBusOfRequestedChange(entitySqlDaoWrapperFactory, defaultSubscriptionBase, initialEvents.get(initialEvents.size() - 1), SubscriptionBaseTransitionType.CREATE, context);
+        for (final DefaultSubscriptionBase defaultSubscriptionBase : defaultSubscriptionBases) {
+            final List<SubscriptionBaseEvent> initialEvents = initialEventsMap.get(defaultSubscriptionBase.getId());
+            boolean isRebuilt = false;
+            for (final SubscriptionBaseEvent cur : initialEvents) {
+                final boolean isBusEvent = cur.getEffectiveDate().compareTo(context.getCreatedDate()) <= 0 && (cur.getType() == EventType.API_USER);
+                if (isBusEvent) {
+                    // See rebuildSubscriptionAndNotifyBusOfEffectiveImmediateChange, without going back to the database
+                    try {
+                        if (!isRebuilt) {
+                            defaultSubscriptionBase.rebuildTransitions(filterSubscriptionBaseEvents(createdEventsPerSubscription.get(defaultSubscriptionBase.getId())), catalog);
+                            isRebuilt = true;
                         }
+                        notifyBusOfEffectiveImmediateChange(entitySqlDaoWrapperFactory, defaultSubscriptionBase, cur, 0, context);
+                    } catch (final CatalogApiException e) {
+                        log.warn("Failed to post effective event for subscriptionId='{}'", defaultSubscriptionBase.getId(), e);
                     }
+                } else {
+                    recordFutureNotificationFromTransaction(entitySqlDaoWrapperFactory, cur.getEffectiveDate(), new SubscriptionNotificationKey(cur.getId()), context);
                 }
-                return toSubscriptionBaseEvents(createdEvents);
             }
-        });
+
+            // Notify the Bus of the latest requested change, if needed
+            if (!initialEvents.isEmpty()) {
+                notifyBusOfRequestedChange(entitySqlDaoWrapperFactory, defaultSubscriptionBase, initialEvents.get(initialEvents.size() - 1), SubscriptionBaseTransitionType.CREATE, context);
+            }
+        }
+        return toSubscriptionBaseEvents(createdEvents);
+    }
+
+    private List<SubscriptionEventModelDao> bulkCreateAndRefresh(final SubscriptionEventSqlDao transactional, final List<SubscriptionEventModelDao> events, final InternalCallContext context) {
+        if (events.isEmpty()) {
+            return ImmutableList.<SubscriptionEventModelDao>of();
+        } else if (events.size() == 1) {
+            return ImmutableList.<SubscriptionEventModelDao>of(createAndRefresh(transactional, events.get(0), context));
+        } else {
+            // The generated keys can't be mapped back to the events (no ordering guarantee), so the events are read back
+            final List<Long> recordIds = transactional.create(events, context);
+            final List<SubscriptionEventModelDao> createdEvents = new ArrayList<SubscriptionEventModelDao>(recordIds.size());
+            for (final List<Long> recordIdsChunk : Lists.partition(recordIds, EntitySqlDao.MAX_IDS_PER_QUERY)) {
+                createdEvents.addAll(transactional.getByRecordIds(recordIdsChunk, context));
+            }
+            return createdEvents;
+        }
     }
 
     @Override
@@ -628,6 +720,7 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
                 return null;
             }
         });
+        invalidateTimelineCache(context);
     }
 
     @Override
@@ -639,6 +732,7 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
                 return null;
             }
         });
+        invalidateTimelineCache(context);
 
     }
 
@@ -651,6 +745,7 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
                 return null;
             }
         });
+        invalidateTimelineCache(context);
     }
 
     private void cancelSubscriptionsFromTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final List<DefaultSubscriptionBase> subscriptions, final List<SubscriptionBaseEvent> cancelEvents, final SubscriptionCatalog catalog, final InternalCallContext context) throws EntityPersistenceException {
@@ -712,6 +807,7 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
                 return null;
             }
         });
+        invalidateTimelineCache(context);
     }
 
     @Override
@@ -782,6 +878,7 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
                 return null;
             }
         });
+        invalidateTimelineCache(context);
     }
 
     private List<SubscriptionBaseEvent> filterSubscriptionBaseEvents(final Collection<SubscriptionEventModelDao> models) {
@@ -803,16 +900,6 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
         }));
     }
 
-    private List<SubscriptionBaseEvent> getEventsForAccountId(final InternalTenantContext context) {
-        return transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<List<SubscriptionBaseEvent>>() {
-            @Override
-            public List<SubscriptionBaseEvent> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
-                final List<SubscriptionEventModelDao> models = entitySqlDaoWrapperFactory.become(SubscriptionEventSqlDao.class).getByAccountRecordId(context);
-                return filterSubscriptionBaseEvents(models);
-            }
-        });
-    }
-
     private void cancelSubscriptionFromTransaction(final DefaultSubscriptionBase subscription, final SubscriptionBaseEvent cancelEvent, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final SubscriptionCatalog catalog, final InternalCallContext context, final int seqId)
             throws EntityPersistenceException {
         final UUID subscriptionId = subscription.getId();
@@ -1067,6 +1154,8 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
                 return null;
             }
         });
+        invalidateTimelineCache(fromContext);
+        invalidateTimelineCache(toContext);
     }
 
     @Override
@@ -1080,6 +1169,7 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
                 return null;
             }
         });
+        invalidateTimelineCache(context);
     }
 
     @Override
@@ -1098,6 +1188,7 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
                 return null;
             }
         });
+        invalidateTimelineCache(context);
 
     }
 
@@ -49,4 +49,7 @@ public interface SubscriptionSqlDao extends EntitySqlDao<SubscriptionModelDao, S
     public void updateChargedThroughDate(@Bind("id") String id, @Bind("chargedThroughDate") Date chargedThroughDate,
                                          @SmartBindBean final InternalCallContext context);
 
+    // Strictly increases whenever a bundle, subscription or subscription event of the account is created or updated
+    @SqlQuery
+    public Long getAccountTimelinesVersion(@SmartBindBean final InternalTenantContext context);
 }
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.subscription.engine.dao;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+
+import org.killbill.billing.subscription.api.user.DefaultSubscriptionBase;
+import org.killbill.billing.subscription.engine.dao.model.SubscriptionBundleModelDao;
+import org.killbill.billing.subscription.engine.dao.model.SubscriptionModelDao;
+import org.killbill.billing.subscription.events.SubscriptionBaseEvent;
+import org.killbill.billing.util.config.definition.SubscriptionConfig;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Per account cache of the subscriptions and events loaded by getSubscriptionsForAccount.
+ * <p/>
+ * Entries are versioned (see SubscriptionSqlDao#getAccountTimelinesVersion) and only served if the version is still current,
+ * which makes the cache safe with multiple nodes. The DAO write paths also invalidate the entries of the local node.
+ * <p/>
+ * Only the immutable data is cached: DefaultSubscriptionBase objects (and their transitions) are rebuilt by the caller, as they are mutable.
+ */
+public class SubscriptionTimelineCache {
+
+    private static final String METRIC_PREFIX = "killbill.subscription.timelineCache";
+
+    // Null if disabled
+    private final Cache<Long, AccountTimelines> cache;
+    private final Meter hits;
+    private final Meter misses;
+    private final Meter evictions;
+
+    @Inject
+    public SubscriptionTimelineCache(final SubscriptionConfig subscriptionConfig, final MetricRegistry metricRegistry) {
+        this(subscriptionConfig.getTimelineCacheMaxWeight(), metricRegistry);
+    }
+
+    public SubscriptionTimelineCache(final long maxWeight, final MetricRegistry metricRegistry) {
+        this.hits = metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, "hits"));
+        this.misses = metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, "misses"));
+        this.evictions = metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, "evictions"));
+
+        if (maxWeight <= 0) {
+            this.cache = null;
+        } else {
+            this.cache = CacheBuilder.newBuilder()
+                                     .maximumWeight(maxWeight)
+                                     .weigher(new Weigher<Long, AccountTimelines>() {
+                                         @Override
+                                         public int weigh(final Long accountRecordId, final AccountTimelines accountTimelines) {
+                                             return accountTimelines.getWeight();
+                                         }
+                                     })
+                                     .removalListener(new RemovalListener<Long, AccountTimelines>() {
+                                         @Override
+                                         public void onRemoval(final RemovalNotification<Long, AccountTimelines> notification) {
+                                             if (notification.getCause() == RemovalCause.SIZE) {
+                                                 evictions.mark();
+                                             }
+                                         }
+                                     })
+                                     .build();
+        }
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    @Nullable
+    public AccountTimelines getIfUpToDate(final Long accountRecordId, final Long version) {
+        final AccountTimelines accountTimelines = cache != null ? cache.getIfPresent(accountRecordId) : null;
+        if (accountTimelines != null && accountTimelines.getVersion().equals(version)) {
+            hits.mark();
+            return accountTimelines;
+        }
+        misses.mark();
+        return null;
+    }
+
+    public void put(final Long accountRecordId, final AccountTimelines accountTimelines) {
+        if (cache != null && accountTimelines.getVersion() != null) {
+            cache.put(accountRecordId, accountTimelines);
+        }
+    }
+
+    public void invalidate(final Long accountRecordId) {
+        if (cache != null) {
+            cache.invalidate(accountRecordId);
+        }
+    }
+
+    public static final class AccountTimelines {
+
+        private final Long version;
+        private final List<SubscriptionModelDao> subscriptionModels;
+        private final Map<UUID, String> bundleExternalKeys;
+        private final ImmutableListMultimap<UUID, SubscriptionBaseEvent> eventsBySubscriptionId;
+
+        public AccountTimelines(@Nullable final Long version,
+                                final List<SubscriptionBundleModelDao> bundleModels,
+                                final List<SubscriptionModelDao> subscriptionModels,
+                                final List<SubscriptionBaseEvent> events) {
+            this.version = version;
+            this.subscriptionModels = ImmutableList.<SubscriptionModelDao>copyOf(subscriptionModels);
+
+            final Map<UUID, String> bundleExternalKeys = new HashMap<UUID, String>();
+            for (final SubscriptionBundleModelDao bundleModel : bundleModels) {
+                bundleExternalKeys.put(bundleModel.getId(), bundleModel.getExternalKey());
+            }
+            this.bundleExternalKeys = ImmutableMap.<UUID, String>copyOf(bundleExternalKeys);
+
+            // Preserves the ordering of the events for each subscription
+            final ImmutableListMultimap.Builder<UUID, SubscriptionBaseEvent> eventsBySubscriptionIdBuilder = ImmutableListMultimap.<UUID, SubscriptionBaseEvent>builder();
+            for (final SubscriptionBaseEvent event : events) {
+                eventsBySubscriptionIdBuilder.put(event.getSubscriptionId(), event);
+            }
+            this.eventsBySubscriptionId = eventsBySubscriptionIdBuilder.build();
+        }
+
+        public Long getVersion() {
+            return version;
+        }
+
+        // New (mutable) subscription objects, grouped by bundle id
+        public Map<UUID, List<DefaultSubscriptionBase>> createSubscriptionsByBundleId() {
+            final Map<UUID, List<DefaultSubscriptionBase>> result = new HashMap<UUID, List<DefaultSubscriptionBase>>();
+            for (final SubscriptionModelDao subscriptionModel : subscriptionModels) {
+                final String bundleExternalKey = bundleExternalKeys.get(subscriptionModel.getBundleId());
+                if (bundleExternalKey == null) {
+                    throw new IllegalStateException(String.format("Unable to find bundle %s for subscription %s", subscriptionModel.getBundleId(), subscriptionModel.getId()));
+                }
+
+                List<DefaultSubscriptionBase> subscriptionsForBundle = result.get(subscriptionModel.getBundleId());
+                if (subscriptionsForBundle == null) {
+                    subscriptionsForBundle = new LinkedList<DefaultSubscriptionBase>();
+                    result.put(subscriptionModel.getBundleId(), subscriptionsForBundle);
+                }
+                subscriptionsForBundle.add(SubscriptionModelDao.toSubscription(subscriptionModel, bundleExternalKey));
+            }
+            return result;
+        }
+
+        public List<SubscriptionBaseEvent> getEvents(final UUID subscriptionId) {
+            return eventsBySubscriptionId.get(subscriptionId);
+        }
+
+        private int getWeight() {
+            return 1 + subscriptionModels.size() + eventsBySubscriptionId.size();
+        }
+    }
+}
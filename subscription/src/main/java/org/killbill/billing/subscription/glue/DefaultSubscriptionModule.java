@@ -36,6 +36,7 @@ import org.killbill.billing.subscription.engine.addon.AddonUtils;
 import org.killbill.billing.subscription.engine.core.DefaultSubscriptionBaseService;
 import org.killbill.billing.subscription.engine.dao.DefaultSubscriptionDao;
 import org.killbill.billing.subscription.engine.dao.SubscriptionDao;
+import org.killbill.billing.subscription.engine.dao.SubscriptionTimelineCache;
 import org.killbill.billing.util.config.definition.SubscriptionConfig;
 import org.killbill.billing.util.glue.KillBillModule;
 import org.skife.config.ConfigurationObjectFactory;
@@ -52,6 +53,7 @@ public class DefaultSubscriptionModule extends KillBillModule implements Subscri
     }
 
     protected void installSubscriptionDao() {
+        bind(SubscriptionTimelineCache.class).asEagerSingleton();
         bind(SubscriptionDao.class).to(DefaultSubscriptionDao.class).asEagerSingleton();
     }
 
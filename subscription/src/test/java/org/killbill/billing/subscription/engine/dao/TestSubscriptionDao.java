@@ -17,7 +17,12 @@
 
 package org.killbill.billing.subscription.engine.dao;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import org.joda.time.DateTime;
@@ -52,6 +57,7 @@ import org.killbill.billing.util.audit.AuditLog;
 import org.killbill.billing.util.audit.AuditLogWithHistory;
 import org.killbill.billing.util.audit.ChangeType;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
+import org.killbill.billing.util.config.definition.SubscriptionConfig;
 import org.killbill.billing.util.entity.dao.DBRouterUntyped;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
@@ -64,6 +70,7 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
@@ -368,7 +375,9 @@ public class TestSubscriptionDao extends SubscriptionTestSuiteWithEmbeddedDB {
                                                                            controlCacheDispatcher,
                                                                            nonEntityDao,
                                                                            auditDao,
-                                                                           internalCallContextFactory);
+                                                                           internalCallContextFactory,
+                                                                           new SubscriptionTimelineCache(0, new MetricRegistry()),
+                                                                           config);
         Mockito.verify(dbiSpy, Mockito.times(0)).open();
         Mockito.verify(roDbiSpy, Mockito.times(0)).open();
 
@@ -417,4 +426,165 @@ public class TestSubscriptionDao extends SubscriptionTestSuiteWithEmbeddedDB {
                                       }
                                   });
     }
+
+    @Test(groups = "slow")
+    public void testCreateSubscriptionsWithAddOnsInChunks() throws Exception {
+        final SubscriptionConfig chunkedConfig = Mockito.mock(SubscriptionConfig.class);
+        Mockito.when(chunkedConfig.getBulkCreationChunkSize()).thenReturn(2);
+        final SubscriptionDao subscriptionDao = createSubscriptionDao(chunkedConfig);
+        final DateTime startDate = clock.getUTCNow();
+
+        // Chunks of 2 and 1 bundles: events are bulk created (and read back) in the first one, created one by one in the second one
+        final List<SubscriptionBaseWithAddOns> subscriptions = new LinkedList<SubscriptionBaseWithAddOns>();
+        final Map<UUID, List<SubscriptionBaseEvent>> initialEventsMap = new HashMap<UUID, List<SubscriptionBaseEvent>>();
+        final Set<UUID> eventIds = new HashSet<UUID>();
+        for (int i = 0; i < 3; i++) {
+            final SubscriptionBaseWithAddOns subscriptionBaseWithAddOns = createSubscriptionBaseWithAddOns(subscriptionDao, UUIDs.randomUUID(), startDate, initialEventsMap);
+            subscriptions.add(subscriptionBaseWithAddOns);
+            eventIds.add(initialEventsMap.get(subscriptionBaseWithAddOns.getSubscriptionBaseList().get(0).getId()).get(0).getId());
+        }
+
+        testListener.pushExpectedEvents(NextEvent.CREATE, NextEvent.CREATE, NextEvent.CREATE);
+        final List<SubscriptionBaseEvent> createdEvents = subscriptionDao.createSubscriptionsWithAddOns(subscriptions, initialEventsMap, catalog, internalCallContext);
+        assertListenerStatus();
+
+        assertEquals(createdEvents.size(), 3);
+        final Set<UUID> createdEventIds = new HashSet<UUID>();
+        for (final SubscriptionBaseEvent createdEvent : createdEvents) {
+            createdEventIds.add(createdEvent.getId());
+            // Read back from the database
+            Assert.assertTrue(createdEvent.getTotalOrdering() > 0);
+            assertEquals(subscriptionDao.getEventsForSubscription(createdEvent.getSubscriptionId(), internalCallContext).size(), 1);
+        }
+        assertEquals(createdEventIds, eventIds);
+    }
+
+    @Test(groups = "slow")
+    public void testCreateSubscriptionsWithAddOnsChunkFailure() throws Exception {
+        final SubscriptionConfig chunkedConfig = Mockito.mock(SubscriptionConfig.class);
+        Mockito.when(chunkedConfig.getBulkCreationChunkSize()).thenReturn(1);
+        final SubscriptionDao subscriptionDao = createSubscriptionDao(chunkedConfig);
+        final DateTime startDate = clock.getUTCNow();
+
+        final Map<UUID, List<SubscriptionBaseEvent>> existingEventsMap = new HashMap<UUID, List<SubscriptionBaseEvent>>();
+        final SubscriptionBaseWithAddOns existingSubscription = createSubscriptionBaseWithAddOns(subscriptionDao, UUIDs.randomUUID(), startDate, existingEventsMap);
+        testListener.pushExpectedEvents(NextEvent.CREATE);
+        subscriptionDao.createSubscriptionsWithAddOns(ImmutableList.<SubscriptionBaseWithAddOns>of(existingSubscription), existingEventsMap, catalog, internalCallContext);
+        assertListenerStatus();
+
+        // The second chunk fails (the subscription already exists), the third one is skipped
+        final Map<UUID, List<SubscriptionBaseEvent>> initialEventsMap = new HashMap<UUID, List<SubscriptionBaseEvent>>();
+        final SubscriptionBaseWithAddOns newSubscription = createSubscriptionBaseWithAddOns(subscriptionDao, UUIDs.randomUUID(), startDate, initialEventsMap);
+        final SubscriptionBaseWithAddOns duplicateSubscription = createSubscriptionBaseWithAddOns(subscriptionDao, existingSubscription.getSubscriptionBaseList().get(0).getId(), startDate, initialEventsMap);
+        final SubscriptionBaseWithAddOns skippedSubscription = createSubscriptionBaseWithAddOns(subscriptionDao, UUIDs.randomUUID(), startDate, initialEventsMap);
+
+        testListener.pushExpectedEvents(NextEvent.CREATE);
+        try {
+            subscriptionDao.createSubscriptionsWithAddOns(ImmutableList.<SubscriptionBaseWithAddOns>of(newSubscription, duplicateSubscription, skippedSubscription), initialEventsMap, catalog, internalCallContext);
+            Assert.fail("Creation of the duplicate subscription should have failed");
+        } catch (final RuntimeException e) {
+            // Expected
+        }
+        assertListenerStatus();
+
+        // The first chunk stays committed
+        assertEquals(subscriptionDao.getEventsForSubscription(newSubscription.getSubscriptionBaseList().get(0).getId(), internalCallContext).size(), 1);
+        assertEquals(subscriptionDao.getEventsForSubscription(existingSubscription.getSubscriptionBaseList().get(0).getId(), internalCallContext).size(), 1);
+        assertEquals(subscriptionDao.getEventsForSubscription(skippedSubscription.getSubscriptionBaseList().get(0).getId(), internalCallContext).size(), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testAccountTimelinesVersion() throws Exception {
+        final DateTime startDate = clock.getUTCNow();
+
+        final Map<UUID, List<SubscriptionBaseEvent>> initialEventsMap = new HashMap<UUID, List<SubscriptionBaseEvent>>();
+        final SubscriptionBaseWithAddOns subscriptionBaseWithAddOns = createSubscriptionBaseWithAddOns(dao, UUIDs.randomUUID(), startDate, initialEventsMap);
+        final DefaultSubscriptionBase subscription = (DefaultSubscriptionBase) subscriptionBaseWithAddOns.getSubscriptionBaseList().get(0);
+        final Long versionAfterBundleCreation = getAccountTimelinesVersion();
+
+        // Event insert
+        testListener.pushExpectedEvents(NextEvent.CREATE);
+        final List<SubscriptionBaseEvent> createdEvents = dao.createSubscriptionsWithAddOns(ImmutableList.<SubscriptionBaseWithAddOns>of(subscriptionBaseWithAddOns), initialEventsMap, catalog, internalCallContext);
+        assertListenerStatus();
+        final Long versionAfterEventCreation = getAccountTimelinesVersion();
+        Assert.assertTrue(versionAfterEventCreation > versionAfterBundleCreation);
+
+        // Subscription update
+        final DefaultSubscriptionBase subscriptionWithCTD = new DefaultSubscriptionBase(new SubscriptionBuilder(subscription).setChargedThroughDate(startDate.plusMonths(1)));
+        dao.updateChargedThroughDate(subscriptionWithCTD, internalCallContext);
+        final Long versionAfterUpdate = getAccountTimelinesVersion();
+        Assert.assertTrue(versionAfterUpdate > versionAfterEventCreation);
+
+        // Event cancellation (the event is de-activated, as done when cancelling future events or undoing an operation)
+        final String createdEventId = createdEvents.get(0).getId().toString();
+        transactionalSqlDao.execute(false,
+                                    new EntitySqlDaoTransactionWrapper<Void>() {
+                                        @Override
+                                        public Void inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                                            entitySqlDaoWrapperFactory.become(SubscriptionEventSqlDao.class).unactiveEvent(createdEventId, internalCallContext);
+                                            return null;
+                                        }
+                                    });
+        final Long versionAfterCancellation = getAccountTimelinesVersion();
+        Assert.assertTrue(versionAfterCancellation > versionAfterUpdate);
+
+        // Reads don't change the version
+        dao.getSubscriptionsForAccount(catalog, internalCallContext);
+        assertEquals(getAccountTimelinesVersion(), versionAfterCancellation);
+    }
+
+    private Long getAccountTimelinesVersion() {
+        return transactionalSqlDao.execute(true,
+                                           new EntitySqlDaoTransactionWrapper<Long>() {
+                                               @Override
+                                               public Long inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                                                   return entitySqlDaoWrapperFactory.become(SubscriptionSqlDao.class).getAccountTimelinesVersion(internalCallContext);
+                                               }
+                                           });
+    }
+
+    private SubscriptionDao createSubscriptionDao(final SubscriptionConfig subscriptionConfig) {
+        return new DefaultSubscriptionDao(dbi,
+                                          roDbi,
+                                          clock,
+                                          addonUtils,
+                                          notificationQueueService,
+                                          bus,
+                                          controlCacheDispatcher,
+                                          nonEntityDao,
+                                          auditDao,
+                                          internalCallContextFactory,
+                                          new SubscriptionTimelineCache(0, new MetricRegistry()),
+                                          subscriptionConfig);
+    }
+
+    private SubscriptionBaseWithAddOns createSubscriptionBaseWithAddOns(final SubscriptionDao subscriptionDao,
+                                                                        final UUID subscriptionId,
+                                                                        final DateTime startDate,
+                                                                        final Map<UUID, List<SubscriptionBaseEvent>> initialEventsMap) throws Exception {
+        final DefaultSubscriptionBaseBundle bundleDef = new DefaultSubscriptionBaseBundle(UUID.randomUUID().toString(), accountId, startDate, startDate, startDate, startDate);
+        final SubscriptionBaseBundle bundle = subscriptionDao.createSubscriptionBundle(bundleDef, catalog, true, internalCallContext);
+
+        final SubscriptionBuilder builder = new SubscriptionBuilder()
+                .setId(subscriptionId)
+                .setBundleId(bundle.getId())
+                .setBundleExternalKey(bundle.getExternalKey())
+                .setCategory(ProductCategory.BASE)
+                .setBundleStartDate(startDate)
+                .setAlignStartDate(startDate)
+                .setMigrated(false);
+
+        final ApiEventBuilder createBuilder = new ApiEventBuilder()
+                .setSubscriptionId(builder.getId())
+                .setEventPlan("shotgun-monthly")
+                .setEventPlanPhase("shotgun-monthly-trial")
+                .setEventPriceList(DefaultPriceListSet.DEFAULT_PRICELIST_NAME)
+                .setEffectiveDate(startDate)
+                .setFromDisk(true);
+        final SubscriptionBaseEvent creationEvent = new ApiEventCreate(createBuilder);
+
+        final DefaultSubscriptionBase subscription = new DefaultSubscriptionBase(builder);
+        initialEventsMap.put(subscription.getId(), ImmutableList.<SubscriptionBaseEvent>of(creationEvent));
+        return new DefaultSubscriptionBaseWithAddOns(bundle, ImmutableList.<SubscriptionBase>of(subscription));
+    }
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.subscription.engine.dao;
+
+import org.killbill.billing.subscription.SubscriptionTestSuiteNoDB;
+import org.killbill.billing.subscription.engine.dao.SubscriptionTimelineCache.AccountTimelines;
+import org.killbill.billing.subscription.engine.dao.model.SubscriptionBundleModelDao;
+import org.killbill.billing.subscription.engine.dao.model.SubscriptionModelDao;
+import org.killbill.billing.subscription.events.SubscriptionBaseEvent;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+
+public class TestSubscriptionTimelineCache extends SubscriptionTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testVersionedLookups() throws Exception {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final SubscriptionTimelineCache timelineCache = new SubscriptionTimelineCache(100, metricRegistry);
+        Assert.assertTrue(timelineCache.isEnabled());
+
+        final AccountTimelines accountTimelines = createAccountTimelines(12L);
+        timelineCache.put(1L, accountTimelines);
+
+        Assert.assertSame(timelineCache.getIfUpToDate(1L, 12L), accountTimelines);
+        // Stale entry (e.g. updated by another node)
+        Assert.assertNull(timelineCache.getIfUpToDate(1L, 13L));
+        Assert.assertNull(timelineCache.getIfUpToDate(2L, 12L));
+
+        timelineCache.invalidate(1L);
+        Assert.assertNull(timelineCache.getIfUpToDate(1L, 12L));
+
+        Assert.assertEquals(metricRegistry.meter("killbill.subscription.timelineCache.hits").getCount(), 1);
+        Assert.assertEquals(metricRegistry.meter("killbill.subscription.timelineCache.misses").getCount(), 3);
+    }
+
+    @Test(groups = "fast")
+    public void testUnversionedEntriesAreNotCached() throws Exception {
+        final SubscriptionTimelineCache timelineCache = new SubscriptionTimelineCache(100, new MetricRegistry());
+
+        timelineCache.put(1L, createAccountTimelines(null));
+        Assert.assertNull(timelineCache.getIfUpToDate(1L, 0L));
+    }
+
+    @Test(groups = "fast")
+    public void testDisabled() throws Exception {
+        final SubscriptionTimelineCache timelineCache = new SubscriptionTimelineCache(0, new MetricRegistry());
+        Assert.assertFalse(timelineCache.isEnabled());
+
+        timelineCache.put(1L, createAccountTimelines(12L));
+        Assert.assertNull(timelineCache.getIfUpToDate(1L, 12L));
+    }
+
+    private AccountTimelines createAccountTimelines(final Long version) {
+        return new AccountTimelines(version,
+                                    ImmutableList.<SubscriptionBundleModelDao>of(),
+                                    ImmutableList.<SubscriptionModelDao>of(),
+                                    ImmutableList.<SubscriptionBaseEvent>of());
+    }
+}
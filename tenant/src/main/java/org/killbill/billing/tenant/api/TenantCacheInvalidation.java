@@ -19,13 +19,16 @@ package org.killbill.billing.tenant.api;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import org.joda.time.DateTime;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.events.BusInternalEvent;
 import org.killbill.billing.tenant.api.TenantInternalApi.CacheInvalidationCallback;
@@ -37,13 +40,17 @@ import org.killbill.billing.tenant.dao.TenantBroadcastModelDao;
 import org.killbill.billing.tenant.dao.TenantDao;
 import org.killbill.billing.tenant.dao.TenantKVModelDao;
 import org.killbill.billing.tenant.glue.DefaultTenantModule;
+import org.killbill.billing.util.broadcast.BroadcastTransport;
 import org.killbill.billing.util.config.definition.TenantConfig;
 import org.killbill.bus.api.PersistentBus;
 import org.killbill.bus.api.PersistentBus.EventBusException;
+import org.killbill.clock.Clock;
 import org.killbill.commons.concurrent.Executors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.base.Predicate;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
@@ -59,9 +66,17 @@ import com.google.common.collect.Multimap;
  * <p/>
  * When this class initializes, it reads the current entry in the tenant_broadcasts table and from then on, keeps polling for new entries; when new
  * entries are found, it invokes the callback to invalidate the current caching and force the TenantCacheLoader to be invoked again.
+ * <p/>
+ * Polling can be short-circuited by the BroadcastTransport: when a notification is received on the TENANT_BROADCAST_CHANNEL, the entries
+ * are processed right away (on the same executor thread). The latency between the broadcast and its processing is tracked per TenantKey.
  */
 public class TenantCacheInvalidation {
 
+    public static final String TENANT_BROADCAST_CHANNEL = "killbill_tenant_broadcasts";
+
+    // Same prefix as the cache metrics (see KillBillCacheController)
+    private static final String METRIC_PREFIX = "killbill-cache.tenantInvalidation";
+
     private final static int TERMINATION_TIMEOUT_SEC = 5;
 
     private static final Logger logger = LoggerFactory.getLogger(TenantCacheInvalidation.class);
@@ -71,8 +86,13 @@ public class TenantCacheInvalidation {
     private final TenantConfig tenantConfig;
     private final PersistentBus eventBus;
     private final TenantDao tenantDao;
+    private final BroadcastTransport broadcastTransport;
+    private final MetricRegistry metricRegistry;
+    private final Clock clock;
+    private final AtomicBoolean wakeUpPending;
     private AtomicLong latestRecordIdProcessed;
     private volatile boolean isStopped;
+    private Runnable wakeUpListener;
 
     private ScheduledExecutorService tenantExecutor;
 
@@ -80,12 +100,19 @@ public class TenantCacheInvalidation {
     public TenantCacheInvalidation(@Named(DefaultTenantModule.NO_CACHING_TENANT) final TenantBroadcastDao broadcastDao,
                                    @Named(DefaultTenantModule.NO_CACHING_TENANT) final TenantDao tenantDao,
                                    final PersistentBus eventBus,
-                                   final TenantConfig tenantConfig) {
+                                   final TenantConfig tenantConfig,
+                                   final BroadcastTransport broadcastTransport,
+                                   final MetricRegistry metricRegistry,
+                                   final Clock clock) {
         this.cache = HashMultimap.<TenantKey, CacheInvalidationCallback>create();
         this.broadcastDao = broadcastDao;
         this.tenantConfig = tenantConfig;
         this.tenantDao = tenantDao;
         this.eventBus = eventBus;
+        this.broadcastTransport = broadcastTransport;
+        this.metricRegistry = metricRegistry;
+        this.clock = clock;
+        this.wakeUpPending = new AtomicBoolean(false);
         this.isStopped = false;
     }
 
@@ -99,8 +126,30 @@ public class TenantCacheInvalidation {
     public void start() {
         final TimeUnit pendingRateUnit = tenantConfig.getTenantBroadcastServiceRunningRate().getUnit();
         final long pendingPeriod = tenantConfig.getTenantBroadcastServiceRunningRate().getPeriod();
-        tenantExecutor.scheduleAtFixedRate(new TenantCacheInvalidationRunnable(this, broadcastDao, tenantDao), pendingPeriod, pendingPeriod, pendingRateUnit);
-
+        final Runnable tenantCacheInvalidationRunnable = new TenantCacheInvalidationRunnable(this, broadcastDao, tenantDao);
+        tenantExecutor.scheduleAtFixedRate(tenantCacheInvalidationRunnable, pendingPeriod, pendingPeriod, pendingRateUnit);
+
+        // Polling remains the fallback, notifications only trigger an immediate run on the same (single) thread
+        wakeUpListener = new Runnable() {
+            @Override
+            public void run() {
+                if (isStopped || !wakeUpPending.compareAndSet(false, true)) {
+                    return;
+                }
+                try {
+                    tenantExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            wakeUpPending.set(false);
+                            tenantCacheInvalidationRunnable.run();
+                        }
+                    });
+                } catch (final RejectedExecutionException e) {
+                    wakeUpPending.set(false);
+                }
+            }
+        };
+        broadcastTransport.subscribe(TENANT_BROADCAST_CHANNEL, wakeUpListener);
     }
 
     public void stop() {
@@ -108,6 +157,10 @@ public class TenantCacheInvalidation {
             logger.warn("TenantExecutor is already in a stopped state");
             return;
         }
+        if (wakeUpListener != null) {
+            broadcastTransport.unsubscribe(TENANT_BROADCAST_CHANNEL, wakeUpListener);
+            wakeUpListener = null;
+        }
         try {
             tenantExecutor.shutdown();
             boolean success = tenantExecutor.awaitTermination(TERMINATION_TIMEOUT_SEC, TimeUnit.SECONDS);
@@ -147,6 +200,18 @@ public class TenantCacheInvalidation {
         return eventBus;
     }
 
+    public Timer getInvalidationLatencyTimer(final TenantKey key) {
+        return metricRegistry.timer(MetricRegistry.name(METRIC_PREFIX, key.toString(), "latency"));
+    }
+
+    private void recordInvalidationLatency(final TenantKey key, final DateTime broadcastDate) {
+        if (broadcastDate == null) {
+            return;
+        }
+        final long latencyMsec = Math.max(0, clock.getUTCNow().getMillis() - broadcastDate.getMillis());
+        getInvalidationLatencyTimer(key).update(latencyMsec, TimeUnit.MILLISECONDS);
+    }
+
     public static class TenantCacheInvalidationRunnable implements Runnable {
 
         private final TenantCacheInvalidation parent;
@@ -183,6 +248,7 @@ public class TenantCacheInvalidation {
                             for (final CacheInvalidationCallback callback : callbacks) {
                                 callback.invalidateCache(tenantKeyAndCookie.getTenantKey(), tenantKeyAndCookie.getCookie(), tenantContext);
                             }
+                            parent.recordInvalidationLatency(tenantKeyAndCookie.getTenantKey(), cur.getCreatedDate());
 
                             final Long tenantKvsTargetRecordId = cur.getTargetRecordId();
                             final BusInternalEvent event;
@@ -35,9 +35,11 @@ import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.entity.EntityPersistenceException;
 import org.killbill.billing.tenant.api.Tenant;
+import org.killbill.billing.tenant.api.TenantCacheInvalidation;
 import org.killbill.billing.tenant.api.TenantApiException;
 import org.killbill.billing.tenant.api.TenantKV.TenantKey;
 import org.killbill.billing.util.UUIDs;
+import org.killbill.billing.util.broadcast.BroadcastTransport;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.config.definition.SecurityConfig;
@@ -65,12 +67,15 @@ public class DefaultTenantDao extends EntityDaoBase<TenantModelDao, Tenant, Tena
     private final RandomNumberGenerator rng = new SecureRandomNumberGenerator();
 
     private final SecurityConfig securityConfig;
+    private final BroadcastTransport broadcastTransport;
 
     @Inject
     public DefaultTenantDao(final IDBI dbi, @Named(MAIN_RO_IDBI_NAMED) final IDBI roDbi, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher,
-                            final NonEntityDao nonEntityDao, final InternalCallContextFactory internalCallContextFactory, final SecurityConfig securityConfig) {
+                            final NonEntityDao nonEntityDao, final InternalCallContextFactory internalCallContextFactory, final SecurityConfig securityConfig,
+                            final BroadcastTransport broadcastTransport) {
         super(nonEntityDao, cacheControllerDispatcher, new EntitySqlDaoTransactionalJdbiWrapper(dbi, roDbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory), TenantSqlDao.class);
         this.securityConfig = securityConfig;
+        this.broadcastTransport = broadcastTransport;
     }
 
     @Override
@@ -155,6 +160,7 @@ public class DefaultTenantDao extends EntityDaoBase<TenantModelDao, Tenant, Tena
                 return null;
             }
         });
+        notifyConfigurationChange(key);
     }
 
     @Override
@@ -178,6 +184,7 @@ public class DefaultTenantDao extends EntityDaoBase<TenantModelDao, Tenant, Tena
                 return null;
             }
         });
+        notifyConfigurationChange(key);
 
     }
 
@@ -191,6 +198,7 @@ public class DefaultTenantDao extends EntityDaoBase<TenantModelDao, Tenant, Tena
                 return null;
             }
         });
+        notifyConfigurationChange(key);
     }
 
     @Override
@@ -232,6 +240,13 @@ public class DefaultTenantDao extends EntityDaoBase<TenantModelDao, Tenant, Tena
         }
     }
 
+    // Invoked once the transaction has been committed, so that other nodes see the tenant_broadcasts entry when notified
+    private void notifyConfigurationChange(final String key) {
+        if (isSystemKey(key)) {
+            broadcastTransport.publish(TenantCacheInvalidation.TENANT_BROADCAST_CHANNEL);
+        }
+    }
+
     //
     // For now we restrict the caching to the (system) TenantKey keys
     //
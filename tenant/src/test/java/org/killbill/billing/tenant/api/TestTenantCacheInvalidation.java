@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.tenant.api;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.tenant.TenantTestSuiteNoDB;
+import org.killbill.billing.tenant.api.TenantInternalApi.CacheInvalidationCallback;
+import org.killbill.billing.tenant.api.TenantKV.TenantKey;
+import org.killbill.billing.tenant.dao.TenantBroadcastDao;
+import org.killbill.billing.tenant.dao.TenantBroadcastModelDao;
+import org.killbill.billing.tenant.dao.TenantDao;
+import org.killbill.billing.util.broadcast.LoopbackBroadcastTransport;
+import org.killbill.billing.util.config.definition.TenantConfig;
+import org.killbill.bus.api.PersistentBus;
+import org.mockito.Mockito;
+import org.skife.config.TimeSpan;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+
+public class TestTenantCacheInvalidation extends TenantTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testInvalidationTriggeredByTransport() throws Exception {
+        final TenantBroadcastModelDao entry = new TenantBroadcastModelDao(null, TenantKey.CATALOG.toString(), null);
+        entry.setRecordId(1L);
+        entry.setTenantRecordId(12L);
+        entry.setCreatedDate(clock.getUTCNow());
+
+        final TenantBroadcastDao broadcastDao = Mockito.mock(TenantBroadcastDao.class);
+        Mockito.when(broadcastDao.getLatestEntry()).thenReturn(null);
+        Mockito.when(broadcastDao.getLatestEntriesFrom(0L)).thenReturn(ImmutableList.<TenantBroadcastModelDao>of(entry));
+        Mockito.when(broadcastDao.getLatestEntriesFrom(1L)).thenReturn(ImmutableList.<TenantBroadcastModelDao>of());
+
+        // Make sure polling doesn't kick in during the test
+        final TenantConfig tenantConfig = Mockito.mock(TenantConfig.class);
+        Mockito.when(tenantConfig.getTenantBroadcastServiceRunningRate()).thenReturn(new TimeSpan("1h"));
+
+        final LoopbackBroadcastTransport broadcastTransport = new LoopbackBroadcastTransport();
+        final TenantCacheInvalidation tenantCacheInvalidation = new TenantCacheInvalidation(broadcastDao,
+                                                                                            Mockito.mock(TenantDao.class),
+                                                                                            Mockito.mock(PersistentBus.class),
+                                                                                            tenantConfig,
+                                                                                            broadcastTransport,
+                                                                                            new MetricRegistry(),
+                                                                                            clock);
+
+        final CountDownLatch invalidated = new CountDownLatch(1);
+        tenantCacheInvalidation.registerCallback(TenantKey.CATALOG, new CacheInvalidationCallback() {
+            @Override
+            public void invalidateCache(final TenantKey key, final Object cookie, final InternalTenantContext tenantContext) {
+                Assert.assertEquals(tenantContext.getTenantRecordId(), (Long) 12L);
+                invalidated.countDown();
+            }
+        });
+
+        tenantCacheInvalidation.initialize();
+        tenantCacheInvalidation.start();
+        try {
+            broadcastTransport.publish(TenantCacheInvalidation.TENANT_BROADCAST_CHANNEL);
+            Assert.assertTrue(invalidated.await(10, TimeUnit.SECONDS));
+        } finally {
+            tenantCacheInvalidation.stop();
+        }
+
+        Assert.assertEquals(tenantCacheInvalidation.getLatestRecordIdProcessed().get(), 1L);
+        Assert.assertEquals(tenantCacheInvalidation.getInvalidationLatencyTimer(TenantKey.CATALOG).getCount(), 1L);
+    }
+}
@@ -61,11 +61,12 @@ public class DefaultInternalUserApi extends BaseUserApi implements InternalUserA
             return resultFromPlugin;
         }
 
-        final List<RolledUpUsageModelDao> usage = rolledUpUsageDao.getRawUsageForAccount(startDate, endDate, internalTenantContext);
+        // PERF: records for the same day and tracking id are aggregated by the database (invoicing doesn't need a finer granularity)
+        final List<RolledUpUsageModelDao> usage = rolledUpUsageDao.getAggregatedRawUsageForAccount(startDate, endDate, internalTenantContext);
         return ImmutableList.copyOf(Iterables.transform(usage, new Function<RolledUpUsageModelDao, RawUsageRecord>() {
             @Override
             public RawUsageRecord apply(final RolledUpUsageModelDao input) {
-                return new DefaultRawUsage(input.getSubscriptionId(), input.getRecordDate(), input.getUnitType(), input.getAmount(), input.getTrackingId());
+                return new DefaultRawUsage(input.getSubscriptionId(), input.getRecordDate(), input.getUnitType(), input.getAmount(), input.getMaxAmount(), input.getTrackingId());
             }
         }));
     }
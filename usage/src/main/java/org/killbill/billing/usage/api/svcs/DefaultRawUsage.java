@@ -20,21 +20,27 @@ package org.killbill.billing.usage.api.svcs;
 import java.util.UUID;
 
 import org.joda.time.LocalDate;
-import org.killbill.billing.usage.api.RawUsageRecord;
+import org.killbill.billing.usage.AggregatedRawUsageRecord;
 
-public class DefaultRawUsage implements RawUsageRecord {
+public class DefaultRawUsage implements AggregatedRawUsageRecord {
 
     private final UUID subscriptionId;
     private final LocalDate recordDate;
     private final String unitType;
     private final Long amount;
     private final String trackingId;
+    private final Long maxAmount;
 
     public DefaultRawUsage(final UUID subscriptionId, final LocalDate recordDate, final String unitType, final Long amount, final String trackingId) {
+        this(subscriptionId, recordDate, unitType, amount, amount, trackingId);
+    }
+
+    public DefaultRawUsage(final UUID subscriptionId, final LocalDate recordDate, final String unitType, final Long amount, final Long maxAmount, final String trackingId) {
         this.subscriptionId = subscriptionId;
         this.recordDate = recordDate;
         this.unitType = unitType;
         this.amount = amount;
+        this.maxAmount = maxAmount;
         this.trackingId = trackingId;
     }
 
@@ -63,6 +69,11 @@ public class DefaultRawUsage implements RawUsageRecord {
         return trackingId;
     }
 
+    @Override
+    public Long getMaxAmount() {
+        return maxAmount;
+    }
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder("DefaultRawUsage{");
@@ -70,6 +81,7 @@ public class DefaultRawUsage implements RawUsageRecord {
         sb.append(", recordDate=").append(recordDate);
         sb.append(", unitType='").append(unitType).append('\'');
         sb.append(", amount=").append(amount);
+        sb.append(", maxAmount=").append(maxAmount);
         sb.append(", trackingId=").append(trackingId);
         sb.append('}');
         return sb.toString();
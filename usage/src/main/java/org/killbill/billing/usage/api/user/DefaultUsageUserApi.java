@@ -17,9 +17,14 @@
 package org.killbill.billing.usage.api.user;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
@@ -30,7 +35,12 @@ import org.killbill.billing.ErrorCode;
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.entitlement.AccountEntitlements;
+import org.killbill.billing.entitlement.EntitlementInternalApi;
+import org.killbill.billing.entitlement.api.Entitlement;
+import org.killbill.billing.entitlement.api.EntitlementApiException;
 import org.killbill.billing.osgi.api.OSGIServiceRegistration;
+import org.killbill.billing.usage.BulkUsageUserApi;
 import org.killbill.billing.usage.api.BaseUserApi;
 import org.killbill.billing.usage.api.RawUsageRecord;
 import org.killbill.billing.usage.api.RolledUpUnit;
@@ -47,21 +57,33 @@ import org.killbill.billing.util.UUIDs;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Predicate;
 import com.google.common.base.Strings;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.SetMultimap;
 
-public class DefaultUsageUserApi extends BaseUserApi implements UsageUserApi {
+public class DefaultUsageUserApi extends BaseUserApi implements UsageUserApi, BulkUsageUserApi {
+
+    private static final Logger log = LoggerFactory.getLogger(DefaultUsageUserApi.class);
 
     private final RolledUpUsageDao rolledUpUsageDao;
     private final InternalCallContextFactory internalCallContextFactory;
+    private final EntitlementInternalApi entitlementInternalApi;
 
     @Inject
     public DefaultUsageUserApi(final RolledUpUsageDao rolledUpUsageDao,
                                final InternalCallContextFactory internalCallContextFactory,
+                               final EntitlementInternalApi entitlementInternalApi,
                                final OSGIServiceRegistration<UsagePluginApi> pluginRegistry) {
         super(pluginRegistry);
         this.rolledUpUsageDao = rolledUpUsageDao;
         this.internalCallContextFactory = internalCallContextFactory;
+        this.entitlementInternalApi = entitlementInternalApi;
     }
 
     @Override
@@ -80,12 +102,138 @@ public class DefaultUsageUserApi extends BaseUserApi implements UsageUserApi {
 
 
         final List<RolledUpUsageModelDao> usages = new ArrayList<RolledUpUsageModelDao>();
+        addRolledUpUsageModelDaos(record, trackingIds, usages);
+        rolledUpUsageDao.record(usages, internalCallContext);
+    }
+
+    @Override
+    public Map<Integer, UsageApiException> recordRolledUpUsage(final List<SubscriptionUsageRecord> records, final CallContext callContext) {
+        final Set<UUID> subscriptionIds = new HashSet<UUID>();
+        final Set<String> trackingIds = new HashSet<String>();
+        for (final SubscriptionUsageRecord record : records) {
+            subscriptionIds.add(record.getSubscriptionId());
+            if (!Strings.isNullOrEmpty(record.getTrackingId())) {
+                trackingIds.add(record.getTrackingId());
+            }
+        }
+
+        // Subscriptions not found in that tenant are missing from the map
+        final Map<UUID, InternalCallContext> internalCallContexts = internalCallContextFactory.createInternalCallContexts(subscriptionIds, ObjectType.SUBSCRIPTION, callContext);
+
+        // Tracking ids already recorded, per subscription
+        final SetMultimap<UUID, String> existingTrackingIds = HashMultimap.<UUID, String>create();
+        if (!trackingIds.isEmpty()) {
+            final InternalTenantContext internalTenantContext = internalCallContextFactory.createInternalTenantContextWithoutAccountRecordId(callContext);
+            for (final RolledUpUsageModelDao existingTrackingId : rolledUpUsageDao.getExistingTrackingIds(trackingIds, internalTenantContext)) {
+                existingTrackingIds.put(existingTrackingId.getSubscriptionId(), existingTrackingId.getTrackingId());
+            }
+        }
+
+        final Map<Integer, UsageApiException> errors = new HashMap<Integer, UsageApiException>();
+        // Effective end dates of the entitlements (when set), loaded once per account
+        final Map<Long, Map<UUID, LocalDate>> effectiveEndDatesPerAccountRecordId = new HashMap<Long, Map<UUID, LocalDate>>();
+        final Map<Long, InternalCallContext> internalCallContextPerAccountRecordId = new LinkedHashMap<Long, InternalCallContext>();
+        final Map<Long, List<RolledUpUsageModelDao>> usagesPerAccountRecordId = new HashMap<Long, List<RolledUpUsageModelDao>>();
+        final Map<Long, List<Integer>> recordIndexesPerAccountRecordId = new HashMap<Long, List<Integer>>();
+        for (int i = 0; i < records.size(); i++) {
+            final SubscriptionUsageRecord record = records.get(i);
+
+            final InternalCallContext internalCallContext = internalCallContexts.get(record.getSubscriptionId());
+            if (internalCallContext == null) {
+                errors.put(i, new UsageApiException(ErrorCode.SUB_INVALID_SUBSCRIPTION_ID, record.getSubscriptionId()));
+                continue;
+            }
+
+            // Same check as for a single record: no usage after the effective end date of the subscription
+            final Map<UUID, LocalDate> effectiveEndDates = getEffectiveEndDates(internalCallContext, effectiveEndDatesPerAccountRecordId);
+            if (effectiveEndDates == null) {
+                errors.put(i, new UsageApiException(ErrorCode.SUB_INVALID_SUBSCRIPTION_ID, record.getSubscriptionId()));
+                continue;
+            }
+            final LocalDate effectiveEndDate = effectiveEndDates.get(record.getSubscriptionId());
+            final LocalDate highestRecordDate = getHighestRecordDate(record);
+            if (effectiveEndDate != null && highestRecordDate != null && effectiveEndDate.compareTo(highestRecordDate) < 0) {
+                errors.put(i, new UsageApiException(ErrorCode.SUB_INVALID_REQUESTED_DATE, highestRecordDate, effectiveEndDate));
+                continue;
+            }
+
+            final String trackingId;
+            if (Strings.isNullOrEmpty(record.getTrackingId())) {
+                trackingId = UUIDs.randomUUID().toString();
+            // Also rejects tracking ids duplicated within the request
+            } else if (!existingTrackingIds.put(record.getSubscriptionId(), record.getTrackingId())) {
+                errors.put(i, new UsageApiException(ErrorCode.USAGE_RECORD_TRACKING_ID_ALREADY_EXISTS, record.getTrackingId()));
+                continue;
+            } else {
+                trackingId = record.getTrackingId();
+            }
+
+            List<RolledUpUsageModelDao> usages = usagesPerAccountRecordId.get(internalCallContext.getAccountRecordId());
+            if (usages == null) {
+                usages = new ArrayList<RolledUpUsageModelDao>();
+                usagesPerAccountRecordId.put(internalCallContext.getAccountRecordId(), usages);
+                internalCallContextPerAccountRecordId.put(internalCallContext.getAccountRecordId(), internalCallContext);
+                recordIndexesPerAccountRecordId.put(internalCallContext.getAccountRecordId(), new ArrayList<Integer>());
+            }
+            addRolledUpUsageModelDaos(record, trackingId, usages);
+            recordIndexesPerAccountRecordId.get(internalCallContext.getAccountRecordId()).add(i);
+        }
+
+        // One batch insert (and transaction) per account: on failure, none of the records of that account are recorded
+        for (final Entry<Long, InternalCallContext> entry : internalCallContextPerAccountRecordId.entrySet()) {
+            try {
+                rolledUpUsageDao.record(usagesPerAccountRecordId.get(entry.getKey()), entry.getValue());
+            } catch (final RuntimeException e) {
+                log.warn("Unable to record usage for accountRecordId='{}'", entry.getKey(), e);
+                for (final Integer recordIndex : recordIndexesPerAccountRecordId.get(entry.getKey())) {
+                    errors.put(recordIndex, new UsageApiException(e, ErrorCode.__UNKNOWN_ERROR_CODE));
+                }
+            }
+        }
+
+        return errors;
+    }
+
+    // Null if the entitlements of the account couldn't be retrieved
+    private Map<UUID, LocalDate> getEffectiveEndDates(final InternalCallContext internalCallContext, final Map<Long, Map<UUID, LocalDate>> effectiveEndDatesPerAccountRecordId) {
+        if (!effectiveEndDatesPerAccountRecordId.containsKey(internalCallContext.getAccountRecordId())) {
+            Map<UUID, LocalDate> effectiveEndDates = null;
+            try {
+                final AccountEntitlements accountEntitlements = entitlementInternalApi.getAllEntitlementsForAccount(internalCallContext);
+                effectiveEndDates = new HashMap<UUID, LocalDate>();
+                for (final Collection<Entitlement> entitlements : accountEntitlements.getEntitlements().values()) {
+                    for (final Entitlement entitlement : entitlements) {
+                        if (entitlement.getEffectiveEndDate() != null) {
+                            effectiveEndDates.put(entitlement.getId(), entitlement.getEffectiveEndDate());
+                        }
+                    }
+                }
+            } catch (final EntitlementApiException e) {
+                log.warn("Unable to retrieve the entitlements for accountRecordId='{}'", internalCallContext.getAccountRecordId(), e);
+            }
+            effectiveEndDatesPerAccountRecordId.put(internalCallContext.getAccountRecordId(), effectiveEndDates);
+        }
+        return effectiveEndDatesPerAccountRecordId.get(internalCallContext.getAccountRecordId());
+    }
+
+    private LocalDate getHighestRecordDate(final SubscriptionUsageRecord record) {
+        LocalDate highestRecordDate = null;
         for (final UnitUsageRecord unitUsageRecord : record.getUnitUsageRecord()) {
             for (final UsageRecord usageRecord : unitUsageRecord.getDailyAmount()) {
-                usages.add(new RolledUpUsageModelDao(record.getSubscriptionId(), unitUsageRecord.getUnitType(), usageRecord.getDate(), usageRecord.getAmount(), trackingIds));
+                if (highestRecordDate == null || usageRecord.getDate().compareTo(highestRecordDate) > 0) {
+                    highestRecordDate = usageRecord.getDate();
+                }
+            }
+        }
+        return highestRecordDate;
+    }
+
+    private void addRolledUpUsageModelDaos(final SubscriptionUsageRecord record, final String trackingId, final List<RolledUpUsageModelDao> usages) {
+        for (final UnitUsageRecord unitUsageRecord : record.getUnitUsageRecord()) {
+            for (final UsageRecord usageRecord : unitUsageRecord.getDailyAmount()) {
+                usages.add(new RolledUpUsageModelDao(record.getSubscriptionId(), unitUsageRecord.getUnitType(), usageRecord.getDate(), usageRecord.getAmount(), trackingId));
             }
         }
-        rolledUpUsageDao.record(usages, internalCallContext);
     }
 
     @Override
@@ -98,7 +246,7 @@ public class DefaultUsageUserApi extends BaseUserApi implements UsageUserApi {
             return new DefaultRolledUpUsage(subscriptionId, startDate, endDate, rolledUpAmount);
         }
 
-        final List<RolledUpUsageModelDao> usageForSubscription = rolledUpUsageDao.getUsageForSubscription(subscriptionId, startDate, endDate, unitType, internalCallContextFactory.createInternalTenantContext(subscriptionId, ObjectType.SUBSCRIPTION, tenantContext));
+        final List<RolledUpUsageModelDao> usageForSubscription = rolledUpUsageDao.getAggregatedUsageForSubscription(subscriptionId, startDate, endDate, unitType, internalCallContextFactory.createInternalTenantContext(subscriptionId, ObjectType.SUBSCRIPTION, tenantContext));
         final List<RolledUpUnit> rolledUpAmount = getRolledUpUnits(usageForSubscription);
         return new DefaultRolledUpUsage(subscriptionId, startDate, endDate, rolledUpAmount);
     }
@@ -108,6 +256,7 @@ public class DefaultUsageUserApi extends BaseUserApi implements UsageUserApi {
         final InternalTenantContext internalCallContext = internalCallContextFactory.createInternalTenantContext(subscriptionId, ObjectType.SUBSCRIPTION, tenantContextNoAccountId);
         final TenantContext tenantContext = internalCallContextFactory.createTenantContext(internalCallContext);
         List<RolledUpUsage> result = new ArrayList<RolledUpUsage>();
+        List<RolledUpUsageModelDao> dailyUsageForSubscription = null;
         LocalDate prevDate = null;
         for (LocalDate curDate : transitionTimes) {
             if (prevDate != null) {
@@ -117,8 +266,14 @@ public class DefaultUsageUserApi extends BaseUserApi implements UsageUserApi {
                     final List<RolledUpUnit> rolledUpAmount = getRolledUpUnitsForRawPluginUsage(subscriptionId, null, rawUsage);
                     result.add(new DefaultRolledUpUsage(subscriptionId, prevDate, curDate, rolledUpAmount));
                 } else {
-                    final List<RolledUpUsageModelDao> usageForSubscription = rolledUpUsageDao.getAllUsageForSubscription(subscriptionId, prevDate, curDate, internalCallContext);
-                    final List<RolledUpUnit> rolledUpAmount = getRolledUpUnits(usageForSubscription);
+                    if (dailyUsageForSubscription == null) {
+                        // PERF: one query for all intervals, with the amounts already summed per day by the database
+                        dailyUsageForSubscription = rolledUpUsageDao.getDailyUsageForSubscription(subscriptionId,
+                                                                                                  Ordering.<LocalDate>natural().min(transitionTimes),
+                                                                                                  Ordering.<LocalDate>natural().max(transitionTimes),
+                                                                                                  internalCallContext);
+                    }
+                    final List<RolledUpUnit> rolledUpAmount = getRolledUpUnits(getUsageForInterval(dailyUsageForSubscription, prevDate, curDate));
                     result.add(new DefaultRolledUpUsage(subscriptionId, prevDate, curDate, rolledUpAmount));
                 }
             }
@@ -127,6 +282,16 @@ public class DefaultUsageUserApi extends BaseUserApi implements UsageUserApi {
         return result;
     }
 
+    // [startDate, endDate), as in RolledUpUsageSqlDao
+    private Iterable<RolledUpUsageModelDao> getUsageForInterval(final Iterable<RolledUpUsageModelDao> usageForSubscription, final LocalDate startDate, final LocalDate endDate) {
+        return Iterables.filter(usageForSubscription, new Predicate<RolledUpUsageModelDao>() {
+            @Override
+            public boolean apply(final RolledUpUsageModelDao input) {
+                return input.getRecordDate().compareTo(startDate) >= 0 && input.getRecordDate().compareTo(endDate) < 0;
+            }
+        });
+    }
+
     private List<RolledUpUnit> getRolledUpUnitsForRawPluginUsage(final UUID subscriptionId, @Nullable final String unitType, final List<RawUsageRecord> rawAccountUsage) {
         final Map<String, Long> tmp = new HashMap<String, Long>();
         for (RawUsageRecord cur : rawAccountUsage) {
@@ -151,7 +316,7 @@ public class DefaultUsageUserApi extends BaseUserApi implements UsageUserApi {
         return result;
     }
 
-    private List<RolledUpUnit> getRolledUpUnits(final List<RolledUpUsageModelDao> usageForSubscription) {
+    private List<RolledUpUnit> getRolledUpUnits(final Iterable<RolledUpUsageModelDao> usageForSubscription) {
         final Map<String, Long> tmp = new HashMap<String, Long>();
         for (RolledUpUsageModelDao cur : usageForSubscription) {
             Long currentAmount = tmp.get(cur.getUnitType());
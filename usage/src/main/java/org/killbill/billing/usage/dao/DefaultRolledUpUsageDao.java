@@ -18,6 +18,8 @@
 
 package org.killbill.billing.usage.dao;
 
+import java.util.Collection;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.UUID;
 
@@ -28,8 +30,11 @@ import org.joda.time.LocalDate;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.entity.dao.DBRouter;
+import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.skife.jdbi.v2.IDBI;
 
+import com.google.common.collect.Iterables;
+
 import static org.killbill.billing.util.glue.IDBISetup.MAIN_RO_IDBI_NAMED;
 
 public class DefaultRolledUpUsageDao implements RolledUpUsageDao {
@@ -51,6 +56,16 @@ public class DefaultRolledUpUsageDao implements RolledUpUsageDao {
         return dbRouter.onDemand(false).recordsWithTrackingIdExist(subscriptionId, trackingId, context) != null;
     }
 
+    @Override
+    public List<RolledUpUsageModelDao> getExistingTrackingIds(final Collection<String> trackingIds, final InternalTenantContext context) {
+        final List<RolledUpUsageModelDao> result = new LinkedList<RolledUpUsageModelDao>();
+        // Keep the IN clause reasonably sized
+        for (final List<String> trackingIdsChunk : Iterables.partition(trackingIds, EntitySqlDao.MAX_IDS_PER_QUERY)) {
+            result.addAll(dbRouter.onDemand(false).getExistingTrackingIds(trackingIdsChunk, context));
+        }
+        return result;
+    }
+
     @Override
     public List<RolledUpUsageModelDao> getUsageForSubscription(final UUID subscriptionId, final LocalDate startDate, final LocalDate endDate, final String unitType, final InternalTenantContext context) {
         return dbRouter.onDemand(true).getUsageForSubscription(subscriptionId, startDate.toDate(), endDate.toDate(), unitType, context);
@@ -65,4 +80,19 @@ public class DefaultRolledUpUsageDao implements RolledUpUsageDao {
     public List<RolledUpUsageModelDao> getRawUsageForAccount(final LocalDate startDate, final LocalDate endDate, final InternalTenantContext context) {
         return dbRouter.onDemand(true).getRawUsageForAccount(startDate.toDate(), endDate.toDate(), context);
     }
+
+    @Override
+    public List<RolledUpUsageModelDao> getAggregatedUsageForSubscription(final UUID subscriptionId, final LocalDate startDate, final LocalDate endDate, final String unitType, final InternalTenantContext context) {
+        return dbRouter.onDemand(true).getAggregatedUsageForSubscription(subscriptionId, startDate.toDate(), endDate.toDate(), unitType, context);
+    }
+
+    @Override
+    public List<RolledUpUsageModelDao> getDailyUsageForSubscription(final UUID subscriptionId, final LocalDate startDate, final LocalDate endDate, final InternalTenantContext context) {
+        return dbRouter.onDemand(true).getDailyUsageForSubscription(subscriptionId, startDate.toDate(), endDate.toDate(), context);
+    }
+
+    @Override
+    public List<RolledUpUsageModelDao> getAggregatedRawUsageForAccount(final LocalDate startDate, final LocalDate endDate, final InternalTenantContext context) {
+        return dbRouter.onDemand(true).getAggregatedRawUsageForAccount(startDate.toDate(), endDate.toDate(), context);
+    }
 }
@@ -16,6 +16,7 @@
 
 package org.killbill.billing.usage.dao;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -29,9 +30,21 @@ public interface RolledUpUsageDao {
 
     Boolean recordsWithTrackingIdExist(UUID subscriptionId, String trackingId, InternalTenantContext context);
 
+    // One entry per subscription and tracking id already recorded (only subscriptionId and trackingId are populated)
+    List<RolledUpUsageModelDao> getExistingTrackingIds(Collection<String> trackingIds, InternalTenantContext context);
+
     List<RolledUpUsageModelDao> getUsageForSubscription(UUID subscriptionId, LocalDate startDate, LocalDate endDate, String unitType, InternalTenantContext context);
 
     List<RolledUpUsageModelDao> getAllUsageForSubscription(UUID subscriptionId, LocalDate startDate, LocalDate endDate, InternalTenantContext context);
 
     List<RolledUpUsageModelDao> getRawUsageForAccount(LocalDate startDate, LocalDate endDate, InternalTenantContext context);
+
+    // One entry per unit type, with the amounts summed by the database (only subscriptionId, unitType and amount are populated)
+    List<RolledUpUsageModelDao> getAggregatedUsageForSubscription(UUID subscriptionId, LocalDate startDate, LocalDate endDate, String unitType, InternalTenantContext context);
+
+    // One entry per unit type and day, with the amounts summed by the database (trackingId isn't populated)
+    List<RolledUpUsageModelDao> getDailyUsageForSubscription(UUID subscriptionId, LocalDate startDate, LocalDate endDate, InternalTenantContext context);
+
+    // One entry per subscription, unit type, day and tracking id, with both the sum and the max of the amounts
+    List<RolledUpUsageModelDao> getAggregatedRawUsageForAccount(LocalDate startDate, LocalDate endDate, InternalTenantContext context);
 }
@@ -35,6 +35,8 @@ public class RolledUpUsageModelDao extends EntityModelDaoBase implements EntityM
     private LocalDate recordDate;
     private Long amount;
     private String trackingId;
+    // Only populated by aggregated queries
+    private Long maxAmount;
 
     public RolledUpUsageModelDao() { /* For the DAO mapper */ }
 
@@ -91,6 +93,14 @@ public class RolledUpUsageModelDao extends EntityModelDaoBase implements EntityM
         this.trackingId = trackingId;
     }
 
+    public Long getMaxAmount() {
+        return maxAmount;
+    }
+
+    public void setMaxAmount(final Long maxAmount) {
+        this.maxAmount = maxAmount;
+    }
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder();
@@ -20,6 +20,7 @@ package org.killbill.billing.usage.glue;
 
 import org.killbill.billing.osgi.api.OSGIServiceRegistration;
 import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.killbill.billing.usage.BulkUsageUserApi;
 import org.killbill.billing.usage.InternalUserApi;
 import org.killbill.billing.usage.api.UsageUserApi;
 import org.killbill.billing.usage.api.svcs.DefaultInternalUserApi;
@@ -42,7 +43,9 @@ public class UsageModule extends KillBillModule {
     }
 
     protected void installUsageUserApi() {
+        bind(DefaultUsageUserApi.class).asEagerSingleton();
         bind(UsageUserApi.class).to(DefaultUsageUserApi.class).asEagerSingleton();
+        bind(BulkUsageUserApi.class).to(DefaultUsageUserApi.class).asEagerSingleton();
     }
 
     protected void installInternalUserApi() {
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage.api.user;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.ErrorCode;
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.entitlement.AccountEntitlements;
+import org.killbill.billing.entitlement.EntitlementInternalApi;
+import org.killbill.billing.entitlement.api.Entitlement;
+import org.killbill.billing.osgi.api.OSGIServiceRegistration;
+import org.killbill.billing.usage.UsageTestSuiteWithEmbeddedDB;
+import org.killbill.billing.usage.api.SubscriptionUsageRecord;
+import org.killbill.billing.usage.api.UnitUsageRecord;
+import org.killbill.billing.usage.api.UsageApiException;
+import org.killbill.billing.usage.api.UsageRecord;
+import org.killbill.billing.usage.dao.RolledUpUsageDao;
+import org.killbill.billing.usage.dao.RolledUpUsageModelDao;
+import org.killbill.billing.usage.plugin.api.UsagePluginApi;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.callcontext.TenantContext;
+import org.mockito.Mockito;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import static org.testng.Assert.assertEquals;
+
+public class TestDefaultUsageUserApi extends UsageTestSuiteWithEmbeddedDB {
+
+    private static final String UNIT_TYPE = "foo";
+
+    @Test(groups = "slow")
+    public void testBulkRecordRolledUpUsage() throws Exception {
+        final UUID activeSubscriptionId = UUID.randomUUID();
+        final UUID cancelledSubscriptionId = UUID.randomUUID();
+        final UUID unknownSubscriptionId = UUID.randomUUID();
+        final LocalDate cancelledDate = new LocalDate(2013, 1, 15);
+
+        // Tracking id recorded by an earlier request
+        rolledUpUsageDao.record(ImmutableList.<RolledUpUsageModelDao>of(new RolledUpUsageModelDao(activeSubscriptionId, UNIT_TYPE, new LocalDate(2012, 12, 1), 1L, "t0")), internalCallContext);
+
+        final InternalCallContextFactory internalCallContextFactory = Mockito.mock(InternalCallContextFactory.class);
+        Mockito.when(internalCallContextFactory.createInternalCallContexts(Mockito.<Iterable<UUID>>any(), Mockito.eq(ObjectType.SUBSCRIPTION), Mockito.<CallContext>any()))
+               .thenReturn(ImmutableMap.<UUID, InternalCallContext>of(activeSubscriptionId, internalCallContext,
+                                                                      cancelledSubscriptionId, internalCallContext));
+        Mockito.when(internalCallContextFactory.createInternalTenantContextWithoutAccountRecordId(Mockito.<TenantContext>any())).thenReturn(internalCallContext);
+
+        final Entitlement activeEntitlement = createEntitlement(activeSubscriptionId, null);
+        final Entitlement cancelledEntitlement = createEntitlement(cancelledSubscriptionId, cancelledDate);
+        final AccountEntitlements accountEntitlements = Mockito.mock(AccountEntitlements.class);
+        Mockito.when(accountEntitlements.getEntitlements()).thenReturn(ImmutableMap.<UUID, Collection<Entitlement>>of(UUID.randomUUID(), ImmutableList.<Entitlement>of(activeEntitlement, cancelledEntitlement)));
+        final EntitlementInternalApi entitlementInternalApi = Mockito.mock(EntitlementInternalApi.class);
+        Mockito.when(entitlementInternalApi.getAllEntitlementsForAccount(Mockito.eq(internalCallContext))).thenReturn(accountEntitlements);
+
+        final DefaultUsageUserApi usageUserApi = new DefaultUsageUserApi(rolledUpUsageDao, internalCallContextFactory, entitlementInternalApi, Mockito.mock(OSGIServiceRegistration.class));
+
+        final List<SubscriptionUsageRecord> records = ImmutableList.<SubscriptionUsageRecord>of(createRecord(activeSubscriptionId, "t1", new LocalDate(2013, 1, 1), 10L),
+                                                                                               createRecord(unknownSubscriptionId, "t2", new LocalDate(2013, 1, 1), 10L),
+                                                                                               // Duplicated within the request
+                                                                                               createRecord(activeSubscriptionId, "t1", new LocalDate(2013, 1, 2), 10L),
+                                                                                               // After the effective end date
+                                                                                               createRecord(cancelledSubscriptionId, "t3", cancelledDate.plusDays(5), 10L),
+                                                                                               createRecord(cancelledSubscriptionId, "t4", cancelledDate, 5L),
+                                                                                               // Already recorded
+                                                                                               createRecord(activeSubscriptionId, "t0", new LocalDate(2013, 1, 3), 10L));
+        final Map<Integer, UsageApiException> rejectedRecords = usageUserApi.recordRolledUpUsage(records, callContext);
+
+        assertEquals(rejectedRecords.keySet(), ImmutableSet.<Integer>of(1, 2, 3, 5));
+        assertEquals(rejectedRecords.get(1).getCode(), ErrorCode.SUB_INVALID_SUBSCRIPTION_ID.getCode());
+        assertEquals(rejectedRecords.get(2).getCode(), ErrorCode.USAGE_RECORD_TRACKING_ID_ALREADY_EXISTS.getCode());
+        assertEquals(rejectedRecords.get(3).getCode(), ErrorCode.SUB_INVALID_REQUESTED_DATE.getCode());
+        assertEquals(rejectedRecords.get(5).getCode(), ErrorCode.USAGE_RECORD_TRACKING_ID_ALREADY_EXISTS.getCode());
+
+        // The valid records were recorded
+        final List<RolledUpUsageModelDao> activeUsage = rolledUpUsageDao.getUsageForSubscription(activeSubscriptionId, new LocalDate(2013, 1, 1), new LocalDate(2013, 2, 1), UNIT_TYPE, internalCallContext);
+        assertEquals(activeUsage.size(), 1);
+        assertEquals(activeUsage.get(0).getTrackingId(), "t1");
+        assertEquals(activeUsage.get(0).getRecordDate(), new LocalDate(2013, 1, 1));
+        final List<RolledUpUsageModelDao> cancelledUsage = rolledUpUsageDao.getUsageForSubscription(cancelledSubscriptionId, new LocalDate(2013, 1, 1), new LocalDate(2013, 2, 1), UNIT_TYPE, internalCallContext);
+        assertEquals(cancelledUsage.size(), 1);
+        assertEquals(cancelledUsage.get(0).getTrackingId(), "t4");
+
+        // The entitlements are loaded once for the account
+        Mockito.verify(entitlementInternalApi, Mockito.times(1)).getAllEntitlementsForAccount(Mockito.eq(internalCallContext));
+    }
+
+    @Test(groups = "slow")
+    public void testBulkRecordRolledUpUsageWithFailingAccount() throws Exception {
+        final UUID subscriptionId = UUID.randomUUID();
+        final UUID failingSubscriptionId = UUID.randomUUID();
+        final InternalCallContext failingInternalCallContext = new InternalCallContext(internalCallContext,
+                                                                                       internalCallContext.getAccountRecordId() + 1,
+                                                                                       internalCallContext.getFixedOffsetTimeZone(),
+                                                                                       internalCallContext.getCreatedDate(),
+                                                                                       internalCallContext.getCreatedDate());
+
+        final InternalCallContextFactory internalCallContextFactory = Mockito.mock(InternalCallContextFactory.class);
+        Mockito.when(internalCallContextFactory.createInternalCallContexts(Mockito.<Iterable<UUID>>any(), Mockito.eq(ObjectType.SUBSCRIPTION), Mockito.<CallContext>any()))
+               .thenReturn(ImmutableMap.<UUID, InternalCallContext>of(subscriptionId, internalCallContext,
+                                                                      failingSubscriptionId, failingInternalCallContext));
+        Mockito.when(internalCallContextFactory.createInternalTenantContextWithoutAccountRecordId(Mockito.<TenantContext>any())).thenReturn(internalCallContext);
+
+        final AccountEntitlements accountEntitlements = Mockito.mock(AccountEntitlements.class);
+        Mockito.when(accountEntitlements.getEntitlements()).thenReturn(ImmutableMap.<UUID, Collection<Entitlement>>of());
+        final EntitlementInternalApi entitlementInternalApi = Mockito.mock(EntitlementInternalApi.class);
+        Mockito.when(entitlementInternalApi.getAllEntitlementsForAccount(Mockito.<InternalCallContext>any())).thenReturn(accountEntitlements);
+
+        // The insert fails for the second account only
+        final RolledUpUsageDao failingRolledUpUsageDao = Mockito.spy(rolledUpUsageDao);
+        Mockito.doThrow(new RuntimeException("Simulated DB failure")).when(failingRolledUpUsageDao).record(Mockito.<Iterable<RolledUpUsageModelDao>>any(), Mockito.eq(failingInternalCallContext));
+
+        final DefaultUsageUserApi usageUserApi = new DefaultUsageUserApi(failingRolledUpUsageDao, internalCallContextFactory, entitlementInternalApi, Mockito.mock(OSGIServiceRegistration.class));
+
+        final List<SubscriptionUsageRecord> records = ImmutableList.<SubscriptionUsageRecord>of(createRecord(subscriptionId, "t1", new LocalDate(2013, 1, 1), 10L),
+                                                                                               createRecord(failingSubscriptionId, "t2", new LocalDate(2013, 1, 1), 10L),
+                                                                                               createRecord(failingSubscriptionId, null, new LocalDate(2013, 1, 2), 10L));
+        final Map<Integer, UsageApiException> rejectedRecords = usageUserApi.recordRolledUpUsage(records, callContext);
+
+        // Each record of the failing account is reported
+        assertEquals(rejectedRecords.keySet(), ImmutableSet.<Integer>of(1, 2));
+        assertEquals(rejectedRecords.get(1).getCode(), ErrorCode.__UNKNOWN_ERROR_CODE.getCode());
+        assertEquals(rejectedRecords.get(2).getCode(), ErrorCode.__UNKNOWN_ERROR_CODE.getCode());
+
+        // The other account is unaffected
+        final List<RolledUpUsageModelDao> usage = rolledUpUsageDao.getUsageForSubscription(subscriptionId, new LocalDate(2013, 1, 1), new LocalDate(2013, 2, 1), UNIT_TYPE, internalCallContext);
+        assertEquals(usage.size(), 1);
+        assertEquals(usage.get(0).getTrackingId(), "t1");
+    }
+
+    private Entitlement createEntitlement(final UUID subscriptionId, final LocalDate effectiveEndDate) {
+        final Entitlement entitlement = Mockito.mock(Entitlement.class);
+        Mockito.when(entitlement.getId()).thenReturn(subscriptionId);
+        Mockito.when(entitlement.getEffectiveEndDate()).thenReturn(effectiveEndDate);
+        return entitlement;
+    }
+
+    private SubscriptionUsageRecord createRecord(final UUID subscriptionId, final String trackingId, final LocalDate recordDate, final Long amount) {
+        final UnitUsageRecord unitUsageRecord = new UnitUsageRecord(UNIT_TYPE, ImmutableList.<UsageRecord>of(new UsageRecord(recordDate, amount)));
+        return new SubscriptionUsageRecord(subscriptionId, trackingId, ImmutableList.<UnitUsageRecord>of(unitUsageRecord));
+    }
+}
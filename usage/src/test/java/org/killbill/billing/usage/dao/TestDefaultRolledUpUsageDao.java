@@ -18,7 +18,9 @@
 package org.killbill.billing.usage.dao;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import org.joda.time.LocalDate;
@@ -27,6 +29,9 @@ import org.killbill.billing.util.UUIDs;
 import org.skife.jdbi.v2.exceptions.UnableToExecuteStatementException;
 import org.testng.annotations.Test;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.fail;
 
@@ -170,4 +175,77 @@ public class TestDefaultRolledUpUsageDao extends UsageTestSuiteWithEmbeddedDB {
         assertEquals(rolledUpUsageDao.recordsWithTrackingIdExist(subscriptionId, trackingId, internalCallContext),
                      Boolean.TRUE);
     }
-}
\ No newline at end of file
+
+    @Test(groups = "slow")
+    public void testAggregatedUsage() {
+        final UUID subscriptionId = UUIDs.randomUUID();
+        final String unitType1 = "foo";
+        final String unitType2 = "bar";
+        final LocalDate startDate = new LocalDate(2013, 1, 1);
+        final LocalDate endDate = new LocalDate(2013, 2, 1);
+        final String trackingId1 = UUIDs.randomUUID().toString();
+        final String trackingId2 = UUIDs.randomUUID().toString();
+
+        final List<RolledUpUsageModelDao> usages = new ArrayList<RolledUpUsageModelDao>();
+        usages.add(new RolledUpUsageModelDao(subscriptionId, unitType1, startDate, 10L, trackingId1));
+        usages.add(new RolledUpUsageModelDao(subscriptionId, unitType1, startDate, 5L, trackingId1));
+        usages.add(new RolledUpUsageModelDao(subscriptionId, unitType1, startDate, 7L, trackingId2));
+        usages.add(new RolledUpUsageModelDao(subscriptionId, unitType1, startDate.plusDays(1), 3L, trackingId2));
+        usages.add(new RolledUpUsageModelDao(subscriptionId, unitType2, endDate.minusDays(1), 13L, trackingId2));
+        // Out of range
+        usages.add(new RolledUpUsageModelDao(subscriptionId, unitType1, endDate, 100L, trackingId2));
+        rolledUpUsageDao.record(usages, internalCallContext);
+
+        final List<RolledUpUsageModelDao> aggregatedUsage = rolledUpUsageDao.getAggregatedUsageForSubscription(subscriptionId, startDate, endDate, unitType1, internalCallContext);
+        assertEquals(aggregatedUsage.size(), 1);
+        assertEquals(aggregatedUsage.get(0).getUnitType(), unitType1);
+        assertEquals(aggregatedUsage.get(0).getAmount(), (Long) 25L);
+
+        final List<RolledUpUsageModelDao> dailyUsage = rolledUpUsageDao.getDailyUsageForSubscription(subscriptionId, startDate, endDate, internalCallContext);
+        assertEquals(dailyUsage.size(), 3);
+        assertEquals(dailyUsage.get(0).getRecordDate().compareTo(startDate), 0);
+        assertEquals(dailyUsage.get(0).getAmount(), (Long) 22L);
+        assertEquals(dailyUsage.get(1).getRecordDate().compareTo(startDate.plusDays(1)), 0);
+        assertEquals(dailyUsage.get(1).getAmount(), (Long) 3L);
+        assertEquals(dailyUsage.get(2).getUnitType(), unitType2);
+        assertEquals(dailyUsage.get(2).getAmount(), (Long) 13L);
+
+        final List<RolledUpUsageModelDao> rawUsage = rolledUpUsageDao.getAggregatedRawUsageForAccount(startDate, endDate, internalCallContext);
+        assertEquals(rawUsage.size(), 4);
+        for (final RolledUpUsageModelDao cur : rawUsage) {
+            if (cur.getRecordDate().compareTo(startDate) == 0 && trackingId1.equals(cur.getTrackingId())) {
+                assertEquals(cur.getAmount(), (Long) 15L);
+                assertEquals(cur.getMaxAmount(), (Long) 10L);
+            } else {
+                assertEquals(cur.getMaxAmount(), cur.getAmount());
+            }
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testExistingTrackingIds() {
+        final UUID subscriptionId1 = UUIDs.randomUUID();
+        final UUID subscriptionId2 = UUIDs.randomUUID();
+        final String unitType = "foo";
+        final LocalDate startDate = new LocalDate(2013, 1, 1);
+        final String trackingId1 = UUIDs.randomUUID().toString();
+        final String trackingId2 = UUIDs.randomUUID().toString();
+
+        final List<RolledUpUsageModelDao> usages = new ArrayList<RolledUpUsageModelDao>();
+        usages.add(new RolledUpUsageModelDao(subscriptionId1, unitType, startDate, 10L, trackingId1));
+        usages.add(new RolledUpUsageModelDao(subscriptionId1, unitType, startDate.plusDays(1), 5L, trackingId1));
+        usages.add(new RolledUpUsageModelDao(subscriptionId2, unitType, startDate, 7L, trackingId1));
+        rolledUpUsageDao.record(usages, internalCallContext);
+
+        final List<RolledUpUsageModelDao> result = rolledUpUsageDao.getExistingTrackingIds(ImmutableList.<String>of(trackingId1, trackingId2), internalCallContext);
+        assertEquals(result.size(), 2);
+        final Set<UUID> subscriptionIds = new HashSet<UUID>();
+        for (final RolledUpUsageModelDao cur : result) {
+            assertEquals(cur.getTrackingId(), trackingId1);
+            subscriptionIds.add(cur.getSubscriptionId());
+        }
+        assertEquals(subscriptionIds, ImmutableSet.<UUID>of(subscriptionId1, subscriptionId2));
+
+        assertEquals(rolledUpUsageDao.getExistingTrackingIds(ImmutableList.<String>of(trackingId2), internalCallContext).size(), 0);
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.util.broadcast;
+
+import com.google.inject.ImplementedBy;
+
+/**
+ * Transport used to wake up the broadcast consumers (tenant cache invalidation, broadcast service) as soon as a new
+ * entry has been committed, instead of waiting for the next polling cycle.
+ * <p/>
+ * The database tables remain the source of truth: a notification only carries the channel name and consumers
+ * still read the new entries from the database. Notifications are best-effort, polling remains the fallback.
+ */
+@ImplementedBy(PollingBroadcastTransport.class)
+public interface BroadcastTransport {
+
+    /**
+     * Notify the listeners of that channel (on all nodes) that new entries are available.
+     * Should be invoked after the transaction inserting the entries has been committed.
+     */
+    public void publish(String channel);
+
+    public void subscribe(String channel, Runnable listener);
+
+    public void unsubscribe(String channel, Runnable listener);
+}
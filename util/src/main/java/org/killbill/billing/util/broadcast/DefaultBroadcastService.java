@@ -19,7 +19,9 @@ package org.killbill.billing.util.broadcast;
 
 import java.util.List;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
@@ -38,6 +40,8 @@ import org.slf4j.LoggerFactory;
 
 public class DefaultBroadcastService implements BroadcastService {
 
+    public static final String BROADCAST_CHANNEL = "killbill_broadcasts";
+
     private final static int TERMINATION_TIMEOUT_SEC = 5;
 
     private static final Logger logger = LoggerFactory.getLogger(DefaultBroadcastService.class);
@@ -46,16 +50,21 @@ public class DefaultBroadcastService implements BroadcastService {
     private final BroadcastConfig broadcastConfig;
     private final BroadcastDao broadcastDao;
     private final PersistentBus eventBus;
+    private final BroadcastTransport broadcastTransport;
+    private final AtomicBoolean wakeUpPending;
 
     private AtomicLong latestRecordIdProcessed;
     private ScheduledExecutorService broadcastExecutor;
     private volatile boolean isStopped;
+    private Runnable wakeUpListener;
 
     @Inject
-    public DefaultBroadcastService(final BroadcastDao broadcastDao, final BroadcastConfig broadcastConfig, final PersistentBus eventBus) {
+    public DefaultBroadcastService(final BroadcastDao broadcastDao, final BroadcastConfig broadcastConfig, final PersistentBus eventBus, final BroadcastTransport broadcastTransport) {
         this.broadcastDao = broadcastDao;
         this.broadcastConfig = broadcastConfig;
         this.eventBus = eventBus;
+        this.broadcastTransport = broadcastTransport;
+        this.wakeUpPending = new AtomicBoolean(false);
         this.isStopped = false;
     }
 
@@ -81,8 +90,30 @@ public class DefaultBroadcastService implements BroadcastService {
     public void start() {
         final TimeUnit pendingRateUnit = broadcastConfig.getBroadcastServiceRunningRate().getUnit();
         final long pendingPeriod = broadcastConfig.getBroadcastServiceRunningRate().getPeriod();
-        broadcastExecutor.scheduleAtFixedRate(new BroadcastServiceRunnable(this, broadcastDao, eventBus), pendingPeriod, pendingPeriod, pendingRateUnit);
-
+        final Runnable broadcastServiceRunnable = new BroadcastServiceRunnable(this, broadcastDao, eventBus);
+        broadcastExecutor.scheduleAtFixedRate(broadcastServiceRunnable, pendingPeriod, pendingPeriod, pendingRateUnit);
+
+        // Polling remains the fallback, notifications only trigger an immediate run on the same (single) thread
+        wakeUpListener = new Runnable() {
+            @Override
+            public void run() {
+                if (isStopped || !wakeUpPending.compareAndSet(false, true)) {
+                    return;
+                }
+                try {
+                    broadcastExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            wakeUpPending.set(false);
+                            broadcastServiceRunnable.run();
+                        }
+                    });
+                } catch (final RejectedExecutionException e) {
+                    wakeUpPending.set(false);
+                }
+            }
+        };
+        broadcastTransport.subscribe(BROADCAST_CHANNEL, wakeUpListener);
     }
 
     @LifecycleHandlerType(LifecycleLevel.STOP_SERVICE)
@@ -91,6 +122,10 @@ public class DefaultBroadcastService implements BroadcastService {
             logger.warn("BroadcastExecutor is already in a stopped state");
             return;
         }
+        if (wakeUpListener != null) {
+            broadcastTransport.unsubscribe(BROADCAST_CHANNEL, wakeUpListener);
+            wakeUpListener = null;
+        }
         try {
             broadcastExecutor.shutdown();
             boolean success = broadcastExecutor.awaitTermination(TERMINATION_TIMEOUT_SEC, TimeUnit.SECONDS);
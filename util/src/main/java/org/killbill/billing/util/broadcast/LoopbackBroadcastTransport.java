@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.util.broadcast;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-JVM transport: notifications are only delivered to the listeners of the local node (single node deployments and tests).
+ */
+public class LoopbackBroadcastTransport implements BroadcastTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoopbackBroadcastTransport.class);
+
+    private final ConcurrentMap<String, Set<Runnable>> listeners = new ConcurrentHashMap<String, Set<Runnable>>();
+
+    @Override
+    public void publish(final String channel) {
+        final Set<Runnable> channelListeners = listeners.get(channel);
+        if (channelListeners == null) {
+            return;
+        }
+        for (final Runnable listener : channelListeners) {
+            try {
+                listener.run();
+            } catch (final RuntimeException e) {
+                logger.warn("Failed to notify listener for channel {}", channel, e);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(final String channel, final Runnable listener) {
+        Set<Runnable> channelListeners = listeners.get(channel);
+        if (channelListeners == null) {
+            listeners.putIfAbsent(channel, new CopyOnWriteArraySet<Runnable>());
+            channelListeners = listeners.get(channel);
+        }
+        channelListeners.add(listener);
+    }
+
+    @Override
+    public void unsubscribe(final String channel, final Runnable listener) {
+        final Set<Runnable> channelListeners = listeners.get(channel);
+        if (channelListeners != null) {
+            channelListeners.remove(listener);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.util.broadcast;
+
+/**
+ * Default transport: notifications are dropped and consumers only rely on polling.
+ */
+public class PollingBroadcastTransport implements BroadcastTransport {
+
+    @Override
+    public void publish(final String channel) {
+    }
+
+    @Override
+    public void subscribe(final String channel, final Runnable listener) {
+    }
+
+    @Override
+    public void unsubscribe(final String channel, final Runnable listener) {
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.util.broadcast;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * PostgreSQL LISTEN/NOTIFY transport.
+ * <p/>
+ * A dedicated connection is borrowed from the pool while there are subscribers, and a daemon thread waits for notifications on it.
+ * Channels are LISTENed to while they have at least one local listener, and UNLISTENed once their last listener is gone.
+ * The driver specific API (org.postgresql.PGConnection) is accessed reflectively so that we don't depend on the PostgreSQL driver at compile time.
+ * On any error, the connection is re-created and all listeners are notified, as notifications could have been missed in the meantime.
+ */
+public class PostgreSQLBroadcastTransport implements BroadcastTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostgreSQLBroadcastTransport.class);
+
+    private static final String PG_CONNECTION_CLASS = "org.postgresql.PGConnection";
+    private static final long RECONNECT_DELAY_MSEC = 1000;
+
+    private final DataSource dataSource;
+    private final int waitMillis;
+    private final LoopbackBroadcastTransport localListeners;
+    // Local listeners per channel, to know when a channel isn't needed anymore
+    private final Map<String, Set<Runnable>> channels;
+
+    private Thread listenerThread;
+
+    public PostgreSQLBroadcastTransport(final DataSource dataSource, final long waitMillis) {
+        this.dataSource = dataSource;
+        this.waitMillis = (int) Math.max(1, Math.min(waitMillis, Integer.MAX_VALUE));
+        this.localListeners = new LoopbackBroadcastTransport();
+        this.channels = new HashMap<String, Set<Runnable>>();
+    }
+
+    @Override
+    public void publish(final String channel) {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        try {
+            connection = dataSource.getConnection();
+            statement = connection.prepareStatement("select pg_notify(?, '')");
+            statement.setString(1, channel);
+            statement.execute();
+        } catch (final SQLException e) {
+            // Not fatal, consumers will pick up the entries at the next polling cycle
+            logger.warn("Failed to notify channel {}", channel, e);
+        } finally {
+            closeQuietly(statement);
+            closeQuietly(connection);
+        }
+    }
+
+    @Override
+    public synchronized void subscribe(final String channel, final Runnable listener) {
+        localListeners.subscribe(channel, listener);
+        Set<Runnable> channelListeners = channels.get(channel);
+        if (channelListeners == null) {
+            channelListeners = new HashSet<Runnable>();
+            channels.put(channel, channelListeners);
+        }
+        channelListeners.add(listener);
+
+        if (listenerThread == null) {
+            listenerThread = new Thread(new ListenerRunnable(), "PostgreSQLBroadcastTransport");
+            listenerThread.setDaemon(true);
+            listenerThread.start();
+        }
+    }
+
+    @Override
+    public synchronized void unsubscribe(final String channel, final Runnable listener) {
+        localListeners.unsubscribe(channel, listener);
+        final Set<Runnable> channelListeners = channels.get(channel);
+        if (channelListeners != null) {
+            channelListeners.remove(listener);
+            if (channelListeners.isEmpty()) {
+                // The listener thread will UNLISTEN it
+                channels.remove(channel);
+            }
+        }
+
+        // Closing the connection releases all the remaining LISTENs
+        if (channels.isEmpty() && listenerThread != null) {
+            listenerThread.interrupt();
+            listenerThread = null;
+        }
+    }
+
+    private synchronized Set<String> getChannels() {
+        return new HashSet<String>(channels.keySet());
+    }
+
+    private synchronized boolean isCurrentListenerThread() {
+        return listenerThread == Thread.currentThread();
+    }
+
+    private final class ListenerRunnable implements Runnable {
+
+        private final Set<String> listenedChannels = new HashSet<String>();
+
+        private Connection connection;
+        private Object pgConnection;
+        private Method getNotificationsWithTimeout;
+        private Method getNotifications;
+
+        @Override
+        public void run() {
+            try {
+                while (isCurrentListenerThread() && !Thread.currentThread().isInterrupted()) {
+                    try {
+                        if (connection == null) {
+                            connect();
+                            // Notifications could have been missed while we were not listening
+                            notifyAllChannels();
+                        }
+                        updateListenedChannels();
+                        for (final String channel : waitForNotifications()) {
+                            localListeners.publish(channel);
+                        }
+                    } catch (final SQLException e) {
+                        logger.warn("Error while waiting for notifications, reconnecting", e);
+                        disconnect();
+                        TimeUnit.MILLISECONDS.sleep(RECONNECT_DELAY_MSEC);
+                    }
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                disconnect();
+            }
+        }
+
+        private void connect() throws SQLException {
+            connection = dataSource.getConnection();
+            // LISTEN / UNLISTEN only take effect once committed: don't depend on the pool defaults
+            connection.setAutoCommit(true);
+            try {
+                final Class<?> pgConnectionClass = Class.forName(PG_CONNECTION_CLASS);
+                pgConnection = connection.unwrap(pgConnectionClass);
+                getNotifications = pgConnectionClass.getMethod("getNotifications");
+                try {
+                    getNotificationsWithTimeout = pgConnectionClass.getMethod("getNotifications", int.class);
+                } catch (final NoSuchMethodException e) {
+                    // Old driver, we'll have to poll the connection
+                    getNotificationsWithTimeout = null;
+                }
+            } catch (final ClassNotFoundException e) {
+                throw new SQLException("PostgreSQL driver not available", e);
+            } catch (final NoSuchMethodException e) {
+                throw new SQLException("Unsupported PostgreSQL driver", e);
+            }
+        }
+
+        private void disconnect() {
+            closeQuietly(connection);
+            connection = null;
+            pgConnection = null;
+            listenedChannels.clear();
+        }
+
+        private void updateListenedChannels() throws SQLException {
+            final Set<String> subscribedChannels = getChannels();
+
+            final Iterator<String> iterator = listenedChannels.iterator();
+            while (iterator.hasNext()) {
+                final String channel = iterator.next();
+                if (!subscribedChannels.contains(channel)) {
+                    execute("UNLISTEN " + quote(channel));
+                    iterator.remove();
+                }
+            }
+
+            for (final String channel : subscribedChannels) {
+                if (listenedChannels.contains(channel)) {
+                    continue;
+                }
+                execute("LISTEN " + quote(channel));
+                listenedChannels.add(channel);
+            }
+        }
+
+        private String quote(final String channel) {
+            return "\"" + channel.replace("\"", "\"\"") + "\"";
+        }
+
+        private Set<String> waitForNotifications() throws SQLException, InterruptedException {
+            final Object notifications;
+            if (getNotificationsWithTimeout != null) {
+                notifications = invoke(getNotificationsWithTimeout, waitMillis);
+            } else {
+                // Dummy query to retrieve the pending notifications from the backend
+                execute("SELECT 1");
+                notifications = invoke(getNotifications);
+                if (notifications == null || Array.getLength(notifications) == 0) {
+                    TimeUnit.MILLISECONDS.sleep(waitMillis);
+                }
+            }
+
+            final Set<String> notifiedChannels = new HashSet<String>();
+            if (notifications != null) {
+                for (int i = 0; i < Array.getLength(notifications); i++) {
+                    final Object notification = Array.get(notifications, i);
+                    try {
+                        notifiedChannels.add((String) notification.getClass().getMethod("getName").invoke(notification));
+                    } catch (final ReflectiveOperationException e) {
+                        throw new SQLException("Unable to read notification " + notification, e);
+                    }
+                }
+            }
+            return notifiedChannels;
+        }
+
+        private Object invoke(final Method method, final Object... args) throws SQLException {
+            try {
+                return method.invoke(pgConnection, args);
+            } catch (final InvocationTargetException e) {
+                if (e.getCause() instanceof SQLException) {
+                    throw (SQLException) e.getCause();
+                }
+                throw new SQLException(e.getCause());
+            } catch (final IllegalAccessException e) {
+                throw new SQLException(e);
+            }
+        }
+
+        private void execute(final String sql) throws SQLException {
+            Statement statement = null;
+            try {
+                statement = connection.createStatement();
+                statement.execute(sql);
+            } finally {
+                closeQuietly(statement);
+            }
+        }
+
+        private void notifyAllChannels() {
+            for (final String channel : getChannels()) {
+                localListeners.publish(channel);
+            }
+        }
+    }
+
+    private static void closeQuietly(final AutoCloseable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (final Exception e) {
+            logger.debug("Failed to close {}", closeable, e);
+        }
+    }
+}
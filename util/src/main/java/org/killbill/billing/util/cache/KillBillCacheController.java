@@ -1,7 +1,8 @@
 /*
  * Copyright 2010-2012 Ning, Inc.
  * Copyright 2014-2018 Groupon, Inc
- * Copyright 2014-2018 The Billing Project, LLC
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
  *
  * The Billing Project licenses this file to you under the Apache License, version 2.0
  * (the "License"); you may not use this file except in compliance with the
@@ -21,6 +22,11 @@ package org.killbill.billing.util.cache;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import javax.cache.Cache;
 import javax.cache.Cache.Entry;
@@ -30,6 +36,10 @@ import org.killbill.billing.util.cache.Cachable.CacheType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
@@ -38,12 +48,32 @@ public class KillBillCacheController<K, V> implements CacheController<K, V> {
 
     private static final Logger logger = LoggerFactory.getLogger(KillBillCacheController.class);
 
+    private static final String METRIC_PREFIX = "killbill-cache";
+
     private final Cache<K, V> cache;
     private final BaseCacheLoader<K, V> baseCacheLoader;
 
+    // Loads currently running, per key: concurrent misses on the same key wait for the same load,
+    // while misses on other keys proceed in parallel
+    private final ConcurrentMap<K, FutureTask<V>> inFlightLoads;
+
+    private final Meter hits;
+    private final Meter misses;
+    private final Timer loads;
+
     public KillBillCacheController(final Cache<K, V> cache, final BaseCacheLoader<K, V> baseCacheLoader) {
+        this(cache, baseCacheLoader, new MetricRegistry());
+    }
+
+    public KillBillCacheController(final Cache<K, V> cache, final BaseCacheLoader<K, V> baseCacheLoader, final MetricRegistry metricRegistry) {
         this.cache = cache;
         this.baseCacheLoader = baseCacheLoader;
+        this.inFlightLoads = new ConcurrentHashMap<K, FutureTask<V>>();
+
+        final String cacheName = baseCacheLoader.getCacheType().getCacheName();
+        this.hits = metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, cacheName, "hits"));
+        this.misses = metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, cacheName, "misses"));
+        this.loads = metricRegistry.timer(MetricRegistry.name(METRIC_PREFIX, cacheName, "loads"));
     }
 
     @Override
@@ -71,16 +101,13 @@ public class KillBillCacheController<K, V> implements CacheController<K, V> {
 
         V value;
         try {
-            if (!isKeyInCache(key)) {
-                synchronized (this) {
-                    if (!isKeyInCache(key)) {
-                        value = computeAndCacheValue(key, cacheLoaderArgument);
-                    } else {
-                        value = cache.get(key);
-                    }
-                }
+            // Null values are never cached (see EMPTY_VALUE_PLACEHOLDER), so a null means a miss
+            value = cache.get(key);
+            if (value == null) {
+                misses.mark();
+                value = loadAndCacheValue(key, cacheLoaderArgument);
             } else {
-                value = cache.get(key);
+                hits.mark();
             }
         } catch (final CacheException e) {
             logger.warn("Unable to retrieve cached value for key='{}' and cacheLoaderArgument='{}'", key, cacheLoaderArgument, e);
@@ -135,8 +162,83 @@ public class KillBillCacheController<K, V> implements CacheController<K, V> {
         return baseCacheLoader.getCacheType();
     }
 
+    @VisibleForTesting
+    long getHitCount() {
+        return hits.getCount();
+    }
+
+    @VisibleForTesting
+    long getMissCount() {
+        return misses.getCount();
+    }
+
+    @VisibleForTesting
+    long getLoadCount() {
+        return loads.getCount();
+    }
+
+    // Single-flight load: only one thread computes the value for a given key, the others wait for its result
+    private V loadAndCacheValue(final K key, final CacheLoaderArgument cacheLoaderArgument) {
+        final FutureTask<V> load = new FutureTask<V>(new Callable<V>() {
+            @Override
+            public V call() {
+                // The key may have been loaded in between our miss and the registration of this load
+                final V cachedValue = cache.get(key);
+                if (cachedValue != null) {
+                    return cachedValue;
+                }
+                return computeAndCacheValue(key, cacheLoaderArgument);
+            }
+        });
+
+        final FutureTask<V> inFlightLoad = inFlightLoads.putIfAbsent(key, load);
+        if (inFlightLoad == null) {
+            try {
+                load.run();
+            } finally {
+                inFlightLoads.remove(key, load);
+            }
+            return getLoadResult(load);
+        } else {
+            return getLoadResult(inFlightLoad);
+        }
+    }
+
+    private V getLoadResult(final FutureTask<V> load) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return load.get();
+                } catch (final InterruptedException e) {
+                    // Don't abandon the load (other threads may be waiting on it), but restore the flag when done
+                    interrupted = true;
+                } catch (final ExecutionException e) {
+                    // computeValue already wraps checked exceptions
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    } else if (e.getCause() instanceof Error) {
+                        throw (Error) e.getCause();
+                    } else {
+                        throw new RuntimeException(e.getCause());
+                    }
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     private V computeAndCacheValue(final K key, final CacheLoaderArgument cacheLoaderArgument) {
-        final V value = computeValue(key, cacheLoaderArgument);
+        final V value;
+        final Timer.Context timerContext = loads.time();
+        try {
+            value = computeValue(key, cacheLoaderArgument);
+        } finally {
+            timerContext.stop();
+        }
         if (value == null) {
             return null;
         }
@@ -18,6 +18,10 @@
 
 package org.killbill.billing.util.callcontext;
 
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
@@ -42,6 +46,7 @@ import org.slf4j.MDC;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
 
 // Internal contexts almost always expect accountRecordId and tenantRecordId to be populated
 public class InternalCallContextFactory {
@@ -213,6 +218,52 @@ public class InternalCallContextFactory {
                                          context.getUpdatedDate());
     }
 
+    /**
+     * Create internal call callcontexts for multiple objects at once (e.g. bulk APIs): the tenant is only resolved once
+     * and a single internal call callcontext is created per account
+     *
+     * @param objectIds  the ids of the rows in the table pointed by object type where to look for account_record_id
+     * @param objectType the object type pointed by these objectIds
+     * @param context    original call callcontext
+     * @return internal call callcontexts by object id (objects which don't exist in that tenant are omitted)
+     */
+    public Map<UUID, InternalCallContext> createInternalCallContexts(final Iterable<UUID> objectIds, final ObjectType objectType, final CallContext context) {
+        final Long tenantRecordId = getTenantRecordIdSafe(context);
+
+        // Objects which don't exist or belong to another tenant are skipped
+        final Set<UUID> uniqueObjectIds = ImmutableSet.<UUID>copyOf(objectIds);
+        final Map<UUID, Long> tenantRecordIds = nonEntityDao.retrieveTenantRecordIdsFromObjects(uniqueObjectIds, objectType, tenantRecordIdCacheController);
+        final Set<UUID> tenantObjectIds = new LinkedHashSet<UUID>();
+        for (final UUID objectId : uniqueObjectIds) {
+            if (tenantRecordId.equals(tenantRecordIds.get(objectId))) {
+                tenantObjectIds.add(objectId);
+            }
+        }
+        final Map<UUID, Long> accountRecordIds = nonEntityDao.retrieveAccountRecordIdsFromObjects(tenantObjectIds, objectType, accountRecordIdCacheController);
+
+        final Map<Long, InternalCallContext> internalCallContextsPerAccountRecordId = new HashMap<Long, InternalCallContext>();
+        final Map<UUID, InternalCallContext> result = new HashMap<UUID, InternalCallContext>();
+        for (final UUID objectId : tenantObjectIds) {
+            final Long accountRecordId = accountRecordIds.get(objectId);
+            InternalCallContext internalCallContext = internalCallContextsPerAccountRecordId.get(accountRecordId);
+            if (internalCallContext == null) {
+                internalCallContext = createInternalCallContext(tenantRecordId,
+                                                                accountRecordId,
+                                                                context.getUserName(),
+                                                                context.getCallOrigin(),
+                                                                context.getUserType(),
+                                                                context.getUserToken(),
+                                                                context.getReasonCode(),
+                                                                context.getComments(),
+                                                                context.getCreatedDate(),
+                                                                context.getUpdatedDate());
+                internalCallContextsPerAccountRecordId.put(accountRecordId, internalCallContext);
+            }
+            result.put(objectId, internalCallContext);
+        }
+        return result;
+    }
+
     // Used by the payment retry service
     public InternalCallContext createInternalCallContext(final UUID objectId, final ObjectType objectType, final String userName,
                                                          final CallOrigin callOrigin, final UserType userType, @Nullable final UUID userToken, final Long tenantRecordId) {
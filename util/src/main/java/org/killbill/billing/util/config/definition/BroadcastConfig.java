@@ -29,4 +29,14 @@ public interface BroadcastConfig extends KillbillConfig {
     @Description("Rate at which broadcast service task is scheduled")
     public TimeSpan getBroadcastServiceRunningRate();
 
+    @Config("org.killbill.billing.util.broadcast.transport")
+    @Default("POLLING")
+    @Description("Transport used to notify the broadcast consumers of new entries: POLLING (none), LOOPBACK (local node only) or NOTIFY (PostgreSQL LISTEN/NOTIFY); polling remains the fallback")
+    public String getBroadcastTransport();
+
+    @Config("org.killbill.billing.util.broadcast.transport.notify.wait")
+    @Default("500ms")
+    @Description("Maximum time the NOTIFY transport blocks waiting for notifications before checking for new channels to listen to")
+    public TimeSpan getBroadcastTransportNotifyWait();
+
 }
@@ -142,4 +142,34 @@ public interface InvoiceConfig extends KillbillConfig {
     @Default("false")
     @Description("Whether to park accounts when usage data is recorded but not defined in the catalog")
     boolean shouldParkAccountsWithUnknownUsage(@Param("dummy") final InternalTenantContext tenantContext);
+
+    @Config("org.killbill.invoice.incrementalInvoicingEnabled")
+    @Default("false")
+    @Description("Whether to only re-generate items for subscriptions whose billing events or items changed since the last invoice")
+    boolean isIncrementalInvoicingEnabled();
+
+    @Config("org.killbill.invoice.incrementalInvoicingEnabled")
+    @Default("false")
+    @Description("Whether to only re-generate items for subscriptions whose billing events or items changed since the last invoice")
+    boolean isIncrementalInvoicingEnabled(@Param("dummy") final InternalTenantContext tenantContext);
+
+    @Config("org.killbill.invoice.parallelGeneration.nbThreads")
+    @Default("0")
+    @Description("Number of threads used to generate the items of large accounts in parallel (0 to disable)")
+    int getParallelGenerationNbThreads();
+
+    @Config("org.killbill.invoice.parallelGeneration.minSubscriptions")
+    @Default("100")
+    @Description("Minimum number of subscriptions for the items of an account to be generated in parallel")
+    int getParallelGenerationMinSubscriptions();
+
+    @Config("org.killbill.invoice.parallelGeneration.minSubscriptions")
+    @Default("100")
+    @Description("Minimum number of subscriptions for the items of an account to be generated in parallel")
+    int getParallelGenerationMinSubscriptions(@Param("dummy") final InternalTenantContext tenantContext);
+
+    @Config("org.killbill.invoice.billingEvents.binaryFormatEnabled")
+    @Default("false")
+    @Description("Whether to persist the billing events snapshot in the binary format (only enable once all nodes are able to read it)")
+    boolean isBillingEventsBinaryFormatEnabled();
 }
@@ -109,6 +109,26 @@ public interface PaymentConfig extends KillbillConfig {
     @Description("Delay before which unresolved attempt should be retried")
     TimeSpan getIncompleteAttemptsTimeSpanDelay();
 
+    @Config("org.killbill.payment.janitor.threads.nb")
+    @Default("1")
+    @Description("Number of threads used to complete the incomplete payment attempts (attempts are partitioned by account)")
+    int getJanitorThreadNb();
+
+    @Config("org.killbill.payment.janitor.shards.nb")
+    @Default("1")
+    @Description("Number of nodes sharing the incomplete payment attempts (attempts are partitioned by account)")
+    int getJanitorNbShards();
+
+    @Config("org.killbill.payment.janitor.shards.index")
+    @Default("0")
+    @Description("Index (between 0 and nbShards - 1) of the shard processed by this node")
+    int getJanitorShardIndex();
+
+    @Config("org.killbill.payment.janitor.plugin.rateLimit")
+    @Default("0")
+    @Description("Maximum number of calls per second made by the janitor to each payment plugin (0 for unlimited)")
+    double getJanitorPluginRateLimit();
+
     @Config("org.killbill.payment.provider.default")
     // See ExternalPaymentProviderPlugin.PLUGIN_NAME
     @Default("__external_payment__")
@@ -125,6 +145,31 @@ public interface PaymentConfig extends KillbillConfig {
     @Description("Number of threads for plugin executor dispatcher")
     int getPaymentPluginThreadNb();
 
+    @Config("org.killbill.payment.plugin.threads.virtual")
+    @Default("false")
+    @Description("Whether to dispatch plugin calls on virtual threads (requires a JVM supporting them and the plugin bulkheads to be enabled)")
+    boolean isPaymentPluginVirtualThreadsEnabled();
+
+    @Config("org.killbill.payment.plugin.queue.size")
+    @Default("0")
+    @Description("Maximum number of plugin calls waiting for a thread of the plugin executor dispatcher (0 for unbounded)")
+    int getPaymentPluginQueueSize();
+
+    @Config("org.killbill.payment.plugin.bulkhead.maxCalls")
+    @Default("0")
+    @Description("Maximum number of in-flight (queued or running) calls per payment plugin (0 to disable)")
+    int getPaymentPluginBulkheadMaxCalls();
+
+    @Config("org.killbill.payment.plugin.info.concurrency")
+    @Default("10")
+    @Description("Maximum number of concurrent plugin calls when retrieving the plugin info of the payments of an account (1 to call the plugins sequentially)")
+    int getPaymentPluginInfoConcurrency();
+
+    @Config("org.killbill.payment.plugin.info.timeout")
+    @Default("30s")
+    @Description("Overall deadline to retrieve the plugin info of the payments of an account")
+    TimeSpan getPaymentPluginInfoTimeout();
+
     @Config("org.killbill.payment.globalLock.retries")
     @Default("50")
     @Description("Maximum number of times the system will retry to grab global lock (with a 100ms wait each time)")
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.config.definition;
+
+import org.skife.config.Config;
+import org.skife.config.Default;
+import org.skife.config.Description;
+import org.skife.config.TimeSpan;
+
+public interface ReadReplicaConfig extends KillbillConfig {
+
+    @Config("org.killbill.billing.util.readReplica.heartbeat.interval")
+    @Default("0s")
+    @Description("Minimum interval between two replica lag measurements (heartbeat written to the main database and read back from the read-only one), 0s to disable lag-aware routing")
+    public TimeSpan getHeartbeatInterval();
+
+    @Config("org.killbill.billing.util.readReplica.maxLag")
+    @Default("10s")
+    @Description("Maximum replica lag (must be greater than the heartbeat interval) above which read-only queries are sent to the main database. Reads for an account recently modified by the same node are also sent to the main database until the write has been replicated (other nodes only get the maxLag guarantee)")
+    public TimeSpan getMaxLag();
+}
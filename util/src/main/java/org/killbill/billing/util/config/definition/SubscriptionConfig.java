@@ -17,5 +17,19 @@
 
 package org.killbill.billing.util.config.definition;
 
+import org.skife.config.Config;
+import org.skife.config.Default;
+import org.skife.config.Description;
+
 public interface SubscriptionConfig extends KillbillConfig {
+
+    @Config("org.killbill.subscription.timelineCache.maxWeight")
+    @Default("0")
+    @Description("Memory budget of the per account subscription timelines cache, expressed as the total number of cached subscriptions and events (0 to disable the cache)")
+    public long getTimelineCacheMaxWeight();
+
+    @Config("org.killbill.subscription.bulkCreation.chunkSize")
+    @Default("0")
+    @Description("Number of bundles committed per transaction when creating subscriptions in bulk (0 to create all of them in a single transaction). When set, a failure only rolls back the current chunk: the previous ones stay committed")
+    public int getBulkCreationChunkSize();
 }
@@ -16,6 +16,7 @@
 
 package org.killbill.billing.util.customfield.dao;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
@@ -31,24 +32,26 @@ import org.killbill.commons.jdbi.binder.SmartBindBean;
 import org.killbill.commons.jdbi.statement.SmartFetchSize;
 import org.killbill.commons.jdbi.template.KillBillSqlDaoStringTemplate;
 import org.skife.jdbi.v2.sqlobject.Bind;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.sqlobject.customizers.BatchChunkSize;
 import org.skife.jdbi.v2.sqlobject.customizers.Define;
+import org.skife.jdbi.v2.unstable.BindIn;
 
 @KillBillSqlDaoStringTemplate
 public interface CustomFieldSqlDao extends EntitySqlDao<CustomFieldModelDao, CustomField> {
 
-    @SqlUpdate
+    @SqlBatch
+    @BatchChunkSize(1000) // Arbitrary value, just a safety mechanism in case of very large datasets
     @Audited(ChangeType.UPDATE)
-    void updateValue(@Bind("id") String customFieldId,
-                     @Bind("fieldValue") String fieldValue,
-                     @SmartBindBean InternalCallContext context);
-
+    void updateValues(@SmartBindBean Iterable<CustomFieldModelDao> customFields,
+                      @SmartBindBean InternalCallContext context);
 
     @SqlUpdate
     @Audited(ChangeType.DELETE)
-    void markTagAsDeleted(@Bind("id") String customFieldId,
-                          @SmartBindBean InternalCallContext context);
+    void markTagsAsDeleted(@BindIn("ids") Collection<String> customFieldIds,
+                           @SmartBindBean InternalCallContext context);
 
     @SqlQuery
     List<CustomFieldModelDao> getCustomFieldsForObject(@Bind("objectId") UUID objectId,
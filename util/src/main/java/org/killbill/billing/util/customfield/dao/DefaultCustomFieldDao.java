@@ -18,8 +18,13 @@
 
 package org.killbill.billing.util.customfield.dao;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
@@ -120,10 +125,24 @@ public class DefaultCustomFieldDao extends EntityDaoBase<CustomFieldModelDao, Cu
             public Void inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
                 final CustomFieldSqlDao sqlDao = entitySqlDaoWrapperFactory.become(CustomFieldSqlDao.class);
 
+                final Collection<String> customFieldIdsToDelete = new LinkedHashSet<String>();
                 for (final UUID cur : customFieldIds) {
-                    final CustomFieldModelDao customField = sqlDao.getById(cur.toString(), context);
+                    customFieldIdsToDelete.add(cur.toString());
+                }
+                if (customFieldIdsToDelete.isEmpty()) {
+                    return null;
+                }
+
+                // PERF: a single update (and a single batch of history and audit entries) for all custom fields
+                final Map<String, CustomFieldModelDao> existingCustomFields = getCustomFieldsByIds(sqlDao, customFieldIdsToDelete, context);
+                if (existingCustomFields.isEmpty()) {
+                    return null;
+                }
+                sqlDao.markTagsAsDeleted(ImmutableList.<String>copyOf(existingCustomFields.keySet()), context);
+
+                for (final String cur : customFieldIdsToDelete) {
+                    final CustomFieldModelDao customField = existingCustomFields.get(cur);
                     if (customField != null) {
-                        sqlDao.markTagAsDeleted(cur.toString(), context);
                         postBusEventFromTransaction(customField, customField, ChangeType.DELETE, entitySqlDaoWrapperFactory, context);
                     }
                 }
@@ -157,20 +176,40 @@ public class DefaultCustomFieldDao extends EntityDaoBase<CustomFieldModelDao, Cu
             public Void inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
                 final CustomFieldSqlDao sqlDao = entitySqlDaoWrapperFactory.become(CustomFieldSqlDao.class);
 
+                // The last value wins if the same custom field is updated more than once
+                final Map<String, CustomFieldModelDao> customFieldsToUpdate = new LinkedHashMap<String, CustomFieldModelDao>();
                 for (final CustomFieldModelDao cur : customFieldIds) {
-                    final CustomFieldModelDao customField = sqlDao.getById(cur.getId().toString(), context);
+                    customFieldsToUpdate.put(cur.getId().toString(), cur);
+                }
+                if (customFieldsToUpdate.isEmpty()) {
+                    return null;
+                }
 
-                    validateCustomField(cur, customField);
+                final Map<String, CustomFieldModelDao> existingCustomFields = getCustomFieldsByIds(sqlDao, customFieldsToUpdate.keySet(), context);
+                for (final CustomFieldModelDao cur : customFieldIds) {
+                    validateCustomField(cur, existingCustomFields.get(cur.getId().toString()));
+                }
 
-                    sqlDao.updateValue(cur.getId().toString(), cur.getFieldValue(), context);
-                    postBusEventFromTransaction(customField, customField, ChangeType.UPDATE, entitySqlDaoWrapperFactory, context);
+                // PERF: a single batch update (and a single batch of history and audit entries) for all custom fields
+                sqlDao.updateValues(customFieldsToUpdate.values(), context);
 
+                for (final CustomFieldModelDao cur : customFieldIds) {
+                    final CustomFieldModelDao customField = existingCustomFields.get(cur.getId().toString());
+                    postBusEventFromTransaction(customField, customField, ChangeType.UPDATE, entitySqlDaoWrapperFactory, context);
                 }
                 return null;
             }
         });
     }
 
+    private Map<String, CustomFieldModelDao> getCustomFieldsByIds(final CustomFieldSqlDao sqlDao, final Collection<String> customFieldIds, final InternalCallContext context) {
+        final Map<String, CustomFieldModelDao> customFieldsById = new HashMap<String, CustomFieldModelDao>();
+        for (final CustomFieldModelDao customField : sqlDao.getByIds(customFieldIds, context)) {
+            customFieldsById.put(customField.getId().toString(), customField);
+        }
+        return customFieldsById;
+    }
+
     @Override
     public List<AuditLogWithHistory> getCustomFieldAuditLogsWithHistoryForId(final UUID customFieldId, final AuditLevel auditLevel, final InternalTenantContext context) {
         return transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<List<AuditLogWithHistory>>() {
@@ -18,6 +18,11 @@
 
 package org.killbill.billing.util.dao;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
@@ -30,6 +35,7 @@ import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.cache.CacheLoaderArgument;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.entity.dao.DBRouter;
+import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.commons.profiling.Profiling;
 import org.killbill.commons.profiling.Profiling.WithProfilingCallback;
 import org.killbill.commons.profiling.ProfilingFeature.ProfilingFeatureType;
@@ -37,7 +43,11 @@ import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.IDBI;
 import org.skife.jdbi.v2.sqlobject.SqlObjectBuilder;
 
+import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
 
 import static org.killbill.billing.util.glue.IDBISetup.MAIN_RO_IDBI_NAMED;
 
@@ -160,6 +170,85 @@ public class DefaultNonEntityDao implements NonEntityDao {
         }, String.valueOf(recordId), objectType, tableName, cache);
     }
 
+    @Override
+    public Map<UUID, Long> retrieveRecordIdsFromObjects(final Collection<UUID> objectIds, final ObjectType objectType, @Nullable final CacheController<String, Long> cache) {
+        final TableName tableName = TableName.fromObjectType(objectType);
+        Preconditions.checkNotNull(tableName, "%s is not a valid ObjectType", objectType);
+
+        return withCachingObjectId.withCaching(new BulkOperationRetrieval<UUID, Long>() {
+            @Override
+            public Map<UUID, Long> doRetrieve(final List<UUID> objectIds) {
+                return toRecordIdsByObjectId(dbRouter.onDemand(true).getRecordIdsFromObjects(toStrings(objectIds), tableName.getTableName()));
+            }
+        }, objectIds, objectType, tableName, cache);
+    }
+
+    @Override
+    public Map<UUID, Long> retrieveAccountRecordIdsFromObjects(final Collection<UUID> objectIds, final ObjectType objectType, @Nullable final CacheController<String, Long> cache) {
+        final TableName tableName = TableName.fromObjectType(objectType);
+        Preconditions.checkNotNull(tableName, "%s is not a valid ObjectType", objectType);
+
+        switch (tableName) {
+            case TENANT:
+            case TAG_DEFINITIONS:
+            case TAG_DEFINITION_HISTORY:
+                return ImmutableMap.<UUID, Long>of();
+            default:
+                break;
+        }
+
+        return withCachingObjectId.withCaching(new BulkOperationRetrieval<UUID, Long>() {
+            @Override
+            public Map<UUID, Long> doRetrieve(final List<UUID> objectIds) {
+                final NonEntitySqlDao nonEntitySqlDao = dbRouter.onDemand(true);
+                if (tableName == TableName.ACCOUNT) {
+                    return toRecordIdsByObjectId(nonEntitySqlDao.getRecordIdsFromObjects(toStrings(objectIds), tableName.getTableName()));
+                } else {
+                    return toRecordIdsByObjectId(nonEntitySqlDao.getAccountRecordIdsFromObjectsOtherThanAccount(toStrings(objectIds), tableName.getTableName()));
+                }
+            }
+        }, objectIds, objectType, tableName, cache);
+    }
+
+    @Override
+    public Map<UUID, Long> retrieveTenantRecordIdsFromObjects(final Collection<UUID> objectIds, final ObjectType objectType, @Nullable final CacheController<String, Long> cache) {
+        final TableName tableName = TableName.fromObjectType(objectType);
+        Preconditions.checkNotNull(tableName, "%s is not a valid ObjectType", objectType);
+
+        return withCachingObjectId.withCaching(new BulkOperationRetrieval<UUID, Long>() {
+            @Override
+            public Map<UUID, Long> doRetrieve(final List<UUID> objectIds) {
+                final NonEntitySqlDao nonEntitySqlDao = dbRouter.onDemand(true);
+                if (tableName == TableName.TENANT) {
+                    return toRecordIdsByObjectId(nonEntitySqlDao.getRecordIdsFromObjects(toStrings(objectIds), tableName.getTableName()));
+                } else {
+                    return toRecordIdsByObjectId(nonEntitySqlDao.getTenantRecordIdsFromObjectsOtherThanTenant(toStrings(objectIds), tableName.getTableName()));
+                }
+            }
+        }, objectIds, objectType, tableName, cache);
+    }
+
+    @Override
+    public Map<Long, UUID> retrieveIdsFromObjects(final Collection<Long> recordIds, final ObjectType objectType, @Nullable final CacheController<String, UUID> cache) {
+        final TableName tableName = TableName.fromObjectType(objectType);
+        Preconditions.checkNotNull(tableName, "%s is not a valid ObjectType", objectType);
+
+        final Collection<Long> filteredRecordIds;
+        if (objectType == ObjectType.TENANT && recordIds.contains(InternalCallContextFactory.INTERNAL_TENANT_RECORD_ID)) {
+            filteredRecordIds = new LinkedHashSet<Long>(recordIds);
+            filteredRecordIds.remove(InternalCallContextFactory.INTERNAL_TENANT_RECORD_ID);
+        } else {
+            filteredRecordIds = recordIds;
+        }
+
+        return withCachingRecordId.withCaching(new BulkOperationRetrieval<Long, UUID>() {
+            @Override
+            public Map<Long, UUID> doRetrieve(final List<Long> recordIds) {
+                return RecordIdIdMappings.toMap(dbRouter.onDemand(true).getIdsFromObjects(recordIds, tableName.getTableName()));
+            }
+        }, filteredRecordIds, objectType, tableName, cache);
+    }
+
     @Override
     public Long retrieveLastHistoryRecordIdFromTransaction(@Nullable final Long targetRecordId, final TableName tableName, final NonEntitySqlDao transactional) {
         // There is no caching here because the value returned changes as we add more history records, and so we would need some cache invalidation
@@ -171,11 +260,34 @@ public class DefaultNonEntityDao implements NonEntityDao {
         return dbRouter.onDemand(true).getHistoryTargetRecordId(recordId, tableName.getTableName());
     }
 
+    private static List<String> toStrings(final List<UUID> objectIds) {
+        return ImmutableList.<String>copyOf(Iterables.<UUID, String>transform(objectIds, new Function<UUID, String>() {
+            @Override
+            public String apply(final UUID input) {
+                return input.toString();
+            }
+        }));
+    }
+
+    // The record_id column of the mappings contains the requested value (record_id, account_record_id or tenant_record_id)
+    private static Map<UUID, Long> toRecordIdsByObjectId(final Iterable<RecordIdIdMappings> mappings) {
+        final Map<UUID, Long> result = new HashMap<UUID, Long>();
+        for (final RecordIdIdMappings mapping : mappings) {
+            result.put(mapping.getId(), mapping.getRecordId());
+        }
+        return result;
+    }
+
     private interface OperationRetrieval<TypeOut> {
 
         public TypeOut doRetrieve(final ObjectType objectType);
     }
 
+    private interface BulkOperationRetrieval<TypeKey, TypeOut> {
+
+        public Map<TypeKey, TypeOut> doRetrieve(final List<TypeKey> objectOrRecordIds);
+    }
+
     // 'cache' will be null for the CacheLoader classes -- or if cache is not configured.
     private class WithCaching<TypeIn, TypeOut> {
 
@@ -186,9 +298,7 @@ public class DefaultNonEntityDao implements NonEntityDao {
                 return null;
             }
             if (cache != null) {
-                final TypeIn key = (cache.getCacheType().isKeyPrefixedWithTableName()) ?
-                                   (TypeIn) (tableName + CacheControllerDispatcher.CACHE_KEY_SEPARATOR + objectOrRecordId.toString()) :
-                                   objectOrRecordId;
+                final TypeIn key = getCacheKey(objectOrRecordId, tableName, cache);
                 return cache.get(key, new CacheLoaderArgument(objectType));
             }
             final TypeOut result;
@@ -200,5 +310,54 @@ public class DefaultNonEntityDao implements NonEntityDao {
             });
             return result;
         }
+
+        private <TypeKey> Map<TypeKey, TypeOut> withCaching(final BulkOperationRetrieval<TypeKey, TypeOut> op, final Collection<TypeKey> objectOrRecordIds, final ObjectType objectType, final TableName tableName, @Nullable final CacheController<TypeIn, TypeOut> cache) {
+            final Map<TypeKey, TypeOut> result = new HashMap<TypeKey, TypeOut>();
+
+            // Only look at the cache content here: misses are resolved in bulk below instead of going through the cache loader one by one
+            final Collection<TypeKey> missingObjectOrRecordIds = new LinkedHashSet<TypeKey>();
+            for (final TypeKey objectOrRecordId : objectOrRecordIds) {
+                if (objectOrRecordId == null) {
+                    continue;
+                }
+                if (cache != null) {
+                    final TypeIn key = getCacheKey(objectOrRecordId, tableName, cache);
+                    if (cache.isKeyInCache(key)) {
+                        final TypeOut cachedValue = cache.get(key, new CacheLoaderArgument(objectType));
+                        if (cachedValue != null) {
+                            result.put(objectOrRecordId, cachedValue);
+                            continue;
+                        }
+                    }
+                }
+                missingObjectOrRecordIds.add(objectOrRecordId);
+            }
+
+            final Profiling<Map<TypeKey, TypeOut>, RuntimeException> prof = new Profiling<Map<TypeKey, TypeOut>, RuntimeException>();
+            for (final List<TypeKey> chunk : Iterables.<TypeKey>partition(missingObjectOrRecordIds, EntitySqlDao.MAX_IDS_PER_QUERY)) {
+                final Map<TypeKey, TypeOut> retrieved = prof.executeWithProfiling(ProfilingFeatureType.DAO_DETAILS, "NonEntityDao (type = " + objectType + ") bulk cache miss", new WithProfilingCallback<Map<TypeKey, TypeOut>, RuntimeException>() {
+                    @Override
+                    public Map<TypeKey, TypeOut> execute() throws RuntimeException {
+                        return op.doRetrieve(chunk);
+                    }
+                });
+                for (final Map.Entry<TypeKey, TypeOut> entry : retrieved.entrySet()) {
+                    if (entry.getValue() == null) {
+                        continue;
+                    }
+                    result.put(entry.getKey(), entry.getValue());
+                    if (cache != null) {
+                        cache.putIfAbsent(getCacheKey(entry.getKey(), tableName, cache), entry.getValue());
+                    }
+                }
+            }
+            return result;
+        }
+
+        private TypeIn getCacheKey(final Object objectOrRecordId, final TableName tableName, final CacheController<TypeIn, TypeOut> cache) {
+            return (cache.getCacheType().isKeyPrefixedWithTableName()) ?
+                   (TypeIn) (tableName + CacheControllerDispatcher.CACHE_KEY_SEPARATOR + objectOrRecordId.toString()) :
+                   (TypeIn) objectOrRecordId.toString();
+        }
     }
 }
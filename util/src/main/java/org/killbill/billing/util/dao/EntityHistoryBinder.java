@@ -26,6 +26,8 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.skife.jdbi.v2.SQLStatement;
 import org.skife.jdbi.v2.sqlobject.Binder;
@@ -46,6 +48,9 @@ public @interface EntityHistoryBinder {
 
         private static final Logger logger = LoggerFactory.getLogger(EntityHistoryBinder.class);
 
+        // PERF: history entries are inserted in batches, avoid introspecting the entity class for each row
+        private static final ConcurrentMap<Class<?>, PropertyDescriptor[]> PROPERTY_DESCRIPTORS = new ConcurrentHashMap<Class<?>, PropertyDescriptor[]>();
+
         @Override
         public Binder build(final Annotation annotation) {
             return new Binder<EntityHistoryBinder, EntityHistoryModelDao<M, E>>() {
@@ -55,8 +60,7 @@ public @interface EntityHistoryBinder {
                     try {
                         // Emulate @SmartBindBean
                         final M arg = history.getEntity();
-                        final BeanInfo infos = Introspector.getBeanInfo(arg.getClass());
-                        final PropertyDescriptor[] props = infos.getPropertyDescriptors();
+                        final PropertyDescriptor[] props = getPropertyDescriptors(arg.getClass());
                         for (final PropertyDescriptor prop : props) {
                             q.bind(prop.getName(), prop.getReadMethod().invoke(arg));
                         }
@@ -73,5 +77,15 @@ public @interface EntityHistoryBinder {
                 }
             };
         }
+
+        private static PropertyDescriptor[] getPropertyDescriptors(final Class<?> clazz) throws IntrospectionException {
+            PropertyDescriptor[] propertyDescriptors = PROPERTY_DESCRIPTORS.get(clazz);
+            if (propertyDescriptors == null) {
+                final BeanInfo infos = Introspector.getBeanInfo(clazz);
+                propertyDescriptors = infos.getPropertyDescriptors();
+                PROPERTY_DESCRIPTORS.put(clazz, propertyDescriptors);
+            }
+            return propertyDescriptors;
+        }
     }
 }
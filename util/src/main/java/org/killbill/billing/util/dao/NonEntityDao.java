@@ -18,6 +18,8 @@
 
 package org.killbill.billing.util.dao;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
@@ -45,6 +47,16 @@ public interface NonEntityDao {
 
     public UUID retrieveIdFromObjectInTransaction(final Long recordId, final ObjectType objectType, @Nullable final CacheController<String, UUID> cache, @Nullable final Handle handle);
 
+    // Bulk versions of the above: cache misses are resolved with IN queries and the cache is populated with the results.
+    // Objects which can't be found (or don't have the requested column set) are omitted from the returned map
+    public Map<UUID, Long> retrieveRecordIdsFromObjects(final Collection<UUID> objectIds, final ObjectType objectType, @Nullable final CacheController<String, Long> cache);
+
+    public Map<UUID, Long> retrieveAccountRecordIdsFromObjects(final Collection<UUID> objectIds, final ObjectType objectType, @Nullable final CacheController<String, Long> cache);
+
+    public Map<UUID, Long> retrieveTenantRecordIdsFromObjects(final Collection<UUID> objectIds, final ObjectType objectType, @Nullable final CacheController<String, Long> cache);
+
+    public Map<Long, UUID> retrieveIdsFromObjects(final Collection<Long> recordIds, final ObjectType objectType, @Nullable final CacheController<String, UUID> cache);
+
     // This retrieves from the history table the latest record for which targetId matches the one we are passing
     public Long retrieveLastHistoryRecordIdFromTransaction(final Long targetRecordId, final TableName tableName, final NonEntitySqlDao transactional);
 
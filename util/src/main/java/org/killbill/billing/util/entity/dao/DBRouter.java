@@ -17,6 +17,9 @@
 
 package org.killbill.billing.util.entity.dao;
 
+import javax.annotation.Nullable;
+
+import org.killbill.billing.callcontext.InternalTenantContext;
 import org.skife.jdbi.v2.IDBI;
 
 public class DBRouter<C> extends DBRouterUntyped {
@@ -37,4 +40,12 @@ public class DBRouter<C> extends DBRouterUntyped {
             return onDemand;
         }
     }
+
+    public C onDemand(final boolean requestedRO, @Nullable final InternalTenantContext context) {
+        if (shouldUseRODBI(requestedRO, context)) {
+            return roOnDemand;
+        } else {
+            return onDemand;
+        }
+    }
 }
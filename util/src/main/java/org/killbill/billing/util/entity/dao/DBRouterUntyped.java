@@ -17,6 +17,13 @@
 
 package org.killbill.billing.util.entity.dao;
 
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.commons.profiling.Profiling.WithProfilingCallback;
 import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.IDBI;
@@ -25,6 +32,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.MapMaker;
 
 import static org.killbill.billing.util.entity.dao.DBRouterUntyped.THREAD_STATE.RO_ALLOWED;
 import static org.killbill.billing.util.entity.dao.DBRouterUntyped.THREAD_STATE.RW_ONLY;
@@ -40,6 +48,18 @@ public class DBRouterUntyped {
         }
     };
 
+    // Accounts modified by the current transaction(s), see #recordWrite
+    private static final ThreadLocal<TransactionWrites> CURRENT_THREAD_WRITES = new ThreadLocal<TransactionWrites>() {
+        @Override
+        public TransactionWrites initialValue() {
+            return new TransactionWrites();
+        }
+    };
+
+    // Monitors are keyed by the RW DBI they measure, so that several injectors (e.g. tests, embedded instances) don't step on each other's toes.
+    // No entry when lag-aware routing is disabled. Weak keys (i.e. identity): the entry goes away with the DBI.
+    private static final ConcurrentMap<IDBI, ReplicaLagMonitor> REPLICA_LAG_MONITORS = new MapMaker().weakKeys().makeMap();
+
     protected final IDBI dbi;
     protected final IDBI roDbi;
 
@@ -65,7 +85,70 @@ public class DBRouterUntyped {
         return CURRENT_THREAD_STATE.get();
     }
 
+    static void setReplicaLagMonitor(final IDBI dbi, @Nullable final ReplicaLagMonitor monitor) {
+        if (monitor == null) {
+            REPLICA_LAG_MONITORS.remove(dbi);
+        } else {
+            REPLICA_LAG_MONITORS.put(dbi, monitor);
+        }
+    }
+
+    /**
+     * Record a write for that account in the current transaction: once committed (see #onTransactionCompleted), RO reads
+     * for that account on this node are sent to the RW instance until the write has been replicated.
+     *
+     * @param accountRecordId account record id of the modified entity, if any
+     */
+    public static void recordWrite(@Nullable final Long accountRecordId) {
+        if (accountRecordId != null && !REPLICA_LAG_MONITORS.isEmpty()) {
+            CURRENT_THREAD_WRITES.get().accountRecordIds.add(accountRecordId);
+        }
+    }
+
+    void onTransactionStarted() {
+        CURRENT_THREAD_WRITES.get().depth++;
+    }
+
+    void onTransactionCompleted(final boolean committed) {
+        final TransactionWrites writes = CURRENT_THREAD_WRITES.get();
+        writes.depth--;
+        // Nested transactions: the writes are only visible once the outermost one has committed
+        if (writes.depth > 0 || writes.accountRecordIds.isEmpty()) {
+            return;
+        }
+
+        final ReplicaLagMonitor monitor = getReplicaLagMonitor();
+        if (committed && monitor != null) {
+            monitor.recordWrites(writes.accountRecordIds);
+        }
+        writes.accountRecordIds.clear();
+    }
+
+    @Nullable
+    private ReplicaLagMonitor getReplicaLagMonitor() {
+        return REPLICA_LAG_MONITORS.get(dbi);
+    }
+
     boolean shouldUseRODBI(final boolean requestedRO) {
+        return shouldUseRODBI(requestedRO, null);
+    }
+
+    boolean shouldUseRODBI(final boolean requestedRO, @Nullable final InternalTenantContext context) {
+        if (!isRODBIRequestedAndAllowed(requestedRO)) {
+            return false;
+        }
+
+        final ReplicaLagMonitor monitor = getReplicaLagMonitor();
+        if (monitor != null && !monitor.canUseReplica(context != null ? context.getAccountRecordId() : null)) {
+            // Only this call is redirected, the thread state is left untouched
+            logger.debug("RO DBI requested, but the replica is lagging, using RW DBI");
+            return false;
+        }
+
+        return true;
+    }
+
+    private boolean isRODBIRequestedAndAllowed(final boolean requestedRO) {
         if (requestedRO) {
             if (isRODBIAllowed()) {
                 logger.debug("Using RO DBI");
@@ -92,7 +175,16 @@ public class DBRouterUntyped {
     }
 
     public Handle getHandle(final boolean requestedRO) {
-        if (shouldUseRODBI(requestedRO)) {
+        return getHandle(requestedRO, null);
+    }
+
+    /**
+     * @param requestedRO hint as whether to use the read-only connection
+     * @param context     when specified, reads-your-writes consistency is guaranteed for the context account, for the writes made by this node
+     * @return a new handle
+     */
+    public Handle getHandle(final boolean requestedRO, @Nullable final InternalTenantContext context) {
+        if (shouldUseRODBI(requestedRO, context)) {
             return roDbi.open();
         } else {
             return dbi.open();
@@ -100,7 +192,11 @@ public class DBRouterUntyped {
     }
 
     public <T> T onDemand(final boolean requestedRO, final Class<T> sqlObjectType) {
-        if (shouldUseRODBI(requestedRO)) {
+        return onDemand(requestedRO, null, sqlObjectType);
+    }
+
+    public <T> T onDemand(final boolean requestedRO, @Nullable final InternalTenantContext context, final Class<T> sqlObjectType) {
+        if (shouldUseRODBI(requestedRO, context)) {
             return roDbi.onDemand(sqlObjectType);
         } else {
             return dbi.onDemand(sqlObjectType);
@@ -115,6 +211,12 @@ public class DBRouterUntyped {
         }
     }
 
+    private static final class TransactionWrites {
+
+        private final Set<Long> accountRecordIds = new HashSet<Long>();
+        private int depth = 0;
+    }
+
     public enum THREAD_STATE {
         // Advisory that RO DBI can be used
         RO_ALLOWED,
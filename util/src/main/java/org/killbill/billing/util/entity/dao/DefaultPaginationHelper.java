@@ -16,6 +16,7 @@
 
 package org.killbill.billing.util.entity.dao;
 
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -98,6 +99,26 @@ public class DefaultPaginationHelper {
                                                             Predicates.<E>notNull()));
     }
 
+    // Same as getEntityPagination, but the models are transformed in batches of batchSize (to load their associated data in bulk)
+    public static <E extends Entity, O, T extends BillingExceptionBase> Pagination<E> getEntityPaginationInBatches(final Long limit,
+                                                                                                                   final int batchSize,
+                                                                                                                   final SourcePaginationBuilder<O, T> sourcePaginationBuilder,
+                                                                                                                   final Function<List<O>, ? extends Iterable<E>> function) throws T {
+        final Pagination<O> modelsDao = sourcePaginationBuilder.build();
+
+        final Iterator<Iterator<E>> batches = Iterators.<List<O>, Iterator<E>>transform(Iterators.<O>partition(modelsDao.iterator(), batchSize),
+                                                                                        new Function<List<O>, Iterator<E>>() {
+                                                                                            @Override
+                                                                                            public Iterator<E> apply(final List<O> models) {
+                                                                                                return function.apply(models).iterator();
+                                                                                            }
+                                                                                        });
+        return new DefaultPagination<E>(modelsDao,
+                                        limit,
+                                        Iterators.<E>filter(Iterators.<E>concat(batches),
+                                                            Predicates.<E>notNull()));
+    }
+
     public static <E extends Entity, O, T extends BillingExceptionBase> Pagination<E> getEntityPaginationNoException(final Long limit,
                                                                                                                      final SourcePaginationBuilder<O, T> sourcePaginationBuilder,
                                                                                                                      final Function<O, E> function) {
@@ -19,6 +19,7 @@
 package org.killbill.billing.util.entity.dao;
 
 import java.util.Iterator;
+import java.util.List;
 
 import javax.annotation.Nullable;
 
@@ -30,6 +31,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 
 public class DefaultPaginationSqlDaoHelper {
 
@@ -63,6 +65,15 @@ public class DefaultPaginationSqlDaoHelper {
         final Ordering ordering = limitMaybeNegative >= 0 ? Ordering.ASC : Ordering.DESC;
         final Long limit = Math.abs(limitMaybeNegative);
 
+        final KeysetPagination keysetPagination = context == null ? null : KeysetPagination.consume();
+        if (keysetPagination != null) {
+            final Pagination<M> keysetResults = getKeysetPagination(sqlDaoClazz, paginationIteratorBuilder, keysetPagination, offset, limit, ordering, context);
+            if (keysetResults != null) {
+                return keysetResults;
+            }
+            // Not supported by that query, fallback to offset pagination
+        }
+
         // Note: the connection will be busy as we stream the results out: hence we cannot use
         // SQL_CALC_FOUND_ROWS / FOUND_ROWS on the actual query.
         // We still need to know the actual number of results, mainly for the UI so that it knows if it needs to fetch
@@ -102,6 +113,38 @@ public class DefaultPaginationSqlDaoHelper {
         return new DefaultPagination<M>(offset, limit, totalNbRecords, maxNbRecords, results);
     }
 
+    private <E extends Entity, M extends EntityModelDao<E>, S extends EntitySqlDao<M, E>> Pagination<M> getKeysetPagination(final Class<? extends EntitySqlDao<M, E>> sqlDaoClazz,
+                                                                                                                             final PaginationIteratorBuilder<M, E, S> paginationIteratorBuilder,
+                                                                                                                             final KeysetPagination keysetPagination,
+                                                                                                                             final Long offset,
+                                                                                                                             final Long limit,
+                                                                                                                             final Ordering ordering,
+                                                                                                                             final InternalTenantContext context) {
+        // The page is materialized (limit is expected to be small): the next page token needs to be known before the results are streamed out
+        // (it is returned as a header). No count is issued (totalNbRecords and maxNbRecords are unknown).
+        final List<M> results = transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<List<M>>() {
+            @Override
+            public List<M> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                final EntitySqlDao<M, E> sqlDao = entitySqlDaoWrapperFactory.become(sqlDaoClazz);
+                final Iterator<M> iterator = paginationIteratorBuilder.buildFromRecordId((S) sqlDao,
+                                                                                         keysetPagination.getMinRecordId(ordering),
+                                                                                         keysetPagination.getMaxRecordId(ordering),
+                                                                                         limit,
+                                                                                         ordering,
+                                                                                         context);
+                return iterator == null ? null : ImmutableList.<M>copyOf(iterator);
+            }
+        });
+        if (results == null) {
+            return null;
+        }
+
+        keysetPagination.setNextRecordId(results.size() < limit ? null : results.get(results.size() - 1).getRecordId());
+        logger.debug("Keyset pagination: nbResults='{}', nextPageToken='{}'", results.size(), keysetPagination.getNextPageToken());
+
+        return new DefaultPagination<M>(offset, limit, null, null, results.iterator());
+    }
+
     public abstract static class PaginationIteratorBuilder<M extends EntityModelDao<E>, E extends Entity, S extends EntitySqlDao<M, E>> {
 
         // Determine the totalNbRecords:
@@ -110,6 +153,12 @@ public class DefaultPaginationSqlDaoHelper {
         public abstract Long getCount(final S sqlDao, final InternalTenantContext context);
 
         public abstract Iterator<M> build(final S sqlDao, final Long offset, final Long limit, final Ordering ordering, final InternalTenantContext context);
+
+        // Keyset pagination (see KeysetPagination): return the records with minRecordId < record_id < maxRecordId, ordered by record_id.
+        // Return null if not supported by the underlying query.
+        public Iterator<M> buildFromRecordId(final S sqlDao, final Long minRecordId, final Long maxRecordId, final Long limit, final Ordering ordering, final InternalTenantContext context) {
+            return null;
+        }
     }
 
     public enum Ordering {
@@ -217,6 +217,12 @@ public abstract class EntityDaoBase<M extends EntityModelDao<E>, E extends Entit
                                                   public Iterator<M> build(final EntitySqlDao<M, E> sqlDao, final Long offset, final Long limit, final Ordering ordering, final InternalTenantContext context) {
                                                       return sqlDao.get(offset, limit, getNaturalOrderingColumns(), ordering.toString(), context);
                                                   }
+
+                                                  @Override
+                                                  public Iterator<M> buildFromRecordId(final EntitySqlDao<M, E> sqlDao, final Long minRecordId, final Long maxRecordId, final Long limit, final Ordering ordering, final InternalTenantContext context) {
+                                                      // Keyset pagination is only keyed on record_id
+                                                      return "record_id".equals(getNaturalOrderingColumns()) ? sqlDao.getByRecordIdRange(minRecordId, maxRecordId, limit, ordering.toString(), context) : null;
+                                                  }
                                               },
                                               offset,
                                               limit,
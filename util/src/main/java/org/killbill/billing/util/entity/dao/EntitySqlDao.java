@@ -46,6 +46,13 @@ import org.skife.jdbi.v2.util.LongMapper;
 @KillBillSqlDaoStringTemplate
 public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> extends AuditSqlDao, HistorySqlDao<M, E>, Transactional<EntitySqlDao<M, E>>, CloseMe {
 
+    // Arbitrary value, just a safety mechanism in case of very large datasets
+    public static final int BATCH_CHUNK_SIZE = 1000;
+
+    // Maximum number of ids in the IN clause of a single query: same bound as the batch chunk size, so that
+    // the record ids returned by a batch insert can be read back in one query
+    public static final int MAX_IDS_PER_QUERY = BATCH_CHUNK_SIZE;
+
     @SqlUpdate
     @GetGeneratedKeys(value = LongMapper.class, columnName = "record_id")
     @Audited(ChangeType.INSERT)
@@ -53,7 +60,7 @@ public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> ext
                          @SmartBindBean final InternalCallContext context);
 
     @SqlBatch
-    @BatchChunkSize(1000) // Arbitrary value, just a safety mechanism in case of very large datasets
+    @BatchChunkSize(BATCH_CHUNK_SIZE)
     @GetGeneratedKeys(value = LongMapper.class, columnName = "record_id")
     @Audited(ChangeType.INSERT)
     // Note that you cannot rely on the ordering here
@@ -99,6 +106,16 @@ public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> ext
                               @Define("ordering") final String ordering,
                               @SmartBindBean final InternalTenantContext context);
 
+    @SqlQuery
+    @SmartFetchSize(shouldStream = true)
+    public Iterator<M> searchByRecordIdRange(@Bind("searchKey") final String searchKey,
+                                             @Bind("likeSearchKey") final String likeSearchKey,
+                                             @Bind("minRecordId") final Long minRecordId,
+                                             @Bind("maxRecordId") final Long maxRecordId,
+                                             @Bind("rowCount") final Long rowCount,
+                                             @Define("ordering") final String ordering,
+                                             @SmartBindBean final InternalTenantContext context);
+
     @SqlQuery
     public Long getSearchCount(@Bind("searchKey") final String searchKey,
                                @Bind("likeSearchKey") final String likeSearchKey,
@@ -116,6 +133,14 @@ public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> ext
                            @Define("ordering") final String ordering,
                            @SmartBindBean final InternalTenantContext context);
 
+    @SqlQuery
+    @SmartFetchSize(shouldStream = true)
+    public Iterator<M> getByRecordIdRange(@Bind("minRecordId") final Long minRecordId,
+                                          @Bind("maxRecordId") final Long maxRecordId,
+                                          @Bind("rowCount") final Long rowCount,
+                                          @Define("ordering") final String ordering,
+                                          @SmartBindBean final InternalTenantContext context);
+
     @SqlQuery
     public Long getRecordIdAtOffset(@Bind("offset") final Long offset);
 
@@ -20,6 +20,7 @@ package org.killbill.billing.util.entity.dao;
 
 import javax.annotation.Nullable;
 
+import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.dao.NonEntityDao;
@@ -85,10 +86,27 @@ public class EntitySqlDaoTransactionalJdbiWrapper {
      * @return result from the transaction fo type ReturnType
      */
     public <ReturnType> ReturnType execute(final boolean requestedRO, final EntitySqlDaoTransactionWrapper<ReturnType> entitySqlDaoTransactionWrapper) {
+        return doExecute(requestedRO, null, entitySqlDaoTransactionWrapper);
+    }
+
+    /**
+     * @param <ReturnType>                   object type to return from the transaction
+     * @param requestedRO                    hint as whether to use the read-only connection
+     * @param context                        when specified, the read-only connection is only used if it has all the writes this node made for that account
+     * @param entitySqlDaoTransactionWrapper transaction to execute
+     * @return result from the transaction fo type ReturnType
+     */
+    public <ReturnType> ReturnType execute(final boolean requestedRO, @Nullable final InternalTenantContext context, final EntitySqlDaoTransactionWrapper<ReturnType> entitySqlDaoTransactionWrapper) {
+        return doExecute(requestedRO, context, entitySqlDaoTransactionWrapper);
+    }
+
+    private <ReturnType> ReturnType doExecute(final boolean requestedRO, @Nullable final InternalTenantContext context, final EntitySqlDaoTransactionWrapper<ReturnType> entitySqlDaoTransactionWrapper) {
         final String debugInfo = logger.isDebugEnabled() ? getDebugInfo() : null;
 
-        final Handle handle = dbRouter.getHandle(requestedRO);
+        final Handle handle = dbRouter.getHandle(requestedRO, context);
         logger.debug("DBI handle created, transaction: {}", debugInfo);
+        boolean committed = false;
+        dbRouter.onTransactionStarted();
         try {
             final EntitySqlDao<EntityModelDao<Entity>, Entity> entitySqlDao = handle.attach(InitialEntitySqlDao.class);
             // The transaction isolation level is now set at the pool level: this avoids 3 roundtrips for each transaction
@@ -97,8 +115,10 @@ public class EntitySqlDaoTransactionalJdbiWrapper {
             logger.debug("Starting transaction {}", debugInfo);
             final ReturnType returnType = entitySqlDao.inTransaction(new JdbiTransaction<ReturnType, EntityModelDao<Entity>, Entity>(handle, entitySqlDaoTransactionWrapper));
             logger.debug("Exiting  transaction {}, returning {}", debugInfo, returnType);
+            committed = true;
             return returnType;
         } finally {
+            dbRouter.onTransactionCompleted(committed);
             handle.close();
             logger.debug("DBI handle closed,  transaction: {}", debugInfo);
         }
@@ -109,7 +129,11 @@ public class EntitySqlDaoTransactionalJdbiWrapper {
     // to send bus events, record notifications where we need to keep the Connection through the jDBI Handle.
     //
     public <M extends EntityModelDao<E>, E extends Entity, T extends EntitySqlDao<M, E>> T onDemandForStreamingResults(final Class<T> sqlObjectType) {
-        return dbRouter.onDemand(true, sqlObjectType);
+        return onDemandForStreamingResults(sqlObjectType, null);
+    }
+
+    public <M extends EntityModelDao<E>, E extends Entity, T extends EntitySqlDao<M, E>> T onDemandForStreamingResults(final Class<T> sqlObjectType, @Nullable final InternalTenantContext context) {
+        return dbRouter.onDemand(true, context, sqlObjectType);
     }
 
     /**
@@ -120,8 +144,20 @@ public class EntitySqlDaoTransactionalJdbiWrapper {
      * @return result from the transaction fo type ReturnType
      */
     public <ReturnType, E extends Exception> ReturnType execute(final boolean ro, @Nullable final Class<E> exception, final EntitySqlDaoTransactionWrapper<ReturnType> entitySqlDaoTransactionWrapper) throws E {
+        return execute(ro, null, exception, entitySqlDaoTransactionWrapper);
+    }
+
+    /**
+     * @param <ReturnType>                   object type to return from the transaction
+     * @param <E>                            checked exception which can be thrown from the transaction
+     * @param ro                             whether to use the read-only connection
+     * @param context                        when specified, the read-only connection is only used if it has all the writes this node made for that account
+     * @param entitySqlDaoTransactionWrapper transaction to execute
+     * @return result from the transaction fo type ReturnType
+     */
+    public <ReturnType, E extends Exception> ReturnType execute(final boolean ro, @Nullable final InternalTenantContext context, @Nullable final Class<E> exception, final EntitySqlDaoTransactionWrapper<ReturnType> entitySqlDaoTransactionWrapper) throws E {
         try {
-            return execute(ro, entitySqlDaoTransactionWrapper);
+            return doExecute(ro, context, entitySqlDaoTransactionWrapper);
         } catch (final RuntimeException e) {
             if (e.getCause() != null && exception != null && e.getCause().getClass().isAssignableFrom(exception)) {
                 throw (E) e.getCause();
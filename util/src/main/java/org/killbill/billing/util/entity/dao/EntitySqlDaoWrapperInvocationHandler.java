@@ -35,6 +35,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.Nullable;
 
@@ -68,7 +69,9 @@ import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 
 /**
  * Wraps an instance of EntitySqlDao, performing extra work around each method (Sql query)
@@ -81,9 +84,12 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
 
     private final Logger logger = LoggerFactory.getLogger(EntitySqlDaoWrapperInvocationHandler.class);
 
-    private final Map<String, Annotation[][]> parameterAnnotationsByMethod = new ConcurrentHashMap<String, Annotation[][]>();
+    // PERF: a new handler is created for each SqlDao in each transaction, so the reflection work (annotations lookups, profiling ids, ...)
+    // is done once per SqlDao interface and shared across all handlers
+    private static final ConcurrentMap<Class<?>, SqlDaoMetadata> SQL_DAO_METADATA = new ConcurrentHashMap<Class<?>, SqlDaoMetadata>();
 
     private final Class<S> sqlDaoClass;
+    private final SqlDaoMetadata sqlDaoMetadata;
     private final S sqlDao;
     private final Handle handle;
 
@@ -100,6 +106,7 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
                                                 @Nullable final CacheControllerDispatcher cacheControllerDispatcher,
                                                 final InternalCallContextFactory internalCallContextFactory) {
         this.sqlDaoClass = sqlDaoClass;
+        this.sqlDaoMetadata = getSqlDaoMetadata(sqlDaoClass);
         this.sqlDao = sqlDao;
         this.handle = handle;
         this.clock = clock;
@@ -110,11 +117,12 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
 
     @Override
     public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+        final MethodMetadata methodMetadata = sqlDaoMetadata.getMethodMetadata(method);
         try {
-            return prof.executeWithProfiling(ProfilingFeatureType.DAO, getProfilingId(null, method), new WithProfilingCallback<Object, Throwable>() {
+            return prof.executeWithProfiling(ProfilingFeatureType.DAO, methodMetadata.profilingId, new WithProfilingCallback<Object, Throwable>() {
                 @Override
                 public Object execute() throws Throwable {
-                    return invokeSafely(method, args);
+                    return invokeSafely(methodMetadata, args);
                 }
             });
         } catch (final Throwable t) {
@@ -182,31 +190,28 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         errorDuringTransaction(t, method, null);
     }
 
-    private Object invokeSafely(final Method method, final Object[] args) throws Throwable {
-        final Audited auditedAnnotation = method.getAnnotation(Audited.class);
-
-        final boolean isROQuery = method.getAnnotation(SqlQuery.class) != null;
-        Preconditions.checkState(auditedAnnotation != null || isROQuery, "Non-@SqlQuery method %s without @Audited annotation", method);
+    private Object invokeSafely(final MethodMetadata methodMetadata, final Object[] args) throws Throwable {
+        Preconditions.checkState(methodMetadata.changeType != null || methodMetadata.isROQuery, "Non-@SqlQuery method %s without @Audited annotation", methodMetadata.method);
 
         // This can't be AUDIT'ed and CACHABLE'd at the same time as we only cache 'get'
-        if (auditedAnnotation != null) {
-            return invokeWithAuditAndHistory(auditedAnnotation, method, args);
+        if (methodMetadata.changeType != null) {
+            return invokeWithAuditAndHistory(methodMetadata, args);
         } else {
-            return invokeRaw(method, args);
+            return invokeRaw(methodMetadata, args);
         }
     }
 
-    private Object invokeRaw(final Method method, final Object[] args) throws Throwable {
-        return prof.executeWithProfiling(ProfilingFeatureType.DAO_DETAILS, getProfilingId("raw", method), new WithProfilingCallback<Object, Throwable>() {
+    private Object invokeRaw(final MethodMetadata methodMetadata, final Object[] args) throws Throwable {
+        return prof.executeWithProfiling(ProfilingFeatureType.DAO_DETAILS, methodMetadata.rawProfilingId, new WithProfilingCallback<Object, Throwable>() {
             @Override
             public Object execute() throws Throwable {
                 // Real jdbc call
-                final Object result = executeJDBCCall(method, args);
+                final Object result = executeJDBCCall(methodMetadata.method, args);
                 // This is *almost* the default invocation except that we want to intercept getById calls to populate the caches; the pattern is to always fetch
                 // the object after it was created, which means this method is (by pattern) first called right after object creation and contains all the goodies we care
                 // about (record_id, account_record_id, object_id, tenant_record_id)
                 //
-                if (result != null && method.getName().equals("getById")) {
+                if (result != null && methodMetadata.isGetById) {
                     populateCacheOnGetByIdInvocation((M) result);
                 }
                 return result;
@@ -214,22 +219,22 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         });
     }
 
-    private Object invokeWithAuditAndHistory(final Audited auditedAnnotation, final Method method, final Object[] args) throws Throwable {
+    private Object invokeWithAuditAndHistory(final MethodMetadata methodMetadata, final Object[] args) throws Throwable {
         final InternalCallContext contextMaybeWithoutAccountRecordId = retrieveContextFromArguments(args);
-        final List<String> entityIds = retrieveEntityIdsFromArguments(method, args);
+        final List<String> entityIds = retrieveEntityIdsFromArguments(methodMetadata, args);
         Preconditions.checkState(!entityIds.isEmpty(), "@Audited Sql method must have entities (@Bind(\"id\")) as arguments");
         // We cannot always infer the TableName from the signature
         TableName tableName = retrieveTableNameFromArgumentsIfPossible(Arrays.asList(args));
-        final ChangeType changeType = auditedAnnotation.value();
-        final boolean isBatchQuery = method.getAnnotation(SqlBatch.class) != null;
+        final ChangeType changeType = methodMetadata.changeType;
+        final boolean isBatchQuery = methodMetadata.isBatchQuery;
 
         // Get the current state before deletion for the history tables
         final Map<Long, M> deletedAndUpdatedEntities = new HashMap<Long, M>();
         // Real jdbc call
-        final Object obj = prof.executeWithProfiling(ProfilingFeatureType.DAO_DETAILS, getProfilingId("raw", method), new WithProfilingCallback<Object, Throwable>() {
+        final Object obj = prof.executeWithProfiling(ProfilingFeatureType.DAO_DETAILS, methodMetadata.rawProfilingId, new WithProfilingCallback<Object, Throwable>() {
             @Override
             public Object execute() throws Throwable {
-                return executeJDBCCall(method, args);
+                return executeJDBCCall(methodMetadata.method, args);
             }
         });
 
@@ -284,7 +289,9 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         }
 
         final Collection<M> reHydratedEntities = updateHistoryAndAudit(entityRecordIds, deletedAndUpdatedEntities, tableName, changeType, context);
-        if (method.getReturnType().equals(Void.TYPE)) {
+        // Read-your-writes for the replica routing
+        DBRouterUntyped.recordWrite(context.getAccountRecordId());
+        if (methodMetadata.isVoid) {
             // Return early
             return null;
         } else if (isBatchQuery) {
@@ -363,7 +370,7 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
                                                 final TableName tableName,
                                                 final ChangeType changeType,
                                                 final InternalCallContext context) throws Throwable {
-        final Object reHydratedEntitiesOrNull = prof.executeWithProfiling(ProfilingFeatureType.DAO_DETAILS, getProfilingId("history/audit", null), new WithProfilingCallback<Object, Throwable>() {
+        final Object reHydratedEntitiesOrNull = prof.executeWithProfiling(ProfilingFeatureType.DAO_DETAILS, sqlDaoMetadata.historyAndAuditProfilingId, new WithProfilingCallback<Object, Throwable>() {
             @Override
             public Collection<M> execute() {
                 if (tableName.getHistoryTableName() == null) {
@@ -373,7 +380,10 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
                     // Make sure to re-hydrate the objects first (especially needed for create calls)
                     final Collection<M> reHydratedEntities = new ArrayList<>(entityRecordIds.size());
                     if (deletedAndUpdatedEntities.isEmpty()) {
-                        reHydratedEntities.addAll((List<M>) sqlDao.getByRecordIds(entityRecordIds, context));
+                        // Keep the IN clause reasonably sized for bulk inserts
+                        for (final List<Long> entityRecordIdsChunk : Lists.partition(entityRecordIds, EntitySqlDao.MAX_IDS_PER_QUERY)) {
+                            reHydratedEntities.addAll((List<M>) sqlDao.getByRecordIds(entityRecordIdsChunk, context));
+                        }
                         printSQLWarnings();
                     } else {
                         reHydratedEntities.addAll(deletedAndUpdatedEntities.values());
@@ -393,8 +403,7 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         return (Collection<M>) reHydratedEntitiesOrNull;
     }
 
-    private List<String> retrieveEntityIdsFromArguments(final Method method, final Object[] args) {
-        final Annotation[][] parameterAnnotations = getAnnotations(method);
+    private List<String> retrieveEntityIdsFromArguments(final MethodMetadata methodMetadata, final Object[] args) {
 
         int i = -1;
         for (final Object arg : args) {
@@ -414,30 +423,15 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
                 }
             }
 
-            for (final Annotation annotation : parameterAnnotations[i]) {
-                if (arg instanceof String && Bind.class.equals(annotation.annotationType()) && ("id").equals(((Bind) annotation).value())) {
-                    return ImmutableList.<String>of((String) arg);
-                } else if (arg instanceof Collection && BindIn.class.equals(annotation.annotationType()) && ("ids").equals(((BindIn) annotation).value())) {
-                    return ImmutableList.<String>copyOf((Collection) arg);
-                }
+            if (arg instanceof String && methodMetadata.isBindIdParameter[i]) {
+                return ImmutableList.<String>of((String) arg);
+            } else if (arg instanceof Collection && methodMetadata.isBindInIdsParameter[i]) {
+                return ImmutableList.<String>copyOf((Collection) arg);
             }
         }
         return ImmutableList.<String>of();
     }
 
-    private Annotation[][] getAnnotations(final Method method) {
-        // Expensive to compute
-        final String methodString = method.toString();
-
-        // Method.getParameterAnnotations() generates lots of garbage objects
-        Annotation[][] parameterAnnotations = parameterAnnotationsByMethod.get(methodString);
-        if (parameterAnnotations == null) {
-            parameterAnnotations = method.getParameterAnnotations();
-            parameterAnnotationsByMethod.put(methodString, parameterAnnotations);
-        }
-        return parameterAnnotations;
-    }
-
     private Builder<String> extractEntityIdsFromBatchArgument(final Iterable arg) {
         final Iterator iterator = arg.iterator();
         final Builder<String> entityIds = new Builder<String>();
@@ -522,7 +516,19 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         printSQLWarnings();
     }
 
-    private String getProfilingId(@Nullable final String prefix, @Nullable final Method method) {
+    private static SqlDaoMetadata getSqlDaoMetadata(final Class<?> sqlDaoClass) {
+        SqlDaoMetadata sqlDaoMetadata = SQL_DAO_METADATA.get(sqlDaoClass);
+        if (sqlDaoMetadata == null) {
+            sqlDaoMetadata = new SqlDaoMetadata(sqlDaoClass);
+            final SqlDaoMetadata existingSqlDaoMetadata = SQL_DAO_METADATA.putIfAbsent(sqlDaoClass, sqlDaoMetadata);
+            if (existingSqlDaoMetadata != null) {
+                sqlDaoMetadata = existingSqlDaoMetadata;
+            }
+        }
+        return sqlDaoMetadata;
+    }
+
+    private static String getProfilingId(final Class<?> sqlDaoClass, @Nullable final String prefix, @Nullable final Method method) {
         final StringBuilder stringBuilder = new StringBuilder().append(sqlDaoClass.getSimpleName());
 
         if (prefix != null) {
@@ -537,4 +543,70 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
 
         return stringBuilder.toString();
     }
+
+    // Pre-resolved metadata for all the methods of a SqlDao interface
+    private static final class SqlDaoMetadata {
+
+        private final Class<?> sqlDaoClass;
+        private final String historyAndAuditProfilingId;
+        private final Map<Method, MethodMetadata> methodMetadataByMethod;
+
+        private SqlDaoMetadata(final Class<?> sqlDaoClass) {
+            this.sqlDaoClass = sqlDaoClass;
+            this.historyAndAuditProfilingId = getProfilingId(sqlDaoClass, "history/audit", null);
+
+            final Map<Method, MethodMetadata> methodMetadataByMethod = new HashMap<Method, MethodMetadata>();
+            for (final Method method : sqlDaoClass.getMethods()) {
+                methodMetadataByMethod.put(method, new MethodMetadata(sqlDaoClass, method));
+            }
+            this.methodMetadataByMethod = ImmutableMap.<Method, MethodMetadata>copyOf(methodMetadataByMethod);
+        }
+
+        private MethodMetadata getMethodMetadata(final Method method) {
+            final MethodMetadata methodMetadata = methodMetadataByMethod.get(method);
+            // The proxy also dispatches the java.lang.Object methods (e.g. toString)
+            return methodMetadata != null ? methodMetadata : new MethodMetadata(sqlDaoClass, method);
+        }
+    }
+
+    private static final class MethodMetadata {
+
+        private final Method method;
+        private final String profilingId;
+        private final String rawProfilingId;
+        // Null if the method isn't @Audited
+        private final ChangeType changeType;
+        private final boolean isROQuery;
+        private final boolean isBatchQuery;
+        private final boolean isGetById;
+        private final boolean isVoid;
+        private final boolean[] isBindIdParameter;
+        private final boolean[] isBindInIdsParameter;
+
+        private MethodMetadata(final Class<?> sqlDaoClass, final Method method) {
+            this.method = method;
+            this.profilingId = getProfilingId(sqlDaoClass, null, method);
+            this.rawProfilingId = getProfilingId(sqlDaoClass, "raw", method);
+
+            final Audited auditedAnnotation = method.getAnnotation(Audited.class);
+            this.changeType = auditedAnnotation != null ? auditedAnnotation.value() : null;
+            this.isROQuery = method.getAnnotation(SqlQuery.class) != null;
+            this.isBatchQuery = method.getAnnotation(SqlBatch.class) != null;
+            this.isGetById = "getById".equals(method.getName());
+            this.isVoid = method.getReturnType().equals(Void.TYPE);
+
+            final Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+            this.isBindIdParameter = new boolean[parameterAnnotations.length];
+            this.isBindInIdsParameter = new boolean[parameterAnnotations.length];
+            for (int i = 0; i < parameterAnnotations.length; i++) {
+                for (final Annotation annotation : parameterAnnotations[i]) {
+                    if (Bind.class.equals(annotation.annotationType()) && ("id").equals(((Bind) annotation).value())) {
+                        isBindIdParameter[i] = true;
+                    } else if (BindIn.class.equals(annotation.annotationType()) && ("ids").equals(((BindIn) annotation).value())) {
+                        isBindInIdsParameter[i] = true;
+                    }
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.util.entity.dao;
+
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.Ordering;
+
+import com.google.common.io.BaseEncoding;
+
+/**
+ * Keyset (seek) pagination, keyed on record_id: instead of scanning and discarding offset rows, the next page
+ * starts right after the last record id returned, and the counts are skipped.
+ * <p/>
+ * The user APIs only know about offsets, so the cursor is passed down the same way DBRouterUntyped passes the RO hint, i.e.
+ * through a thread-local scope set by the caller (JAX-RS resource):
+ * <pre>
+ *     final KeysetPagination keysetPagination = KeysetPagination.start(pageToken);
+ *     try {
+ *         final Pagination&lt;Account&gt; accounts = accountUserApi.getAccounts(0L, limit, tenantContext);
+ *         ...keysetPagination.getNextPageToken()...
+ *     } finally {
+ *         KeysetPagination.stop();
+ *     }
+ * </pre>
+ * Only the first pagination query issued within the scope is keyed. Queries which don't support it fall back to offset pagination.
+ */
+public class KeysetPagination {
+
+    private static final ThreadLocal<KeysetPagination> CURRENT_KEYSET_PAGINATION = new ThreadLocal<KeysetPagination>();
+
+    private static final BaseEncoding TOKEN_ENCODING = BaseEncoding.base64Url().omitPadding();
+
+    // Null for the first page
+    private final Long recordIdCursor;
+
+    private boolean consumed = false;
+    private boolean applied = false;
+    private String nextPageToken = null;
+
+    private KeysetPagination(@Nullable final Long recordIdCursor) {
+        this.recordIdCursor = recordIdCursor;
+    }
+
+    /**
+     * @param pageToken token returned by the previous page, null for the first page
+     * @throws IllegalArgumentException if the token is invalid
+     */
+    public static KeysetPagination start(@Nullable final String pageToken) {
+        final KeysetPagination keysetPagination = new KeysetPagination(pageToken == null ? null : decode(pageToken));
+        CURRENT_KEYSET_PAGINATION.set(keysetPagination);
+        return keysetPagination;
+    }
+
+    public static void stop() {
+        CURRENT_KEYSET_PAGINATION.remove();
+    }
+
+    // Returns the current scope, if it hasn't been used yet
+    @Nullable
+    static KeysetPagination consume() {
+        final KeysetPagination keysetPagination = CURRENT_KEYSET_PAGINATION.get();
+        if (keysetPagination == null || keysetPagination.consumed) {
+            return null;
+        }
+        keysetPagination.consumed = true;
+        return keysetPagination;
+    }
+
+    /**
+     * @return false if keyset pagination wasn't supported by the query (offset pagination was used instead)
+     */
+    public boolean isApplied() {
+        return applied;
+    }
+
+    /**
+     * @return the token to retrieve the next page, null if this was the last page (or if keyset pagination wasn't applied)
+     */
+    @Nullable
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    // Exclusive lower bound
+    Long getMinRecordId(final Ordering ordering) {
+        return ordering == Ordering.ASC && recordIdCursor != null ? recordIdCursor : 0L;
+    }
+
+    // Exclusive upper bound
+    Long getMaxRecordId(final Ordering ordering) {
+        return ordering == Ordering.DESC && recordIdCursor != null ? recordIdCursor : Long.MAX_VALUE;
+    }
+
+    void setNextRecordId(@Nullable final Long nextRecordId) {
+        this.applied = true;
+        this.nextPageToken = nextRecordId == null ? null : encode(nextRecordId);
+    }
+
+    static String encode(final Long recordId) {
+        return TOKEN_ENCODING.encode(ByteBuffer.allocate(Long.SIZE / Byte.SIZE).putLong(recordId).array());
+    }
+
+    static Long decode(final String pageToken) {
+        final byte[] bytes = TOKEN_ENCODING.decode(pageToken);
+        if (bytes.length != Long.SIZE / Byte.SIZE) {
+            throw new IllegalArgumentException(String.format("Invalid page token %s", pageToken));
+        }
+        return ByteBuffer.wrap(bytes).getLong();
+    }
+}
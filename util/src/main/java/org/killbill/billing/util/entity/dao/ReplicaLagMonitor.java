@@ -0,0 +1,174 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.entity.dao;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.killbill.CreatorName;
+import org.killbill.billing.util.config.definition.ReadReplicaConfig;
+import org.killbill.billing.util.nodes.dao.ReplicaHeartbeatSqlDao;
+import org.skife.jdbi.v2.IDBI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import static org.killbill.billing.util.glue.IDBISetup.MAIN_RO_IDBI_NAMED;
+
+/**
+ * Tracks the lag of the read-only database, to let DBRouterUntyped fall back to the main database when the replica is too far behind.
+ * <p/>
+ * Each node periodically writes a heartbeat (its own wall clock time) to the main database, and reads it back from the read-only one:
+ * the replica is known to contain all changes committed before that heartbeat. Measurements are driven by the read-only traffic itself
+ * (at most one every heartbeat interval), so there is nothing to schedule: when the replica can't be shown to be fresh enough
+ * (no measurement yet, error, idle node), read-only queries simply go to the main database.
+ * <p/>
+ * The time of the latest committed write is also kept per account (see DBRouterUntyped#recordWrite), so that reads for an account
+ * which has been modified after the latest replicated heartbeat go to the main database (read-your-writes).
+ * <p/>
+ * Note that these writes are only tracked in memory, by the node which made them: read-your-writes only holds when the read is
+ * served by that same node (e.g. sticky sessions, or the node processing the bus events it posted). A read served by another node
+ * only gets the maxLag guarantee, i.e. it may not see a write made by another node less than maxLag ago.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private static final int MAX_TRACKED_ACCOUNTS = 100000;
+
+    private final ReplicaHeartbeatSqlDao heartbeatSqlDao;
+    private final ReplicaHeartbeatSqlDao roHeartbeatSqlDao;
+    private final long heartbeatIntervalMillis;
+    private final long maxLagMillis;
+    private final String nodeName;
+    // Accounts are forgotten after maxLag: past that, the lag check alone guarantees the write has been replicated
+    private final Cache<Long, Long> lastWriteByAccountRecordId;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private volatile long lastRefreshMillis = 0L;
+    // Wall clock time up to which the replica is known to be up-to-date, -1 if unknown
+    private volatile long replicatedUpToMillis = -1L;
+
+    @Inject
+    public ReplicaLagMonitor(final IDBI dbi, @Named(MAIN_RO_IDBI_NAMED) final IDBI roDbi, final ReadReplicaConfig readReplicaConfig) {
+        this.heartbeatSqlDao = dbi.onDemand(ReplicaHeartbeatSqlDao.class);
+        this.roHeartbeatSqlDao = roDbi.onDemand(ReplicaHeartbeatSqlDao.class);
+        this.heartbeatIntervalMillis = readReplicaConfig.getHeartbeatInterval().getMillis();
+        this.maxLagMillis = readReplicaConfig.getMaxLag().getMillis();
+        // A heartbeat is only replicated (and measured) once per interval: with a smaller threshold, the replica would never be used
+        Preconditions.checkArgument(!isEnabled() || maxLagMillis > heartbeatIntervalMillis,
+                                    "org.killbill.billing.util.readReplica.maxLag (%s ms) must be greater than org.killbill.billing.util.readReplica.heartbeat.interval (%s ms)",
+                                    maxLagMillis, heartbeatIntervalMillis);
+        this.nodeName = CreatorName.get();
+        this.lastWriteByAccountRecordId = CacheBuilder.newBuilder()
+                                                      .maximumSize(MAX_TRACKED_ACCOUNTS)
+                                                      .expireAfterWrite(Math.max(maxLagMillis, 1L), TimeUnit.MILLISECONDS)
+                                                      .build();
+
+        // Routers are created all over the place (and not injected), so the monitor is looked up by DBRouterUntyped through the DBI it measures
+        if (isEnabled()) {
+            DBRouterUntyped.setReplicaLagMonitor(dbi, this);
+        }
+    }
+
+    public boolean isEnabled() {
+        return heartbeatIntervalMillis > 0;
+    }
+
+    public boolean canUseReplica(@Nullable final Long accountRecordId) {
+        refreshIfNeeded();
+
+        final long replicatedUpTo = replicatedUpToMillis;
+        if (replicatedUpTo < 0) {
+            logger.debug("Replica lag unknown");
+            return false;
+        }
+
+        final long lagMillis = now() - replicatedUpTo;
+        if (lagMillis > maxLagMillis) {
+            logger.debug("Replica lag of {} ms above threshold", lagMillis);
+            return false;
+        }
+
+        if (accountRecordId != null) {
+            final Long lastWrite = lastWriteByAccountRecordId.getIfPresent(accountRecordId);
+            if (lastWrite != null && lastWrite >= replicatedUpTo) {
+                logger.debug("Latest write for accountRecordId='{}' not replicated yet", accountRecordId);
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public void recordWrites(final Collection<Long> accountRecordIds) {
+        final Long now = now();
+        for (final Long accountRecordId : accountRecordIds) {
+            lastWriteByAccountRecordId.put(accountRecordId, now);
+        }
+    }
+
+    private void refreshIfNeeded() {
+        if (now() - lastRefreshMillis < heartbeatIntervalMillis || !refreshLock.tryLock()) {
+            // Other threads keep using the latest measurement while one is in progress
+            return;
+        }
+
+        try {
+            if (now() - lastRefreshMillis < heartbeatIntervalMillis) {
+                return;
+            }
+            refresh();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    @VisibleForTesting
+    void refresh() {
+        try {
+            // Read first: the replicated heartbeat was written by the previous measurement
+            final Long replicatedHeartbeat = roHeartbeatSqlDao.getHeartbeat(nodeName);
+            replicatedUpToMillis = replicatedHeartbeat != null ? replicatedHeartbeat : -1L;
+
+            final Long heartbeat = now();
+            if (heartbeatSqlDao.updateHeartbeat(nodeName, heartbeat) == 0) {
+                heartbeatSqlDao.create(nodeName, heartbeat);
+            }
+        } catch (final RuntimeException e) {
+            logger.warn("Unable to measure the replica lag, read-only queries will use the main database", e);
+            replicatedUpToMillis = -1L;
+        } finally {
+            lastRefreshMillis = now();
+        }
+    }
+
+    // Wall clock on purpose: heartbeats are compared across the main and read-only databases, independently of the Kill Bill clock
+    private static long now() {
+        return System.currentTimeMillis();
+    }
+}
@@ -56,6 +56,17 @@ public class CSVExportOutputStream extends OutputStream implements DatabaseExpor
         delegate.write(b);
     }
 
+    // Don't go through write(int) for each byte
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        delegate.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        delegate.flush();
+    }
+
     @Override
     public String toString() {
         return delegate.toString();
@@ -32,6 +32,7 @@ import org.killbill.billing.util.api.DatabaseExportOutputStream;
 import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.validation.DefaultColumnInfo;
 import org.killbill.billing.util.validation.dao.DatabaseSchemaDao;
+import org.killbill.commons.embeddeddb.EmbeddedDB;
 import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.IDBI;
 import org.skife.jdbi.v2.ResultIterator;
@@ -44,14 +45,19 @@ public class DatabaseExportDao {
 
     private static final Logger logger = LoggerFactory.getLogger(DatabaseExportDao.class);
 
+    private static final int FETCH_SIZE = 1000;
+
     private final DatabaseSchemaDao databaseSchemaDao;
     private final IDBI dbi;
+    private final EmbeddedDB.DBEngine dbEngine;
 
     @Inject
     public DatabaseExportDao(final DatabaseSchemaDao databaseSchemaDao,
-                             final IDBI dbi) {
+                             final IDBI dbi,
+                             final EmbeddedDB embeddedDB) {
         this.databaseSchemaDao = databaseSchemaDao;
         this.dbi = dbi;
+        this.dbEngine = embeddedDB.getDBEngine();
     }
 
     private enum TableType {
@@ -162,40 +168,64 @@ public class DatabaseExportDao {
         dbi.withHandle(new HandleCallback<Void>() {
             @Override
             public Void withHandle(final Handle handle) throws Exception {
-                final ResultIterator<Map<String, Object>> iterator = handle.createQuery(queryBuilder.toString())
-                                                                           .bind("accountRecordId", context.getAccountRecordId())
-                                                                           .bind("tenantRecordId", context.getTenantRecordId())
-                                                                           .iterator();
+                // PostgreSQL only uses cursors (i.e. honors the fetch size) outside of auto-commit mode
+                final boolean inTransaction = dbEngine == EmbeddedDB.DBEngine.POSTGRESQL;
+                if (inTransaction) {
+                    handle.begin();
+                }
+
                 try {
-                    while (iterator.hasNext()) {
-                        final Map<String, Object> row = iterator.next();
-
-                        for (final String k : row.keySet()) {
-                            final Object value = row.get(k);
-                            // For h2, transform a JdbcBlob and a JdbcClob into a byte[]
-                            // See also LowerToCamelBeanMapper
-                            if (value instanceof Blob) {
-                                final Blob blob = (Blob) value;
-                                row.put(k, blob.getBytes(0, (int) blob.length()));
-                            } else if (value instanceof Clob) {
-                                // TODO Update LowerToCamelBeanMapper?
-                                final Clob clob = (Clob) value;
-                                row.put(k, clob.getSubString(1, (int) clob.length()));
+                    final ResultIterator<Map<String, Object>> iterator = handle.createQuery(queryBuilder.toString())
+                                                                               .bind("accountRecordId", context.getAccountRecordId())
+                                                                               .bind("tenantRecordId", context.getTenantRecordId())
+                                                                               .setFetchSize(getFetchSize())
+                                                                               .iterator();
+                    try {
+                        while (iterator.hasNext()) {
+                            final Map<String, Object> row = iterator.next();
+
+                            for (final String k : row.keySet()) {
+                                final Object value = row.get(k);
+                                // For h2, transform a JdbcBlob and a JdbcClob into a byte[]
+                                // See also LowerToCamelBeanMapper
+                                if (value instanceof Blob) {
+                                    final Blob blob = (Blob) value;
+                                    row.put(k, blob.getBytes(0, (int) blob.length()));
+                                } else if (value instanceof Clob) {
+                                    // TODO Update LowerToCamelBeanMapper?
+                                    final Clob clob = (Clob) value;
+                                    row.put(k, clob.getSubString(1, (int) clob.length()));
+                                }
                             }
-                        }
 
-                        try {
-                            out.write(row);
-                        } catch (final IOException e) {
-                            logger.warn("Unable to write row: {}", row, e);
-                            throw e;
+                            try {
+                                out.write(row);
+                            } catch (final IOException e) {
+                                logger.warn("Unable to write row: {}", row, e);
+                                throw e;
+                            }
                         }
+                    } finally {
+                        iterator.close();
                     }
-                } finally {
-                    iterator.close();
+                } catch (final Exception e) {
+                    // Roll back the (read-only) transaction on failure: only a complete export gets committed
+                    if (inTransaction) {
+                        handle.rollback();
+                    }
+                    throw e;
+                }
+                if (inTransaction) {
+                    handle.commit();
                 }
                 return null;
             }
         });
     }
+
+    // Stream the rows from the database, instead of loading the whole table (for that account) in memory
+    private int getFetchSize() {
+        // See com.mysql.jdbc.StatementImpl#createStreamingResultSet
+        return dbEngine == EmbeddedDB.DBEngine.MYSQL ? Integer.MIN_VALUE : FETCH_SIZE;
+    }
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.export.dao;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.killbill.billing.util.api.ColumnInfo;
+import org.killbill.billing.util.api.DatabaseExportOutputStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+// One JSON object per line (http://ndjson.org/), e.g. {"table":"accounts","row":{"record_id":1,...}}
+public class NDJSONExportOutputStream extends OutputStream implements DatabaseExportOutputStream {
+
+    private static final ObjectWriter writer = new ObjectMapper().configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false).writer();
+    private static final byte[] NEW_LINE = {'\n'};
+
+    private final OutputStream delegate;
+    private final List<String> currentColumnNames = new ArrayList<String>();
+
+    private String currentTableName;
+
+    public NDJSONExportOutputStream(final OutputStream delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        delegate.write(b);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        delegate.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        delegate.flush();
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+
+    @Override
+    public void newTable(final String tableName, final List<ColumnInfo> columnsForTable) {
+        // Ignore casing (for H2)
+        currentTableName = tableName.toLowerCase();
+
+        currentColumnNames.clear();
+        for (final ColumnInfo columnInfo : columnsForTable) {
+            currentColumnNames.add(columnInfo.getColumnName().toLowerCase());
+        }
+    }
+
+    @Override
+    public void write(final Map<String, Object> row) throws IOException {
+        // Keep the order of the columns from the schema
+        final Map<String, Object> orderedRow = new LinkedHashMap<String, Object>();
+        for (final String columnName : currentColumnNames) {
+            orderedRow.put(columnName, row.get(columnName));
+        }
+
+        final Map<String, Object> line = new LinkedHashMap<String, Object>();
+        line.put("table", currentTableName);
+        line.put("row", orderedRow);
+
+        write(writer.writeValueAsBytes(line));
+        write(NEW_LINE);
+    }
+}
@@ -17,18 +17,32 @@
 
 package org.killbill.billing.util.glue;
 
+import javax.sql.DataSource;
+
 import org.killbill.billing.broadcast.BroadcastApi;
 import org.killbill.billing.platform.api.KillbillConfigSource;
 import org.killbill.billing.util.broadcast.BroadcastService;
+import org.killbill.billing.util.broadcast.BroadcastTransport;
 import org.killbill.billing.util.broadcast.DefaultBroadcastApi;
 import org.killbill.billing.util.broadcast.DefaultBroadcastService;
+import org.killbill.billing.util.broadcast.LoopbackBroadcastTransport;
+import org.killbill.billing.util.broadcast.PollingBroadcastTransport;
+import org.killbill.billing.util.broadcast.PostgreSQLBroadcastTransport;
 import org.killbill.billing.util.broadcast.dao.BroadcastDao;
 import org.killbill.billing.util.broadcast.dao.DefaultBroadcastDao;
 import org.killbill.billing.util.config.definition.BroadcastConfig;
+import org.killbill.commons.embeddeddb.EmbeddedDB;
 import org.skife.config.ConfigurationObjectFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
 
 public class BroadcastModule extends KillBillModule {
 
+    private static final Logger logger = LoggerFactory.getLogger(BroadcastModule.class);
+
     public BroadcastModule(final KillbillConfigSource configSource) {
         super(configSource);
     }
@@ -43,6 +57,22 @@ public class BroadcastModule extends KillBillModule {
         bind(BroadcastApi.class).to(DefaultBroadcastApi.class).asEagerSingleton();
     }
 
+    @Provides
+    @Singleton
+    // Note: we need to inject the pooled DataSource here, not the (direct) one from EmbeddedDB
+    protected BroadcastTransport provideBroadcastTransport(final BroadcastConfig broadcastConfig, final DataSource dataSource, final EmbeddedDB embeddedDB) {
+        final String transport = broadcastConfig.getBroadcastTransport();
+        if ("LOOPBACK".equalsIgnoreCase(transport)) {
+            return new LoopbackBroadcastTransport();
+        } else if ("NOTIFY".equalsIgnoreCase(transport)) {
+            if (EmbeddedDB.DBEngine.POSTGRESQL.equals(embeddedDB.getDBEngine())) {
+                return new PostgreSQLBroadcastTransport(dataSource, broadcastConfig.getBroadcastTransportNotifyWait().getMillis());
+            }
+            logger.warn("NOTIFY broadcast transport is only supported on PostgreSQL, defaulting to polling");
+        }
+        return new PollingBroadcastTransport();
+    }
+
     @Override
     protected void configure() {
         final ConfigurationObjectFactory factory = new ConfigurationObjectFactory(skifeConfigSource);
@@ -18,6 +18,8 @@
 package org.killbill.billing.util.glue;
 
 import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.killbill.billing.util.config.definition.ReadReplicaConfig;
+import org.killbill.billing.util.entity.dao.ReplicaLagMonitor;
 import org.killbill.billing.util.nodes.DefaultKillbillNodesApi;
 import org.killbill.billing.util.nodes.DefaultKillbillNodesService;
 import org.killbill.billing.util.nodes.KillbillNodesService;
@@ -25,6 +27,7 @@ import org.killbill.billing.util.nodes.KillbillNodesApi;
 import org.killbill.billing.util.nodes.NodeInfoMapper;
 import org.killbill.billing.util.nodes.dao.DefaultNodeInfoDao;
 import org.killbill.billing.util.nodes.dao.NodeInfoDao;
+import org.skife.config.ConfigurationObjectFactory;
 
 public class NodesModule extends KillBillModule {
 
@@ -36,6 +39,14 @@ public class NodesModule extends KillBillModule {
         bind(NodeInfoDao.class).to(DefaultNodeInfoDao.class).asEagerSingleton();
     }
 
+    protected void installReplicaLagMonitor() {
+        final ConfigurationObjectFactory factory = new ConfigurationObjectFactory(skifeConfigSource);
+        final ReadReplicaConfig readReplicaConfig = factory.build(ReadReplicaConfig.class);
+        bind(ReadReplicaConfig.class).toInstance(readReplicaConfig);
+        // Heartbeats are written per node
+        bind(ReplicaLagMonitor.class).asEagerSingleton();
+    }
+
     protected void installUserApi() {
         bind(KillbillNodesApi.class).to(DefaultKillbillNodesApi.class).asEagerSingleton();
         bind(KillbillNodesService.class).to(DefaultKillbillNodesService.class).asEagerSingleton();
@@ -47,5 +58,6 @@ public class NodesModule extends KillBillModule {
     protected void configure() {
         installDaos();
         installUserApi();
+        installReplicaLagMonitor();
     }
 }
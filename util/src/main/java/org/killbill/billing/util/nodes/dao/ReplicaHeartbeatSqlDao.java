@@ -0,0 +1,36 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.nodes.dao;
+
+import org.killbill.commons.jdbi.template.KillBillSqlDaoStringTemplate;
+import org.skife.jdbi.v2.sqlobject.Bind;
+import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+
+@KillBillSqlDaoStringTemplate
+public interface ReplicaHeartbeatSqlDao {
+
+    @SqlUpdate
+    public void create(@Bind("nodeName") final String nodeName, @Bind("heartbeat") final Long heartbeat);
+
+    @SqlUpdate
+    public int updateHeartbeat(@Bind("nodeName") final String nodeName, @Bind("heartbeat") final Long heartbeat);
+
+    @SqlQuery
+    public Long getHeartbeat(@Bind("nodeName") final String nodeName);
+}
@@ -126,17 +126,15 @@ public class DefaultTagUserApi implements TagUserApi {
     @Override
     public void addTags(final UUID objectId, final ObjectType objectType, final Collection<UUID> tagDefinitionIds, final CallContext context) throws TagApiException {
         for (final UUID tagDefinitionId : tagDefinitionIds) {
-            addTag(objectId, objectType, tagDefinitionId, context);
+            validateNotSystemTag(tagDefinitionId);
         }
+        tagDao.createTags(objectId, objectType, tagDefinitionIds, internalCallContextFactory.createInternalCallContext(objectId, objectType, context));
     }
 
     @Override
     public void addTag(final UUID objectId, final ObjectType objectType, final UUID tagDefinitionId, final CallContext context) throws TagApiException {
 
-        if (SystemTags.isSystemTag(tagDefinitionId)) {
-            // TODO Create a proper ErrorCode instaed
-            throw new IllegalStateException(String.format("Failed to add tag for tagDefinitionId='%s': System tags are reserved for the system.", tagDefinitionId));
-        }
+        validateNotSystemTag(tagDefinitionId);
 
         final InternalCallContext internalContext = internalCallContextFactory.createInternalCallContext(objectId, objectType, context);
         final TagModelDao tag = new TagModelDao(context.getCreatedDate(), tagDefinitionId, objectId, objectType);
@@ -181,10 +179,7 @@ public class DefaultTagUserApi implements TagUserApi {
 
     @Override
     public void removeTags(final UUID objectId, final ObjectType objectType, final Collection<UUID> tagDefinitionIds, final CallContext context) throws TagApiException {
-        // TODO: consider making this batch
-        for (final UUID tagDefinitionId : tagDefinitionIds) {
-            tagDao.deleteTag(objectId, objectType, tagDefinitionId, internalCallContextFactory.createInternalCallContext(objectId, objectType, context));
-        }
+        tagDao.deleteTags(objectId, objectType, tagDefinitionIds, internalCallContextFactory.createInternalCallContext(objectId, objectType, context));
     }
 
     @Override
@@ -219,6 +214,13 @@ public class DefaultTagUserApi implements TagUserApi {
         return tagDefinitionDao.getTagDefinitionAuditLogsWithHistoryForId(tagDefinitionId, auditLevel, internalCallContextFactory.createInternalTenantContext(tagDefinitionId, ObjectType.TAG_DEFINITION, tenantContext));
     }
 
+    private void validateNotSystemTag(final UUID tagDefinitionId) {
+        if (SystemTags.isSystemTag(tagDefinitionId)) {
+            // TODO Create a proper ErrorCode instaed
+            throw new IllegalStateException(String.format("Failed to add tag for tagDefinitionId='%s': System tags are reserved for the system.", tagDefinitionId));
+        }
+    }
+
     private List<Tag> withModelTransform(final Collection<TagModelDao> input) {
         return ImmutableList.<Tag>copyOf(Collections2.transform(input, TAG_MODEL_DAO_TAG_FUNCTION));
     }
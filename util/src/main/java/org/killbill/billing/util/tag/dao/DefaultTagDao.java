@@ -18,8 +18,15 @@
 
 package org.killbill.billing.util.tag.dao;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.inject.Named;
@@ -223,34 +230,83 @@ public class DefaultTagDao extends EntityDaoBase<TagModelDao, Tag, TagApiExcepti
     }
 
     @Override
-    public void deleteTag(final UUID objectId, final ObjectType objectType, final UUID tagDefinitionId, final InternalCallContext context) throws TagApiException {
+    public void createTags(final UUID objectId, final ObjectType objectType, final Collection<UUID> tagDefinitionIds, final InternalCallContext context) throws TagApiException {
+        for (final UUID tagDefinitionId : tagDefinitionIds) {
+            validateApplicableObjectTypes(tagDefinitionId, objectType);
+        }
 
         transactionalSqlDao.execute(false, TagApiException.class, new EntitySqlDaoTransactionWrapper<Void>() {
 
             @Override
             public Void inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                final TagSqlDao transactional = entitySqlDaoWrapperFactory.become(TagSqlDao.class);
+
+                // Tags already set on the object are skipped (adding tags is idempotent)
+                final Set<UUID> taggedDefinitionIds = new HashSet<UUID>();
+                for (final TagModelDao cur : transactional.getTagsForObject(objectId, objectType, context)) {
+                    taggedDefinitionIds.add(cur.getTagDefinitionId());
+                }
+                final List<TagModelDao> tags = new LinkedList<TagModelDao>();
+                for (final UUID tagDefinitionId : tagDefinitionIds) {
+                    if (taggedDefinitionIds.add(tagDefinitionId)) {
+                        tags.add(new TagModelDao(context.getCreatedDate(), tagDefinitionId, objectId, objectType));
+                    }
+                }
+
+                // PERF: a single batch insert (and a single batch of history and audit entries) for all tags
+                bulkCreate(transactional, tags, context);
 
-                final TagDefinitionModelDao tagDefinition = getTagDefinitionFromTransaction(tagDefinitionId, entitySqlDaoWrapperFactory, context);
+                for (final TagModelDao tag : tags) {
+                    postBusEventFromTransaction(tag, tag, ChangeType.INSERT, entitySqlDaoWrapperFactory, context);
+                }
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public void deleteTag(final UUID objectId, final ObjectType objectType, final UUID tagDefinitionId, final InternalCallContext context) throws TagApiException {
+        deleteTags(objectId, objectType, ImmutableList.<UUID>of(tagDefinitionId), context);
+    }
+
+    @Override
+    public void deleteTags(final UUID objectId, final ObjectType objectType, final Collection<UUID> tagDefinitionIds, final InternalCallContext context) throws TagApiException {
+
+        transactionalSqlDao.execute(false, TagApiException.class, new EntitySqlDaoTransactionWrapper<Void>() {
+
+            @Override
+            public Void inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
                 final TagSqlDao transactional = entitySqlDaoWrapperFactory.become(TagSqlDao.class);
-                final List<TagModelDao> tags = transactional.getTagsForObject(objectId, objectType, context);
-                TagModelDao tag = null;
-                for (final TagModelDao cur : tags) {
-                    if (cur.getTagDefinitionId().equals(tagDefinitionId)) {
-                        tag = cur;
-                        break;
+
+                final Map<UUID, TagModelDao> tagsByDefinitionId = new HashMap<UUID, TagModelDao>();
+                for (final TagModelDao cur : transactional.getTagsForObject(objectId, objectType, context)) {
+                    if (!tagsByDefinitionId.containsKey(cur.getTagDefinitionId())) {
+                        tagsByDefinitionId.put(cur.getTagDefinitionId(), cur);
+                    }
+                }
+
+                final Map<String, TagModelDao> tagsToDelete = new LinkedHashMap<String, TagModelDao>();
+                for (final UUID tagDefinitionId : tagDefinitionIds) {
+                    final TagDefinitionModelDao tagDefinition = getTagDefinitionFromTransaction(tagDefinitionId, entitySqlDaoWrapperFactory, context);
+                    final TagModelDao tag = tagsByDefinitionId.get(tagDefinitionId);
+                    if (tag == null) {
+                        throw new TagApiException(ErrorCode.TAG_DOES_NOT_EXIST, tagDefinition.getName());
                     }
+                    tagsToDelete.put(tag.getId().toString(), tag);
                 }
-                if (tag == null) {
-                    throw new TagApiException(ErrorCode.TAG_DOES_NOT_EXIST, tagDefinition.getName());
+                if (tagsToDelete.isEmpty()) {
+                    return null;
                 }
-                // Delete the tag
-                transactional.markTagAsDeleted(tag.getId().toString(), context);
 
-                postBusEventFromTransaction(tag, tag, ChangeType.DELETE, entitySqlDaoWrapperFactory, context);
+                // PERF: a single update (and a single batch of history and audit entries) for all tags
+                transactional.markTagsAsDeleted(ImmutableList.<String>copyOf(tagsToDelete.keySet()), context);
+
+                for (final TagModelDao tag : tagsToDelete.values()) {
+                    postBusEventFromTransaction(tag, tag, ChangeType.DELETE, entitySqlDaoWrapperFactory, context);
+                }
                 return null;
             }
         });
-
     }
 
     @Override
@@ -16,6 +16,7 @@
 
 package org.killbill.billing.util.tag.dao;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -31,8 +32,12 @@ import org.killbill.billing.util.tag.Tag;
 
 public interface TagDao extends EntityDao<TagModelDao, Tag, TagApiException> {
 
+    void createTags(UUID objectId, ObjectType objectType, Collection<UUID> tagDefinitionIds, InternalCallContext context) throws TagApiException;
+
     void deleteTag(UUID objectId, ObjectType objectType, UUID tagDefinition, InternalCallContext context) throws TagApiException;
 
+    void deleteTags(UUID objectId, ObjectType objectType, Collection<UUID> tagDefinitionIds, InternalCallContext context) throws TagApiException;
+
     Pagination<TagModelDao> searchTags(String searchKey, Long offset, Long limit, InternalTenantContext context);
 
     List<TagModelDao> getTagsForObject(UUID objectId, ObjectType objectType, boolean includedDeleted, InternalTenantContext internalTenantContext);
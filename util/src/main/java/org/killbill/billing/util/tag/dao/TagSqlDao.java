@@ -16,6 +16,7 @@
 
 package org.killbill.billing.util.tag.dao;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -23,6 +24,7 @@ import org.skife.jdbi.v2.sqlobject.Bind;
 import org.killbill.commons.jdbi.binder.SmartBindBean;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.unstable.BindIn;
 
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.callcontext.InternalCallContext;
@@ -38,8 +40,8 @@ public interface TagSqlDao extends EntitySqlDao<TagModelDao, Tag> {
 
     @SqlUpdate
     @Audited(ChangeType.DELETE)
-    void markTagAsDeleted(@Bind("id") String tagId,
-                          @SmartBindBean InternalCallContext context);
+    void markTagsAsDeleted(@BindIn("ids") Collection<String> tagIds,
+                           @SmartBindBean InternalCallContext context);
 
     @SqlQuery
     List<TagModelDao> getTagsForObject(@Bind("objectId") UUID objectId,
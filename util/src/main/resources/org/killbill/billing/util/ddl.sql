@@ -310,6 +310,15 @@ CREATE TABLE node_infos (
 ) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
 CREATE UNIQUE INDEX node_name_idx ON node_infos(node_name);
 
+DROP TABLE IF EXISTS replica_heartbeats;
+CREATE TABLE replica_heartbeats (
+    record_id serial unique,
+    node_name varchar(50) NOT NULL,
+    heartbeat bigint NOT NULL,
+    PRIMARY KEY(record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+CREATE UNIQUE INDEX replica_heartbeats_node_name ON replica_heartbeats(node_name);
+
 
 DROP TABLE IF EXISTS service_broadcasts;
 CREATE TABLE service_broadcasts (
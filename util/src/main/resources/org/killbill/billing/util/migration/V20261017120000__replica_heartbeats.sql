@@ -0,0 +1,7 @@
+CREATE TABLE replica_heartbeats (
+    record_id serial unique,
+    node_name varchar(50) NOT NULL,
+    heartbeat bigint NOT NULL,
+    PRIMARY KEY(record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+CREATE UNIQUE INDEX replica_heartbeats_node_name ON replica_heartbeats(node_name);
@@ -18,6 +18,7 @@
 
 package org.killbill.billing.dao;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -96,6 +97,46 @@ public class MockNonEntityDao implements NonEntityDao {
         return null;
     }
 
+    @Override
+    public Map<UUID, Long> retrieveRecordIdsFromObjects(final Collection<UUID> objectIds, final ObjectType objectType, @Nullable final CacheController<String, Long> cache) {
+        return new HashMap<UUID, Long>();
+    }
+
+    @Override
+    public Map<UUID, Long> retrieveAccountRecordIdsFromObjects(final Collection<UUID> objectIds, final ObjectType objectType, @Nullable final CacheController<String, Long> cache) {
+        final Map<UUID, Long> result = new HashMap<UUID, Long>();
+        for (final UUID objectId : objectIds) {
+            if (accountRecordIdMappings.get(objectId) != null) {
+                result.put(objectId, accountRecordIdMappings.get(objectId));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<UUID, Long> retrieveTenantRecordIdsFromObjects(final Collection<UUID> objectIds, final ObjectType objectType, @Nullable final CacheController<String, Long> cache) {
+        final Map<UUID, Long> result = new HashMap<UUID, Long>();
+        for (final UUID objectId : objectIds) {
+            if (tenantRecordIdMappings.get(objectId) != null) {
+                result.put(objectId, tenantRecordIdMappings.get(objectId));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Long, UUID> retrieveIdsFromObjects(final Collection<Long> recordIds, final ObjectType objectType, @Nullable final CacheController<String, UUID> cache) {
+        final Map<Long, UUID> result = new HashMap<Long, UUID>();
+        if (objectType == ACCOUNT) {
+            for (final Long recordId : recordIds) {
+                if (accountIdMappings.get(recordId) != null) {
+                    result.put(recordId, accountIdMappings.get(recordId));
+                }
+            }
+        }
+        return result;
+    }
+
     @Override
     public Long retrieveLastHistoryRecordIdFromTransaction(final Long targetRecordId, final TableName tableName, final NonEntitySqlDao transactional) {
         return null;
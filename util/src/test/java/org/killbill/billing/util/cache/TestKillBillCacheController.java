@@ -17,6 +17,16 @@
 
 package org.killbill.billing.util.cache;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import javax.cache.Cache;
 import javax.cache.CacheException;
 
@@ -64,4 +74,79 @@ public class TestKillBillCacheController extends UtilTestSuiteNoDB {
         // This will go back to the cache loader
         Assert.assertEquals(killBillCacheController.get("12", null), new Long(12));
     }
+
+    @Test(groups = "fast")
+    public void testSingleFlightLoadPerKey() throws Exception {
+        final ConcurrentMap<String, Long> backingMap = new ConcurrentHashMap<String, Long>();
+        final Cache cache = Mockito.mock(Cache.class);
+        Mockito.when(cache.get(Mockito.any())).thenAnswer(new Answer<Long>() {
+            @Override
+            public Long answer(final InvocationOnMock invocation) {
+                return backingMap.get((String) invocation.getArguments()[0]);
+            }
+        });
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) {
+                backingMap.put((String) invocation.getArguments()[0], (Long) invocation.getArguments()[1]);
+                return null;
+            }
+        }).when(cache).put(Mockito.any(), Mockito.any());
+
+        final CountDownLatch slowLoadStarted = new CountDownLatch(1);
+        final CountDownLatch releaseSlowLoad = new CountDownLatch(1);
+        final AtomicInteger slowKeyLoads = new AtomicInteger();
+        final BaseCacheLoader<String, Long> baseCacheLoader = new BaseCacheLoader<String, Long>() {
+            @Override
+            public CacheType getCacheType() {
+                return CacheType.RECORD_ID;
+            }
+
+            @Override
+            public Long compute(final String key, final CacheLoaderArgument cacheLoaderArgument) {
+                if ("1".equals(key)) {
+                    slowKeyLoads.incrementAndGet();
+                    slowLoadStarted.countDown();
+                    try {
+                        releaseSlowLoad.await();
+                    } catch (final InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+                return Long.valueOf(key);
+            }
+        };
+
+        final KillBillCacheController<String, Long> killBillCacheController = new KillBillCacheController<String, Long>(cache, baseCacheLoader);
+        final Callable<Long> getSlowKey = new Callable<Long>() {
+            @Override
+            public Long call() {
+                return killBillCacheController.get("1", null);
+            }
+        };
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<Long> first = executor.submit(getSlowKey);
+            Assert.assertTrue(slowLoadStarted.await(10, TimeUnit.SECONDS));
+            final Future<Long> second = executor.submit(getSlowKey);
+
+            // A miss on another key isn't blocked by the slow load
+            Assert.assertEquals(killBillCacheController.get("2", null), new Long(2));
+
+            releaseSlowLoad.countDown();
+            Assert.assertEquals(first.get(10, TimeUnit.SECONDS), new Long(1));
+            Assert.assertEquals(second.get(10, TimeUnit.SECONDS), new Long(1));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Concurrent misses on the same key were coalesced (the second caller either waited for the load or hit the cache)
+        Assert.assertEquals(slowKeyLoads.get(), 1);
+        Assert.assertEquals(killBillCacheController.getLoadCount(), 2);
+
+        Assert.assertEquals(killBillCacheController.get("2", null), new Long(2));
+        Assert.assertEquals(killBillCacheController.getHitCount() + killBillCacheController.getMissCount(), 4);
+        Assert.assertTrue(killBillCacheController.getHitCount() >= 1);
+    }
 }
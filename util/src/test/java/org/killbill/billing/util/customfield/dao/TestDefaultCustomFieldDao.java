@@ -23,7 +23,10 @@ import java.util.UUID;
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.api.TestApiListener.NextEvent;
 import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
+import org.killbill.billing.util.api.AuditLevel;
 import org.killbill.billing.util.api.CustomFieldApiException;
+import org.killbill.billing.util.audit.AuditLogWithHistory;
+import org.killbill.billing.util.audit.ChangeType;
 import org.killbill.billing.util.entity.Pagination;
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -88,4 +91,54 @@ public class TestDefaultCustomFieldDao extends UtilTestSuiteWithEmbeddedDB {
 
     }
 
+    @Test(groups = "slow")
+    public void testBulkUpdateAndDelete() throws CustomFieldApiException {
+        final UUID objectId = UUID.randomUUID();
+        final CustomFieldModelDao first = new CustomFieldModelDao(internalCallContext.getCreatedDate(), "first", "1", objectId, ObjectType.ACCOUNT);
+        final CustomFieldModelDao second = new CustomFieldModelDao(internalCallContext.getCreatedDate(), "second", "2", objectId, ObjectType.ACCOUNT);
+        final CustomFieldModelDao third = new CustomFieldModelDao(internalCallContext.getCreatedDate(), "third", "3", objectId, ObjectType.ACCOUNT);
+
+        eventsListener.pushExpectedEvents(NextEvent.CUSTOM_FIELD, NextEvent.CUSTOM_FIELD, NextEvent.CUSTOM_FIELD);
+        ((DefaultCustomFieldDao) customFieldDao).create(ImmutableList.<CustomFieldModelDao>of(first, second, third), internalCallContext);
+        eventsListener.assertListenerStatus();
+
+        final CustomFieldModelDao firstUpdate = new CustomFieldModelDao(first.getId(), internalCallContext.getCreatedDate(), internalCallContext.getCreatedDate(), "first", "10", objectId, ObjectType.ACCOUNT);
+        final CustomFieldModelDao secondUpdate = new CustomFieldModelDao(second.getId(), internalCallContext.getCreatedDate(), internalCallContext.getCreatedDate(), "second", "20", objectId, ObjectType.ACCOUNT);
+        customFieldDao.updateCustomFields(ImmutableList.<CustomFieldModelDao>of(firstUpdate, secondUpdate), internalCallContext);
+
+        List<CustomFieldModelDao> customFields = customFieldDao.getCustomFieldsForObject(objectId, ObjectType.ACCOUNT, internalCallContext);
+        Assert.assertEquals(customFields.size(), 3);
+        for (final CustomFieldModelDao customField : customFields) {
+            if (customField.getId().equals(first.getId())) {
+                Assert.assertEquals(customField.getFieldValue(), "10");
+            } else if (customField.getId().equals(second.getId())) {
+                Assert.assertEquals(customField.getFieldValue(), "20");
+            } else {
+                Assert.assertEquals(customField.getFieldValue(), "3");
+            }
+        }
+
+        // Unknown ids are ignored
+        eventsListener.pushExpectedEvents(NextEvent.CUSTOM_FIELD, NextEvent.CUSTOM_FIELD);
+        customFieldDao.deleteCustomFields(ImmutableList.<UUID>of(first.getId(), third.getId(), UUID.randomUUID()), internalCallContext);
+        eventsListener.assertListenerStatus();
+
+        customFields = customFieldDao.getCustomFieldsForObject(objectId, ObjectType.ACCOUNT, internalCallContext);
+        Assert.assertEquals(customFields.size(), 1);
+        Assert.assertEquals(customFields.get(0).getId(), second.getId());
+
+        // Each bulk operation still has one history and audit entry per custom field
+        checkAuditLogs(first.getId(), ChangeType.INSERT, ChangeType.UPDATE, ChangeType.DELETE);
+        checkAuditLogs(second.getId(), ChangeType.INSERT, ChangeType.UPDATE);
+        checkAuditLogs(third.getId(), ChangeType.INSERT, ChangeType.DELETE);
+    }
+
+    private void checkAuditLogs(final UUID customFieldId, final ChangeType... expectedChangeTypes) {
+        final List<AuditLogWithHistory> auditLogs = customFieldDao.getCustomFieldAuditLogsWithHistoryForId(customFieldId, AuditLevel.FULL, internalCallContext);
+        Assert.assertEquals(auditLogs.size(), expectedChangeTypes.length);
+        for (int i = 0; i < expectedChangeTypes.length; i++) {
+            Assert.assertEquals(auditLogs.get(i).getChangeType(), expectedChangeTypes[i]);
+            Assert.assertNotNull(auditLogs.get(i).getEntity());
+        }
+    }
 }
@@ -20,6 +20,7 @@ package org.killbill.billing.util.dao;
 
 import java.io.IOException;
 import java.util.Date;
+import java.util.Map;
 import java.util.UUID;
 
 import org.killbill.billing.ObjectType;
@@ -32,6 +33,8 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.google.common.collect.ImmutableList;
+
 public class TestNonEntityDao extends UtilTestSuiteWithEmbeddedDB {
 
     private final UUID tenantId = UUID.fromString("121c59d4-0458-4038-a683-698c9a121c12");
@@ -102,6 +105,31 @@ public class TestNonEntityDao extends UtilTestSuiteWithEmbeddedDB {
         Assert.assertEquals(resultTenantRecordId, tenantRecordId);
     }
 
+    @Test(groups = "slow")
+    public void testRetrieveInBulk() throws IOException {
+        accountRecordId = generateAccountRecordId(accountId);
+        insertTag();
+        final UUID unknownId = UUID.randomUUID();
+
+        final Map<UUID, Long> recordIds = nonEntityDao.retrieveRecordIdsFromObjects(ImmutableList.<UUID>of(accountId, unknownId), ObjectType.ACCOUNT, null);
+        Assert.assertEquals(recordIds.size(), 1);
+        Assert.assertEquals(recordIds.get(accountId), accountRecordId);
+
+        final Map<UUID, Long> accountRecordIds = nonEntityDao.retrieveAccountRecordIdsFromObjects(ImmutableList.<UUID>of(tagId, unknownId), ObjectType.TAG, null);
+        Assert.assertEquals(accountRecordIds.size(), 1);
+        Assert.assertEquals(accountRecordIds.get(tagId), accountRecordId);
+
+        final Map<UUID, Long> tenantRecordIds = nonEntityDao.retrieveTenantRecordIdsFromObjects(ImmutableList.<UUID>of(accountId, unknownId), ObjectType.ACCOUNT, null);
+        Assert.assertEquals(tenantRecordIds.size(), 1);
+        Assert.assertEquals(tenantRecordIds.get(accountId), tenantRecordId);
+
+        final Map<Long, UUID> ids = nonEntityDao.retrieveIdsFromObjects(ImmutableList.<Long>of(accountRecordId, -1L), ObjectType.ACCOUNT, null);
+        Assert.assertEquals(ids.size(), 1);
+        Assert.assertEquals(ids.get(accountRecordId), accountId);
+
+        Assert.assertTrue(nonEntityDao.retrieveAccountRecordIdsFromObjects(ImmutableList.<UUID>of(tagDefinitionId), ObjectType.TAG_DEFINITION, null).isEmpty());
+    }
+
     private void insertTagDefinition() throws IOException {
         dbi.withHandle(new HandleCallback<Long>() {
             @Override
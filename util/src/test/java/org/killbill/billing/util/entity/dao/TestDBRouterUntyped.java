@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.entity.dao;
+
+import java.util.Collection;
+
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.killbill.billing.util.entity.dao.DBRouterUntyped.THREAD_STATE;
+import org.killbill.commons.profiling.Profiling.WithProfilingCallback;
+import org.mockito.Mockito;
+import org.skife.jdbi.v2.IDBI;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+public class TestDBRouterUntyped extends UtilTestSuiteNoDB {
+
+    private IDBI rwDbi;
+    private IDBI roDbi;
+    private ReplicaLagMonitor replicaLagMonitor;
+    private DBRouterUntyped dbRouter;
+
+    @BeforeMethod(groups = "fast")
+    public void setUpRouter() {
+        rwDbi = Mockito.mock(IDBI.class);
+        roDbi = Mockito.mock(IDBI.class);
+        replicaLagMonitor = Mockito.mock(ReplicaLagMonitor.class);
+        dbRouter = new DBRouterUntyped(rwDbi, roDbi);
+    }
+
+    @AfterMethod(groups = "fast")
+    public void tearDownRouter() {
+        DBRouterUntyped.setReplicaLagMonitor(rwDbi, null);
+    }
+
+    @Test(groups = "fast")
+    public void testRoutingWithoutMonitor() throws Throwable {
+        // RW_ONLY by default
+        dbRouter.getHandle(true);
+        Mockito.verify(rwDbi, Mockito.times(1)).open();
+        Mockito.verify(roDbi, Mockito.never()).open();
+
+        withRODBIAllowed(new Runnable() {
+            @Override
+            public void run() {
+                dbRouter.getHandle(true);
+                Mockito.verify(roDbi, Mockito.times(1)).open();
+
+                // A RW call disables the RO DBI for the rest of the thread
+                dbRouter.getHandle(false);
+                Assert.assertEquals(DBRouterUntyped.getCurrentState(), THREAD_STATE.RW_ONLY);
+                dbRouter.getHandle(true);
+                Mockito.verify(rwDbi, Mockito.times(3)).open();
+                Mockito.verify(roDbi, Mockito.times(1)).open();
+            }
+        });
+        Assert.assertEquals(DBRouterUntyped.getCurrentState(), THREAD_STATE.RW_ONLY);
+    }
+
+    @Test(groups = "fast")
+    public void testRoutingWithLaggingReplica() throws Throwable {
+        DBRouterUntyped.setReplicaLagMonitor(rwDbi, replicaLagMonitor);
+        final InternalTenantContext context = new InternalTenantContext(1L, 2L, null, null);
+
+        withRODBIAllowed(new Runnable() {
+            @Override
+            public void run() {
+                Mockito.when(replicaLagMonitor.canUseReplica(2L)).thenReturn(false);
+                dbRouter.getHandle(true, context);
+                Mockito.verify(rwDbi, Mockito.times(1)).open();
+                // Only that call was redirected
+                Assert.assertEquals(DBRouterUntyped.getCurrentState(), THREAD_STATE.RO_ALLOWED);
+
+                Mockito.when(replicaLagMonitor.canUseReplica(2L)).thenReturn(true);
+                dbRouter.getHandle(true, context);
+                Mockito.verify(roDbi, Mockito.times(1)).open();
+
+                // Requests without context only look at the lag
+                Mockito.when(replicaLagMonitor.canUseReplica(null)).thenReturn(true);
+                dbRouter.getHandle(true);
+                Mockito.verify(roDbi, Mockito.times(2)).open();
+            }
+        });
+
+        // Routers of other DBIs (e.g. another injector) don't see that monitor
+        final IDBI otherRwDbi = Mockito.mock(IDBI.class);
+        final IDBI otherRoDbi = Mockito.mock(IDBI.class);
+        Mockito.when(replicaLagMonitor.canUseReplica(2L)).thenReturn(false);
+        withRODBIAllowed(new Runnable() {
+            @Override
+            public void run() {
+                new DBRouterUntyped(otherRwDbi, otherRoDbi).getHandle(true, context);
+                Mockito.verify(otherRoDbi, Mockito.times(1)).open();
+            }
+        });
+    }
+
+    @Test(groups = "fast")
+    public void testWritesRecordedOnOutermostCommit() {
+        DBRouterUntyped.setReplicaLagMonitor(rwDbi, replicaLagMonitor);
+
+        dbRouter.onTransactionStarted();
+        DBRouterUntyped.recordWrite(1L);
+        DBRouterUntyped.recordWrite(null);
+
+        // Nested transaction
+        dbRouter.onTransactionStarted();
+        DBRouterUntyped.recordWrite(2L);
+        dbRouter.onTransactionCompleted(true);
+        Mockito.verify(replicaLagMonitor, Mockito.never()).recordWrites(Mockito.<Collection<Long>>any());
+
+        dbRouter.onTransactionCompleted(true);
+        Mockito.verify(replicaLagMonitor, Mockito.times(1)).recordWrites(ImmutableSet.<Long>of(1L, 2L));
+
+        // The writes were flushed
+        dbRouter.onTransactionStarted();
+        dbRouter.onTransactionCompleted(true);
+        Mockito.verify(replicaLagMonitor, Mockito.times(1)).recordWrites(Mockito.<Collection<Long>>any());
+    }
+
+    @Test(groups = "fast")
+    public void testWritesDroppedOnRollback() {
+        DBRouterUntyped.setReplicaLagMonitor(rwDbi, replicaLagMonitor);
+
+        dbRouter.onTransactionStarted();
+        DBRouterUntyped.recordWrite(1L);
+        dbRouter.onTransactionCompleted(false);
+        Mockito.verify(replicaLagMonitor, Mockito.never()).recordWrites(Mockito.<Collection<Long>>any());
+
+        // The rolled back writes aren't recorded by the next transaction either
+        dbRouter.onTransactionStarted();
+        DBRouterUntyped.recordWrite(2L);
+        dbRouter.onTransactionCompleted(true);
+        Mockito.verify(replicaLagMonitor, Mockito.times(1)).recordWrites(ImmutableSet.<Long>of(2L));
+    }
+
+    private void withRODBIAllowed(final Runnable runnable) throws Throwable {
+        DBRouterUntyped.withRODBIAllowed(true, new WithProfilingCallback<Object, Throwable>() {
+            @Override
+            public Object execute() throws Throwable {
+                runnable.run();
+                return null;
+            }
+        });
+    }
+}
@@ -85,6 +85,72 @@ public class TestDefaultPaginationSqlDaoHelper extends UtilTestSuiteWithEmbedded
         searchAndValidateKombuchas("jasmin", 0L, 100L, 4, 1L, 1L, null, 0L, null);
     }
 
+    @Test(groups = "slow")
+    public void testKeysetPagination() {
+        insertKombuchas(4);
+
+        // 2 ginger kombuchas
+        final KeysetPagination firstPage = KeysetPagination.start(null);
+        final List<KombuchaModelDao> firstResults;
+        try {
+            final Pagination<KombuchaModelDao> pagination = searchKombuchas("ginger", 0L, 1L, 100L);
+            // Counts are skipped
+            Assert.assertNull(pagination.getTotalNbRecords());
+            Assert.assertNull(pagination.getMaxNbRecords());
+            firstResults = ImmutableList.<KombuchaModelDao>copyOf(pagination);
+        } finally {
+            KeysetPagination.stop();
+        }
+        Assert.assertTrue(firstPage.isApplied());
+        Assert.assertEquals(firstResults.size(), 1);
+        Assert.assertEquals(firstResults.get(0).getId(), kombuchas.get(1).getId());
+        Assert.assertNotNull(firstPage.getNextPageToken());
+
+        final KeysetPagination secondPage = KeysetPagination.start(firstPage.getNextPageToken());
+        final List<KombuchaModelDao> secondResults;
+        try {
+            secondResults = ImmutableList.<KombuchaModelDao>copyOf(searchKombuchas("ginger", 0L, 1L, 100L));
+        } finally {
+            KeysetPagination.stop();
+        }
+        Assert.assertEquals(secondResults.size(), 1);
+        Assert.assertEquals(secondResults.get(0).getId(), kombuchas.get(3).getId());
+        Assert.assertNotNull(secondPage.getNextPageToken());
+
+        final KeysetPagination thirdPage = KeysetPagination.start(secondPage.getNextPageToken());
+        try {
+            Assert.assertFalse(searchKombuchas("ginger", 0L, 1L, 100L).iterator().hasNext());
+        } finally {
+            KeysetPagination.stop();
+        }
+        // Last page
+        Assert.assertNull(thirdPage.getNextPageToken());
+
+        // Backwards
+        final KeysetPagination descPage = KeysetPagination.start(secondPage.getNextPageToken());
+        final List<KombuchaModelDao> descResults;
+        try {
+            descResults = ImmutableList.<KombuchaModelDao>copyOf(searchKombuchas("ginger", 0L, -10L, 100L));
+        } finally {
+            KeysetPagination.stop();
+        }
+        Assert.assertEquals(descResults.size(), 1);
+        Assert.assertEquals(descResults.get(0).getId(), kombuchas.get(1).getId());
+        Assert.assertNull(descPage.getNextPageToken());
+    }
+
+    @Test(groups = "slow")
+    public void testInvalidPageToken() {
+        Assert.assertEquals(KeysetPagination.decode(KeysetPagination.encode(12345L)), (Long) 12345L);
+        try {
+            KeysetPagination.start("not a token");
+            Assert.fail();
+        } catch (final IllegalArgumentException expected) {
+        } finally {
+            KeysetPagination.stop();
+        }
+    }
+
     private void searchAndValidateKombuchas(final String tea,
                                             final Long offset,
                                             final Long limit,
@@ -116,6 +182,11 @@ public class TestDefaultPaginationSqlDaoHelper extends UtilTestSuiteWithEmbedded
             public Iterator<KombuchaModelDao> build(final EntitySqlDao<KombuchaModelDao, Kombucha> sqlDao, final Long offset, final Long limit, final Ordering ordering, final InternalTenantContext context) {
                 return sqlDao.search(searchKey, String.format("%%%s%%", searchKey), offset, limit, ordering.toString(), context);
             }
+
+            @Override
+            public Iterator<KombuchaModelDao> buildFromRecordId(final EntitySqlDao<KombuchaModelDao, Kombucha> sqlDao, final Long minRecordId, final Long maxRecordId, final Long limit, final Ordering ordering, final InternalTenantContext context) {
+                return sqlDao.searchByRecordIdRange(searchKey, String.format("%%%s%%", searchKey), minRecordId, maxRecordId, limit, ordering.toString(), context);
+            }
         };
 
         final DefaultPaginationSqlDaoHelper defaultPaginationSqlDaoHelper = new DefaultPaginationSqlDaoHelper(transactionalSqlDao, simplePaginationThreshold);
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.entity.dao;
+
+import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
+import org.killbill.billing.util.config.definition.ReadReplicaConfig;
+import org.skife.config.TimeSpan;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+// Note: the read-only DBI points to the same database in tests, i.e. the replica never lags
+public class TestReplicaLagMonitor extends UtilTestSuiteWithEmbeddedDB {
+
+    @AfterMethod(groups = "slow")
+    public void tearDown() {
+        DBRouterUntyped.setReplicaLagMonitor(dbi, null);
+    }
+
+    @Test(groups = "slow")
+    public void testDisabled() {
+        final ReplicaLagMonitor monitor = new ReplicaLagMonitor(dbi, roDbi, new TestReadReplicaConfig("0s", "10s"));
+        Assert.assertFalse(monitor.isEnabled());
+    }
+
+    @Test(groups = "slow")
+    public void testReadYourWrites() throws InterruptedException {
+        final ReplicaLagMonitor monitor = new ReplicaLagMonitor(dbi, roDbi, new TestReadReplicaConfig("1h", "1h"));
+        Assert.assertTrue(monitor.isEnabled());
+
+        // No heartbeat replicated yet (measurements are then only triggered explicitly, given the heartbeat interval)
+        Assert.assertFalse(monitor.canUseReplica(null));
+
+        nextHeartbeat(monitor);
+        Assert.assertTrue(monitor.canUseReplica(null));
+        Assert.assertTrue(monitor.canUseReplica(1L));
+
+        monitor.recordWrites(ImmutableList.<Long>of(1L));
+        Assert.assertTrue(monitor.canUseReplica(null));
+        Assert.assertFalse(monitor.canUseReplica(1L));
+        Assert.assertTrue(monitor.canUseReplica(2L));
+
+        // The replicated heartbeat was written before the write
+        nextHeartbeat(monitor);
+        Assert.assertFalse(monitor.canUseReplica(1L));
+
+        // The replicated heartbeat was written after the write
+        nextHeartbeat(monitor);
+        Assert.assertTrue(monitor.canUseReplica(1L));
+    }
+
+    @Test(groups = "slow")
+    public void testLagAboveThreshold() throws InterruptedException {
+        // Heartbeats are measured on each call, but the replicated one is always older than the threshold
+        final ReplicaLagMonitor monitor = new ReplicaLagMonitor(dbi, roDbi, new TestReadReplicaConfig("1ms", "2ms"));
+        Assert.assertFalse(monitor.canUseReplica(null));
+
+        Thread.sleep(5);
+        Assert.assertFalse(monitor.canUseReplica(null));
+    }
+
+    @Test(groups = "slow", expectedExceptions = IllegalArgumentException.class)
+    public void testMaxLagBelowHeartbeatInterval() {
+        new ReplicaLagMonitor(dbi, roDbi, new TestReadReplicaConfig("10s", "5s"));
+    }
+
+    private void nextHeartbeat(final ReplicaLagMonitor monitor) throws InterruptedException {
+        Thread.sleep(5);
+        monitor.refresh();
+    }
+
+    private static final class TestReadReplicaConfig implements ReadReplicaConfig {
+
+        private final TimeSpan heartbeatInterval;
+        private final TimeSpan maxLag;
+
+        private TestReadReplicaConfig(final String heartbeatInterval, final String maxLag) {
+            this.heartbeatInterval = new TimeSpan(heartbeatInterval);
+            this.maxLag = new TimeSpan(maxLag);
+        }
+
+        @Override
+        public TimeSpan getHeartbeatInterval() {
+            return heartbeatInterval;
+        }
+
+        @Override
+        public TimeSpan getMaxLag() {
+            return maxLag;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2020-2020 Equinix, Inc
+ * Copyright 2014-2020 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.export.dao;
+
+import java.io.ByteArrayOutputStream;
+import java.util.UUID;
+
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.killbill.billing.util.api.ColumnInfo;
+import org.killbill.billing.util.validation.DefaultColumnInfo;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+public class TestNDJSONExportOutputStream extends UtilTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testSimpleGenerator() throws Exception {
+        final ByteArrayOutputStream delegate = new ByteArrayOutputStream();
+        final NDJSONExportOutputStream out = new NDJSONExportOutputStream(delegate);
+
+        final String tableName1 = UUID.randomUUID().toString();
+        out.newTable(tableName1,
+                     ImmutableList.<ColumnInfo>of(
+                             new DefaultColumnInfo(tableName1, "first_name", 0L, 0L, true, 0L, "varchar"),
+                             new DefaultColumnInfo(tableName1, "last_name", 0L, 0L, true, 0L, "varchar"),
+                             new DefaultColumnInfo(tableName1, "age", 0L, 0L, true, 0L, "tinyint"))
+                    );
+        // Don't assume "ordering"
+        out.write(ImmutableMap.<String, Object>of("last_name", "dupond",
+                                                  "first_name", "jean",
+                                                  "age", 35));
+        // Verify special characters
+        out.write(ImmutableMap.<String, Object>of("first_name", "q\nw",
+                                                  "last_name", "a|\"B",
+                                                  "age", 1));
+
+        final String tableName2 = UUID.randomUUID().toString();
+        out.newTable(tableName2,
+                     ImmutableList.<ColumnInfo>of(new DefaultColumnInfo(tableName2, "blob_column", 0L, 0L, true, 0L, "blob")));
+        out.write(ImmutableMap.<String, Object>of("blob_column", new byte[]{'c', 'a', 'f', 'e'}));
+
+        Assert.assertEquals(delegate.toString("UTF-8"), "{\"table\":\"" + tableName1 + "\",\"row\":{\"first_name\":\"jean\",\"last_name\":\"dupond\",\"age\":35}}\n" +
+                                                        "{\"table\":\"" + tableName1 + "\",\"row\":{\"first_name\":\"q\\nw\",\"last_name\":\"a|\\\"B\",\"age\":1}}\n" +
+                                                        "{\"table\":\"" + tableName2 + "\",\"row\":{\"blob_column\":\"Y2FmZQ==\"}}\n");
+    }
+}
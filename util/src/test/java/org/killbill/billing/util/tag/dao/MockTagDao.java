@@ -17,6 +17,7 @@
 package org.killbill.billing.util.tag.dao;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -55,6 +56,20 @@ public class MockTagDao extends MockEntityDaoBase<TagModelDao, Tag, TagApiExcept
         tagStore.get(getAccountId(context.getAccountRecordId())).add(tag);
     }
 
+    @Override
+    public void createTags(final UUID objectId, final ObjectType objectType, final Collection<UUID> tagDefinitionIds, final InternalCallContext context) throws TagApiException {
+        for (final UUID tagDefinitionId : tagDefinitionIds) {
+            create(new TagModelDao(context.getCreatedDate(), tagDefinitionId, objectId, objectType), context);
+        }
+    }
+
+    @Override
+    public void deleteTags(final UUID objectId, final ObjectType objectType, final Collection<UUID> tagDefinitionIds, final InternalCallContext context) {
+        for (final UUID tagDefinitionId : tagDefinitionIds) {
+            deleteTag(objectId, objectType, tagDefinitionId, context);
+        }
+    }
+
     @Override
     public void deleteTag(final UUID objectId, final ObjectType objectType,
                           final UUID tagDefinitionId, final InternalCallContext context) {
@@ -39,6 +39,8 @@ import org.killbill.billing.util.tag.ControlTagType;
 import org.killbill.billing.util.tag.DescriptiveTag;
 import org.killbill.billing.util.tag.Tag;
 
+import com.google.common.collect.ImmutableList;
+
 import static org.testng.Assert.assertEquals;
 
 public class TestDefaultTagDao extends UtilTestSuiteWithEmbeddedDB {
@@ -184,6 +186,59 @@ public class TestDefaultTagDao extends UtilTestSuiteWithEmbeddedDB {
 
     }
 
+    @Test(groups = "slow")
+    public void testBulkCreateAndDelete() throws Exception {
+        final UUID objectId = UUID.randomUUID();
+        final ObjectType objectType = ObjectType.ACCOUNT;
+
+        eventsListener.pushExpectedEvents(NextEvent.TAG_DEFINITION, NextEvent.TAG_DEFINITION);
+        final TagDefinitionModelDao firstTagDefinition = tagDefinitionDao.create(UUID.randomUUID().toString().substring(0, 5), "first", ObjectType.ACCOUNT.name(), internalCallContext);
+        final TagDefinitionModelDao secondTagDefinition = tagDefinitionDao.create(UUID.randomUUID().toString().substring(0, 5), "second", ObjectType.ACCOUNT.name(), internalCallContext);
+        assertListenerStatus();
+
+        // Duplicates are only created once
+        eventsListener.pushExpectedEvents(NextEvent.TAG, NextEvent.TAG);
+        tagDao.createTags(objectId, objectType, ImmutableList.<UUID>of(firstTagDefinition.getId(), secondTagDefinition.getId(), firstTagDefinition.getId()), internalCallContext);
+        assertListenerStatus();
+
+        final List<TagModelDao> tags = tagDao.getTagsForObject(objectId, objectType, false, internalCallContext);
+        Assert.assertEquals(tags.size(), 2);
+        for (final TagModelDao tag : tags) {
+            final List<AuditLog> auditLogs = auditDao.getAuditLogsForId(TableName.TAG, tag.getId(), AuditLevel.FULL, internalCallContext);
+            Assert.assertEquals(auditLogs.size(), 1);
+            Assert.assertEquals(auditLogs.get(0).getChangeType(), ChangeType.INSERT);
+        }
+
+        // Existing tags are skipped
+        tagDao.createTags(objectId, objectType, ImmutableList.<UUID>of(firstTagDefinition.getId()), internalCallContext);
+        assertListenerStatus();
+        Assert.assertEquals(tagDao.getTagsForObject(objectId, objectType, false, internalCallContext).size(), 2);
+
+        eventsListener.pushExpectedEvents(NextEvent.TAG, NextEvent.TAG);
+        tagDao.deleteTags(objectId, objectType, ImmutableList.<UUID>of(firstTagDefinition.getId(), secondTagDefinition.getId()), internalCallContext);
+        assertListenerStatus();
+
+        Assert.assertEquals(tagDao.getTagsForObject(objectId, objectType, false, internalCallContext).size(), 0);
+        for (final TagModelDao tag : tags) {
+            final List<AuditLog> auditLogs = auditDao.getAuditLogsForId(TableName.TAG, tag.getId(), AuditLevel.FULL, internalCallContext);
+            Assert.assertEquals(auditLogs.size(), 2);
+            Assert.assertEquals(auditLogs.get(0).getChangeType(), ChangeType.INSERT);
+            Assert.assertEquals(auditLogs.get(1).getChangeType(), ChangeType.DELETE);
+        }
+
+        // Nothing is deleted if one of the tags doesn't exist
+        eventsListener.pushExpectedEvent(NextEvent.TAG);
+        tagDao.createTags(objectId, objectType, ImmutableList.<UUID>of(firstTagDefinition.getId()), internalCallContext);
+        assertListenerStatus();
+        try {
+            tagDao.deleteTags(objectId, objectType, ImmutableList.<UUID>of(firstTagDefinition.getId(), secondTagDefinition.getId()), internalCallContext);
+            Assert.fail("Deleting a missing tag should fail");
+        } catch (final TagApiException e) {
+            Assert.assertEquals(e.getCode(), ErrorCode.TAG_DOES_NOT_EXIST.getCode());
+        }
+        Assert.assertEquals(tagDao.getTagsForObject(objectId, objectType, false, internalCallContext).size(), 1);
+    }
+
     @Test(groups = "slow")
     public void testInsertMultipleTags() throws TagApiException {
         final UUID objectId = UUID.randomUUID();